@@ -14,6 +14,15 @@
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.management.*;
 
 public class Main {
 
@@ -26,99 +35,1506 @@ public class Main {
         }
     }
 
-    // Step 1: Orientation check function
-    // 0 -> Collinear, 1 -> Clockwise, 2 -> Counterclockwise
-    static int orientation(Point p, Point q, Point r) {
-        int val = (q.y - p.y) * (r.x - q.x) - (q.x - p.x) * (r.y - q.y);
-        if (val == 0) return 0;
-        return (val > 0) ? 1 : 2;
+    // Shared predicate kernel. Every algorithm file carries its own copy, cut down
+    // to the predicates it calls, so each file still runs on its own. The integer
+    // predicates take primitive arguments and never allocate.
+    static final class Predicates {
+        private Predicates() {
+        }
+
+        // Sign of (b - a) x (c - a): 1 counterclockwise, -1 clockwise, 0 collinear.
+        // Exact for all int coordinates.
+        static int orient(long ax, long ay, long bx, long by, long cx, long cy) {
+            long abx = bx - ax, aby = by - ay, acx = cx - ax, acy = cy - ay;
+            if (((Math.abs(abx) | Math.abs(aby) | Math.abs(acx) | Math.abs(acy)) >>> 31) == 0)
+                return Long.signum(abx * acy - aby * acx);
+
+            // Products need up to 66 bits here, compare them as 128-bit values
+            long h1 = Math.multiplyHigh(abx, acy), h2 = Math.multiplyHigh(aby, acx);
+            if (h1 != h2) return h1 < h2 ? -1 : 1;
+            return Integer.signum(Long.compareUnsigned(abx * acy, aby * acx));
+        }
+
+        // True if q lies within the bounding box of segment pr (use after orient == 0)
+        static boolean onSegment(long px, long py, long qx, long qy, long rx, long ry) {
+            return qx >= Math.min(px, rx) && qx <= Math.max(px, rx)
+                && qy >= Math.min(py, ry) && qy <= Math.max(py, ry);
+        }
     }
 
-    // Step 2: Distance squared (used for tie-breaking while sorting)
-    static int distSq(Point p1, Point p2) {
-        return (p1.x - p2.x) * (p1.x - p2.x)
-             + (p1.y - p2.y) * (p1.y - p2.y);
+    // Headless batch I/O. Every algorithm file carries its own copy of this class,
+    // trimmed to what it uses.
+    //
+    // Binary tables start with a 24-byte little-endian header: magic "GEOB", the
+    // column count, the element type (0 = int32, 1 = float64), a reserved zero word
+    // and the record count as a long. The columns follow one after another. Files are memory-mapped and
+    // each column is bulk-copied straight into a primitive array, no parsing.
+    // Anything without the magic is read as text: one record per line, numbers
+    // separated by spaces, tabs or commas, '#' starts a comment.
+    static final class PointIO {
+        static final int MAGIC = 0x424F4547; // "GEOB" read little-endian
+        static final int INT32 = 0, FLOAT64 = 1;
+        private static final int HEADER = 24;
+        private static final long WINDOW = 1 << 30; // bytes mapped at a time
+
+        // n records of `columns` values each, stored by column
+        static final class Table {
+            final int n, columns;
+            final int[][] ints;       // int32 tables
+            final double[][] doubles; // float64 tables
+
+            Table(int n, int[][] ints) {
+                this.n = n;
+                this.columns = ints.length;
+                this.ints = ints;
+                this.doubles = null;
+            }
+
+            Table(int n, double[][] doubles) {
+                this.n = n;
+                this.columns = doubles.length;
+                this.ints = null;
+                this.doubles = doubles;
+            }
+
+            int[] intColumn(int c) {
+                if (ints != null) return ints[c];
+                int[] col = new int[n];
+                for (int i = 0; i < n; i++) {
+                    double v = doubles[c][i];
+                    if (v != (int) v) throw new IllegalArgumentException("column " + c + " is not integral");
+                    col[i] = (int) v;
+                }
+                return col;
+            }
+
+            void requireColumns(int c) {
+                if (columns != c)
+                    throw new IllegalArgumentException("expected " + c + " values per record, got " + columns);
+            }
+        }
+
+        // Reads a binary or text table; "-" reads text from stdin
+        static Table read(String path) throws IOException {
+            if (path.equals("-")) return readText(System.in);
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                if (ch.size() >= HEADER) {
+                    ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                    while (head.hasRemaining() && ch.read(head, head.position()) > 0) { }
+                    head.flip();
+                    if (head.getInt() == MAGIC) return readBinary(ch, head);
+                }
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                return readText(in);
+            }
+        }
+
+        private static Table readBinary(FileChannel ch, ByteBuffer head) throws IOException {
+            int columns = head.getInt(), type = head.getInt();
+            head.getInt(); // reserved
+            long count = head.getLong();
+            int width = type == INT32 ? 4 : 8;
+            if (columns <= 0 || (type != INT32 && type != FLOAT64) || count < 0 || count > Integer.MAX_VALUE - 8
+                    || ch.size() < HEADER + count * width * columns)
+                throw new IOException("corrupt GEOB header");
+            int n = (int) count;
+            long offset = HEADER;
+            if (type == INT32) {
+                int[][] cols = new int[columns][n];
+                for (int[] col : cols) {
+                    for (int done = 0; done < n; ) {
+                        int len = (int) Math.min(n - done, WINDOW / 4);
+                        ch.map(FileChannel.MapMode.READ_ONLY, offset, 4L * len)
+                          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(col, done, len);
+                        offset += 4L * len;
+                        done += len;
+                    }
+                }
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (double[] col : cols) {
+                for (int done = 0; done < n; ) {
+                    int len = (int) Math.min(n - done, WINDOW / 8);
+                    ch.map(FileChannel.MapMode.READ_ONLY, offset, 8L * len)
+                      .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(col, done, len);
+                    offset += 8L * len;
+                    done += len;
+                }
+            }
+            return new Table(n, cols);
+        }
+
+        // Line-oriented text reader over a byte buffer; numbers are parsed in place
+        static Table readText(InputStream in) throws IOException {
+            TextReader r = new TextReader(in);
+            double[] vals = new double[1024];
+            int count = 0, columns = -1, onLine = 0, line = 1;
+            boolean integral = true;
+            while (true) {
+                int c = r.peek();
+                if (c == -1 || c == '\n') {
+                    if (onLine > 0) {
+                        if (columns == -1) columns = onLine;
+                        else if (onLine != columns)
+                            throw new IOException("line " + line + ": expected " + columns + " values, got " + onLine);
+                    }
+                    onLine = 0;
+                    if (c == -1) break;
+                    r.skip();
+                    line++;
+                } else if (c == '#') {
+                    while (r.peek() != '\n' && r.peek() != -1) r.skip();
+                } else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+                    r.skip();
+                } else {
+                    if (count == vals.length) vals = Arrays.copyOf(vals, count * 2);
+                    double v = r.number(line);
+                    integral &= v == (int) v && !r.sawFraction;
+                    vals[count++] = v;
+                    onLine++;
+                }
+            }
+            if (columns == -1) return new Table(0, new int[0][0]);
+
+            int n = count / columns;
+            if (integral) {
+                int[][] cols = new int[columns][n];
+                for (int i = 0; i < count; i++) cols[i % columns][i / columns] = (int) vals[i];
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (int i = 0; i < count; i++) cols[i % columns][i / columns] = vals[i];
+            return new Table(n, cols);
+        }
+
+        private static final class TextReader {
+            private static final double[] POW10 = new double[23];
+            static {
+                POW10[0] = 1;
+                for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+            }
+
+            private final InputStream in;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] token = new byte[64];
+            private int pos, len;
+            boolean sawFraction;
+
+            TextReader(InputStream in) {
+                this.in = in;
+            }
+
+            int peek() throws IOException {
+                if (pos == len) {
+                    len = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (len <= 0) {
+                        len = 0;
+                        return -1;
+                    }
+                }
+                return buf[pos];
+            }
+
+            void skip() {
+                pos++;
+            }
+
+            // Decimal number; short ones are assembled exactly from an integer
+            // mantissa and a power of ten, the rest go through Double.parseDouble
+            double number(int line) throws IOException {
+                int t = 0, c;
+                while ((c = peek()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                        || (c >= '0' && c <= '9'))) {
+                    if (t == token.length) throw new IOException("line " + line + ": number too long");
+                    token[t++] = (byte) c;
+                    skip();
+                }
+                if (t == 0) throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+
+                int i = 0;
+                boolean neg = token[0] == '-';
+                if (token[0] == '-' || token[0] == '+') i++;
+                long mant = 0;
+                int digits = 0, exp = 0;
+                boolean any = false;
+                sawFraction = false;
+                for (; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                    if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; }
+                    else exp++;
+                }
+                if (i < t && token[i] == '.') {
+                    sawFraction = true;
+                    for (i++; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                        if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; exp--; }
+                    }
+                }
+                if (i < t && (token[i] == 'e' || token[i] == 'E')) {
+                    sawFraction = true;
+                    return slow(t, line);
+                }
+                if (!any || i != t) throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                if (digits <= 15 && exp >= -22 && exp <= 22) {
+                    double v = exp >= 0 ? mant * POW10[exp] : mant / POW10[-exp];
+                    return neg ? -v : v;
+                }
+                return slow(t, line);
+            }
+
+            private double slow(int t, int line) throws IOException {
+                try {
+                    return Double.parseDouble(new String(token, 0, t));
+                } catch (NumberFormatException e) {
+                    throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                }
+            }
+        }
+
+        // Writes a table as a binary GEOB file
+        static void writeBinary(Table t, String path) throws IOException {
+            int width = t.ints != null ? 4 : 8;
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(MAGIC).putInt(t.columns).putInt(t.ints != null ? INT32 : FLOAT64).putInt(0).putLong(t.n);
+                for (int c = 0; c < t.columns; c++) {
+                    for (int i = 0; i < t.n; i++) {
+                        if (buf.remaining() < width) {
+                            buf.flip();
+                            while (buf.hasRemaining()) ch.write(buf);
+                            buf.clear();
+                        }
+                        if (t.ints != null) buf.putInt(t.ints[c][i]);
+                        else buf.putDouble(t.doubles[c][i]);
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+        }
+
+        // Streaming text writer: numbers are formatted straight into a byte buffer
+        static final class Writer implements Closeable {
+            private final OutputStream out;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] digits = new byte[20];
+            private int pos;
+
+            Writer(OutputStream out) {
+                this.out = out;
+            }
+
+            // "-" writes to stdout
+            static Writer open(String path) throws IOException {
+                return new Writer(path.equals("-") ? System.out : Files.newOutputStream(Paths.get(path)));
+            }
+
+            Writer num(long v) throws IOException {
+                if (v == Long.MIN_VALUE) return text(Long.toString(v));
+                if (v < 0) {
+                    put('-');
+                    v = -v;
+                }
+                int k = 0;
+                do {
+                    digits[k++] = (byte) ('0' + v % 10);
+                    v /= 10;
+                } while (v != 0);
+                while (k > 0) put(digits[--k]);
+                return this;
+            }
+
+            Writer text(String s) throws IOException {
+                for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+                return this;
+            }
+
+            Writer sep() throws IOException {
+                put(' ');
+                return this;
+            }
+
+            Writer newline() throws IOException {
+                put('\n');
+                return this;
+            }
+
+            private void put(int b) throws IOException {
+                if (pos == buf.length) flush();
+                buf[pos++] = (byte) b;
+            }
+
+            void flush() throws IOException {
+                out.write(buf, 0, pos);
+                pos = 0;
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+                if (out != System.out) out.close();
+            }
+        }
+
+        // "convert <in> <out>": any readable table to a binary GEOB file
+        static void convert(String in, String out) throws IOException {
+            writeBinary(read(in), out);
+        }
     }
 
-    // Reference point for sorting by polar angle
-    static Point p0;
+    // Space-filling-curve order for cache locality. Every algorithm file that
+    // uses it carries its own copy, trimmed to what it calls. Engines opt in by
+    // permuting their input with an order from here and mapping result indices
+    // back through it.
+    //
+    // Points are snapped to a 2^16 x 2^16 grid over their bounding square and
+    // keyed by Hilbert index. The keys are sorted by a three-pass LSD radix sort
+    // that carries the point index, so equal keys keep input order.
+    static final class SpatialOrder {
+        static final int BITS = 16;
+        private static final int RADIX = 11;
 
-    // Step 3: Comparator for sorting points with respect to p0
-    static class PolarComparator implements Comparator<Point> {
-        public int compare(Point p1, Point p2) {
-            int o = orientation(p0, p1, p2);
-            if (o == 0)
-                return (distSq(p0, p2) >= distSq(p0, p1)) ? -1 : 1;
-            return (o == 2) ? -1 : 1;
+        // order[k] = index of the k-th point along the curve
+        static int[] hilbert(int[] xs, int[] ys, int n) {
+            return sort(keys(xs, ys, n), n);
+        }
+
+        // a[order[k]] at k
+        static int[] permute(int[] a, int[] order, int n) {
+            int[] b = new int[n];
+            for (int k = 0; k < n; k++) b[k] = a[order[k]];
+            return b;
+        }
+
+        // Hilbert index of grid cell (x, y), 0 <= x, y < 2^BITS, as an unsigned int.
+        // The usual loop rotates quadrant by quadrant and branches on every bit.
+        // Here the quadrant transforms of all 16 levels are composed as a prefix
+        // scan over bit masks in four rounds instead: same curve, no branches.
+        static int key(int x, int y) {
+            int a = x ^ y, b = 0xFFFF ^ a, c = 0xFFFF ^ (x | y), d = x & (y ^ 0xFFFF);
+            int pa = a | (b >>> 1), pb = (a >>> 1) ^ a;
+            int pc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c, pd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+            for (int s = 2; s <= 8; s <<= 1) {
+                a = pa;
+                b = pb;
+                c = pc;
+                d = pd;
+                pa = (a & (a >>> s)) ^ (b & (b >>> s));
+                pb = (a & (b >>> s)) ^ (b & ((a ^ b) >>> s));
+                pc ^= (a & (c >>> s)) ^ (b & (d >>> s));
+                pd ^= (b & (c >>> s)) ^ ((a ^ b) & (d >>> s));
+            }
+            a = pc ^ (pc >>> 1);
+            b = pd ^ (pd >>> 1);
+            int i0 = x ^ y, i1 = b | (0xFFFF ^ (i0 | a));
+            return spread(i1) << 1 | spread(i0);
+        }
+
+        // The low 16 bits of v moved to the even bit positions
+        private static int spread(int v) {
+            v = (v | v << 8) & 0x00FF00FF;
+            v = (v | v << 4) & 0x0F0F0F0F;
+            v = (v | v << 2) & 0x33333333;
+            return (v | v << 1) & 0x55555555;
+        }
+
+        // Keys in the high word, indices in the low word
+        private static long[] keys(int[] xs, int[] ys, int n) {
+            long minX = Long.MAX_VALUE, minY = minX, maxX = Long.MIN_VALUE, maxY = maxX;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            long side = Math.max(1, Math.max(maxX - minX, maxY - minY)), cells = (1 << BITS) - 1;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                int cx = (int) ((xs[i] - minX) * cells / side), cy = (int) ((ys[i] - minY) * cells / side);
+                keys[i] = (long) key(cx, cy) << 32 | i;
+            }
+            return keys;
+        }
+
+        // LSD radix sort on the unsigned high word, stable; returns the low words
+        private static int[] sort(long[] keys, int n) {
+            long[] buf = new long[n];
+            int[] count = new int[1 << RADIX];
+            for (int shift = 32; shift < 64; shift += RADIX) {
+                Arrays.fill(count, 0);
+                for (int i = 0; i < n; i++) count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++;
+                for (int b = 0, sum = 0; b < count.length; b++) {
+                    int c = count[b];
+                    count[b] = sum;
+                    sum += c;
+                }
+                for (int i = 0; i < n; i++) buf[count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++] = keys[i];
+                long[] t = keys;
+                keys = buf;
+                buf = t;
+            }
+            int[] order = new int[n];
+            for (int k = 0; k < n; k++) order[k] = (int) keys[k];
+            return order;
         }
     }
 
-    // Step 4: Main Convex Hull Function (Graham's Scan)
-    static List<Point> convexHull(Point[] points, int n) {
-        if (n < 3) return new ArrayList<>();
+    // Standard benchmark workloads and timing. Every algorithm file carries its own
+    // copy, trimmed to the workloads it runs, so the suites of all files share
+    // inputs and output format.
+    //
+    // Workloads are seeded, so a run can be repeated exactly; coordinates lie in
+    // [0, 2^28). A measurement warms up for half a second, then repeats the body
+    // for at least a second. It reports time per run, items per second, and heap
+    // allocated per item and per second summed over all live threads (what JMH's
+    // gc profiler reports). Sizes step by 10 from 10^3.
+    static final class Bench {
+        static final int BOX = 1 << 28;
+        static final long SEED = 42;
+        static final String[] POINTS = {"uniform", "clustered", "circle", "grid"};
+
+        interface Body {
+            long run(); // a checksum, so the work cannot be dropped
+        }
+
+        static int[] sizes(int max) {
+            int k = 0;
+            int[] sizes = new int[10];
+            for (long n = 1000; n <= max; n *= 10) sizes[k++] = (int) n;
+            return Arrays.copyOf(sizes, k);
+        }
+
+        // 1, 2, 4, .. up to and including the number of cores
+        static int[] threads() {
+            int cores = Runtime.getRuntime().availableProcessors(), k = 0;
+            int[] counts = new int[32];
+            for (int t = 1; ; t = Math.min(cores, t * 2)) {
+                counts[k++] = t;
+                if (t == cores) break;
+            }
+            return Arrays.copyOf(counts, k);
+        }
+
+        // n points of a workload:
+        //   uniform    anywhere in the box
+        //   clustered  64 tight Gaussian clusters
+        //   circle     on one circle, the worst case for hulls
+        //   grid       lattice points, so repeated, collinear and cocircular
+        static void points(String workload, int n, long seed, int[] xs, int[] ys) {
+            Random rnd = new Random(seed);
+            int side = (int) Math.ceil(Math.sqrt(n)), step = BOX / Math.max(1, side);
+            int[] cx = new int[64], cy = new int[64];
+            for (int c = 0; c < 64; c++) {
+                cx[c] = rnd.nextInt(BOX);
+                cy[c] = rnd.nextInt(BOX);
+            }
+            for (int i = 0; i < n; i++) {
+                switch (workload) {
+                    case "uniform":
+                        xs[i] = rnd.nextInt(BOX);
+                        ys[i] = rnd.nextInt(BOX);
+                        break;
+                    case "clustered":
+                        int c = rnd.nextInt(64);
+                        xs[i] = clamp(cx[c] + rnd.nextGaussian() * (BOX >> 10));
+                        ys[i] = clamp(cy[c] + rnd.nextGaussian() * (BOX >> 10));
+                        break;
+                    case "circle":
+                        double a = 2 * Math.PI * (i + rnd.nextDouble()) / n;
+                        xs[i] = clamp(BOX / 2 + Math.cos(a) * (BOX / 2 - 1));
+                        ys[i] = clamp(BOX / 2 + Math.sin(a) * (BOX / 2 - 1));
+                        break;
+                    case "grid":
+                        xs[i] = rnd.nextInt(side) * step;
+                        ys[i] = rnd.nextInt(side) * step;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown point workload " + workload);
+                }
+            }
+        }
+
+        static void header(PrintWriter pw) {
+            pw.printf("%-32s %-10s %9s %14s %16s %13s %12s%n", "benchmark", "workload", "n", "time", "throughput",
+                "allocated", "alloc rate");
+            pw.flush();
+        }
+
+        static void measure(PrintWriter pw, String name, String workload, int n, Body body) {
+            long sink = 0;
+            long end = System.nanoTime() + 500_000_000L;
+            do sink += body.run(); while (System.nanoTime() < end);
+            long runs = 0, bytes = allocated(), t0 = System.nanoTime(), nanos;
+            do {
+                sink += body.run();
+                runs++;
+            } while ((nanos = System.nanoTime() - t0) < 1_000_000_000L);
+            bytes = allocated() - bytes;
+            double ms = nanos / 1e6 / runs;
+            pw.printf("%-32s %-10s %9d %10.3f ms %10.2f Mitem/s %8.1f B/item %7.1f MB/s%n", name, workload, n, ms,
+                n / ms / 1e3, (double) bytes / runs / n, bytes / (nanos / 1e3));
+            if (sink == 42) pw.print("");
+            pw.flush();
+        }
+
+        // Bytes allocated so far by every live thread
+        private static long allocated() {
+            com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            long sum = 0;
+            for (long b : mx.getThreadAllocatedBytes(mx.getAllThreadIds())) sum += Math.max(b, 0);
+            return sum;
+        }
+
+        private static int clamp(double v) {
+            return (int) Math.max(0, Math.min(BOX - 1, Math.round(v)));
+        }
+    }
+
+    // Optional hot-path metrics. Every algorithm file carries its own copy of this
+    // class, trimmed to the kinds of metric it uses.
+    // They are off unless the JVM runs with -Dgeometry.metrics=true; ENABLED is
+    // a static final, so with it off the JIT drops every `if (Metrics.ENABLED)`
+    // block and the engines run as before. Engines count into locals or plain
+    // fields and publish once per call, so hot loops never touch shared state.
+    //
+    // Counters sum, and timers sum calls and nanoseconds per phase. Both are
+    // striped (LongAdder), so any number of threads can publish at once. snapshot() reads them by name, and
+    // export() serves the same values as read-only attributes of the MBean
+    // geometry:type=Metrics,name=<engine>, and prints them to stderr on exit.
+    static final class Metrics {
+        static final boolean ENABLED = Boolean.getBoolean("geometry.metrics");
+        private static final Map<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+        private Metrics() {
+        }
+
+        static final class Counter {
+            private final LongAdder sum = new LongAdder();
+
+            void add(long v) {
+                sum.add(v);
+            }
+        }
+
+        static final class Timer {
+            private final LongAdder calls = new LongAdder(), nanos = new LongAdder();
+
+            // Adds the time since start and returns now, the start of the next phase
+            long lap(long start) {
+                long now = System.nanoTime();
+                calls.increment();
+                nanos.add(now - start);
+                return now;
+            }
+        }
+
+        static Counter counter(String name) {
+            return register(name, new Counter());
+        }
+
+        static Timer timer(String name) {
+            return register(name, new Timer());
+        }
+
+        // Start of a timed phase, 0 when metrics are off
+        static long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        // Current values by name; a timer shows up as name.calls and name.ns
+        static Map<String, Long> snapshot() {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+                String name = e.getKey();
+                Object m = e.getValue();
+                if (m instanceof Counter) {
+                    values.put(name, ((Counter) m).sum.sum());
+                } else {
+                    values.put(name + ".calls", ((Timer) m).calls.sum());
+                    values.put(name + ".ns", ((Timer) m).nanos.sum());
+                }
+            }
+            return values;
+        }
+
+        static void reset() {
+            for (Object m : REGISTRY.values()) {
+                if (m instanceof Counter) {
+                    ((Counter) m).sum.reset();
+                } else {
+                    ((Timer) m).calls.reset();
+                    ((Timer) m).nanos.reset();
+                }
+            }
+        }
+
+        static void print(PrintWriter pw) {
+            for (Map.Entry<String, Long> e : snapshot().entrySet()) pw.printf("%-40s %15d%n", e.getKey(), e.getValue());
+            pw.flush();
+        }
+
+        static void export(String engine) {
+            try {
+                java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new View(), new ObjectName("geometry:type=Metrics,name=" + engine));
+            } catch (JMException e) {
+                throw new IllegalStateException("cannot export metrics for " + engine, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> print(new PrintWriter(System.err))));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T register(String name, T metric) {
+            Object old = REGISTRY.putIfAbsent(name, metric);
+            if (old == null) return metric;
+            if (old.getClass() != metric.getClass()) throw new IllegalArgumentException("metric " + name + " exists");
+            return (T) old;
+        }
+
+        // The snapshot as a dynamic MBean: one long attribute per value, and a
+        // reset operation
+        private static final class View implements DynamicMBean {
+            @Override
+            public Object getAttribute(String name) throws AttributeNotFoundException {
+                Long v = snapshot().get(name);
+                if (v == null) throw new AttributeNotFoundException(name);
+                return v;
+            }
+
+            @Override
+            public AttributeList getAttributes(String[] names) {
+                Map<String, Long> values = snapshot();
+                AttributeList list = new AttributeList();
+                for (String name : names)
+                    if (values.containsKey(name)) list.add(new Attribute(name, values.get(name)));
+                return list;
+            }
+
+            @Override
+            public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+            }
+
+            @Override
+            public AttributeList setAttributes(AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+                if (!action.equals("reset")) throw new ReflectionException(new NoSuchMethodException(action));
+                reset();
+                return null;
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                Set<String> names = snapshot().keySet();
+                MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+                int k = 0;
+                for (String name : names)
+                    attributes[k++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+                MBeanOperationInfo reset = new MBeanOperationInfo("reset", "zero every metric",
+                    new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+                return new MBeanInfo(Metrics.class.getName(), "geometry engine metrics", attributes, null,
+                    new MBeanOperationInfo[]{reset}, null);
+            }
+        }
+    }
+
+    // Hull construction strategies offered by HullEngine
+    enum HullMode {
+        GRAHAM_SCAN,    // polar-angle sort around the pivot
+        MONOTONE_CHAIN  // Andrew's algorithm over a radix-sorted (x, y) order
+    }
+
+    // Primitive hull engine: coordinates are read from parallel int[] buffers and
+    // the hull is kept as an index stack in an int[], so nothing is allocated per
+    // point. Scratch buffers grow once and are reused, so keep one engine per thread.
+    //
+    // With metrics on, each call publishes its point and hull sizes, the points
+    // the prefilter dropped, the orientation tests it made (prefilter, angle sort
+    // and scan), and the time spent in the prefilter, sort and scan phases.
+    static final class HullEngine {
+        private static final Metrics.Counter POINTS = Metrics.counter("hull.points");
+        private static final Metrics.Counter VERTICES = Metrics.counter("hull.vertices");
+        private static final Metrics.Counter ELIMINATED = Metrics.counter("hull.prefilter.eliminated");
+        private static final Metrics.Counter ORIENTATIONS = Metrics.counter("hull.orientation.tests");
+        private static final Metrics.Timer PREFILTER = Metrics.timer("hull.prefilter");
+        private static final Metrics.Timer SORT = Metrics.timer("hull.sort");
+        private static final Metrics.Timer SCAN = Metrics.timer("hull.scan");
+
+        private int[] order = new int[0];   // candidate indices, sorted in place
+        private int[] scratch = new int[0]; // merge / radix buffer for the sort
+        private int[] stack = new int[0];   // monotone chain stack (needs n + 1)
+        private long[] keys = new long[0], keyScratch = new long[0];
+        private final int[] counts = new int[256];
+        private final boolean prefilter;
+        private int eliminated;
+        private long orientations; // this call's tests, counted only with metrics on
+
+        HullEngine() {
+            this(false);
+        }
+
+        // With prefilter set, points strictly inside the Akl-Toussaint octagon are
+        // dropped before sorting; eliminated() reports how many after each call
+        HullEngine(boolean prefilter) {
+            this.prefilter = prefilter;
+        }
+
+        int eliminated() {
+            return eliminated;
+        }
+
+        // Writes hull indices into out (counterclockwise, starting from the lowest,
+        // then leftmost point, collinear points dropped) and returns the hull size.
+        // Both modes produce the same output.
+        int convexHull(int[] xs, int[] ys, int n, int[] out) {
+            return convexHull(xs, ys, n, out, HullMode.GRAHAM_SCAN);
+        }
+
+        int convexHull(int[] xs, int[] ys, int n, int[] out, HullMode mode) {
+            eliminated = 0;
+            if (n < 3) return 0;
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) order[i] = i;
+            return hull(xs, ys, n, out, mode);
+        }
+
+        // Same as above, restricted to the m point indices listed in cand
+        int convexHull(int[] xs, int[] ys, int[] cand, int m, int[] out, HullMode mode) {
+            eliminated = 0;
+            if (m < 3) return 0;
+            ensureCapacity(m);
+            System.arraycopy(cand, 0, order, 0, m);
+            return hull(xs, ys, m, out, mode);
+        }
+
+        // Hull of the n indices in order[], publishing this call's metrics
+        private int hull(int[] xs, int[] ys, int n, int[] out, HullMode mode) {
+            orientations = 0;
+            if (prefilter) {
+                long t = Metrics.start();
+                n = aklToussaint(xs, ys, n);
+                if (Metrics.ENABLED) PREFILTER.lap(t);
+            }
+            int h = mode == HullMode.MONOTONE_CHAIN
+                ? monotoneChain(xs, ys, n, out)
+                : grahamScan(xs, ys, n, out);
+            if (Metrics.ENABLED) {
+                POINTS.add(n + eliminated);
+                VERTICES.add(h);
+                ELIMINATED.add(eliminated);
+                ORIENTATIONS.add(orientations);
+            }
+            return h;
+        }
+
+        // Step 0: Akl-Toussaint pre-filter over the n indices in order[]
+        // One pass finds the extremes in 8 directions (x, y, x + y, x - y), a second
+        // pass keeps only points not strictly inside that octagon. Those points can
+        // never be hull vertices. Returns the number of indices kept.
+        private int aklToussaint(int[] xs, int[] ys, int n) {
+            int[] idx = order;
+            int minX = idx[0], maxX = minX, minY = minX, maxY = minX;
+            int minS = minX, maxS = minX, minD = minX, maxD = minX;
+            for (int i = 1; i < n; i++) {
+                int p = idx[i];
+                long x = xs[p], y = ys[p];
+                if (x < xs[minX]) minX = p;
+                if (x > xs[maxX]) maxX = p;
+                if (y < ys[minY]) minY = p;
+                if (y > ys[maxY]) maxY = p;
+                if (x + y < (long) xs[minS] + ys[minS]) minS = p;
+                if (x + y > (long) xs[maxS] + ys[maxS]) maxS = p;
+                if (x - y < (long) xs[minD] - ys[minD]) minD = p;
+                if (x - y > (long) xs[maxD] - ys[maxD]) maxD = p;
+            }
+
+            // Octagon in counterclockwise order, repeated corners removed
+            int[] corner = {minY, maxD, maxX, maxS, maxY, minD, minX, minS};
+            long[] cx = new long[9], cy = new long[9];
+            int k = 0;
+            for (int a : corner) {
+                if (k > 0 && xs[a] == cx[k - 1] && ys[a] == cy[k - 1]) continue;
+                cx[k] = xs[a];
+                cy[k++] = ys[a];
+            }
+            if (cx[k - 1] == cx[0] && cy[k - 1] == cy[0]) k--;
+            if (k < 3) return n; // flat octagon, nothing is strictly inside
+            cx[k] = cx[0];
+            cy[k] = cy[0];
+
+            // p is strictly inside when it is left of every edge
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                int p = idx[i];
+                long x = xs[p], y = ys[p];
+                boolean inside = true;
+                for (int e = 0; e < k; e++) {
+                    if (Metrics.ENABLED) orientations++;
+                    if (Predicates.orient(cx[e], cy[e], cx[e + 1], cy[e + 1], x, y) <= 0) {
+                        inside = false;
+                        break;
+                    }
+                }
+                if (!inside) idx[m++] = p;
+            }
+            eliminated = n - m;
+            return m;
+        }
+
+        // Step 1: Graham's scan over the n indices in order[]
+        private int grahamScan(int[] xs, int[] ys, int n, int[] out) {
+            int[] idx = order;
+
+            // Find the point with the lowest y (pivot) and put it first
+            int first = 0;
+            for (int i = 1; i < n; i++) {
+                int p = idx[i], q = idx[first];
+                if (ys[p] < ys[q] || (ys[p] == ys[q] && xs[p] < xs[q])) first = i;
+            }
+            int pivot = idx[first];
+            idx[first] = idx[0];
+            idx[0] = pivot;
+
+            // Sort the remaining indices by polar angle w.r.t. the pivot
+            long t = Metrics.start();
+            sortByAngle(xs, ys, idx, 1, n, xs[pivot], ys[pivot]);
+            if (Metrics.ENABLED) t = SORT.lap(t);
+
+            // Remove collinear points near pivot keeping the farthest one
+            int m = 1;
+            for (int i = 1; i < n; i++) {
+                while (i < n - 1 && countedTurn(xs, ys, pivot, idx[i], idx[i + 1]) == 0)
+                    i++;
+                idx[m++] = idx[i];
+            }
+            if (m < 3) {
+                if (Metrics.ENABLED) SCAN.lap(t);
+                return 0;
+            }
+
+            // Step 2a: Scan, using out[] itself as the index stack
+            int top = 0;
+            out[top++] = idx[0];
+            out[top++] = idx[1];
+            out[top++] = idx[2];
+            for (int i = 3; i < m; i++) {
+                while (top > 1 && countedTurn(xs, ys, out[top - 2], out[top - 1], idx[i]) <= 0)
+                    top--; // Remove right-turn points
+                out[top++] = idx[i];
+            }
+            if (Metrics.ENABLED) SCAN.lap(t);
+            return top;
+        }
+
+        // Step 2b: Andrew's monotone chain over a lexicographic (x, y) order
+        private int monotoneChain(int[] xs, int[] ys, int n, int[] out) {
+            int[] idx = order;
+            long t = Metrics.start();
+            radixSortByXY(xs, ys, idx, n);
+            if (Metrics.ENABLED) t = SORT.lap(t);
+
+            // Drop exact duplicates, they would break the turn test
+            int m = 1;
+            for (int i = 1; i < n; i++)
+                if (keys[i] != keys[i - 1]) idx[m++] = idx[i];
+
+            // Lower chain left to right, then upper chain right to left
+            int[] st = stack;
+            int k = 0;
+            for (int i = 0; i < m; i++) {
+                while (k >= 2 && countedTurn(xs, ys, st[k - 2], st[k - 1], idx[i]) <= 0) k--;
+                st[k++] = idx[i];
+            }
+            for (int i = m - 2, lower = k + 1; i >= 0; i--) {
+                while (k >= lower && countedTurn(xs, ys, st[k - 2], st[k - 1], idx[i]) <= 0) k--;
+                st[k++] = idx[i];
+            }
+            if (Metrics.ENABLED) SCAN.lap(t);
+            int h = k - 1; // last point repeats the first
+            if (h < 3) return 0;
 
-        // Find the point with the lowest y (pivot)
-        int minY = points[0].y, minIdx = 0;
-        for (int i = 1; i < n; i++) {
-            if ((points[i].y < minY) ||
-                (points[i].y == minY && points[i].x < points[minIdx].x)) {
-                minY = points[i].y;
-                minIdx = i;
+            // Rotate so the hull starts at the lowest, then leftmost point like Graham
+            int start = 0;
+            for (int i = 1; i < h; i++) {
+                int a = st[i], b = st[start];
+                if (ys[a] < ys[b] || (ys[a] == ys[b] && xs[a] < xs[b])) start = i;
             }
+            for (int i = 0; i < h; i++) out[i] = st[(start + i) % h];
+            return h;
         }
 
-        // Place pivot at first position
-        Point temp = points[0];
-        points[0] = points[minIdx];
-        points[minIdx] = temp;
+        // LSD radix sort of idx[0..n) by (x, y), 8 bits per pass over a 64-bit key.
+        // Leaves the sorted keys in keys[0..n) for the duplicate check.
+        private void radixSortByXY(int[] xs, int[] ys, int[] idx, int n) {
+            long[] k = keys, kt = keyScratch;
+            int[] it = scratch;
+            for (int i = 0; i < n; i++) {
+                int p = idx[i];
+                // Flipping the sign bit makes signed ints sort as unsigned
+                k[i] = ((long) (xs[p] ^ Integer.MIN_VALUE) << 32)
+                     | ((ys[p] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+            }
+            int[] c = counts;
+            for (int shift = 0; shift < 64; shift += 8) {
+                Arrays.fill(c, 0);
+                for (int i = 0; i < n; i++) c[(int) (k[i] >>> shift) & 0xFF]++;
+                if (c[(int) (k[0] >>> shift) & 0xFF] == n) continue; // digit is constant
 
-        // Sort the remaining points by polar angle w.r.t. pivot
-        p0 = points[0];
-        Arrays.sort(points, 1, n, new PolarComparator());
+                for (int d = 0, sum = 0; d < 256; d++) {
+                    int t = c[d];
+                    c[d] = sum;
+                    sum += t;
+                }
+                for (int i = 0; i < n; i++) {
+                    int pos = c[(int) (k[i] >>> shift) & 0xFF]++;
+                    kt[pos] = k[i];
+                    it[pos] = idx[i];
+                }
+                long[] tk = k; k = kt; kt = tk;
+                System.arraycopy(it, 0, idx, 0, n);
+            }
+            if (k != keys) System.arraycopy(k, 0, keys, 0, n);
+        }
 
-        // Remove collinear points near pivot keeping the farthest one
-        int m = 1;
-        for (int i = 1; i < n; i++) {
-            while (i < n - 1 && orientation(p0, points[i], points[i + 1]) == 0)
-                i++;
-            points[m] = points[i];
-            m++;
+        private void ensureCapacity(int n) {
+            if (order.length < n) {
+                order = new int[n];
+                scratch = new int[n];
+                stack = new int[n + 1];
+                keys = new long[n];
+                keyScratch = new long[n];
+            }
         }
 
-        if (m < 3) return new ArrayList<>();
+        // Orientation of p, q, r: 1 counterclockwise, -1 clockwise, 0 collinear
+        static int turn(int[] xs, int[] ys, int p, int q, int r) {
+            return Predicates.orient(xs[p], ys[p], xs[q], ys[q], xs[r], ys[r]);
+        }
 
-        // Create stack to store hull points
-        Stack<Point> stack = new Stack<>();
-        stack.push(points[0]);
-        stack.push(points[1]);
-        stack.push(points[2]);
+        private int countedTurn(int[] xs, int[] ys, int p, int q, int r) {
+            if (Metrics.ENABLED) orientations++;
+            return turn(xs, ys, p, q, r);
+        }
 
-        // Step 5: Process the remaining points
-        for (int i = 3; i < m; i++) {
-            while (stack.size() > 1 && orientation(
-                    nextToTop(stack), stack.peek(), points[i]) != 2) {
-                stack.pop(); // Remove right-turn points
+        // True if a comes before b around (px, py): smaller angle, then closer.
+        // Nothing lies below the pivot or left of it on its row, so collinear
+        // a and b are on one ray from it and the larger offset tells the
+        // farther one; squared distances would overflow past 2^31.
+        private boolean before(int[] xs, int[] ys, int a, int b, long px, long py) {
+            if (Metrics.ENABLED) orientations++;
+            int o = Predicates.orient(px, py, xs[a], ys[a], xs[b], ys[b]);
+            if (o != 0) return o > 0;
+            return Math.max(Math.abs(xs[a] - px), Math.abs(ys[a] - py)) < Math.max(Math.abs(xs[b] - px), Math.abs(ys[b] - py));
+        }
+
+        // Merge sort of idx[lo..hi) by polar angle, insertion sort for short runs
+        private void sortByAngle(int[] xs, int[] ys, int[] idx, int lo, int hi, long px, long py) {
+            if (hi - lo <= 16) {
+                for (int i = lo + 1; i < hi; i++) {
+                    int v = idx[i], j = i - 1;
+                    while (j >= lo && before(xs, ys, v, idx[j], px, py)) {
+                        idx[j + 1] = idx[j];
+                        j--;
+                    }
+                    idx[j + 1] = v;
+                }
+                return;
             }
-            stack.push(points[i]);
+            int mid = (lo + hi) >>> 1;
+            sortByAngle(xs, ys, idx, lo, mid, px, py);
+            sortByAngle(xs, ys, idx, mid, hi, px, py);
+            if (!before(xs, ys, idx[mid], idx[mid - 1], px, py)) return; // already ordered
+
+            System.arraycopy(idx, lo, scratch, lo, mid - lo);
+            int i = lo, j = mid, k = lo;
+            while (i < mid && j < hi)
+                idx[k++] = before(xs, ys, idx[j], scratch[i], px, py) ? idx[j++] : scratch[i++];
+            while (i < mid) idx[k++] = scratch[i++];
+        }
+    }
+
+    // Parallel divide and conquer hull on a ForkJoinPool. The input is split into
+    // index ranges, each leaf builds its sub-hull with its own HullEngine, and two
+    // sibling hulls are merged by taking the hull of their combined vertices, which
+    // is linear since the monotone chain sorts with a radix sort. No state is
+    // shared between calls, so one instance can serve many threads at once.
+    // With metrics on, leaf and merge hulls are timed apart, summed over threads.
+    static final class ParallelHull {
+        private static final Metrics.Timer LEAF = Metrics.timer("hull.parallel.leaf");
+        private static final Metrics.Timer MERGE = Metrics.timer("hull.parallel.merge");
+
+        private final ForkJoinPool pool;
+        private final int leafSize;
+
+        ParallelHull(ForkJoinPool pool) {
+            this(pool, 1 << 15);
+        }
+
+        ParallelHull(ForkJoinPool pool, int leafSize) {
+            this.pool = pool;
+            this.leafSize = Math.max(3, leafSize);
+        }
+
+        // Same contract and output as HullEngine.convexHull
+        int convexHull(int[] xs, int[] ys, int n, int[] out) {
+            if (n < 3) return 0;
+            int[] hull = pool.invoke(new SubHull(xs, ys, 0, n, leafSize));
+            if (hull.length < 3) return 0;
+            System.arraycopy(hull, 0, out, 0, hull.length);
+            return hull.length;
+        }
+
+        @SuppressWarnings("serial") // never serialized
+        private static final class SubHull extends RecursiveTask<int[]> {
+            private final int[] xs, ys;
+            private final int lo, hi, leafSize;
+
+            SubHull(int[] xs, int[] ys, int lo, int hi, int leafSize) {
+                this.xs = xs;
+                this.ys = ys;
+                this.lo = lo;
+                this.hi = hi;
+                this.leafSize = leafSize;
+            }
+
+            @Override
+            protected int[] compute() {
+                int[] cand;
+                boolean leaf = hi - lo <= leafSize;
+                if (leaf) {
+                    cand = new int[hi - lo];
+                    for (int i = lo; i < hi; i++) cand[i - lo] = i;
+                } else {
+                    // Split the range, fork the left half and run the right one here
+                    int mid = (lo + hi) >>> 1;
+                    SubHull left = new SubHull(xs, ys, lo, mid, leafSize);
+                    left.fork();
+                    int[] r = new SubHull(xs, ys, mid, hi, leafSize).compute();
+                    int[] l = left.join();
+                    cand = Arrays.copyOf(l, l.length + r.length);
+                    System.arraycopy(r, 0, cand, l.length, r.length);
+                }
+                long t = Metrics.start();
+                int[] hull = hullOf(cand);
+                if (Metrics.ENABLED) (leaf ? LEAF : MERGE).lap(t);
+                return hull;
+            }
+
+            // Hull vertices of cand; degenerate sets keep their extreme points so
+            // the merge above still sees them
+            private int[] hullOf(int[] cand) {
+                int m = cand.length;
+                if (m < 3) return cand;
+                int[] out = new int[m];
+                int h = new HullEngine(true).convexHull(xs, ys, cand, m, out, HullMode.MONOTONE_CHAIN);
+                if (h >= 3) return Arrays.copyOf(out, h);
+
+                int min = cand[0], max = cand[0];
+                for (int p : cand) {
+                    if (xs[p] < xs[min] || (xs[p] == xs[min] && ys[p] < ys[min])) min = p;
+                    if (xs[p] > xs[max] || (xs[p] == xs[max] && ys[p] > ys[max])) max = p;
+                }
+                return min == max ? new int[]{min} : new int[]{min, max};
+            }
+        }
+    }
+
+    // Incremental hull under insertions. The upper and lower chains live in
+    // TreeMaps keyed by x (the lower chain stores -y so both use the same upper
+    // chain logic; y is kept as a long since -Integer.MIN_VALUE is no int). An insertion is O(log h) plus the vertices it removes, and each
+    // vertex is removed at most once, so updates are O(log n) amortized. Reading
+    // the hull walks the chains; nothing is recomputed. Not thread-safe.
+    static final class DynamicHull {
+        private final TreeMap<Integer, Long> upper = new TreeMap<>(); // x -> y
+        private final TreeMap<Integer, Long> lower = new TreeMap<>(); // x -> -y
+        private final HullEngine batchEngine = new HullEngine(true);
+        private int[] batchOut = new int[0];
+
+        void add(int x, int y) {
+            insert(upper, x, y);
+            insert(lower, x, -(long) y);
         }
 
-        // Collect hull points
-        List<Point> hull = new ArrayList<>(stack);
+        // Large batches are reduced to their own hull first; a point that is not on
+        // the batch hull cannot be on the hull of the union
+        void addAll(int[] xs, int[] ys, int n) {
+            if (n < 64) {
+                for (int i = 0; i < n; i++) add(xs[i], ys[i]);
+                return;
+            }
+            if (batchOut.length < n) batchOut = new int[n];
+            int h = batchEngine.convexHull(xs, ys, n, batchOut, HullMode.MONOTONE_CHAIN);
+            if (h == 0) { // collinear batch: its two extremes are enough
+                int min = 0, max = 0;
+                for (int i = 1; i < n; i++) {
+                    if (xs[i] < xs[min] || (xs[i] == xs[min] && ys[i] < ys[min])) min = i;
+                    if (xs[i] > xs[max] || (xs[i] == xs[max] && ys[i] > ys[max])) max = i;
+                }
+                add(xs[min], ys[min]);
+                add(xs[max], ys[max]);
+                return;
+            }
+            for (int i = 0; i < h; i++) add(xs[batchOut[i]], ys[batchOut[i]]);
+        }
+
+        // Number of hull vertices, 0 while the points are collinear
+        int size() {
+            if (lower.isEmpty()) return 0;
+            int h = lower.size() + upper.size();
+            if (lower.firstEntry().getValue() == -upper.firstEntry().getValue()) h--;
+            if (lower.lastEntry().getValue() == -upper.lastEntry().getValue()) h--;
+            return h < 3 ? 0 : h;
+        }
+
+        // Writes the hull into hx/hy in the same order as HullEngine.convexHull
+        // (counterclockwise from the lowest, then leftmost point) and returns its size.
+        // hx and hy must hold at least size() entries.
+        int hull(int[] hx, int[] hy) {
+            int h = size();
+            if (h == 0) return 0;
+
+            // Lower chain left to right, then upper chain right to left
+            int k = 0;
+            for (Map.Entry<Integer, Long> e : lower.entrySet()) {
+                hx[k] = e.getKey();
+                hy[k++] = (int) -e.getValue();
+            }
+            for (Map.Entry<Integer, Long> e : upper.descendingMap().entrySet()) {
+                int x = e.getKey(), y = (int) (long) e.getValue();
+                if (x == hx[k - 1] && y == hy[k - 1]) continue;
+                if (x == hx[0] && y == hy[0]) continue;
+                hx[k] = x;
+                hy[k++] = y;
+            }
+
+            // The lowest, then leftmost vertex is on the lower chain; rotate it first
+            int start = 0;
+            for (int i = 1; i < k; i++)
+                if (hy[i] < hy[start] || (hy[i] == hy[start] && hx[i] < hx[start])) start = i;
+            rotate(hx, k, start);
+            rotate(hy, k, start);
+            return k;
+        }
+
+        // Upper chain insertion of (x, y) into chain
+        private static void insert(TreeMap<Integer, Long> chain, int x, long y) {
+            Long same = chain.get(x);
+            if (same != null) {
+                if (same >= y) return;
+                chain.remove(x);
+            }
+            Map.Entry<Integer, Long> lo = chain.lowerEntry(x), hi = chain.higherEntry(x);
+            if (lo != null && hi != null && Predicates.orient(lo.getKey(), lo.getValue(), hi.getKey(), hi.getValue(), x, y) <= 0)
+                return; // on or below the chain
+            chain.put(x, y);
+
+            // Remove neighbours that no longer make a right turn
+            while (lo != null) {
+                Map.Entry<Integer, Long> lo2 = chain.lowerEntry(lo.getKey());
+                if (lo2 == null || Predicates.orient(lo2.getKey(), lo2.getValue(), lo.getKey(), lo.getValue(), x, y) < 0) break;
+                chain.remove(lo.getKey());
+                lo = lo2;
+            }
+            while (hi != null) {
+                Map.Entry<Integer, Long> hi2 = chain.higherEntry(hi.getKey());
+                if (hi2 == null || Predicates.orient(x, y, hi.getKey(), hi.getValue(), hi2.getKey(), hi2.getValue()) < 0) break;
+                chain.remove(hi.getKey());
+                hi = hi2;
+            }
+        }
+
+        private static void rotate(int[] a, int n, int start) {
+            reverse(a, 0, start);
+            reverse(a, start, n);
+            reverse(a, 0, n);
+        }
+
+        private static void reverse(int[] a, int from, int to) {
+            for (int i = from, j = to - 1; i < j; i++, j--) {
+                int t = a[i];
+                a[i] = a[j];
+                a[j] = t;
+            }
+        }
+    }
+
+    // Step 3: Point[] adapter over the primitive engine
+    // The caller's array is left untouched; hull points are returned in order.
+    static List<Point> convexHull(Point[] points, int n) {
+        return convexHull(points, n, HullMode.GRAHAM_SCAN);
+    }
+
+    static List<Point> convexHull(Point[] points, int n, HullMode mode) {
+        int[] xs = new int[n], ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points[i].x;
+            ys[i] = points[i].y;
+        }
+        int[] out = new int[n];
+        int h = new HullEngine().convexHull(xs, ys, n, out, mode);
+
+        List<Point> hull = new ArrayList<>(h);
+        for (int i = 0; i < h; i++) hull.add(points[out[i]]);
         return hull;
     }
 
-    // Helper to get the second top element of stack
-    static Point nextToTop(Stack<Point> stack) {
-        Point top = stack.pop();
-        Point next = stack.peek();
-        stack.push(top);
-        return next;
+    // Headless run: batch [--monotone] [--prefilter] [--parallel] <points> [out]
+    // Reads x y records (binary or text, "-" for stdin) and writes the hull
+    // vertices one per line, counter-clockwise from the lowest point.
+    // --parallel runs ParallelHull, which has its own scan, so it cannot be
+    // combined with --monotone or --prefilter.
+    static void batch(String[] args) throws IOException {
+        HullMode mode = HullMode.GRAHAM_SCAN;
+        boolean prefilter = false, parallel = false;
+        String in = null, out = "-";
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--monotone")) mode = HullMode.MONOTONE_CHAIN;
+            else if (args[i].equals("--prefilter")) prefilter = true;
+            else if (args[i].equals("--parallel")) parallel = true;
+            else if (in == null) in = args[i];
+            else out = args[i];
+        }
+        if (in == null)
+            throw new IllegalArgumentException("usage: batch [--monotone] [--prefilter] [--parallel] <points> [out]");
+        if (parallel && (prefilter || mode != HullMode.GRAHAM_SCAN))
+            throw new IllegalArgumentException("--parallel cannot be combined with --monotone or --prefilter");
+
+        PointIO.Table t = PointIO.read(in);
+        t.requireColumns(2);
+        int[] xs = t.intColumn(0), ys = t.intColumn(1), hull = new int[t.n];
+        int h;
+        if (parallel) {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            h = new ParallelHull(pool).convexHull(xs, ys, t.n, hull);
+        } else {
+            h = new HullEngine(prefilter).convexHull(xs, ys, t.n, hull, mode);
+        }
+        try (PointIO.Writer w = PointIO.Writer.open(out)) {
+            for (int i = 0; i < h; i++) w.num(xs[hull[i]]).sep().num(ys[hull[i]]).newline();
+        }
     }
 
-    // Step 6: Main method
+    // Random point sets, with duplicates, collinear runs and coordinates at the
+    // int limits: both modes with and without the prefilter, ParallelHull with
+    // small leaves and DynamicHull (point by point and in batches) against gift
+    // wrapping. Returns the number of failures.
+    static int selfCheck(PrintWriter pw, int cases) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        ParallelHull parallel = new ParallelHull(pool, 8);
+        HullEngine plain = new HullEngine(), filtered = new HullEngine(true);
+        int failures = 0;
+        for (int c = 0; c < cases; c++) {
+            Random rnd = new Random(c);
+            int n = 1 + rnd.nextInt(c % 10 == 0 ? 2000 : 60);
+            int[] xs = new int[n], ys = new int[n];
+            long range = new long[]{3, 20, 1000, 1L << 32}[c % 4];
+            for (int i = 0; i < n; i++) {
+                xs[i] = (int) (rnd.nextLong() % range);
+                ys[i] = (int) (rnd.nextLong() % range);
+                switch (c % 5) {
+                    case 1: // near the corners of the int square
+                        xs[i] = rnd.nextBoolean() ? Integer.MIN_VALUE + rnd.nextInt(4) : Integer.MAX_VALUE - rnd.nextInt(4);
+                        ys[i] = rnd.nextBoolean() ? Integer.MIN_VALUE + rnd.nextInt(4) : Integer.MAX_VALUE - rnd.nextInt(4);
+                        break;
+                    case 2: // mostly on y = -x - 1, which ends at the limits
+                        if (rnd.nextInt(8) == 0) xs[i] = rnd.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+                        if (rnd.nextInt(8) != 0) ys[i] = ~xs[i];
+                        break;
+                    default:
+                        break;
+                }
+                if (i > 0 && rnd.nextInt(10) == 0) { // repeated point
+                    int k = rnd.nextInt(i);
+                    xs[i] = xs[k];
+                    ys[i] = ys[k];
+                }
+            }
+            long[] expect = giftWrap(xs, ys, n);
+
+            int[] out = new int[n];
+            List<String> wrong = new ArrayList<>();
+            for (HullMode mode : HullMode.values()) {
+                if (!sameHull(expect, xs, ys, out, plain.convexHull(xs, ys, n, out, mode))) wrong.add(mode.toString());
+                if (!sameHull(expect, xs, ys, out, filtered.convexHull(xs, ys, n, out, mode))) wrong.add(mode + " prefiltered");
+            }
+            if (!sameHull(expect, xs, ys, out, parallel.convexHull(xs, ys, n, out))) wrong.add("ParallelHull");
+
+            int[] ids = new int[n], hx = new int[n], hy = new int[n];
+            for (int i = 0; i < n; i++) ids[i] = i;
+            DynamicHull one = new DynamicHull(), batched = new DynamicHull();
+            for (int i = 0; i < n; i++) one.add(xs[i], ys[i]);
+            for (int from = 0; from < n; from += 100) {
+                int m = Math.min(100, n - from);
+                batched.addAll(Arrays.copyOfRange(xs, from, from + m), Arrays.copyOfRange(ys, from, from + m), m);
+            }
+            for (DynamicHull d : new DynamicHull[]{one, batched}) {
+                int h = d.hull(hx, hy);
+                if (h != d.size() || !sameHull(expect, hx, hy, ids, h)) wrong.add(d == one ? "DynamicHull.add" : "DynamicHull.addAll");
+            }
+
+            if (!wrong.isEmpty()) {
+                failures++;
+                pw.printf("case %d (n=%d): %s differ from gift wrapping%n", c, n, String.join(", ", wrong));
+            }
+        }
+        pool.shutdown();
+        pw.printf("%d of %d cases passed%n", cases - failures, cases);
+        pw.flush();
+        return failures;
+    }
+
+    // Hull vertices as x << 32 | (y & 0xffffffff), counterclockwise from the
+    // lowest, then leftmost point, or none if the points are collinear. Each
+    // step takes the point every other point lies left of, the farthest one
+    // when several are collinear with it.
+    private static long[] giftWrap(int[] xs, int[] ys, int n) {
+        int start = 0;
+        for (int i = 1; i < n; i++)
+            if (ys[i] < ys[start] || (ys[i] == ys[start] && xs[i] < xs[start])) start = i;
+        List<Long> ring = new ArrayList<>();
+        int a = start;
+        do {
+            ring.add((long) xs[a] << 32 | (ys[a] & 0xffffffffL));
+            int b = -1;
+            for (int c = 0; c < n; c++) {
+                if (xs[c] == xs[a] && ys[c] == ys[a]) continue;
+                if (b < 0) {
+                    b = c;
+                    continue;
+                }
+                int o = Predicates.orient(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
+                if (o < 0 || (o == 0 && Predicates.onSegment(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]))) b = c;
+            }
+            if (b < 0) break;
+            a = b;
+        } while (xs[a] != xs[start] || ys[a] != ys[start]);
+        if (ring.size() < 3) return new long[0];
+        long[] hull = new long[ring.size()];
+        for (int i = 0; i < hull.length; i++) hull[i] = ring.get(i);
+        return hull;
+    }
+
+    private static boolean sameHull(long[] expect, int[] xs, int[] ys, int[] out, int h) {
+        if (h != expect.length) return false;
+        for (int i = 0; i < h; i++)
+            if (((long) xs[out[i]] << 32 | (ys[out[i]] & 0xffffffffL)) != expect[i]) return false;
+        return true;
+    }
+
+    // Step 4: Throughput of the serial scans against ParallelHull at several pool sizes
+    static void benchmark(PrintWriter pw) {
+        int n = 2_000_000, reps = 10;
+        Random rnd = new Random(42);
+        int[] xs = new int[n], ys = new int[n], out = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextInt(1 << 28);
+            ys[i] = rnd.nextInt(1 << 28);
+        }
+
+        HullEngine engine = new HullEngine();
+        for (HullMode mode : HullMode.values()) {
+            for (int r = 0; r < 3; r++) engine.convexHull(xs, ys, n, out, mode); // warm up
+            long t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) engine.convexHull(xs, ys, n, out, mode);
+            report(pw, "serial " + mode, n, reps, System.nanoTime() - t0);
+        }
+
+        // The same points renumbered along the Hilbert curve
+        SpatialOrder.hilbert(xs, ys, n); // warm up
+        long sortStart = System.nanoTime();
+        int[] order = SpatialOrder.hilbert(xs, ys, n);
+        int[] hx = SpatialOrder.permute(xs, order, n), hy = SpatialOrder.permute(ys, order, n);
+        report(pw, "hilbert sort", n, 1, System.nanoTime() - sortStart);
+        for (HullMode mode : HullMode.values()) {
+            for (int r = 0; r < 3; r++) engine.convexHull(hx, hy, n, out, mode);
+            long t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) engine.convexHull(hx, hy, n, out, mode);
+            report(pw, "hilbert " + mode, n, reps, System.nanoTime() - t0);
+        }
+        HullEngine filtered = new HullEngine(true);
+        for (HullMode mode : HullMode.values()) {
+            for (int r = 0; r < 3; r++) filtered.convexHull(xs, ys, n, out, mode);
+            long t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) filtered.convexHull(xs, ys, n, out, mode);
+            report(pw, "prefiltered " + mode, n, reps, System.nanoTime() - t0);
+        }
+        pw.printf("prefilter eliminated %d of %d points%n", filtered.eliminated(), n);
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelHull hull = new ParallelHull(pool);
+            for (int r = 0; r < 3; r++) hull.convexHull(xs, ys, n, out);
+            long t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) hull.convexHull(xs, ys, n, out);
+            report(pw, "parallel x" + threads, n, reps, System.nanoTime() - t0);
+            pool.shutdown();
+        }
+    }
+
+    // Standard suite: each hull mode, with and without the prefilter, on every
+    // point workload from 10^3 points to max, then ParallelHull from one thread
+    // to all cores at the largest size
+    static void suite(PrintWriter pw, int max) {
+        Bench.header(pw);
+        HullEngine engine = new HullEngine(), filtered = new HullEngine(true);
+        int[] sizes = Bench.sizes(max);
+        for (String workload : Bench.POINTS) {
+            for (int n : sizes) {
+                int[] xs = new int[n], ys = new int[n], out = new int[n];
+                Bench.points(workload, n, Bench.SEED, xs, ys);
+                for (HullMode mode : HullMode.values())
+                    Bench.measure(pw, "hull " + mode, workload, n, () -> engine.convexHull(xs, ys, n, out, mode));
+                Bench.measure(pw, "hull prefiltered", workload, n,
+                    () -> filtered.convexHull(xs, ys, n, out, HullMode.MONOTONE_CHAIN));
+                if (n < sizes[sizes.length - 1]) continue;
+                for (int threads : Bench.threads()) {
+                    ForkJoinPool pool = new ForkJoinPool(threads);
+                    ParallelHull hull = new ParallelHull(pool);
+                    Bench.measure(pw, "hull parallel x" + threads, workload, n, () -> hull.convexHull(xs, ys, n, out));
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    static void report(PrintWriter pw, String name, int n, int reps, long nanos) {
+        double ms = nanos / 1e6 / reps;
+        pw.printf("%-28s %10.2f ms/hull %10.2f Mpoints/s%n", name, ms, n / ms / 1e3);
+        pw.flush();
+    }
+
+    // Step 5: Main method
     public static void main(String[] args) throws Exception {
-        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
         PrintWriter pw = new PrintWriter(System.out);
+        if (Metrics.ENABLED) Metrics.export("convex-hull");
+
+        if (args.length > 0 && args[0].equals("check")) {
+            if (selfCheck(pw, args.length > 1 ? Integer.parseInt(args[1]) : 2000) > 0) System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(pw);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("suite")) {
+            suite(pw, args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("convert")) {
+            PointIO.convert(args[1], args[2]);
+            return;
+        }
 
         // Example Input Points
         Point[] points = {
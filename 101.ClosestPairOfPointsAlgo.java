@@ -14,80 +14,1917 @@
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.management.*;
 
 public class ClosestPairOfPoints {
 
-    // Function to calculate Euclidean distance between two points
-    static double dist(int[] p1, int[] p2) {
-        // Formula: sqrt((x2 - x1)^2 + (y2 - y1)^2)
-        return Math.sqrt(Math.pow(p1[0] - p2[0], 2) + Math.pow(p1[1] - p2[1], 2));
+    // Shared predicate kernel. Every algorithm file carries its own copy, cut down
+    // to the predicates it calls, so each file still runs on its own. The integer
+    // predicates take primitive arguments and never allocate.
+    static final class Predicates {
+        private Predicates() {
+        }
+
+        // Squared distance, exact while coordinates stay within +-2^30
+        static long distSq(long ax, long ay, long bx, long by) {
+            long dx = ax - bx, dy = ay - by;
+            return dx * dx + dy * dy;
+        }
     }
 
-    // Brute force method for smaller subsets (≤ 3 points)
-    static double bruteForce(int[][] pts, int n) {
-        double min = Double.MAX_VALUE;
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                double d = dist(pts[i], pts[j]);
-                if (d < min)
-                    min = d;  // keep track of smallest distance found
+    // Headless batch I/O. Every algorithm file carries its own copy of this class,
+    // trimmed to what it uses.
+    //
+    // Binary tables start with a 24-byte little-endian header: magic "GEOB", the
+    // column count, the element type (0 = int32, 1 = float64), a reserved zero word
+    // and the record count as a long. The columns follow one after another. Files are memory-mapped and
+    // each column is bulk-copied straight into a primitive array, no parsing.
+    // Anything without the magic is read as text: one record per line, numbers
+    // separated by spaces, tabs or commas, '#' starts a comment.
+    static final class PointIO {
+        static final int MAGIC = 0x424F4547; // "GEOB" read little-endian
+        static final int INT32 = 0, FLOAT64 = 1;
+        private static final int HEADER = 24;
+        private static final long WINDOW = 1 << 30; // bytes mapped at a time
+
+        // n records of `columns` values each, stored by column
+        static final class Table {
+            final int n, columns;
+            final int[][] ints;       // int32 tables
+            final double[][] doubles; // float64 tables
+
+            Table(int n, int[][] ints) {
+                this.n = n;
+                this.columns = ints.length;
+                this.ints = ints;
+                this.doubles = null;
+            }
+
+            Table(int n, double[][] doubles) {
+                this.n = n;
+                this.columns = doubles.length;
+                this.ints = null;
+                this.doubles = doubles;
+            }
+
+            int[] intColumn(int c) {
+                if (ints != null) return ints[c];
+                int[] col = new int[n];
+                for (int i = 0; i < n; i++) {
+                    double v = doubles[c][i];
+                    if (v != (int) v) throw new IllegalArgumentException("column " + c + " is not integral");
+                    col[i] = (int) v;
+                }
+                return col;
+            }
+
+            void requireColumns(int c) {
+                if (columns != c)
+                    throw new IllegalArgumentException("expected " + c + " values per record, got " + columns);
+            }
+        }
+
+        // Reads a binary or text table; "-" reads text from stdin
+        static Table read(String path) throws IOException {
+            if (path.equals("-")) return readText(System.in);
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                if (ch.size() >= HEADER) {
+                    ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                    while (head.hasRemaining() && ch.read(head, head.position()) > 0) { }
+                    head.flip();
+                    if (head.getInt() == MAGIC) return readBinary(ch, head);
+                }
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                return readText(in);
+            }
+        }
+
+        private static Table readBinary(FileChannel ch, ByteBuffer head) throws IOException {
+            int columns = head.getInt(), type = head.getInt();
+            head.getInt(); // reserved
+            long count = head.getLong();
+            int width = type == INT32 ? 4 : 8;
+            if (columns <= 0 || (type != INT32 && type != FLOAT64) || count < 0 || count > Integer.MAX_VALUE - 8
+                    || ch.size() < HEADER + count * width * columns)
+                throw new IOException("corrupt GEOB header");
+            int n = (int) count;
+            long offset = HEADER;
+            if (type == INT32) {
+                int[][] cols = new int[columns][n];
+                for (int[] col : cols) {
+                    for (int done = 0; done < n; ) {
+                        int len = (int) Math.min(n - done, WINDOW / 4);
+                        ch.map(FileChannel.MapMode.READ_ONLY, offset, 4L * len)
+                          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(col, done, len);
+                        offset += 4L * len;
+                        done += len;
+                    }
+                }
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (double[] col : cols) {
+                for (int done = 0; done < n; ) {
+                    int len = (int) Math.min(n - done, WINDOW / 8);
+                    ch.map(FileChannel.MapMode.READ_ONLY, offset, 8L * len)
+                      .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(col, done, len);
+                    offset += 8L * len;
+                    done += len;
+                }
+            }
+            return new Table(n, cols);
+        }
+
+        // Line-oriented text reader over a byte buffer; numbers are parsed in place
+        static Table readText(InputStream in) throws IOException {
+            TextReader r = new TextReader(in);
+            double[] vals = new double[1024];
+            int count = 0, columns = -1, onLine = 0, line = 1;
+            boolean integral = true;
+            while (true) {
+                int c = r.peek();
+                if (c == -1 || c == '\n') {
+                    if (onLine > 0) {
+                        if (columns == -1) columns = onLine;
+                        else if (onLine != columns)
+                            throw new IOException("line " + line + ": expected " + columns + " values, got " + onLine);
+                    }
+                    onLine = 0;
+                    if (c == -1) break;
+                    r.skip();
+                    line++;
+                } else if (c == '#') {
+                    while (r.peek() != '\n' && r.peek() != -1) r.skip();
+                } else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+                    r.skip();
+                } else {
+                    if (count == vals.length) vals = Arrays.copyOf(vals, count * 2);
+                    double v = r.number(line);
+                    integral &= v == (int) v && !r.sawFraction;
+                    vals[count++] = v;
+                    onLine++;
+                }
+            }
+            if (columns == -1) return new Table(0, new int[0][0]);
+
+            int n = count / columns;
+            if (integral) {
+                int[][] cols = new int[columns][n];
+                for (int i = 0; i < count; i++) cols[i % columns][i / columns] = (int) vals[i];
+                return new Table(n, cols);
             }
+            double[][] cols = new double[columns][n];
+            for (int i = 0; i < count; i++) cols[i % columns][i / columns] = vals[i];
+            return new Table(n, cols);
+        }
+
+        private static final class TextReader {
+            private static final double[] POW10 = new double[23];
+            static {
+                POW10[0] = 1;
+                for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+            }
+
+            private final InputStream in;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] token = new byte[64];
+            private int pos, len;
+            boolean sawFraction;
+
+            TextReader(InputStream in) {
+                this.in = in;
+            }
+
+            int peek() throws IOException {
+                if (pos == len) {
+                    len = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (len <= 0) {
+                        len = 0;
+                        return -1;
+                    }
+                }
+                return buf[pos];
+            }
+
+            void skip() {
+                pos++;
+            }
+
+            // Decimal number; short ones are assembled exactly from an integer
+            // mantissa and a power of ten, the rest go through Double.parseDouble
+            double number(int line) throws IOException {
+                int t = 0, c;
+                while ((c = peek()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                        || (c >= '0' && c <= '9'))) {
+                    if (t == token.length) throw new IOException("line " + line + ": number too long");
+                    token[t++] = (byte) c;
+                    skip();
+                }
+                if (t == 0) throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+
+                int i = 0;
+                boolean neg = token[0] == '-';
+                if (token[0] == '-' || token[0] == '+') i++;
+                long mant = 0;
+                int digits = 0, exp = 0;
+                boolean any = false;
+                sawFraction = false;
+                for (; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                    if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; }
+                    else exp++;
+                }
+                if (i < t && token[i] == '.') {
+                    sawFraction = true;
+                    for (i++; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                        if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; exp--; }
+                    }
+                }
+                if (i < t && (token[i] == 'e' || token[i] == 'E')) {
+                    sawFraction = true;
+                    return slow(t, line);
+                }
+                if (!any || i != t) throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                if (digits <= 15 && exp >= -22 && exp <= 22) {
+                    double v = exp >= 0 ? mant * POW10[exp] : mant / POW10[-exp];
+                    return neg ? -v : v;
+                }
+                return slow(t, line);
+            }
+
+            private double slow(int t, int line) throws IOException {
+                try {
+                    return Double.parseDouble(new String(token, 0, t));
+                } catch (NumberFormatException e) {
+                    throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                }
+            }
+        }
+
+        // Writes a table as a binary GEOB file
+        static void writeBinary(Table t, String path) throws IOException {
+            int width = t.ints != null ? 4 : 8;
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(MAGIC).putInt(t.columns).putInt(t.ints != null ? INT32 : FLOAT64).putInt(0).putLong(t.n);
+                for (int c = 0; c < t.columns; c++) {
+                    for (int i = 0; i < t.n; i++) {
+                        if (buf.remaining() < width) {
+                            buf.flip();
+                            while (buf.hasRemaining()) ch.write(buf);
+                            buf.clear();
+                        }
+                        if (t.ints != null) buf.putInt(t.ints[c][i]);
+                        else buf.putDouble(t.doubles[c][i]);
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+        }
+
+        // Streaming text writer: numbers are formatted straight into a byte buffer
+        static final class Writer implements Closeable {
+            private final OutputStream out;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] digits = new byte[20];
+            private int pos;
+
+            Writer(OutputStream out) {
+                this.out = out;
+            }
+
+            // "-" writes to stdout
+            static Writer open(String path) throws IOException {
+                return new Writer(path.equals("-") ? System.out : Files.newOutputStream(Paths.get(path)));
+            }
+
+            Writer num(long v) throws IOException {
+                if (v == Long.MIN_VALUE) return text(Long.toString(v));
+                if (v < 0) {
+                    put('-');
+                    v = -v;
+                }
+                int k = 0;
+                do {
+                    digits[k++] = (byte) ('0' + v % 10);
+                    v /= 10;
+                } while (v != 0);
+                while (k > 0) put(digits[--k]);
+                return this;
+            }
+
+            // Integral values print as integers, others as Double.toString does,
+            // which reads back as the same double
+            Writer num(double v) throws IOException {
+                if (v == (long) v && Math.abs(v) < 1e15) return num((long) v);
+                return text(Double.toString(v));
+            }
+
+            Writer text(String s) throws IOException {
+                for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+                return this;
+            }
+
+            Writer sep() throws IOException {
+                put(' ');
+                return this;
+            }
+
+            Writer newline() throws IOException {
+                put('\n');
+                return this;
+            }
+
+            private void put(int b) throws IOException {
+                if (pos == buf.length) flush();
+                buf[pos++] = (byte) b;
+            }
+
+            void flush() throws IOException {
+                out.write(buf, 0, pos);
+                pos = 0;
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+                if (out != System.out) out.close();
+            }
+        }
+
+        // "convert <in> <out>": any readable table to a binary GEOB file
+        static void convert(String in, String out) throws IOException {
+            writeBinary(read(in), out);
         }
-        return min;
     }
 
-    // Function to find the minimum distance within a strip region
-    static double stripClosest(List<int[]> strip, double d) {
-        double min = d;
-        // Sort points by y-coordinate to compare only nearby points
-        strip.sort(Comparator.comparingInt(p -> p[1]));
+    // Space-filling-curve order for cache locality. Every algorithm file that
+    // uses it carries its own copy, trimmed to what it calls. Engines opt in by
+    // permuting their input with an order from here and mapping result indices
+    // back through it.
+    //
+    // Points are snapped to a 2^16 x 2^16 grid over their bounding square and
+    // keyed by Hilbert index. The keys are sorted by a three-pass LSD radix sort
+    // that carries the point index, so equal keys keep input order.
+    static final class SpatialOrder {
+        static final int BITS = 16;
+        private static final int RADIX = 11;
 
-        for (int i = 0; i < strip.size(); i++) {
-            int j = i + 1;
-            // A point needs to be compared with next 7 points (geometry limit)
-            while (j < strip.size() && (strip.get(j)[1] - strip.get(i)[1]) < min) {
-                min = Math.min(min, dist(strip.get(i), strip.get(j)));
-                j++;
+        // order[k] = index of the k-th point along the curve
+        static int[] hilbert(int[] xs, int[] ys, int n) {
+            return sort(keys(xs, ys, n), n);
+        }
+
+        // a[order[k]] at k
+        static int[] permute(int[] a, int[] order, int n) {
+            int[] b = new int[n];
+            for (int k = 0; k < n; k++) b[k] = a[order[k]];
+            return b;
+        }
+
+        // Hilbert index of grid cell (x, y), 0 <= x, y < 2^BITS, as an unsigned int.
+        // The usual loop rotates quadrant by quadrant and branches on every bit.
+        // Here the quadrant transforms of all 16 levels are composed as a prefix
+        // scan over bit masks in four rounds instead: same curve, no branches.
+        static int key(int x, int y) {
+            int a = x ^ y, b = 0xFFFF ^ a, c = 0xFFFF ^ (x | y), d = x & (y ^ 0xFFFF);
+            int pa = a | (b >>> 1), pb = (a >>> 1) ^ a;
+            int pc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c, pd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+            for (int s = 2; s <= 8; s <<= 1) {
+                a = pa;
+                b = pb;
+                c = pc;
+                d = pd;
+                pa = (a & (a >>> s)) ^ (b & (b >>> s));
+                pb = (a & (b >>> s)) ^ (b & ((a ^ b) >>> s));
+                pc ^= (a & (c >>> s)) ^ (b & (d >>> s));
+                pd ^= (b & (c >>> s)) ^ ((a ^ b) & (d >>> s));
+            }
+            a = pc ^ (pc >>> 1);
+            b = pd ^ (pd >>> 1);
+            int i0 = x ^ y, i1 = b | (0xFFFF ^ (i0 | a));
+            return spread(i1) << 1 | spread(i0);
+        }
+
+        // The low 16 bits of v moved to the even bit positions
+        private static int spread(int v) {
+            v = (v | v << 8) & 0x00FF00FF;
+            v = (v | v << 4) & 0x0F0F0F0F;
+            v = (v | v << 2) & 0x33333333;
+            return (v | v << 1) & 0x55555555;
+        }
+
+        // Keys in the high word, indices in the low word
+        private static long[] keys(int[] xs, int[] ys, int n) {
+            long minX = Long.MAX_VALUE, minY = minX, maxX = Long.MIN_VALUE, maxY = maxX;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            long side = Math.max(1, Math.max(maxX - minX, maxY - minY)), cells = (1 << BITS) - 1;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                int cx = (int) ((xs[i] - minX) * cells / side), cy = (int) ((ys[i] - minY) * cells / side);
+                keys[i] = (long) key(cx, cy) << 32 | i;
+            }
+            return keys;
+        }
+
+        // LSD radix sort on the unsigned high word, stable; returns the low words
+        private static int[] sort(long[] keys, int n) {
+            long[] buf = new long[n];
+            int[] count = new int[1 << RADIX];
+            for (int shift = 32; shift < 64; shift += RADIX) {
+                Arrays.fill(count, 0);
+                for (int i = 0; i < n; i++) count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++;
+                for (int b = 0, sum = 0; b < count.length; b++) {
+                    int c = count[b];
+                    count[b] = sum;
+                    sum += c;
+                }
+                for (int i = 0; i < n; i++) buf[count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++] = keys[i];
+                long[] t = keys;
+                keys = buf;
+                buf = t;
             }
+            int[] order = new int[n];
+            for (int k = 0; k < n; k++) order[k] = (int) keys[k];
+            return order;
         }
-        return min;
     }
 
-    // Recursive function implementing Divide & Conquer
-    static double closestUtil(int[][] pts, int n) {
-        // Base case: when few points remain, use brute force
-        if (n <= 3) return bruteForce(pts, n);
+    // Standard benchmark workloads and timing. Every algorithm file carries its own
+    // copy, trimmed to the workloads it runs, so the suites of all files share
+    // inputs and output format.
+    //
+    // Workloads are seeded, so a run can be repeated exactly; coordinates lie in
+    // [0, 2^28). A measurement warms up for half a second, then repeats the body
+    // for at least a second. It reports time per run, items per second, and heap
+    // allocated per item and per second summed over all live threads (what JMH's
+    // gc profiler reports). Sizes step by 10 from 10^3.
+    static final class Bench {
+        static final int BOX = 1 << 28;
+        static final long SEED = 42;
+        static final String[] POINTS = {"uniform", "clustered", "circle", "grid"};
+
+        interface Body {
+            long run(); // a checksum, so the work cannot be dropped
+        }
 
-        int mid = n / 2;
-        int[] midPoint = pts[mid]; // Midpoint for dividing
+        static int[] sizes(int max) {
+            int k = 0;
+            int[] sizes = new int[10];
+            for (long n = 1000; n <= max; n *= 10) sizes[k++] = (int) n;
+            return Arrays.copyOf(sizes, k);
+        }
 
-        // Recursively compute minimum distances in left & right halves
-        double dl = closestUtil(Arrays.copyOfRange(pts, 0, mid), mid);
-        double dr = closestUtil(Arrays.copyOfRange(pts, mid, n), n - mid);
+        // 1, 2, 4, .. up to and including the number of cores
+        static int[] threads() {
+            int cores = Runtime.getRuntime().availableProcessors(), k = 0;
+            int[] counts = new int[32];
+            for (int t = 1; ; t = Math.min(cores, t * 2)) {
+                counts[k++] = t;
+                if (t == cores) break;
+            }
+            return Arrays.copyOf(counts, k);
+        }
 
-        // Find smaller of the two distances
-        double d = Math.min(dl, dr);
+        // n points of a workload:
+        //   uniform    anywhere in the box
+        //   clustered  64 tight Gaussian clusters
+        //   circle     on one circle, the worst case for hulls
+        //   grid       lattice points, so repeated, collinear and cocircular
+        static void points(String workload, int n, long seed, int[] xs, int[] ys) {
+            Random rnd = new Random(seed);
+            int side = (int) Math.ceil(Math.sqrt(n)), step = BOX / Math.max(1, side);
+            int[] cx = new int[64], cy = new int[64];
+            for (int c = 0; c < 64; c++) {
+                cx[c] = rnd.nextInt(BOX);
+                cy[c] = rnd.nextInt(BOX);
+            }
+            for (int i = 0; i < n; i++) {
+                switch (workload) {
+                    case "uniform":
+                        xs[i] = rnd.nextInt(BOX);
+                        ys[i] = rnd.nextInt(BOX);
+                        break;
+                    case "clustered":
+                        int c = rnd.nextInt(64);
+                        xs[i] = clamp(cx[c] + rnd.nextGaussian() * (BOX >> 10));
+                        ys[i] = clamp(cy[c] + rnd.nextGaussian() * (BOX >> 10));
+                        break;
+                    case "circle":
+                        double a = 2 * Math.PI * (i + rnd.nextDouble()) / n;
+                        xs[i] = clamp(BOX / 2 + Math.cos(a) * (BOX / 2 - 1));
+                        ys[i] = clamp(BOX / 2 + Math.sin(a) * (BOX / 2 - 1));
+                        break;
+                    case "grid":
+                        xs[i] = rnd.nextInt(side) * step;
+                        ys[i] = rnd.nextInt(side) * step;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown point workload " + workload);
+                }
+            }
+        }
+
+        static void header(PrintWriter pw) {
+            pw.printf("%-32s %-10s %9s %14s %16s %13s %12s%n", "benchmark", "workload", "n", "time", "throughput",
+                "allocated", "alloc rate");
+            pw.flush();
+        }
 
-        // Build a strip containing points close (|x - mid_x| < d)
-        List<int[]> strip = new ArrayList<>();
-        for (int[] p : pts) {
-            if (Math.abs(p[0] - midPoint[0]) < d)
-                strip.add(p);
+        static void measure(PrintWriter pw, String name, String workload, int n, Body body) {
+            long sink = 0;
+            long end = System.nanoTime() + 500_000_000L;
+            do sink += body.run(); while (System.nanoTime() < end);
+            long runs = 0, bytes = allocated(), t0 = System.nanoTime(), nanos;
+            do {
+                sink += body.run();
+                runs++;
+            } while ((nanos = System.nanoTime() - t0) < 1_000_000_000L);
+            bytes = allocated() - bytes;
+            double ms = nanos / 1e6 / runs;
+            pw.printf("%-32s %-10s %9d %10.3f ms %10.2f Mitem/s %8.1f B/item %7.1f MB/s%n", name, workload, n, ms,
+                n / ms / 1e3, (double) bytes / runs / n, bytes / (nanos / 1e3));
+            if (sink == 42) pw.print("");
+            pw.flush();
         }
 
-        // Combine: check if strip gives smaller distance
-        return Math.min(d, stripClosest(strip, d));
+        // Bytes allocated so far by every live thread
+        private static long allocated() {
+            com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            long sum = 0;
+            for (long b : mx.getThreadAllocatedBytes(mx.getAllThreadIds())) sum += Math.max(b, 0);
+            return sum;
+        }
+
+        private static int clamp(double v) {
+            return (int) Math.max(0, Math.min(BOX - 1, Math.round(v)));
+        }
+    }
+
+    // Optional hot-path metrics. Every algorithm file carries its own copy of this
+    // class, trimmed to the kinds of metric it uses.
+    // They are off unless the JVM runs with -Dgeometry.metrics=true; ENABLED is
+    // a static final, so with it off the JIT drops every `if (Metrics.ENABLED)`
+    // block and the engines run as before. Engines count into locals or plain
+    // fields and publish once per call, so hot loops never touch shared state.
+    //
+    // Counters sum, and timers sum calls and nanoseconds per phase. Both are
+    // striped (LongAdder), so any number of threads can publish at once. snapshot() reads them by name, and
+    // export() serves the same values as read-only attributes of the MBean
+    // geometry:type=Metrics,name=<engine>, and prints them to stderr on exit.
+    static final class Metrics {
+        static final boolean ENABLED = Boolean.getBoolean("geometry.metrics");
+        private static final Map<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+        private Metrics() {
+        }
+
+        static final class Counter {
+            private final LongAdder sum = new LongAdder();
+
+            void add(long v) {
+                sum.add(v);
+            }
+        }
+
+        static final class Timer {
+            private final LongAdder calls = new LongAdder(), nanos = new LongAdder();
+
+            // Adds the time since start and returns now, the start of the next phase
+            long lap(long start) {
+                long now = System.nanoTime();
+                calls.increment();
+                nanos.add(now - start);
+                return now;
+            }
+        }
+
+        static Counter counter(String name) {
+            return register(name, new Counter());
+        }
+
+        static Timer timer(String name) {
+            return register(name, new Timer());
+        }
+
+        // Start of a timed phase, 0 when metrics are off
+        static long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        // Current values by name; a timer shows up as name.calls and name.ns
+        static Map<String, Long> snapshot() {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+                String name = e.getKey();
+                Object m = e.getValue();
+                if (m instanceof Counter) {
+                    values.put(name, ((Counter) m).sum.sum());
+                } else {
+                    values.put(name + ".calls", ((Timer) m).calls.sum());
+                    values.put(name + ".ns", ((Timer) m).nanos.sum());
+                }
+            }
+            return values;
+        }
+
+        static void reset() {
+            for (Object m : REGISTRY.values()) {
+                if (m instanceof Counter) {
+                    ((Counter) m).sum.reset();
+                } else {
+                    ((Timer) m).calls.reset();
+                    ((Timer) m).nanos.reset();
+                }
+            }
+        }
+
+        static void print(PrintWriter pw) {
+            for (Map.Entry<String, Long> e : snapshot().entrySet()) pw.printf("%-40s %15d%n", e.getKey(), e.getValue());
+            pw.flush();
+        }
+
+        static void export(String engine) {
+            try {
+                java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new View(), new ObjectName("geometry:type=Metrics,name=" + engine));
+            } catch (JMException e) {
+                throw new IllegalStateException("cannot export metrics for " + engine, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> print(new PrintWriter(System.err))));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T register(String name, T metric) {
+            Object old = REGISTRY.putIfAbsent(name, metric);
+            if (old == null) return metric;
+            if (old.getClass() != metric.getClass()) throw new IllegalArgumentException("metric " + name + " exists");
+            return (T) old;
+        }
+
+        // The snapshot as a dynamic MBean: one long attribute per value, and a
+        // reset operation
+        private static final class View implements DynamicMBean {
+            @Override
+            public Object getAttribute(String name) throws AttributeNotFoundException {
+                Long v = snapshot().get(name);
+                if (v == null) throw new AttributeNotFoundException(name);
+                return v;
+            }
+
+            @Override
+            public AttributeList getAttributes(String[] names) {
+                Map<String, Long> values = snapshot();
+                AttributeList list = new AttributeList();
+                for (String name : names)
+                    if (values.containsKey(name)) list.add(new Attribute(name, values.get(name)));
+                return list;
+            }
+
+            @Override
+            public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+            }
+
+            @Override
+            public AttributeList setAttributes(AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+                if (!action.equals("reset")) throw new ReflectionException(new NoSuchMethodException(action));
+                reset();
+                return null;
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                Set<String> names = snapshot().keySet();
+                MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+                int k = 0;
+                for (String name : names)
+                    attributes[k++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+                MBeanOperationInfo reset = new MBeanOperationInfo("reset", "zero every metric",
+                    new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+                return new MBeanInfo(Metrics.class.getName(), "geometry engine metrics", attributes, null,
+                    new MBeanOperationInfo[]{reset}, null);
+            }
+        }
+    }
+
+    // Closest pair strategies offered by ClosestPairEngine; both return the same pair
+    enum ClosestPairMode {
+        DIVIDE_AND_CONQUER, // O(n log n): sort by x, merge by y
+        RANDOMIZED_GRID     // expected O(n): sampled distance, then one hashed grid pass
     }
 
-    // Main function to find smallest distance
+    // Closest pair engine on primitive coordinate arrays. Squared distances are
+    // exact longs, so no axis may span more than 2^31 - 1; wider input is
+    // rejected (closestPair(int[][]) takes it). Points are sorted by x once; the
+    // recursion merges its halves back into y order, so the strip needs no sort.
+    // Distances are compared squared. Buffers are reused across calls, so use one
+    // engine per thread.
+    //
+    // Ties are broken canonically: the result is the smallest (distance, lower
+    // index, higher index) over all pairs, whatever the input order.
+    //
+    // With metrics on, each call publishes its size, the distances it compared,
+    // the strip points and strip comparisons of every combine, and the time in
+    // the x sort and the recursion (or the grid's sample and pass). Merge and
+    // strip are counted rather than timed: clocking each combine would cost
+    // about as much as the small ones do.
+    static final class ClosestPairEngine {
+        private static final Metrics.Counter POINTS = Metrics.counter("closest.points");
+        private static final Metrics.Counter DISTANCES = Metrics.counter("closest.distance.tests");
+        private static final Metrics.Counter STRIP_POINTS = Metrics.counter("closest.strip.points");
+        private static final Metrics.Counter STRIP_COMPARISONS = Metrics.counter("closest.strip.comparisons");
+        private static final Metrics.Timer SORT = Metrics.timer("closest.sort");
+        private static final Metrics.Timer RECURSE = Metrics.timer("closest.recurse");
+        private static final Metrics.Timer SAMPLE = Metrics.timer("closest.grid.sample");
+        private static final Metrics.Timer GRID = Metrics.timer("closest.grid.pass");
+
+        private int[] byX = new int[0];     // indices sorted by x, then y
+        private int[] byY = new int[0];     // same ranges, merged into y order
+        private int[] scratch = new int[0]; // merge buffer, then the strip
+        private int[] live = new int[0];    // grid mode: sample shuffle
+        private int[] next = new int[0];    // grid mode: next point in the same cell
+        private int[] sampleX = new int[0], sampleY = new int[0];
+        private long[] cellKey = new long[0];
+        private int[] cellHead = new int[0]; // first point of each hash slot, -1 if empty
+        private int cellBits;
+        private final SplittableRandom rnd = new SplittableRandom();
+        private AtomicLong shared; // parallel tasks: best distance published so far
+        private int[] xs, ys;
+        private long bestD;
+        private int bestI, bestJ;
+        private long distances, stripPoints, stripComparisons; // counted only with metrics on
+
+        // Writes the two indices (lower first) into pair and returns their squared
+        // distance. Needs n >= 2.
+        long closestPair(int[] xs, int[] ys, int n, int[] pair) {
+            return closestPair(xs, ys, n, pair, ClosestPairMode.DIVIDE_AND_CONQUER);
+        }
+
+        long closestPair(int[] xs, int[] ys, int n, int[] pair, ClosestPairMode mode) {
+            if (n < 2) throw new IllegalArgumentException("need at least 2 points");
+            requireSpan(xs, ys, n);
+            this.xs = xs;
+            this.ys = ys;
+            bestD = Long.MAX_VALUE;
+            bestI = bestJ = -1;
+            if (mode == ClosestPairMode.RANDOMIZED_GRID) randomizedGrid(n);
+            else divideAndConquer(n);
+            if (Metrics.ENABLED) {
+                POINTS.add(n);
+                publish();
+            }
+            pair[0] = bestI;
+            pair[1] = bestJ;
+            this.xs = this.ys = null;
+            return bestD;
+        }
+
+        // True if no axis spans more than 2^31 - 1, so squared distances fit a long
+        static boolean spanFits(int[] xs, int[] ys, int n) {
+            int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                x0 = Math.min(x0, xs[i]);
+                x1 = Math.max(x1, xs[i]);
+                y0 = Math.min(y0, ys[i]);
+                y1 = Math.max(y1, ys[i]);
+            }
+            return (long) x1 - x0 <= Integer.MAX_VALUE && (long) y1 - y0 <= Integer.MAX_VALUE;
+        }
+
+        static void requireSpan(int[] xs, int[] ys, int n) {
+            if (!spanFits(xs, ys, n))
+                throw new IllegalArgumentException("coordinates span more than 2^31 - 1 on an axis");
+        }
+
+        private void divideAndConquer(int n) {
+            long t = Metrics.start();
+            order(n);
+            if (Metrics.ENABLED) t = SORT.lap(t);
+            solve(n);
+            if (Metrics.ENABLED) RECURSE.lap(t);
+        }
+
+        // The untimed halves of divideAndConquer, which the grid's sample also
+        // runs inside its own timer: byX sorted, then duplicates and recursion
+        private void order(int n) {
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) byX[i] = i;
+            sortByX(0, n);
+        }
+
+        private void solve(int n) {
+            duplicates(n);
+            if (bestD != 0) {
+                System.arraycopy(byX, 0, byY, 0, n);
+                recurse(0, n);
+            }
+        }
+
+        // Step 0: duplicates sit next to each other after the sort; each run
+        // lists its indices in ascending order
+        private void duplicates(int n) {
+            for (int k = 1; k < n; k++) {
+                int p = byX[k - 1], q = byX[k];
+                if (xs[p] == xs[q] && ys[p] == ys[q]) consider(p, q);
+            }
+        }
+
+        // Step 1: closest pair of byX[lo, hi); leaves byY[lo, hi) sorted by y
+        private void recurse(int lo, int hi) {
+            if (hi - lo <= 3) {
+                for (int i = lo; i < hi; i++)
+                    for (int j = i + 1; j < hi; j++) consider(byY[i], byY[j]);
+                for (int i = lo + 1; i < hi; i++) { // insertion sort by y
+                    int p = byY[i], j = i - 1;
+                    while (j >= lo && ys[byY[j]] > ys[p]) byY[j + 1] = byY[j--];
+                    byY[j + 1] = p;
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            recurse(lo, mid);
+            recurse(mid, hi);
+            combine(lo, mid, hi);
+        }
+
+        private void combine(int lo, int mid, int hi) {
+            long midX = xs[byX[mid]];
+
+            // Step 2: merge the halves by y
+            int a = lo, b = mid, k = lo;
+            while (a < mid && b < hi) scratch[k++] = ys[byY[b]] < ys[byY[a]] ? byY[b++] : byY[a++];
+            while (a < mid) scratch[k++] = byY[a++];
+            while (b < hi) scratch[k++] = byY[b++];
+            System.arraycopy(scratch, lo, byY, lo, hi - lo);
+
+            // Step 3: strip of points within the best distance of the dividing
+            // line, already in y order. Each point is compared only with the few
+            // points above it that are close enough in y.
+            long limit = shared == null ? bestD : Math.min(bestD, shared.get());
+            int s = lo;
+            for (int i = lo; i < hi; i++) {
+                long dx = xs[byY[i]] - midX;
+                if (dx * dx <= limit) scratch[s++] = byY[i];
+            }
+            if (Metrics.ENABLED) stripPoints += s - lo;
+            for (int i = lo; i < s; i++) {
+                int p = scratch[i];
+                for (int j = i + 1; j < s; j++) {
+                    long dy = (long) ys[scratch[j]] - ys[p];
+                    if (dy * dy > limit) break;
+                    if (Metrics.ENABLED) stripComparisons++;
+                    consider(p, scratch[j]);
+                    limit = Math.min(limit, bestD);
+                }
+            }
+        }
+
+        // Step 4: randomized grid (Rabin)
+        // The closest distance d of a random sample of n^(2/3) points bounds the
+        // answer from above. Points are hashed into cells of side greater than d,
+        // so every pair at distance <= d (ties included) lies in adjacent cells.
+        // Each point is compared with the points already placed in its 3x3
+        // block. For a random sample that block holds O(1) points in expectation,
+        // whatever the input, so the pass is expected O(n).
+        // A point at the same location as one already placed is compared with it
+        // but not stored, which keeps runs of duplicates from growing the cells.
+        private void randomizedGrid(int n) {
+            if (live.length < n) {
+                live = new int[n];
+                next = new int[n];
+            }
+            long t = Metrics.start();
+            long d2 = sampleDistance(n);
+            if (Metrics.ENABLED) t = SAMPLE.lap(t);
+            long side = isqrt(d2) + 1;
+            resetGrid(n);
+            for (int i = 0; i < n; i++) {
+                long cx = Math.floorDiv(xs[i], side), cy = Math.floorDiv(ys[i], side);
+                boolean repeat = false;
+                for (long gx = cx - 1; gx <= cx + 1; gx++) {
+                    for (long gy = cy - 1; gy <= cy + 1; gy++) {
+                        for (int q = cellHead[slot(key(gx, gy))]; q >= 0; q = next[q]) {
+                            consider(q, i);
+                            repeat |= xs[q] == xs[i] && ys[q] == ys[i];
+                        }
+                    }
+                }
+                if (!repeat) insert(i, side);
+            }
+            if (Metrics.ENABLED) GRID.lap(t);
+        }
+
+        // Squared closest distance among ~n^(2/3) distinct random indices
+        private long sampleDistance(int n) {
+            int s = (int) Math.min(n, Math.max(2, Math.ceil(Math.pow(n, 2.0 / 3))));
+            if (sampleX.length < s) {
+                sampleX = new int[s];
+                sampleY = new int[s];
+            }
+            for (int i = 0; i < n; i++) live[i] = i;
+            for (int i = 0; i < s; i++) { // partial Fisher-Yates
+                int j = i + rnd.nextInt(n - i), t = live[i];
+                live[i] = live[j];
+                live[j] = t;
+                sampleX[i] = xs[live[i]];
+                sampleY[i] = ys[live[i]];
+            }
+            int[] fullX = xs, fullY = ys;
+            xs = sampleX;
+            ys = sampleY;
+            order(s);
+            solve(s);
+            long d2 = bestD;
+            xs = fullX;
+            ys = fullY;
+            bestD = Long.MAX_VALUE;
+            bestI = bestJ = -1;
+            return d2;
+        }
+
+        private void insert(int p, long side) {
+            int s = slot(key(Math.floorDiv(xs[p], side), Math.floorDiv(ys[p], side)));
+            next[p] = cellHead[s];
+            cellHead[s] = p;
+        }
+
+        private static long key(long cx, long cy) {
+            return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+        }
+
+        // Open addressing with linear probing; returns the key's slot, claiming an
+        // empty one (head -1) if the key is new
+        private int slot(long key) {
+            int mask = (1 << cellBits) - 1;
+            int s = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - cellBits));
+            while (cellHead[s] >= 0 && cellKey[s] != key) s = (s + 1) & mask;
+            cellKey[s] = key;
+            return s;
+        }
+
+        // Empties the first 2^cellBits slots, enough for m points at load <= 1/2
+        private void resetGrid(int m) {
+            cellBits = 64 - Long.numberOfLeadingZeros(Math.max(16, 2L * m - 1));
+            if (cellHead.length < 1 << cellBits) {
+                cellHead = new int[1 << cellBits];
+                cellKey = new long[1 << cellBits];
+            }
+            Arrays.fill(cellHead, 0, 1 << cellBits, -1);
+        }
+
+        private static long isqrt(long v) {
+            long r = (long) Math.sqrt((double) v);
+            while (r * r > v) r--;
+            while ((r + 1) * (r + 1) <= v) r++;
+            return r;
+        }
+
+        private void consider(int p, int q) {
+            if (Metrics.ENABLED) distances++;
+            long d = Predicates.distSq(xs[p], ys[p], xs[q], ys[q]);
+            int i = Math.min(p, q), j = Math.max(p, q);
+            if (d < bestD || (d == bestD && (i < bestI || (i == bestI && j < bestJ)))) {
+                bestD = d;
+                bestI = i;
+                bestJ = j;
+            }
+        }
+
+        // Stable bottom-up merge sort of byX[lo, hi) by (x, y)
+        private void sortByX(int lo, int hi) {
+            int[] src = byX, dst = scratch;
+            for (int width = 1; width < hi - lo; width <<= 1) {
+                for (int a0 = lo; a0 < hi; a0 += width << 1) {
+                    int mid = Math.min(a0 + width, hi), end = Math.min(a0 + (width << 1), hi);
+                    int a = a0, b = mid, k = a0;
+                    while (a < mid && b < end) dst[k++] = before(src[b], src[a]) ? src[b++] : src[a++];
+                    while (a < mid) dst[k++] = src[a++];
+                    while (b < end) dst[k++] = src[b++];
+                }
+                int[] t = src;
+                src = dst;
+                dst = t;
+            }
+            if (src != byX) System.arraycopy(src, lo, byX, lo, hi - lo);
+        }
+
+        // Merges the sorted runs byX[lo, mid) and byX[mid, hi)
+        private void mergeByX(int lo, int mid, int hi) {
+            int a = lo, b = mid, k = lo;
+            while (a < mid && b < hi) scratch[k++] = before(byX[b], byX[a]) ? byX[b++] : byX[a++];
+            while (a < mid) scratch[k++] = byX[a++];
+            while (b < hi) scratch[k++] = byX[b++];
+            System.arraycopy(scratch, lo, byX, lo, hi - lo);
+        }
+
+        private boolean before(int p, int q) {
+            return xs[p] < xs[q] || (xs[p] == xs[q] && ys[p] < ys[q]);
+        }
+
+        private void ensureCapacity(int n) {
+            if (byX.length < n) {
+                byX = new int[n];
+                byY = new int[n];
+                scratch = new int[n];
+            }
+        }
+
+        private void publish() {
+            DISTANCES.add(distances);
+            STRIP_POINTS.add(stripPoints);
+            STRIP_COMPARISONS.add(stripComparisons);
+            distances = stripPoints = stripComparisons = 0;
+        }
+
+        // An engine working on slices of buffers shared by ParallelClosestPair tasks
+        static ClosestPairEngine view(int[] xs, int[] ys, int[] byX, int[] byY, int[] scratch, AtomicLong shared) {
+            ClosestPairEngine e = new ClosestPairEngine();
+            e.xs = xs;
+            e.ys = ys;
+            e.byX = byX;
+            e.byY = byY;
+            e.scratch = scratch;
+            e.shared = shared;
+            e.bestD = Long.MAX_VALUE;
+            e.bestI = e.bestJ = -1;
+            return e;
+        }
+    }
+
+    // Parallel divide and conquer closest pair on a ForkJoinPool. The x presort
+    // and the recursion both fork their halves above the cutoff. Below it, a task
+    // runs the serial recursion on its slice of the shared buffers. Each finished
+    // task publishes its best distance through an AtomicLong, and every strip
+    // prunes against it. A pair at the final distance is never pruned, and
+    // partial results are combined in the same (distance, i, j) order, so the
+    // answer is exactly the serial engine's. Buffers are allocated per call, so
+    // one instance can serve many threads at once. With metrics on, each task
+    // publishes its engine's counters, and the two phases are timed per call.
+    static final class ParallelClosestPair {
+        private static final Metrics.Timer SORT = Metrics.timer("closest.parallel.sort");
+        private static final Metrics.Timer SOLVE = Metrics.timer("closest.parallel.solve");
+
+        private final ForkJoinPool pool;
+        private final int cutoff;
+
+        ParallelClosestPair(ForkJoinPool pool) {
+            this(pool, 1 << 14);
+        }
+
+        ParallelClosestPair(ForkJoinPool pool, int cutoff) {
+            this.pool = pool;
+            this.cutoff = Math.max(4, cutoff);
+        }
+
+        // Same contract and result as ClosestPairEngine.closestPair
+        long closestPair(int[] xs, int[] ys, int n, int[] pair) {
+            if (n < 2) throw new IllegalArgumentException("need at least 2 points");
+            ClosestPairEngine.requireSpan(xs, ys, n);
+            int[] byX = new int[n], byY = new int[n], scratch = new int[n];
+            for (int i = 0; i < n; i++) byX[i] = i;
+            AtomicLong shared = new AtomicLong(Long.MAX_VALUE);
+            long t = Metrics.start();
+            pool.invoke(new Sort(ClosestPairEngine.view(xs, ys, byX, byY, scratch, null), 0, n, cutoff));
+            if (Metrics.ENABLED) t = SORT.lap(t);
+
+            ClosestPairEngine dups = ClosestPairEngine.view(xs, ys, byX, byY, scratch, null);
+            dups.duplicates(n);
+            long[] best = {dups.bestD, dups.bestI, dups.bestJ};
+            if (dups.bestD != 0) {
+                System.arraycopy(byX, 0, byY, 0, n);
+                best = pool.invoke(new Solve(xs, ys, byX, byY, scratch, shared, 0, n, cutoff));
+            }
+            if (Metrics.ENABLED) {
+                SOLVE.lap(t);
+                dups.publish();
+            }
+            pair[0] = (int) best[1];
+            pair[1] = (int) best[2];
+            return best[0];
+        }
+
+        @SuppressWarnings("serial") // never serialized
+        private static final class Sort extends RecursiveAction {
+            private final ClosestPairEngine view;
+            private final int lo, hi, cutoff;
+
+            Sort(ClosestPairEngine view, int lo, int hi, int cutoff) {
+                this.view = view;
+                this.lo = lo;
+                this.hi = hi;
+                this.cutoff = cutoff;
+            }
+
+            @Override
+            protected void compute() {
+                if (hi - lo <= cutoff) {
+                    view.sortByX(lo, hi);
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Sort(view, lo, mid, cutoff), new Sort(view, mid, hi, cutoff));
+                view.mergeByX(lo, mid, hi);
+            }
+        }
+
+        // Returns {distance, i, j} for byX[lo, hi) and leaves byY[lo, hi) in y order
+        @SuppressWarnings("serial") // never serialized
+        private static final class Solve extends RecursiveTask<long[]> {
+            private final int[] xs, ys, byX, byY, scratch;
+            private final AtomicLong shared;
+            private final int lo, hi, cutoff;
+
+            Solve(int[] xs, int[] ys, int[] byX, int[] byY, int[] scratch, AtomicLong shared,
+                  int lo, int hi, int cutoff) {
+                this.xs = xs;
+                this.ys = ys;
+                this.byX = byX;
+                this.byY = byY;
+                this.scratch = scratch;
+                this.shared = shared;
+                this.lo = lo;
+                this.hi = hi;
+                this.cutoff = cutoff;
+            }
+
+            @Override
+            protected long[] compute() {
+                ClosestPairEngine e = ClosestPairEngine.view(xs, ys, byX, byY, scratch, shared);
+                if (hi - lo <= cutoff) {
+                    e.recurse(lo, hi);
+                } else {
+                    // Fork the left half, run the right one here, then combine
+                    int mid = (lo + hi) >>> 1;
+                    Solve left = new Solve(xs, ys, byX, byY, scratch, shared, lo, mid, cutoff);
+                    left.fork();
+                    long[] r = new Solve(xs, ys, byX, byY, scratch, shared, mid, hi, cutoff).compute();
+                    long[] l = left.join();
+                    long[] b = before(l, r) ? l : r;
+                    e.bestD = b[0];
+                    e.bestI = (int) b[1];
+                    e.bestJ = (int) b[2];
+                    e.combine(lo, mid, hi);
+                }
+                shared.accumulateAndGet(e.bestD, Math::min);
+                if (Metrics.ENABLED) e.publish();
+                return new long[]{e.bestD, e.bestI, e.bestJ};
+            }
+
+            private static boolean before(long[] a, long[] b) {
+                return a[0] != b[0] ? a[0] < b[0] : a[1] != b[1] ? a[1] < b[1] : a[2] < b[2];
+            }
+        }
+    }
+
+    // Adapter for the original entry point; leaves pts untouched. Any int input
+    // is accepted: spans too wide for the engine go through closestPairWide.
     static double closestPair(int[][] pts) {
-        // Sort points initially by x-coordinate before recursion
-        Arrays.sort(pts, Comparator.comparingInt(p -> p[0]));
-        return closestUtil(pts, pts.length);
+        int n = pts.length;
+        int[] xs = new int[n], ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = pts[i][0];
+            ys[i] = pts[i][1];
+        }
+        if (!ClosestPairEngine.spanFits(xs, ys, n)) return closestPairWide(xs, ys, n);
+        return Math.sqrt(new ClosestPairEngine().closestPair(xs, ys, n, new int[2]));
+    }
+
+    // Closest distance for any int coordinates, in double: a sweep in x that
+    // keeps the points within the best distance so far, ordered by y (keys
+    // y << 32 | index), and compares each new point with those within that
+    // distance in y. O(n log n); within an ulp or so of the exact distance.
+    static double closestPairWide(int[] xs, int[] ys, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (p, q) -> Integer.compare(xs[p], xs[q]));
+        TreeSet<Long> window = new TreeSet<>();
+        double best = Double.POSITIVE_INFINITY;
+        for (int k = 0, tail = 0; k < n; k++) {
+            int p = order[k];
+            while ((double) xs[p] - xs[order[tail]] > best) {
+                int q = order[tail++];
+                window.remove((long) ys[q] << 32 | q);
+            }
+            long lo = (long) Math.max(Integer.MIN_VALUE, Math.floor(ys[p] - best));
+            long hi = (long) Math.min(Integer.MAX_VALUE, Math.ceil(ys[p] + best));
+            for (long key : window.subSet(lo << 32, true, hi << 32 | 0xFFFFFFFFL, true)) {
+                int q = (int) key;
+                best = Math.min(best, Math.hypot((double) xs[p] - xs[q], (double) ys[p] - ys[q]));
+            }
+            window.add((long) ys[p] << 32 | p);
+        }
+        return best;
+    }
+
+    // Headless run: batch [--grid] <points> [out]
+    // Reads x y records (binary or text, "-" for stdin) and writes the indices of
+    // the closest pair followed by their distance.
+    static void batch(String[] args) throws IOException {
+        ClosestPairMode mode = ClosestPairMode.DIVIDE_AND_CONQUER;
+        String in = null, out = "-";
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--grid")) mode = ClosestPairMode.RANDOMIZED_GRID;
+            else if (in == null) in = args[i];
+            else out = args[i];
+        }
+        if (in == null) throw new IllegalArgumentException("usage: batch [--grid] <points> [out]");
+        PointIO.Table t = PointIO.read(in);
+        t.requireColumns(2);
+        if (t.n < 2) throw new IllegalArgumentException("need at least 2 points");
+        int[] pair = new int[2];
+        long d = new ClosestPairEngine().closestPair(t.intColumn(0), t.intColumn(1), t.n, pair, mode);
+        try (PointIO.Writer w = PointIO.Writer.open(out)) {
+            w.num(pair[0]).sep().num(pair[1]).sep().num(Math.sqrt(d)).newline();
+        }
+    }
+
+    // All-nearest-neighbour and k-closest-pair queries for millions of points.
+    // Both search a 2-d tree whose node split points, coordinates included,
+    // are laid out in flat arrays. Queries run in that tree order, split into
+    // ranges run as ForkJoin tasks, so nearby points are mostly still in cache.
+    // The tree adapts to density, so clusters and far outliers cost no more
+    // than uniform points. Ties resolve as in ClosestPairEngine (smaller
+    // distance, then smaller indices), so results do not depend on the
+    // schedule.
+    static final class ProximityQueries {
+        private final ForkJoinPool pool;
+
+        ProximityQueries(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        // nn[i] = index of the point nearest to i, nnDist[i] = its distance.
+        // A lone point gets -1 and +infinity.
+        void allNearest(int[] xs, int[] ys, int n, int[] nn, double[] nnDist) {
+            if (n == 0) return;
+            ClosestPairEngine.requireSpan(xs, ys, n);
+            allNearest(new KdTree(xs, ys, n), xs, ys, n, nn, nnDist);
+        }
+
+        private void allNearest(KdTree g, int[] xs, int[] ys, int n, int[] nn, double[] nnDist) {
+            pool.invoke(new Ranges(n, chunk(n), (lo, hi) -> {
+                for (int k = lo; k < hi; k++) {
+                    int p = g.pts[k], q = g.nearest(k);
+                    nn[p] = q;
+                    nnDist[p] = q < 0 ? Double.POSITIVE_INFINITY
+                        : Math.sqrt(Predicates.distSq(g.px[k], g.py[k], xs[q], ys[q]));
+                }
+            }));
+        }
+
+        // The k closest pairs (i < j) in ascending (distance, i, j) order, written
+        // to pi, pj and dist. Returns how many were written: k, or every pair if
+        // there are fewer.
+        int closestPairs(int[] xs, int[] ys, int n, int k, int[] pi, int[] pj, double[] dist) {
+            k = (int) Math.min(k, (long) n * (n - 1) / 2);
+            if (k <= 0) return 0;
+            ClosestPairEngine.requireSpan(xs, ys, n);
+
+            // Step 1: a radius holding at least k pairs. Each point's nearest pair
+            // counts once (mutual pairs once), so the k-th smallest of those
+            // distances is enough if there are k of them. Otherwise the median
+            // one is scaled by 2k / m, since pair counts grow with the area; step
+            // 2 widens it further if that falls short.
+            KdTree tree = new KdTree(xs, ys, n);
+            int[] nn = new int[n];
+            allNearest(tree, xs, ys, n, nn, new double[n]);
+            long[] near = new long[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (nn[nn[i]] != i || i < nn[i])
+                    near[m++] = Predicates.distSq(xs[i], ys[i], xs[nn[i]], ys[nn[i]]);
+            }
+            Arrays.sort(near, 0, m);
+            long r2 = k <= m ? near[k - 1] : (long) Math.min(Long.MAX_VALUE, Math.max(1, near[m / 2]) * 2.0 * k / m);
+
+            // Step 2: keep the k smallest pairs within the radius, growing the
+            // radius until there are enough
+            while (true) {
+                PairHeap all = pairsWithin(tree, n, k, r2);
+                if (all.size == k) {
+                    all.sortAscending();
+                    for (int t = 0; t < k; t++) {
+                        pi[t] = all.a[t];
+                        pj[t] = all.b[t];
+                        dist[t] = Math.sqrt(all.d[t]);
+                    }
+                    return k;
+                }
+                r2 = r2 > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : 2 * r2 + 1;
+            }
+        }
+
+        private PairHeap pairsWithin(KdTree g, int n, int k, long r2) {
+            List<PairHeap> parts = Collections.synchronizedList(new ArrayList<>());
+            pool.invoke(new Ranges(n, chunk(n), (lo, hi) -> {
+                PairHeap heap = new PairHeap(k);
+                for (int t = lo; t < hi; t++) g.pairsWithin(t, r2, heap);
+                parts.add(heap);
+            }));
+            PairHeap all = new PairHeap(k);
+            for (PairHeap h : parts)
+                for (int t = 0; t < h.size; t++) all.offer(h.d[t], h.a[t], h.b[t]);
+            return all;
+        }
+
+        private int chunk(int n) {
+            return Math.max(1024, n / (pool.getParallelism() * 8));
+        }
+
+        interface RangeBody {
+            void run(int lo, int hi);
+        }
+
+        // Splits [0, n) in halves down to the chunk size
+        @SuppressWarnings("serial") // never serialized
+        private static final class Ranges extends RecursiveAction {
+            private final int lo, hi, chunk;
+            private final RangeBody body;
+
+            Ranges(int n, int chunk, RangeBody body) {
+                this(0, n, chunk, body);
+            }
+
+            private Ranges(int lo, int hi, int chunk, RangeBody body) {
+                this.lo = lo;
+                this.hi = hi;
+                this.chunk = chunk;
+                this.body = body;
+            }
+
+            @Override
+            protected void compute() {
+                if (hi - lo <= chunk) {
+                    body.run(lo, hi);
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Ranges(lo, mid, chunk, body), new Ranges(mid, hi, chunk, body));
+            }
+        }
+
+        // Static 2-d tree in an implicit layout: positions [lo, hi) form a node,
+        // its split point sits at mid = (lo + hi) >>> 1, and its subtrees are
+        // [lo, mid) and [mid + 1, hi). Each node splits at the median of the
+        // wider side of its points and keeps their bounding box and smallest
+        // index, so the depth is log n however the points are spread. Searches
+        // visit the nearer child first, and on a tie the one holding the
+        // smaller index, so even a pile of duplicates costs one path.
+        private static final class KdTree {
+            final int[] pts, px, py;         // point index and coordinates per position
+            private final int[] x0, y0, x1, y1; // bounding box of the node at each mid
+            private final int[] low;         // smallest point index in that node
+
+            KdTree(int[] xs, int[] ys, int n) {
+                pts = new int[n];
+                px = Arrays.copyOf(xs, n);
+                py = Arrays.copyOf(ys, n);
+                for (int i = 0; i < n; i++) pts[i] = i;
+                x0 = new int[n];
+                y0 = new int[n];
+                x1 = new int[n];
+                y1 = new int[n];
+                low = new int[n];
+                build(0, n);
+            }
+
+            private void build(int lo, int hi) {
+                if (lo >= hi) return;
+                int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+                int least = Integer.MAX_VALUE;
+                for (int i = lo; i < hi; i++) {
+                    minX = Math.min(minX, px[i]);
+                    minY = Math.min(minY, py[i]);
+                    maxX = Math.max(maxX, px[i]);
+                    maxY = Math.max(maxY, py[i]);
+                    least = Math.min(least, pts[i]);
+                }
+                int mid = (lo + hi) >>> 1;
+                select(lo, hi - 1, mid, (long) maxX - minX >= (long) maxY - minY ? px : py);
+                x0[mid] = minX;
+                y0[mid] = minY;
+                x1[mid] = maxX;
+                y1[mid] = maxY;
+                low[mid] = least;
+                build(lo, mid);
+                build(mid + 1, hi);
+            }
+
+            // Quickselect: puts the k-th smallest key of positions [lo, hi] at k,
+            // smaller or equal ones before it and larger or equal ones after
+            private void select(int lo, int hi, int k, int[] key) {
+                while (lo < hi) {
+                    int pivot = key[(lo + hi) >>> 1], i = lo, j = hi;
+                    while (i <= j) {
+                        while (key[i] < pivot) i++;
+                        while (key[j] > pivot) j--;
+                        if (i <= j) swap(i++, j--);
+                    }
+                    if (k <= j) hi = j;
+                    else if (k >= i) lo = i;
+                    else return;
+                }
+            }
+
+            private void swap(int i, int j) {
+                int t = pts[i];
+                pts[i] = pts[j];
+                pts[j] = t;
+                t = px[i];
+                px[i] = px[j];
+                px[j] = t;
+                t = py[i];
+                py[i] = py[j];
+                py[j] = t;
+            }
+
+            // Squared distance from (x, y) to the box of the node at mid
+            private long boxDistSq(int mid, long x, long y) {
+                long dx = x < x0[mid] ? x0[mid] - x : x > x1[mid] ? x - x1[mid] : 0;
+                long dy = y < y0[mid] ? y0[mid] - y : y > y1[mid] ? y - y1[mid] : 0;
+                return dx * dx + dy * dy;
+            }
+
+            // Nearest point to the one at position k
+            int nearest(int k) {
+                long[] best = {Long.MAX_VALUE, -1}; // distance, index
+                nearest(0, pts.length, px[k], py[k], pts[k], best);
+                return (int) best[1];
+            }
+
+            private void nearest(int lo, int hi, int x, int y, int self, long[] best) {
+                int mid = (lo + hi) >>> 1, q = pts[mid];
+                long d = Predicates.distSq(x, y, px[mid], py[mid]);
+                if (q != self && (d < best[0] || (d == best[0] && q < best[1]))) {
+                    best[0] = d;
+                    best[1] = q;
+                }
+                int l = (lo + mid) >>> 1, r = (mid + 1 + hi) >>> 1;
+                long dl = lo < mid ? boxDistSq(l, x, y) : Long.MAX_VALUE;
+                long dr = mid + 1 < hi ? boxDistSq(r, x, y) : Long.MAX_VALUE;
+                if (dr < dl || (dr == dl && mid + 1 < hi && low[r] < low[l])) {
+                    if (worth(r, dr, best)) nearest(mid + 1, hi, x, y, self, best);
+                    if (lo < mid && worth(l, dl, best)) nearest(lo, mid, x, y, self, best);
+                } else {
+                    if (lo < mid && worth(l, dl, best)) nearest(lo, mid, x, y, self, best);
+                    if (mid + 1 < hi && worth(r, dr, best)) nearest(mid + 1, hi, x, y, self, best);
+                }
+            }
+
+            // A node at box distance d can still improve on best
+            private boolean worth(int mid, long d, long[] best) {
+                return d < best[0] || (d == best[0] && low[mid] < best[1]);
+            }
+
+            // Offers every pair (p, q), q > p, at squared distance <= r2, where p
+            // is the point at position k
+            void pairsWithin(int k, long r2, PairHeap heap) {
+                within(0, pts.length, px[k], py[k], pts[k], r2, heap);
+            }
+
+            private void within(int lo, int hi, int x, int y, int p, long r2, PairHeap heap) {
+                if (lo >= hi) return;
+                int mid = (lo + hi) >>> 1;
+                if (boxDistSq(mid, x, y) > r2) return;
+                int q = pts[mid];
+                if (q > p) {
+                    long d = Predicates.distSq(x, y, px[mid], py[mid]);
+                    if (d <= r2) heap.offer(d, p, q);
+                }
+                within(lo, mid, x, y, p, r2, heap);
+                within(mid + 1, hi, x, y, p, r2, heap);
+            }
+        }
+
+        // Bounded max-heap holding the k smallest (distance, i, j) triples. The
+        // arrays grow on demand, so a heap for a large k that sees few pairs
+        // stays small.
+        private static final class PairHeap {
+            long[] d;
+            int[] a, b;
+            final int k;
+            int size;
+
+            PairHeap(int k) {
+                this.k = k;
+                int cap = Math.min(k, 1024);
+                d = new long[cap];
+                a = new int[cap];
+                b = new int[cap];
+            }
+
+            void offer(long dist, int i, int j) {
+                if (size < k) {
+                    if (size == d.length) {
+                        int cap = (int) Math.min(k, 2L * size);
+                        d = Arrays.copyOf(d, cap);
+                        a = Arrays.copyOf(a, cap);
+                        b = Arrays.copyOf(b, cap);
+                    }
+                    set(size, dist, i, j);
+                    up(size++);
+                } else if (less(dist, i, j, 0)) {
+                    set(0, dist, i, j);
+                    down(0, size);
+                }
+            }
+
+            // Heapsort in place: the max goes to the end each round
+            void sortAscending() {
+                for (int end = size - 1; end > 0; end--) {
+                    swap(0, end);
+                    down(0, end);
+                }
+            }
+
+            private boolean less(long dist, int i, int j, int t) {
+                return dist != d[t] ? dist < d[t] : i != a[t] ? i < a[t] : j < b[t];
+            }
+
+            private void up(int t) {
+                while (t > 0) {
+                    int parent = (t - 1) >>> 1;
+                    if (!less(d[parent], a[parent], b[parent], t)) break;
+                    swap(t, parent);
+                    t = parent;
+                }
+            }
+
+            private void down(int t, int end) {
+                while (true) {
+                    int c = 2 * t + 1;
+                    if (c >= end) return;
+                    if (c + 1 < end && less(d[c], a[c], b[c], c + 1)) c++;
+                    if (!less(d[t], a[t], b[t], c)) return;
+                    swap(t, c);
+                    t = c;
+                }
+            }
+
+            private void set(int t, long dist, int i, int j) {
+                d[t] = dist;
+                a[t] = i;
+                b[t] = j;
+            }
+
+            private void swap(int s, int t) {
+                long dd = d[s];
+                int aa = a[s], bb = b[s];
+                set(s, d[t], a[t], b[t]);
+                set(t, dd, aa, bb);
+            }
+        }
+    }
+
+    // Property check: both modes and the parallel version against each other, and
+    // against brute force on small inputs, over seeded random workloads (uniform,
+    // crowded with duplicates, lattice ties, collinear, clustered, a dense box
+    // with one far outlier). Small inputs also check all-nearest-neighbours and
+    // k closest pairs. Returns the failure count.
+    static int selfCheck(PrintWriter pw, int cases) {
+        ClosestPairEngine engine = new ClosestPairEngine();
+        ParallelClosestPair parallel = new ParallelClosestPair(ForkJoinPool.commonPool(), 16);
+        ProximityQueries queries = new ProximityQueries(ForkJoinPool.commonPool());
+        int[] a = new int[2], b = new int[2], c2 = new int[2];
+        int failures = 0;
+        for (int c = 0; c < cases; c++) {
+            Random rnd = new Random(c);
+            int n = 2 + rnd.nextInt(c % 10 == 0 ? 20000 : 300);
+            int[] xs = new int[n], ys = new int[n];
+            int shape = c % 6, range = 1 << (2 + rnd.nextInt(28));
+            for (int i = 0; i < n; i++) {
+                if (shape == 0) { // uniform
+                    xs[i] = rnd.nextInt(range);
+                    ys[i] = rnd.nextInt(range);
+                } else if (shape == 1) { // crowded, many duplicates
+                    xs[i] = rnd.nextInt(8);
+                    ys[i] = rnd.nextInt(8);
+                } else if (shape == 2) { // lattice, many equal distances
+                    xs[i] = rnd.nextInt(64) * 5;
+                    ys[i] = rnd.nextInt(64) * 5;
+                } else if (shape == 3) { // collinear
+                    xs[i] = rnd.nextInt(range);
+                    ys[i] = xs[i] / 2;
+                } else if (shape == 4) { // clustered
+                    xs[i] = (int) Math.max(0, Math.min(range, range / 2 + rnd.nextGaussian() * range / 1000));
+                    ys[i] = (int) Math.max(0, Math.min(range, range / 2 + rnd.nextGaussian() * range / 1000));
+                } else { // dense box, the last point far out
+                    xs[i] = i == n - 1 ? 1 << 30 : rnd.nextInt(1000);
+                    ys[i] = i == n - 1 ? 1 << 30 : rnd.nextInt(1000);
+                }
+            }
+            long d = engine.closestPair(xs, ys, n, a, ClosestPairMode.DIVIDE_AND_CONQUER);
+            long g = engine.closestPair(xs, ys, n, b, ClosestPairMode.RANDOMIZED_GRID);
+            long p = parallel.closestPair(xs, ys, n, c2);
+            long bd = Long.MAX_VALUE;
+            int bi = -1, bj = -1;
+            if (n <= 2000) {
+                for (int i = 0; i < n; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        long e = Predicates.distSq(xs[i], ys[i], xs[j], ys[j]);
+                        if (e < bd) {
+                            bd = e;
+                            bi = i;
+                            bj = j;
+                        }
+                    }
+                }
+            } else {
+                bd = d;
+                bi = a[0];
+                bj = a[1];
+            }
+            if (d != bd || g != bd || p != bd || a[0] != bi || a[1] != bj || b[0] != bi || b[1] != bj
+                    || c2[0] != bi || c2[1] != bj) {
+                failures++;
+                pw.printf("case %d (n=%d, shape %d): expected %d (%d, %d), divide and conquer %d (%d, %d), "
+                        + "grid %d (%d, %d), parallel %d (%d, %d)%n",
+                        c, n, shape, bd, bi, bj, d, a[0], a[1], g, b[0], b[1], p, c2[0], c2[1]);
+            }
+            if (n <= 2000 && !checkQueries(queries, xs, ys, n, 1 + rnd.nextInt(Math.min(n * (n - 1) / 2, 3 * n)))) {
+                failures++;
+                pw.printf("case %d (n=%d, shape %d): nearest neighbours or k closest pairs differ%n", c, n, shape);
+            }
+
+            // Every few cases, points over the whole int range: the engine must
+            // refuse them and the int[][] adapter must match brute force
+            if (c % 20 == 0) {
+                int[][] pts = c == 0 ? new int[][]{{0, 0}, {1 << 30, 0}, {-2000000000, 5}, {2000000000, -5}}
+                        : new int[2 + rnd.nextInt(300)][];
+                for (int i = 0; c > 0 && i < pts.length; i++) {
+                    pts[i] = new int[]{rnd.nextInt(), rnd.nextInt()};
+                    if (i > 0 && rnd.nextInt(10) == 0) pts[i] = pts[rnd.nextInt(i)].clone();
+                }
+                int m = pts.length;
+                int[] wx = new int[m], wy = new int[m];
+                double expect = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < m; i++) {
+                    wx[i] = pts[i][0];
+                    wy[i] = pts[i][1];
+                    for (int j = 0; j < i; j++)
+                        expect = Math.min(expect, Math.hypot((double) pts[i][0] - pts[j][0], (double) pts[i][1] - pts[j][1]));
+                }
+                boolean refused = false;
+                try {
+                    engine.closestPair(wx, wy, m, a);
+                } catch (IllegalArgumentException e) {
+                    refused = true;
+                }
+                double got = closestPair(pts);
+                if (got != expect || refused == ClosestPairEngine.spanFits(wx, wy, m)) {
+                    failures++;
+                    pw.printf("case %d (n=%d, full int range): expected %s, got %s%s%n", c, m, expect, got,
+                            refused ? "" : ", engine took the input");
+                }
+            }
+        }
+        pw.printf("%d of %d cases passed%n", cases - failures, cases);
+        pw.flush();
+        return failures;
+    }
+
+    private static boolean checkQueries(ProximityQueries queries, int[] xs, int[] ys, int n, int k) {
+        int[] nn = new int[n];
+        double[] nnDist = new double[n];
+        queries.allNearest(xs, ys, n, nn, nnDist);
+        int pairs = n * (n - 1) / 2, t = 0;
+        long[] all = new long[pairs];
+        for (int i = 0; i < n; i++) {
+            long best = Long.MAX_VALUE;
+            int q = -1;
+            for (int j = 0; j < n; j++) {
+                if (j == i) continue;
+                long d = Predicates.distSq(xs[i], ys[i], xs[j], ys[j]);
+                if (d < best) {
+                    best = d;
+                    q = j;
+                }
+                if (j > i) all[t++] = d;
+            }
+            if (nn[i] != q || nnDist[i] != Math.sqrt(best)) return false;
+        }
+
+        // Brute-force pair order: distance first, then the indices
+        Integer[] order = new Integer[pairs];
+        int[] pi = new int[pairs], pj = new int[pairs];
+        t = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                pi[t] = i;
+                pj[t] = j;
+                order[t] = t++;
+            }
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(o -> all[o]).thenComparingInt(o -> o));
+        int[] ri = new int[k], rj = new int[k];
+        double[] rd = new double[k];
+        if (queries.closestPairs(xs, ys, n, k, ri, rj, rd) != k) return false;
+        for (int r = 0; r < k; r++) {
+            int o = order[r];
+            if (ri[r] != pi[o] || rj[r] != pj[o] || rd[r] != Math.sqrt(all[o])) return false;
+        }
+        return true;
+    }
+
+    static void benchmark(PrintWriter pw) {
+        ClosestPairEngine engine = new ClosestPairEngine();
+        int[] pair = new int[2];
+        for (int n : new int[]{1 << 20, 1 << 22}) {
+            Random rnd = new Random(42);
+            int[] xs = new int[n], ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = rnd.nextInt(1 << 30);
+                ys[i] = rnd.nextInt(1 << 30);
+            }
+            int reps = 5;
+            for (ClosestPairMode mode : ClosestPairMode.values()) {
+                for (int r = 0; r < 2; r++) engine.closestPair(xs, ys, n, pair, mode); // warm up
+                long t0 = System.nanoTime();
+                for (int r = 0; r < reps; r++) engine.closestPair(xs, ys, n, pair, mode);
+                report(pw, mode + " n=" + n, n, reps, System.nanoTime() - t0);
+            }
+
+            // Scaling of the parallel version from 1 to all cores
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ParallelClosestPair parallel = new ParallelClosestPair(pool);
+                for (int r = 0; r < 2; r++) parallel.closestPair(xs, ys, n, pair);
+                long t0 = System.nanoTime();
+                for (int r = 0; r < reps; r++) parallel.closestPair(xs, ys, n, pair);
+                report(pw, "parallel x" + threads + " n=" + n, n, reps, System.nanoTime() - t0);
+                pool.shutdown();
+                if (threads == cores) break;
+            }
+        }
+
+        // All nearest neighbours and k closest pairs, against the O(n^2) baseline
+        ProximityQueries queries = new ProximityQueries(ForkJoinPool.commonPool());
+        for (int n : new int[]{20_000, 1 << 20}) {
+            Random rnd = new Random(7);
+            int[] xs = new int[n], ys = new int[n], nn = new int[n], pi = new int[n], pj = new int[n];
+            double[] nnDist = new double[n], dist = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = rnd.nextInt(1 << 30);
+                ys[i] = rnd.nextInt(1 << 30);
+            }
+            int reps = 3;
+            for (int r = 0; r < 2; r++) queries.allNearest(xs, ys, n, nn, nnDist);
+            long t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) queries.allNearest(xs, ys, n, nn, nnDist);
+            report(pw, "all nearest n=" + n, n, reps, System.nanoTime() - t0);
+            for (int r = 0; r < 2; r++) queries.closestPairs(xs, ys, n, n, pi, pj, dist);
+            t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) queries.closestPairs(xs, ys, n, n, pi, pj, dist);
+            report(pw, "k=n closest pairs n=" + n, n, reps, System.nanoTime() - t0);
+            if (n > 20_000) {
+                // The same points renumbered along the Hilbert curve
+                SpatialOrder.hilbert(xs, ys, n); // warm up
+                t0 = System.nanoTime();
+                int[] order = SpatialOrder.hilbert(xs, ys, n);
+                int[] hx = SpatialOrder.permute(xs, order, n), hy = SpatialOrder.permute(ys, order, n);
+                report(pw, "hilbert sort n=" + n, n, 1, System.nanoTime() - t0);
+                for (int r = 0; r < 2; r++) queries.allNearest(hx, hy, n, nn, nnDist);
+                t0 = System.nanoTime();
+                for (int r = 0; r < reps; r++) queries.allNearest(hx, hy, n, nn, nnDist);
+                report(pw, "all nearest hilbert n=" + n, n, reps, System.nanoTime() - t0);
+                continue;
+            }
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                long best = Long.MAX_VALUE;
+                for (int j = 0; j < n; j++) {
+                    long d = Predicates.distSq(xs[i], ys[i], xs[j], ys[j]);
+                    if (j != i && d < best) {
+                        best = d;
+                        nn[i] = j;
+                    }
+                }
+            }
+            report(pw, "brute force nearest n=" + n, n, 1, System.nanoTime() - t0);
+        }
+
+        // Uneven density: the clustered workload, and a dense 1000 x 1000 box
+        // with one far outlier
+        for (String shape : new String[]{"clustered", "outlier"}) {
+            int n = 1 << 20;
+            int[] xs = new int[n], ys = new int[n], nn = new int[n], pi = new int[n], pj = new int[n];
+            double[] nnDist = new double[n], dist = new double[n];
+            if (shape.equals("clustered")) {
+                Bench.points("clustered", n, Bench.SEED, xs, ys);
+            } else {
+                Random rnd = new Random(7);
+                for (int i = 0; i < n; i++) {
+                    xs[i] = i == n - 1 ? 1 << 28 : rnd.nextInt(1000);
+                    ys[i] = i == n - 1 ? 1 << 28 : rnd.nextInt(1000);
+                }
+            }
+            int reps = 3;
+            for (int r = 0; r < 2; r++) queries.allNearest(xs, ys, n, nn, nnDist);
+            long t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) queries.allNearest(xs, ys, n, nn, nnDist);
+            report(pw, "all nearest " + shape + " n=" + n, n, reps, System.nanoTime() - t0);
+            for (int r = 0; r < 2; r++) queries.closestPairs(xs, ys, n, n, pi, pj, dist);
+            t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) queries.closestPairs(xs, ys, n, n, pi, pj, dist);
+            report(pw, "k=n closest pairs " + shape + " n=" + n, n, reps, System.nanoTime() - t0);
+        }
+    }
+
+    // Standard suite: each closest-pair mode and all nearest neighbours on every
+    // point workload from 10^3 points to max, then the parallel versions from
+    // one thread to all cores at the largest size
+    static void suite(PrintWriter pw, int max) {
+        Bench.header(pw);
+        ClosestPairEngine engine = new ClosestPairEngine();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ProximityQueries serial = new ProximityQueries(single);
+        int[] pair = new int[2], sizes = Bench.sizes(max);
+        for (String workload : Bench.POINTS) {
+            for (int n : sizes) {
+                int[] xs = new int[n], ys = new int[n], nn = new int[n];
+                double[] nnDist = new double[n];
+                Bench.points(workload, n, Bench.SEED, xs, ys);
+                for (ClosestPairMode mode : ClosestPairMode.values())
+                    Bench.measure(pw, "closest pair " + mode, workload, n, () -> engine.closestPair(xs, ys, n, pair, mode));
+                Bench.measure(pw, "all nearest", workload, n, () -> {
+                    serial.allNearest(xs, ys, n, nn, nnDist);
+                    return nn[0];
+                });
+                if (n < sizes[sizes.length - 1]) continue;
+                for (int threads : Bench.threads()) {
+                    ForkJoinPool pool = new ForkJoinPool(threads);
+                    ParallelClosestPair parallel = new ParallelClosestPair(pool);
+                    ProximityQueries queries = new ProximityQueries(pool);
+                    Bench.measure(pw, "closest pair parallel x" + threads, workload, n,
+                        () -> parallel.closestPair(xs, ys, n, pair));
+                    Bench.measure(pw, "all nearest x" + threads, workload, n, () -> {
+                        queries.allNearest(xs, ys, n, nn, nnDist);
+                        return nn[0];
+                    });
+                    pool.shutdown();
+                }
+            }
+        }
+        single.shutdown();
+    }
+
+    static void report(PrintWriter pw, String name, int n, int reps, long nanos) {
+        double ms = nanos / 1e6 / reps;
+        pw.printf("%-28s %10.2f ms/run %10.2f Mpoints/s%n", name, ms, n / ms / 1e3);
+        pw.flush();
     }
 
     public static void main(String[] args) throws Exception {
-        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+        if (Metrics.ENABLED) Metrics.export("closest-pair");
+        if (args.length > 0 && args[0].equals("check")) {
+            PrintWriter pw = new PrintWriter(System.out);
+            if (selfCheck(pw, args.length > 1 ? Integer.parseInt(args[1]) : 2000) > 0) System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(new PrintWriter(System.out));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("suite")) {
+            suite(new PrintWriter(System.out), args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("convert")) {
+            PointIO.convert(args[1], args[2]);
+            return;
+        }
+
 
         // Example Input (Can be replaced with user input)
         int[][] pts = {
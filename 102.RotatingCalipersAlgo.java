@@ -14,47 +14,1300 @@
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.management.*;
 
 public class RotatingCalipers {
 
-    // Step 1: Function to calculate Euclidean distance between two points
-    static double distance(int[] p1, int[] p2) {
-        double dx = p1[0] - p2[0];
-        double dy = p1[1] - p2[1];
-        return Math.sqrt(dx * dx + dy * dy);
+    // Shared predicate kernel. Every algorithm file carries its own copy, cut down
+    // to the predicates it calls, so each file still runs on its own. The integer
+    // predicates take primitive arguments and never allocate.
+    static final class Predicates {
+        private Predicates() {
+        }
+
+        // Sign of (b - a) x (c - a): 1 counterclockwise, -1 clockwise, 0 collinear.
+        // Exact for all int coordinates.
+        static int orient(long ax, long ay, long bx, long by, long cx, long cy) {
+            long abx = bx - ax, aby = by - ay, acx = cx - ax, acy = cy - ay;
+            if (((Math.abs(abx) | Math.abs(aby) | Math.abs(acx) | Math.abs(acy)) >>> 31) == 0)
+                return Long.signum(abx * acy - aby * acx);
+
+            // Products need up to 66 bits here, compare them as 128-bit values
+            long h1 = Math.multiplyHigh(abx, acy), h2 = Math.multiplyHigh(aby, acx);
+            if (h1 != h2) return h1 < h2 ? -1 : 1;
+            return Integer.signum(Long.compareUnsigned(abx * acy, aby * acx));
+        }
+
+        // (b - a) x (c - a) as a value, for area comparisons.
+        // Exact while coordinates stay within +-2^30.
+        static long cross(long ax, long ay, long bx, long by, long cx, long cy) {
+            return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        }
+
+        // Squared distance, exact while coordinates stay within +-2^30
+        static long distSq(long ax, long ay, long bx, long by) {
+            long dx = ax - bx, dy = ay - by;
+            return dx * dx + dy * dy;
+        }
+    }
+
+    // Headless batch I/O. Every algorithm file carries its own copy of this class,
+    // trimmed to what it uses.
+    //
+    // Binary tables start with a 24-byte little-endian header: magic "GEOB", the
+    // column count, the element type (0 = int32, 1 = float64), a reserved zero word
+    // and the record count as a long. The columns follow one after another. Files are memory-mapped and
+    // each column is bulk-copied straight into a primitive array, no parsing.
+    // Anything without the magic is read as text: one record per line, numbers
+    // separated by spaces, tabs or commas, '#' starts a comment.
+    static final class PointIO {
+        static final int MAGIC = 0x424F4547; // "GEOB" read little-endian
+        static final int INT32 = 0, FLOAT64 = 1;
+        private static final int HEADER = 24;
+        private static final long WINDOW = 1 << 30; // bytes mapped at a time
+
+        // n records of `columns` values each, stored by column
+        static final class Table {
+            final int n, columns;
+            final int[][] ints;       // int32 tables
+            final double[][] doubles; // float64 tables
+
+            Table(int n, int[][] ints) {
+                this.n = n;
+                this.columns = ints.length;
+                this.ints = ints;
+                this.doubles = null;
+            }
+
+            Table(int n, double[][] doubles) {
+                this.n = n;
+                this.columns = doubles.length;
+                this.ints = null;
+                this.doubles = doubles;
+            }
+
+            int[] intColumn(int c) {
+                if (ints != null) return ints[c];
+                int[] col = new int[n];
+                for (int i = 0; i < n; i++) {
+                    double v = doubles[c][i];
+                    if (v != (int) v) throw new IllegalArgumentException("column " + c + " is not integral");
+                    col[i] = (int) v;
+                }
+                return col;
+            }
+
+            void requireColumns(int c) {
+                if (columns != c)
+                    throw new IllegalArgumentException("expected " + c + " values per record, got " + columns);
+            }
+        }
+
+        // Reads a binary or text table; "-" reads text from stdin
+        static Table read(String path) throws IOException {
+            if (path.equals("-")) return readText(System.in);
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                if (ch.size() >= HEADER) {
+                    ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                    while (head.hasRemaining() && ch.read(head, head.position()) > 0) { }
+                    head.flip();
+                    if (head.getInt() == MAGIC) return readBinary(ch, head);
+                }
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                return readText(in);
+            }
+        }
+
+        private static Table readBinary(FileChannel ch, ByteBuffer head) throws IOException {
+            int columns = head.getInt(), type = head.getInt();
+            head.getInt(); // reserved
+            long count = head.getLong();
+            int width = type == INT32 ? 4 : 8;
+            if (columns <= 0 || (type != INT32 && type != FLOAT64) || count < 0 || count > Integer.MAX_VALUE - 8
+                    || ch.size() < HEADER + count * width * columns)
+                throw new IOException("corrupt GEOB header");
+            int n = (int) count;
+            long offset = HEADER;
+            if (type == INT32) {
+                int[][] cols = new int[columns][n];
+                for (int[] col : cols) {
+                    for (int done = 0; done < n; ) {
+                        int len = (int) Math.min(n - done, WINDOW / 4);
+                        ch.map(FileChannel.MapMode.READ_ONLY, offset, 4L * len)
+                          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(col, done, len);
+                        offset += 4L * len;
+                        done += len;
+                    }
+                }
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (double[] col : cols) {
+                for (int done = 0; done < n; ) {
+                    int len = (int) Math.min(n - done, WINDOW / 8);
+                    ch.map(FileChannel.MapMode.READ_ONLY, offset, 8L * len)
+                      .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(col, done, len);
+                    offset += 8L * len;
+                    done += len;
+                }
+            }
+            return new Table(n, cols);
+        }
+
+        // Line-oriented text reader over a byte buffer; numbers are parsed in place
+        static Table readText(InputStream in) throws IOException {
+            TextReader r = new TextReader(in);
+            double[] vals = new double[1024];
+            int count = 0, columns = -1, onLine = 0, line = 1;
+            boolean integral = true;
+            while (true) {
+                int c = r.peek();
+                if (c == -1 || c == '\n') {
+                    if (onLine > 0) {
+                        if (columns == -1) columns = onLine;
+                        else if (onLine != columns)
+                            throw new IOException("line " + line + ": expected " + columns + " values, got " + onLine);
+                    }
+                    onLine = 0;
+                    if (c == -1) break;
+                    r.skip();
+                    line++;
+                } else if (c == '#') {
+                    while (r.peek() != '\n' && r.peek() != -1) r.skip();
+                } else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+                    r.skip();
+                } else {
+                    if (count == vals.length) vals = Arrays.copyOf(vals, count * 2);
+                    double v = r.number(line);
+                    integral &= v == (int) v && !r.sawFraction;
+                    vals[count++] = v;
+                    onLine++;
+                }
+            }
+            if (columns == -1) return new Table(0, new int[0][0]);
+
+            int n = count / columns;
+            if (integral) {
+                int[][] cols = new int[columns][n];
+                for (int i = 0; i < count; i++) cols[i % columns][i / columns] = (int) vals[i];
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (int i = 0; i < count; i++) cols[i % columns][i / columns] = vals[i];
+            return new Table(n, cols);
+        }
+
+        private static final class TextReader {
+            private static final double[] POW10 = new double[23];
+            static {
+                POW10[0] = 1;
+                for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+            }
+
+            private final InputStream in;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] token = new byte[64];
+            private int pos, len;
+            boolean sawFraction;
+
+            TextReader(InputStream in) {
+                this.in = in;
+            }
+
+            int peek() throws IOException {
+                if (pos == len) {
+                    len = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (len <= 0) {
+                        len = 0;
+                        return -1;
+                    }
+                }
+                return buf[pos];
+            }
+
+            void skip() {
+                pos++;
+            }
+
+            // Decimal number; short ones are assembled exactly from an integer
+            // mantissa and a power of ten, the rest go through Double.parseDouble
+            double number(int line) throws IOException {
+                int t = 0, c;
+                while ((c = peek()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                        || (c >= '0' && c <= '9'))) {
+                    if (t == token.length) throw new IOException("line " + line + ": number too long");
+                    token[t++] = (byte) c;
+                    skip();
+                }
+                if (t == 0) throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+
+                int i = 0;
+                boolean neg = token[0] == '-';
+                if (token[0] == '-' || token[0] == '+') i++;
+                long mant = 0;
+                int digits = 0, exp = 0;
+                boolean any = false;
+                sawFraction = false;
+                for (; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                    if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; }
+                    else exp++;
+                }
+                if (i < t && token[i] == '.') {
+                    sawFraction = true;
+                    for (i++; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                        if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; exp--; }
+                    }
+                }
+                if (i < t && (token[i] == 'e' || token[i] == 'E')) {
+                    sawFraction = true;
+                    return slow(t, line);
+                }
+                if (!any || i != t) throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                if (digits <= 15 && exp >= -22 && exp <= 22) {
+                    double v = exp >= 0 ? mant * POW10[exp] : mant / POW10[-exp];
+                    return neg ? -v : v;
+                }
+                return slow(t, line);
+            }
+
+            private double slow(int t, int line) throws IOException {
+                try {
+                    return Double.parseDouble(new String(token, 0, t));
+                } catch (NumberFormatException e) {
+                    throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                }
+            }
+        }
+
+        // Writes a table as a binary GEOB file
+        static void writeBinary(Table t, String path) throws IOException {
+            int width = t.ints != null ? 4 : 8;
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(MAGIC).putInt(t.columns).putInt(t.ints != null ? INT32 : FLOAT64).putInt(0).putLong(t.n);
+                for (int c = 0; c < t.columns; c++) {
+                    for (int i = 0; i < t.n; i++) {
+                        if (buf.remaining() < width) {
+                            buf.flip();
+                            while (buf.hasRemaining()) ch.write(buf);
+                            buf.clear();
+                        }
+                        if (t.ints != null) buf.putInt(t.ints[c][i]);
+                        else buf.putDouble(t.doubles[c][i]);
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+        }
+
+        // Streaming text writer: numbers are formatted straight into a byte buffer
+        static final class Writer implements Closeable {
+            private final OutputStream out;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] digits = new byte[20];
+            private int pos;
+
+            Writer(OutputStream out) {
+                this.out = out;
+            }
+
+            // "-" writes to stdout
+            static Writer open(String path) throws IOException {
+                return new Writer(path.equals("-") ? System.out : Files.newOutputStream(Paths.get(path)));
+            }
+
+            Writer num(long v) throws IOException {
+                if (v == Long.MIN_VALUE) return text(Long.toString(v));
+                if (v < 0) {
+                    put('-');
+                    v = -v;
+                }
+                int k = 0;
+                do {
+                    digits[k++] = (byte) ('0' + v % 10);
+                    v /= 10;
+                } while (v != 0);
+                while (k > 0) put(digits[--k]);
+                return this;
+            }
+
+            // Integral values print as integers, others as Double.toString does,
+            // which reads back as the same double
+            Writer num(double v) throws IOException {
+                if (v == (long) v && Math.abs(v) < 1e15) return num((long) v);
+                return text(Double.toString(v));
+            }
+
+            Writer text(String s) throws IOException {
+                for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+                return this;
+            }
+
+            Writer sep() throws IOException {
+                put(' ');
+                return this;
+            }
+
+            Writer newline() throws IOException {
+                put('\n');
+                return this;
+            }
+
+            private void put(int b) throws IOException {
+                if (pos == buf.length) flush();
+                buf[pos++] = (byte) b;
+            }
+
+            void flush() throws IOException {
+                out.write(buf, 0, pos);
+                pos = 0;
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+                if (out != System.out) out.close();
+            }
+        }
+
+        // "convert <in> <out>": any readable table to a binary GEOB file
+        static void convert(String in, String out) throws IOException {
+            writeBinary(read(in), out);
+        }
+    }
+
+    // Standard benchmark workloads and timing. Every algorithm file carries its own
+    // copy, trimmed to the workloads it runs, so the suites of all files share
+    // inputs and output format.
+    //
+    // Workloads are seeded, so a run can be repeated exactly; coordinates lie in
+    // [0, 2^28). A measurement warms up for half a second, then repeats the body
+    // for at least a second. It reports time per run, items per second, and heap
+    // allocated per item and per second summed over all live threads (what JMH's
+    // gc profiler reports). Sizes step by 10 from 10^3.
+    static final class Bench {
+        static final int BOX = 1 << 28;
+        static final long SEED = 42;
+        static final String[] POINTS = {"uniform", "clustered", "circle", "grid"};
+
+        interface Body {
+            long run(); // a checksum, so the work cannot be dropped
+        }
+
+        static int[] sizes(int max) {
+            int k = 0;
+            int[] sizes = new int[10];
+            for (long n = 1000; n <= max; n *= 10) sizes[k++] = (int) n;
+            return Arrays.copyOf(sizes, k);
+        }
+
+        // n points of a workload:
+        //   uniform    anywhere in the box
+        //   clustered  64 tight Gaussian clusters
+        //   circle     on one circle, the worst case for hulls
+        //   grid       lattice points, so repeated, collinear and cocircular
+        static void points(String workload, int n, long seed, int[] xs, int[] ys) {
+            Random rnd = new Random(seed);
+            int side = (int) Math.ceil(Math.sqrt(n)), step = BOX / Math.max(1, side);
+            int[] cx = new int[64], cy = new int[64];
+            for (int c = 0; c < 64; c++) {
+                cx[c] = rnd.nextInt(BOX);
+                cy[c] = rnd.nextInt(BOX);
+            }
+            for (int i = 0; i < n; i++) {
+                switch (workload) {
+                    case "uniform":
+                        xs[i] = rnd.nextInt(BOX);
+                        ys[i] = rnd.nextInt(BOX);
+                        break;
+                    case "clustered":
+                        int c = rnd.nextInt(64);
+                        xs[i] = clamp(cx[c] + rnd.nextGaussian() * (BOX >> 10));
+                        ys[i] = clamp(cy[c] + rnd.nextGaussian() * (BOX >> 10));
+                        break;
+                    case "circle":
+                        double a = 2 * Math.PI * (i + rnd.nextDouble()) / n;
+                        xs[i] = clamp(BOX / 2 + Math.cos(a) * (BOX / 2 - 1));
+                        ys[i] = clamp(BOX / 2 + Math.sin(a) * (BOX / 2 - 1));
+                        break;
+                    case "grid":
+                        xs[i] = rnd.nextInt(side) * step;
+                        ys[i] = rnd.nextInt(side) * step;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown point workload " + workload);
+                }
+            }
+        }
+
+        static void header(PrintWriter pw) {
+            pw.printf("%-32s %-10s %9s %14s %16s %13s %12s%n", "benchmark", "workload", "n", "time", "throughput",
+                "allocated", "alloc rate");
+            pw.flush();
+        }
+
+        static void measure(PrintWriter pw, String name, String workload, int n, Body body) {
+            long sink = 0;
+            long end = System.nanoTime() + 500_000_000L;
+            do sink += body.run(); while (System.nanoTime() < end);
+            long runs = 0, bytes = allocated(), t0 = System.nanoTime(), nanos;
+            do {
+                sink += body.run();
+                runs++;
+            } while ((nanos = System.nanoTime() - t0) < 1_000_000_000L);
+            bytes = allocated() - bytes;
+            double ms = nanos / 1e6 / runs;
+            pw.printf("%-32s %-10s %9d %10.3f ms %10.2f Mitem/s %8.1f B/item %7.1f MB/s%n", name, workload, n, ms,
+                n / ms / 1e3, (double) bytes / runs / n, bytes / (nanos / 1e3));
+            if (sink == 42) pw.print("");
+            pw.flush();
+        }
+
+        // Bytes allocated so far by every live thread
+        private static long allocated() {
+            com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            long sum = 0;
+            for (long b : mx.getThreadAllocatedBytes(mx.getAllThreadIds())) sum += Math.max(b, 0);
+            return sum;
+        }
+
+        private static int clamp(double v) {
+            return (int) Math.max(0, Math.min(BOX - 1, Math.round(v)));
+        }
     }
 
-    // Step 2: Rotating Calipers function to find the diameter (max distance)
+    // Optional hot-path metrics. Every algorithm file carries its own copy of this
+    // class, trimmed to the kinds of metric it uses.
+    // They are off unless the JVM runs with -Dgeometry.metrics=true; ENABLED is
+    // a static final, so with it off the JIT drops every `if (Metrics.ENABLED)`
+    // block and the engines run as before. Engines count into locals or plain
+    // fields and publish once per call, so hot loops never touch shared state.
+    //
+    // Counters sum, and timers sum calls and nanoseconds per phase. Both are
+    // striped (LongAdder), so any number of threads can publish at once. snapshot() reads them by name, and
+    // export() serves the same values as read-only attributes of the MBean
+    // geometry:type=Metrics,name=<engine>, and prints them to stderr on exit.
+    static final class Metrics {
+        static final boolean ENABLED = Boolean.getBoolean("geometry.metrics");
+        private static final Map<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+        private Metrics() {
+        }
+
+        static final class Counter {
+            private final LongAdder sum = new LongAdder();
+
+            void add(long v) {
+                sum.add(v);
+            }
+        }
+
+        static final class Timer {
+            private final LongAdder calls = new LongAdder(), nanos = new LongAdder();
+
+            // Adds the time since start and returns now, the start of the next phase
+            long lap(long start) {
+                long now = System.nanoTime();
+                calls.increment();
+                nanos.add(now - start);
+                return now;
+            }
+        }
+
+        static Counter counter(String name) {
+            return register(name, new Counter());
+        }
+
+        static Timer timer(String name) {
+            return register(name, new Timer());
+        }
+
+        // Start of a timed phase, 0 when metrics are off
+        static long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        // Current values by name; a timer shows up as name.calls and name.ns
+        static Map<String, Long> snapshot() {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+                String name = e.getKey();
+                Object m = e.getValue();
+                if (m instanceof Counter) {
+                    values.put(name, ((Counter) m).sum.sum());
+                } else {
+                    values.put(name + ".calls", ((Timer) m).calls.sum());
+                    values.put(name + ".ns", ((Timer) m).nanos.sum());
+                }
+            }
+            return values;
+        }
+
+        static void reset() {
+            for (Object m : REGISTRY.values()) {
+                if (m instanceof Counter) {
+                    ((Counter) m).sum.reset();
+                } else {
+                    ((Timer) m).calls.reset();
+                    ((Timer) m).nanos.reset();
+                }
+            }
+        }
+
+        static void print(PrintWriter pw) {
+            for (Map.Entry<String, Long> e : snapshot().entrySet()) pw.printf("%-40s %15d%n", e.getKey(), e.getValue());
+            pw.flush();
+        }
+
+        static void export(String engine) {
+            try {
+                java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new View(), new ObjectName("geometry:type=Metrics,name=" + engine));
+            } catch (JMException e) {
+                throw new IllegalStateException("cannot export metrics for " + engine, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> print(new PrintWriter(System.err))));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T register(String name, T metric) {
+            Object old = REGISTRY.putIfAbsent(name, metric);
+            if (old == null) return metric;
+            if (old.getClass() != metric.getClass()) throw new IllegalArgumentException("metric " + name + " exists");
+            return (T) old;
+        }
+
+        // The snapshot as a dynamic MBean: one long attribute per value, and a
+        // reset operation
+        private static final class View implements DynamicMBean {
+            @Override
+            public Object getAttribute(String name) throws AttributeNotFoundException {
+                Long v = snapshot().get(name);
+                if (v == null) throw new AttributeNotFoundException(name);
+                return v;
+            }
+
+            @Override
+            public AttributeList getAttributes(String[] names) {
+                Map<String, Long> values = snapshot();
+                AttributeList list = new AttributeList();
+                for (String name : names)
+                    if (values.containsKey(name)) list.add(new Attribute(name, values.get(name)));
+                return list;
+            }
+
+            @Override
+            public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+            }
+
+            @Override
+            public AttributeList setAttributes(AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+                if (!action.equals("reset")) throw new ReflectionException(new NoSuchMethodException(action));
+                reset();
+                return null;
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                Set<String> names = snapshot().keySet();
+                MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+                int k = 0;
+                for (String name : names)
+                    attributes[k++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+                MBeanOperationInfo reset = new MBeanOperationInfo("reset", "zero every metric",
+                    new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+                return new MBeanInfo(Metrics.class.getName(), "geometry engine metrics", attributes, null,
+                    new MBeanOperationInfo[]{reset}, null);
+            }
+        }
+    }
+
+    // Rotating calipers toolkit on primitive vertex arrays (coordinates within
+    // +-2^30, the kernel's exact range). Polygons are convex, in either
+    // orientation, and may have collinear or repeated vertices. Every query is
+    // one O(h) pass with no sqrt per candidate: diameters are compared squared.
+    // The pair buffer is reused across calls, so use one instance per thread;
+    // once it has grown, nothing is allocated.
+    //
+    // The walk turns two parallel supporting lines around the polygons: the
+    // lower one touches vertex a, the upper one vertex b. A contact moves on
+    // when the lines reach the direction of its next edge. The sign of the cross
+    // product of the two current edges says which edge comes first, or both if
+    // they are antiparallel. Each (a, b) on the way is an antipodal pair: half
+    // a turn gives all pairs of one polygon, a full turn all pairs of two.
+    // Inputs with every vertex on one line are handled as the segment between
+    // their extreme points.
+    //
+    // With metrics on, every walk publishes its vertex count, steps and
+    // antipodal pairs, and every rectangle search the moves of its three
+    // pointers; both are timed.
+    static final class Calipers {
+        private static final Metrics.Counter VERTICES = Metrics.counter("calipers.vertices");
+        private static final Metrics.Counter STEPS = Metrics.counter("calipers.walk.steps");
+        private static final Metrics.Counter PAIRS = Metrics.counter("calipers.antipodal.pairs");
+        private static final Metrics.Counter MOVES = Metrics.counter("calipers.rectangle.moves");
+        private static final Metrics.Timer WALK = Metrics.timer("calipers.walk");
+        private static final Metrics.Timer RECTANGLE = Metrics.timer("calipers.rectangle");
+
+        private int[] pa = new int[16], pb = new int[16]; // antipodal pairs
+        private int size;
+        private double minWidth; // smallest edge-to-contact distance of the last walk
+
+        // All antipodal vertex pairs; pair k is (first(k), second(k))
+        int antipodalPairs(int[] xs, int[] ys, int n) {
+            int sa = orientation(xs, ys, n);
+            size = 0;
+            if (sa == 0) {
+                add(lowest(xs, ys, n), highest(xs, ys, n));
+                minWidth = 0;
+            } else {
+                walk(xs, ys, n, sa, xs, ys, n, sa, true);
+            }
+            return size;
+        }
+
+        int first(int k) {
+            return pa[k];
+        }
+
+        int second(int k) {
+            return pb[k];
+        }
+
+        // Squared diameter; its vertex pair goes to pair[0 .. 1] if pair != null
+        long diameterSq(int[] xs, int[] ys, int n, int[] pair) {
+            antipodalPairs(xs, ys, n);
+            return farthest(xs, ys, xs, ys, pair);
+        }
+
+        // Smallest distance between two parallel lines enclosing the polygon.
+        // One of them always runs along an edge, so only edge-contact pairs count.
+        double width(int[] xs, int[] ys, int n) {
+            antipodalPairs(xs, ys, n);
+            return minWidth;
+        }
+
+        // Largest distance between a vertex of one polygon and one of the other,
+        // squared. The vertex pair goes to pair[0 .. 1] if pair != null.
+        long maxDistanceSq(int[] xs, int[] ys, int n, int[] qx, int[] qy, int m, int[] pair) {
+            int sa = orientation(xs, ys, n), sb = orientation(qx, qy, m);
+            size = 0;
+            if (sa != 0 && sb != 0) {
+                walk(xs, ys, n, sa, qx, qy, m, sb, false);
+            } else {
+                // A flat side is as far as one of its two ends: each against
+                // every vertex of the other side
+                int a0 = sa == 0 ? lowest(xs, ys, n) : 0, a1 = sa == 0 ? highest(xs, ys, n) : n - 1;
+                int b0 = sb == 0 ? lowest(qx, qy, m) : 0, b1 = sb == 0 ? highest(qx, qy, m) : m - 1;
+                for (int a = a0; ; a = sa == 0 ? a1 : a + 1) {
+                    for (int b = b0; ; b = sb == 0 ? b1 : b + 1) {
+                        add(a, b);
+                        if (b == b1) break;
+                    }
+                    if (a == a1) break;
+                }
+            }
+            return farthest(xs, ys, qx, qy, pair);
+        }
+
+        // Minimum-area enclosing rectangle; returns the area and writes the
+        // corners (x0, y0, .., x3, y3) to corners if != null
+        double minAreaRectangle(int[] xs, int[] ys, int n, double[] corners) {
+            return rectangle(xs, ys, n, false, corners);
+        }
+
+        // Minimum-perimeter enclosing rectangle, same conventions
+        double minPerimeterRectangle(int[] xs, int[] ys, int n, double[] corners) {
+            return rectangle(xs, ys, n, true, corners);
+        }
+
+        // Antipodal pairs between a of polygon A and b of polygon B. sa and sb
+        // step through each counterclockwise. Starts with the lines horizontal:
+        // a the lowest vertex of A (rightmost of ties), b the highest of B
+        // (leftmost of ties), so edges at angle 0 only fire at the end. The half
+        // turn of one polygon against itself ends once every edge of nonzero
+        // length has fired.
+        private void walk(int[] ax, int[] ay, int n, int sa, int[] bx, int[] by, int m, int sb, boolean half) {
+            long t = Metrics.start();
+            int a = lowest(ax, ay, n), b = highest(bx, by, m);
+            int fired = 0, fa = 0, fb = 0, total = n + m;
+            if (half) {
+                total = 0;
+                for (int i = 0; i < n; i++) {
+                    int i1 = next(i, n, 1);
+                    if (ax[i] != ax[i1] || ay[i] != ay[i1]) total++;
+                }
+            }
+            boolean run = false; // inside a stretch of antiparallel edges
+            minWidth = Double.POSITIVE_INFINITY;
+            add(a, b);
+            while (fired < total) {
+                int a1 = next(a, n, sa), b1 = next(b, m, sb);
+                long eax = (long) ax[a1] - ax[a], eay = (long) ay[a1] - ay[a];
+                long ebx = (long) bx[b1] - bx[b], eby = (long) by[b1] - by[b];
+
+                // Which edge the lines reach first: -1 a's, 1 b's, 0 both
+                int c;
+                if (!half && fa == n) c = 1;
+                else if (!half && fb == m) c = -1;
+                else if (eax == 0 && eay == 0) c = -1; // repeated vertex, nothing to report
+                else if (ebx == 0 && eby == 0) c = 1;
+                else {
+                    c = Predicates.orient(0, 0, eax, eay, ebx, eby);
+                    boolean opposite = eax != 0 ? (eax < 0) != (ebx < 0) : (eay < 0) != (eby < 0);
+                    if (c == 0 && !opposite) c = -1;
+                }
+                boolean za = eax == 0 && eay == 0, zb = ebx == 0 && eby == 0;
+                if (half && c <= 0 && !za) width(ax, ay, a, a1, eax, eay, b);
+                if (half && c >= 0 && !zb) width(bx, by, b, b1, ebx, eby, a);
+                if (c == 0) {
+                    // Antiparallel edges, maybe runs of collinear ones: a walks
+                    // its run, then b walks its own against a's far end. That
+                    // covers every corner pair but (a, far end of b's run).
+                    if (!run) add(a, runEnd(bx, by, m, sb, b, ebx, eby));
+                    run = true;
+                    c = -1;
+                } else if (c < 0 ? !za : !zb) {
+                    run = false;
+                }
+                if (c <= 0) {
+                    a = a1;
+                    fa++;
+                    if (!half || !za) fired++;
+                }
+                if (c >= 0) {
+                    b = b1;
+                    fb++;
+                    if (!half || !zb) fired++;
+                }
+                if (fired < total && (c <= 0 && !za || c >= 0 && !zb)) add(a, b); // else the same points again
+            }
+            if (Metrics.ENABLED) {
+                VERTICES.add(half ? n : n + m);
+                STEPS.add(fa + fb);
+                PAIRS.add(size);
+                WALK.lap(t);
+            }
+        }
+
+        // Last vertex of the straight stretch that starts at v along (ex, ey)
+        private static int runEnd(int[] xs, int[] ys, int n, int s, int v, long ex, long ey) {
+            for (int g = 0; g < n; g++) {
+                int v1 = next(v, n, s);
+                long dx = (long) xs[v1] - xs[v], dy = (long) ys[v1] - ys[v];
+                if ((dx != 0 || dy != 0) && (Predicates.orient(0, 0, ex, ey, dx, dy) != 0 || dx * ex + dy * ey < 0)) break;
+                v = v1;
+            }
+            return v;
+        }
+
+        // Distance from the edge s - s1 to the contact on the other side
+        private void width(int[] xs, int[] ys, int s, int s1, long ex, long ey, int t) {
+            double d = Math.abs((double) Predicates.cross(xs[s], ys[s], xs[s1], ys[s1], xs[t], ys[t]))
+                / Math.sqrt((double) ex * ex + (double) ey * ey);
+            minWidth = Math.min(minWidth, d);
+        }
+
+        // The pair in the buffer at the largest distance, squared
+        private long farthest(int[] ax, int[] ay, int[] bx, int[] by, int[] pair) {
+            long best = -1;
+            for (int k = 0; k < size; k++) {
+                long d = Predicates.distSq(ax[pa[k]], ay[pa[k]], bx[pb[k]], by[pb[k]]);
+                if (d > best) {
+                    best = d;
+                    if (pair != null) {
+                        pair[0] = pa[k];
+                        pair[1] = pb[k];
+                    }
+                }
+            }
+            return best;
+        }
+
+        // For each edge i the extreme vertices along it (r ahead, l behind) and
+        // across it (t), all three moving forward only. Values are doubles: the
+        // rectangle is measured, not decided.
+        private static double rectangle(int[] xs, int[] ys, int n, boolean perimeter, double[] corners) {
+            int s = orientation(xs, ys, n);
+            if (s == 0) {
+                int lo = lowest(xs, ys, n), hi = highest(xs, ys, n);
+                if (corners != null) {
+                    corners[0] = corners[6] = xs[lo];
+                    corners[1] = corners[7] = ys[lo];
+                    corners[2] = corners[4] = xs[hi];
+                    corners[3] = corners[5] = ys[hi];
+                }
+                return perimeter ? 2 * Math.sqrt((double) Predicates.distSq(xs[lo], ys[lo], xs[hi], ys[hi])) : 0;
+            }
+            long start = Metrics.start(), moves = 0;
+            double best = Double.POSITIVE_INFINITY;
+            int bestI = -1, bestR = 0, bestT = 0, bestL = 0;
+            int r = -1, t = -1, l = -1;
+            for (int k = 0, i = 0; k < n; k++, i = next(i, n, s)) {
+                int i1 = next(i, n, s);
+                double ex = xs[i1] - xs[i], ey = ys[i1] - ys[i];
+                if (ex == 0 && ey == 0) continue;
+                double x0 = xs[i], y0 = ys[i];
+                if (r < 0) r = t = i1;
+                int g = 0;
+                for (; g < n && dot(xs, ys, next(r, n, s), x0, y0, ex, ey) >= dot(xs, ys, r, x0, y0, ex, ey); g++)
+                    r = next(r, n, s);
+                if (Metrics.ENABLED) moves += g;
+                for (g = 0; g < n && cross(xs, ys, next(t, n, s), x0, y0, ex, ey) >= cross(xs, ys, t, x0, y0, ex, ey); g++)
+                    t = next(t, n, s);
+                if (Metrics.ENABLED) moves += g;
+                if (l < 0) l = t; // the minimum lies past the far side
+                for (g = 0; g < n && dot(xs, ys, next(l, n, s), x0, y0, ex, ey) <= dot(xs, ys, l, x0, y0, ex, ey); g++)
+                    l = next(l, n, s);
+                if (Metrics.ENABLED) moves += g;
+
+                double len2 = ex * ex + ey * ey;
+                double along = dot(xs, ys, r, x0, y0, ex, ey) - dot(xs, ys, l, x0, y0, ex, ey);
+                double across = cross(xs, ys, t, x0, y0, ex, ey);
+                double v = perimeter ? 2 * (along + across) / Math.sqrt(len2) : along * across / len2;
+                if (v < best) {
+                    best = v;
+                    bestI = i;
+                    bestR = r;
+                    bestT = t;
+                    bestL = l;
+                }
+            }
+            if (corners != null) {
+                int i = bestI, i1 = next(i, n, s);
+                double ex = xs[i1] - xs[i], ey = ys[i1] - ys[i], len = Math.sqrt(ex * ex + ey * ey);
+                double ux = ex / len, uy = ey / len; // along the edge; (-uy, ux) points inside
+                double d0 = dot(xs, ys, bestL, xs[i], ys[i], ux, uy), d1 = dot(xs, ys, bestR, xs[i], ys[i], ux, uy);
+                double h = cross(xs, ys, bestT, xs[i], ys[i], ux, uy);
+                corners[0] = xs[i] + ux * d0;
+                corners[1] = ys[i] + uy * d0;
+                corners[2] = xs[i] + ux * d1;
+                corners[3] = ys[i] + uy * d1;
+                corners[4] = corners[2] - uy * h;
+                corners[5] = corners[3] + ux * h;
+                corners[6] = corners[0] - uy * h;
+                corners[7] = corners[1] + ux * h;
+            }
+            if (Metrics.ENABLED) {
+                MOVES.add(moves);
+                RECTANGLE.lap(start);
+            }
+            return best;
+        }
+
+        private static double dot(int[] xs, int[] ys, int v, double x0, double y0, double ex, double ey) {
+            return (xs[v] - x0) * ex + (ys[v] - y0) * ey;
+        }
+
+        private static double cross(int[] xs, int[] ys, int v, double x0, double y0, double ex, double ey) {
+            return ex * (ys[v] - y0) - ey * (xs[v] - x0);
+        }
+
+        // 1 if counterclockwise, -1 if clockwise, 0 if every vertex is on one
+        // line. The lowest (then leftmost) vertex is a corner of any convex
+        // polygon that is not flat; its distinct neighbours give the turn.
+        private static int orientation(int[] xs, int[] ys, int n) {
+            int v = 0;
+            for (int i = 1; i < n; i++) {
+                if (ys[i] < ys[v] || (ys[i] == ys[v] && xs[i] < xs[v])) v = i;
+            }
+            int p = v, q = v;
+            for (int g = 0; g < n && xs[p] == xs[v] && ys[p] == ys[v]; g++) p = p == 0 ? n - 1 : p - 1;
+            for (int g = 0; g < n && xs[q] == xs[v] && ys[q] == ys[v]; g++) q = q + 1 == n ? 0 : q + 1;
+            return Predicates.orient(xs[p], ys[p], xs[v], ys[v], xs[q], ys[q]);
+        }
+
+        // Lowest vertex, rightmost of ties
+        private static int lowest(int[] xs, int[] ys, int n) {
+            int v = 0;
+            for (int i = 1; i < n; i++) {
+                if (ys[i] < ys[v] || (ys[i] == ys[v] && xs[i] > xs[v])) v = i;
+            }
+            return v;
+        }
+
+        // Highest vertex, leftmost of ties
+        private static int highest(int[] xs, int[] ys, int n) {
+            int v = 0;
+            for (int i = 1; i < n; i++) {
+                if (ys[i] > ys[v] || (ys[i] == ys[v] && xs[i] < xs[v])) v = i;
+            }
+            return v;
+        }
+
+        private static int next(int i, int n, int step) {
+            i += step;
+            return i == n ? 0 : i < 0 ? n - 1 : i;
+        }
+
+        private void add(int a, int b) {
+            if (size == pa.length) {
+                pa = Arrays.copyOf(pa, size * 2);
+                pb = Arrays.copyOf(pb, size * 2);
+            }
+            pa[size] = a;
+            pb[size++] = b;
+        }
+    }
+
+    // Diameter of a convex polygon given as {x, y} vertices in order
     static double rotatingCalipers(int[][] points) {
         int n = points.length;
-        if (n == 2) return distance(points[0], points[1]);
+        int[] xs = new int[n], ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points[i][0];
+            ys[i] = points[i][1];
+        }
+        return Math.sqrt(new Calipers().diameterSq(xs, ys, n, null));
+    }
 
-        double maxDist = 0;
-        int j = 1;
+    // Headless run: batch <polygon> [out]
+    // Reads the x y vertices of a convex polygon in order (binary or text, "-" for
+    // stdin) and writes its diameter, width, and the area and perimeter of its
+    // minimum-area and minimum-perimeter enclosing rectangles.
+    static void batch(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) throw new IllegalArgumentException("usage: batch <polygon> [out]");
+        PointIO.Table t = PointIO.read(args[1]);
+        t.requireColumns(2);
+        if (t.n < 2) throw new IllegalArgumentException("need at least 2 vertices");
+        int[] xs = t.intColumn(0), ys = t.intColumn(1);
+        Calipers calipers = new Calipers();
+        try (PointIO.Writer w = PointIO.Writer.open(args.length == 3 ? args[2] : "-")) {
+            w.num(Math.sqrt(calipers.diameterSq(xs, ys, t.n, null))).sep().num(calipers.width(xs, ys, t.n))
+                .sep().num(calipers.minAreaRectangle(xs, ys, t.n, null))
+                .sep().num(calipers.minPerimeterRectangle(xs, ys, t.n, null)).newline();
+        }
+    }
 
-        // Step 3: Loop through all vertices
-        for (int i = 0; i < n; i++) {
-            // Step 4: Move j while area (cross product) increases
-            while (true) {
-                int nxt = (j + 1) % n;
-                long cross1 = Math.abs(
-                    (points[nxt][0] - points[i][0]) * (points[(i + 1) % n][1] - points[i][1]) -
-                    (points[nxt][1] - points[i][1]) * (points[(i + 1) % n][0] - points[i][0])
-                );
-                long cross2 = Math.abs(
-                    (points[j][0] - points[i][0]) * (points[(i + 1) % n][1] - points[i][1]) -
-                    (points[j][1] - points[i][1]) * (points[(i + 1) % n][0] - points[i][0])
-                );
-                if (cross1 > cross2) j = nxt;
-                else break;
+    // Random convex polygons, with collinear and repeated vertices, flat ones
+    // and both orientations, against brute force. Returns the number of failures.
+    static int selfCheck(PrintWriter pw, int cases) {
+        Calipers calipers = new Calipers();
+        int[] pair = new int[2];
+        double[] corners = new double[8];
+        int failures = 0;
+        for (int c = 0; c < cases; c++) {
+            Random rnd = new Random(c);
+            int range = 1 << (2 + rnd.nextInt(c % 4 == 0 ? 28 : 10));
+            int[][] poly = randomPolygon(rnd, 1 + rnd.nextInt(c % 10 == 0 ? 400 : 40), range, c % 7 == 0);
+            int[][] other = randomPolygon(rnd, 1 + rnd.nextInt(40), range, c % 11 == 0);
+            int[] xs = poly[0], ys = poly[1], qx = other[0], qy = other[1];
+            int n = xs.length, m = qx.length;
+            List<String> errors = new ArrayList<>();
+
+            // Diameter and the distance between the two polygons
+            long diam = 0, far = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) diam = Math.max(diam, Predicates.distSq(xs[i], ys[i], xs[j], ys[j]));
+                for (int j = 0; j < m; j++) far = Math.max(far, Predicates.distSq(xs[i], ys[i], qx[j], qy[j]));
+            }
+            if (calipers.diameterSq(xs, ys, n, pair) != diam
+                || Predicates.distSq(xs[pair[0]], ys[pair[0]], xs[pair[1]], ys[pair[1]]) != diam) errors.add("diameter");
+            if (calipers.maxDistanceSq(xs, ys, n, qx, qy, m, pair) != far
+                || Predicates.distSq(xs[pair[0]], ys[pair[0]], qx[pair[1]], qy[pair[1]]) != far) errors.add("max distance");
+
+            // Width and rectangles: every edge as the base, measured directly
+            double width = Double.POSITIVE_INFINITY, area = Double.POSITIVE_INFINITY, perimeter = area;
+            for (int i = 0; i < n; i++) {
+                int i1 = (i + 1) % n;
+                double ex = xs[i1] - xs[i], ey = ys[i1] - ys[i], len = Math.hypot(ex, ey);
+                if (len == 0) continue;
+                double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY, h = 0;
+                for (int k = 0; k < n; k++) {
+                    double along = ((xs[k] - xs[i]) * ex + (ys[k] - ys[i]) * ey) / len;
+                    lo = Math.min(lo, along);
+                    hi = Math.max(hi, along);
+                    h = Math.max(h, Math.abs((ex * (ys[k] - ys[i]) - ey * (xs[k] - xs[i])) / len));
+                }
+                width = Math.min(width, h);
+                area = Math.min(area, (hi - lo) * h);
+                perimeter = Math.min(perimeter, 2 * (hi - lo + h));
+            }
+            if (width == Double.POSITIVE_INFINITY) width = area = 0; // a single point
+            if (perimeter == Double.POSITIVE_INFINITY) perimeter = 0;
+            boolean flat = true;
+            int d = 0;
+            while (d < n - 1 && xs[d] == xs[0] && ys[d] == ys[0]) d++;
+            for (int k = 0; k < n; k++) flat &= Predicates.orient(xs[0], ys[0], xs[d], ys[d], xs[k], ys[k]) == 0;
+            if (flat && n > 2) {
+                width = area = 0;
+                perimeter = 2 * Math.sqrt(diam);
+            }
+            if (!close(calipers.width(xs, ys, n), width, diam)) errors.add("width");
+            double a = calipers.minAreaRectangle(xs, ys, n, corners);
+            if (!close(a, area, (double) diam) || !encloses(xs, ys, n, corners, Math.sqrt(diam))) errors.add("min-area rectangle");
+            double p = calipers.minPerimeterRectangle(xs, ys, n, corners);
+            if (!close(p, perimeter, diam) || !encloses(xs, ys, n, corners, Math.sqrt(diam))) errors.add("min-perimeter rectangle");
+
+            // Antipodal pairs: each one is, none twice, and every antipodal pair
+            // of corners is there. A flat polygon has just its two ends.
+            int count = calipers.antipodalPairs(xs, ys, n);
+            Set<Long> found = new HashSet<>(), seen = new HashSet<>();
+            for (int k = 0; k < count; k++) {
+                int i = calipers.first(k), j = calipers.second(k);
+                if (!flat && !antipodal(xs, ys, n, i, j)) errors.add("pair " + i + " " + j + " is not antipodal");
+                if (!seen.add((long) Math.min(i, j) << 32 | Math.max(i, j))) errors.add("pair " + i + " " + j + " twice");
+                found.add(pointPair(xs, ys, i, j));
+            }
+            if (flat && n > 2 && (count != 1
+                || Predicates.distSq(xs[calipers.first(0)], ys[calipers.first(0)], xs[calipers.second(0)], ys[calipers.second(0)]) != diam))
+                errors.add("flat pairs");
+            if (!flat && n <= 60) {
+                for (int i = 0; i < n; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        if (corner(xs, ys, n, i) && corner(xs, ys, n, j) && antipodal(xs, ys, n, i, j)
+                            && !found.contains(pointPair(xs, ys, i, j))) errors.add("missing pair " + i + " " + j);
+                    }
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                failures++;
+                pw.printf("case %d (n=%d, m=%d): %s%n", c, n, m, errors.subList(0, Math.min(3, errors.size())));
+            }
+        }
+        pw.printf("%d of %d cases passed%n", cases - failures, cases);
+        pw.flush();
+        return failures;
+    }
+
+    // Convex hull of random points in order, either way round, sometimes with
+    // repeated vertices or edge midpoints added, or all on one line
+    private static int[][] randomPolygon(Random rnd, int k, int range, boolean flat) {
+        long[] keys = new long[k];
+        int dx = 1 + rnd.nextInt(3), dy = rnd.nextInt(3);
+        for (int i = 0; i < k; i++) {
+            long x = rnd.nextInt(range), y = rnd.nextInt(range);
+            if (flat) {
+                x = rnd.nextInt(range / 4 + 1) * dx;
+                y = x / dx * dy;
+            }
+            keys[i] = (x + (1L << 30)) << 32 | (y + (1L << 30));
+        }
+        int[][] hull = hull(keys, k);
+        int[] hx = hull[0], hy = hull[1];
+        int h = hx.length;
+        List<int[]> pts = new ArrayList<>();
+        for (int i = 0; i < h; i++) {
+            pts.add(new int[]{hx[i], hy[i]});
+            int j = (i + 1) % h;
+            if (rnd.nextInt(8) == 0) pts.add(new int[]{hx[i], hy[i]});
+            if (rnd.nextInt(8) == 0 && (hx[i] + hx[j]) % 2 == 0 && (hy[i] + hy[j]) % 2 == 0)
+                pts.add(new int[]{(hx[i] + hx[j]) / 2, (hy[i] + hy[j]) / 2});
+        }
+        if (rnd.nextBoolean()) Collections.reverse(pts);
+        int[][] poly = new int[2][pts.size()];
+        for (int i = 0; i < pts.size(); i++) {
+            poly[0][i] = pts.get(i)[0];
+            poly[1][i] = pts.get(i)[1];
+        }
+        return poly;
+    }
+
+    // Monotone chain over points packed as (x + 2^30) << 32 | (y + 2^30),
+    // counter-clockwise without collinear vertices
+    private static int[][] hull(long[] keys, int k) {
+        Arrays.sort(keys, 0, k);
+        int[] hx = new int[2 * k + 1], hy = new int[2 * k + 1];
+        int h = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int start = h;
+            for (int t = 0; t < k; t++) {
+                long key = keys[pass == 0 ? t : k - 1 - t];
+                int x = (int) ((key >>> 32) - (1L << 30)), y = (int) ((key & 0xFFFFFFFFL) - (1L << 30));
+                while (h >= start + 2 && Predicates.orient(hx[h - 2], hy[h - 2], hx[h - 1], hy[h - 1], x, y) <= 0) h--;
+                hx[h] = x;
+                hy[h++] = y;
             }
-            // Step 5: Update maximum distance
-            maxDist = Math.max(maxDist, distance(points[i], points[j]));
+            h--; // the last point starts the other chain
         }
-        return maxDist;
+        h = Math.max(h, 1);
+        return new int[][]{Arrays.copyOf(hx, h), Arrays.copyOf(hy, h)};
+    }
+
+    // Parallel lines through i and j hold every vertex between them. Such lines
+    // exist iff some edge direction works, so only those are tried.
+    private static boolean antipodal(int[] xs, int[] ys, int n, int i, int j) {
+        if (n <= 2) return true;
+        for (int e = 0; e < n; e++) {
+            int e1 = (e + 1) % n;
+            if (xs[e] == xs[e1] && ys[e] == ys[e1]) continue;
+            boolean below = true, above = true;
+            for (int k = 0; k < n; k++) {
+                int si = Predicates.orient(0, 0, xs[e1] - xs[e], ys[e1] - ys[e], xs[k] - xs[i], ys[k] - ys[i]);
+                int sj = Predicates.orient(0, 0, xs[e1] - xs[e], ys[e1] - ys[e], xs[k] - xs[j], ys[k] - ys[j]);
+                below &= si >= 0 && sj <= 0;
+                above &= si <= 0 && sj >= 0;
+            }
+            if (below || above) return true;
+        }
+        return false;
+    }
+
+    // A vertex where the polygon turns: its distinct neighbours are not in line
+    private static boolean corner(int[] xs, int[] ys, int n, int v) {
+        int p = v, q = v;
+        for (int g = 0; g < n && xs[p] == xs[v] && ys[p] == ys[v]; g++) p = (p + n - 1) % n;
+        for (int g = 0; g < n && xs[q] == xs[v] && ys[q] == ys[v]; g++) q = (q + 1) % n;
+        return Predicates.orient(xs[p], ys[p], xs[v], ys[v], xs[q], ys[q]) != 0;
+    }
+
+    private static long pointPair(int[] xs, int[] ys, int i, int j) {
+        long a = (long) xs[i] * 31 + ys[i], b = (long) xs[j] * 31 + ys[j];
+        return Math.min(a, b) * 1_000_003 + Math.max(a, b);
+    }
+
+    private static boolean close(double got, double want, double scale) {
+        return Math.abs(got - want) <= 1e-9 * Math.max(1, scale);
+    }
+
+    // Every vertex inside the rectangle, up to rounding
+    private static boolean encloses(int[] xs, int[] ys, int n, double[] c, double scale) {
+        for (int k = 0; k < n; k++) {
+            for (int e = 0; e < 4; e++) {
+                double ax = c[2 * e], ay = c[2 * e + 1], bx = c[(2 * e + 2) % 8], by = c[(2 * e + 3) % 8];
+                double len = Math.hypot(bx - ax, by - ay);
+                if (len == 0) continue;
+                if ((bx - ax) * (ys[k] - ay) - (by - ay) * (xs[k] - ax) < -1e-6 * len * Math.max(1, scale)) return false;
+            }
+        }
+        return true;
+    }
+
+    // Throughput (vertices/s) and allocation per shape of each query on random
+    // convex polygons
+    static void benchmark(PrintWriter pw) {
+        Calipers calipers = new Calipers();
+        int[] pair = new int[2];
+        double[] corners = new double[8];
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        for (int h : new int[]{16, 256, 4096}) {
+            int shapes = Math.max(64, (1 << 20) / h);
+            int[][] xs = new int[shapes][], ys = new int[shapes][];
+            Random rnd = new Random(42);
+            long[] keys = new long[h];
+            for (int s = 0; s < shapes; s++) { // hull of points on a random ellipse
+                double phase = rnd.nextDouble(), rx = (1 << 28) * (0.5 + rnd.nextDouble());
+                for (int i = 0; i < h; i++) {
+                    double a = 2 * Math.PI * (i + phase) / h;
+                    long x = Math.round(Math.cos(a) * rx), y = Math.round(Math.sin(a) * (1 << 28));
+                    keys[i] = (x + (1L << 30)) << 32 | (y + (1L << 30));
+                }
+                int[][] poly = hull(keys, h);
+                xs[s] = poly[0];
+                ys[s] = poly[1];
+            }
+            String[] names = {"antipodal pairs", "diameter", "width", "min-area rect", "min-perimeter rect"};
+            for (int q = 0; q < names.length; q++) {
+                long sink = 0;
+                for (int r = 0; r < 3; r++) {
+                    long bytes = threads.getCurrentThreadAllocatedBytes(), t0 = System.nanoTime();
+                    for (int s = 0; s < shapes; s++) {
+                        int[] x = xs[s], y = ys[s];
+                        int n = x.length;
+                        switch (q) {
+                            case 0: sink += calipers.antipodalPairs(x, y, n); break;
+                            case 1: sink += calipers.diameterSq(x, y, n, pair); break;
+                            case 2: sink += (long) calipers.width(x, y, n); break;
+                            case 3: sink += (long) calipers.minAreaRectangle(x, y, n, corners); break;
+                            default: sink += (long) calipers.minPerimeterRectangle(x, y, n, corners); break;
+                        }
+                    }
+                    long nanos = System.nanoTime() - t0;
+                    bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+                    if (r == 2) {
+                        report(pw, names[q] + " h=" + h, shapes * h, 1, nanos);
+                        pw.printf("%-28s %10.1f bytes/shape%n", "  allocated", (double) bytes / shapes);
+                    }
+                }
+                if (sink == 42) pw.print("");
+            }
+        }
+    }
+
+    // Standard suite: every query on the hull of each point workload, from 10^3
+    // points to max. The n column is the polygon's vertex count; the circle
+    // workload keeps every point, the others only a handful.
+    static void suite(PrintWriter pw, int max) {
+        Bench.header(pw);
+        Calipers calipers = new Calipers();
+        int[] pair = new int[2];
+        double[] corners = new double[8];
+        for (String workload : Bench.POINTS) {
+            for (int size : Bench.sizes(max)) {
+                int[] px = new int[size], py = new int[size];
+                long[] keys = new long[size];
+                Bench.points(workload, size, Bench.SEED, px, py);
+                for (int i = 0; i < size; i++) keys[i] = (px[i] + (1L << 30)) << 32 | (py[i] + (1L << 30));
+                int[][] poly = hull(keys, size);
+                int[] xs = poly[0], ys = poly[1];
+                int n = xs.length;
+                int[][] points = new int[n][];
+                for (int i = 0; i < n; i++) points[i] = new int[]{xs[i], ys[i]};
+                Bench.measure(pw, "antipodal pairs", workload, n, () -> calipers.antipodalPairs(xs, ys, n));
+                Bench.measure(pw, "diameter", workload, n, () -> calipers.diameterSq(xs, ys, n, pair));
+                Bench.measure(pw, "rotatingCalipers (int[][])", workload, n, () -> (long) rotatingCalipers(points));
+                Bench.measure(pw, "width", workload, n, () -> (long) calipers.width(xs, ys, n));
+                Bench.measure(pw, "min-area rectangle", workload, n, () -> (long) calipers.minAreaRectangle(xs, ys, n, corners));
+                Bench.measure(pw, "min-perimeter rectangle", workload, n,
+                    () -> (long) calipers.minPerimeterRectangle(xs, ys, n, corners));
+                Bench.measure(pw, "max distance to itself", workload, n,
+                    () -> calipers.maxDistanceSq(xs, ys, n, xs, ys, n, pair));
+            }
+        }
+    }
+
+    static void report(PrintWriter pw, String name, int n, int reps, long nanos) {
+        double ms = nanos / 1e6 / reps;
+        pw.printf("%-28s %10.2f ms/run %10.2f Mvertices/s%n", name, ms, n / ms / 1e3);
+        pw.flush();
     }
 
     public static void main(String[] args) throws Exception {
+        if (Metrics.ENABLED) Metrics.export("rotating-calipers");
+        if (args.length > 0 && args[0].equals("check")) {
+            PrintWriter pw = new PrintWriter(System.out);
+            if (selfCheck(pw, args.length > 1 ? Integer.parseInt(args[1]) : 2000) > 0) System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(new PrintWriter(System.out));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("suite")) {
+            suite(new PrintWriter(System.out), args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("convert")) {
+            PointIO.convert(args[1], args[2]);
+            return;
+        }
+
         // Step 6: Example convex hull (square)
         int[][] points = {{0,0}, {0,3}, {3,3}, {3,0}};
         
@@ -13,7 +13,18 @@
 /* -----------------------------------------------------------------------  */
 
 import java.io.*;
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.management.*;
 
 public class LineSweepIntersection {
 
@@ -28,93 +39,1996 @@ public class LineSweepIntersection {
         }
     }
 
-    // Orientation function to determine relative direction of three points
-    static int orientation(int[] p, int[] q, int[] r) {
-        long val = (long)(q[1] - p[1]) * (r[0] - q[0]) - (long)(q[0] - p[0]) * (r[1] - q[1]);
-        if (val == 0) return 0; // collinear
-        return (val > 0) ? 1 : 2; // 1 = clockwise, 2 = counterclockwise
+    // Shared predicate kernel. Every algorithm file carries its own copy, cut down
+    // to the predicates it calls, so each file still runs on its own. The integer
+    // predicates take primitive arguments and never allocate. The double predicate
+    // orient2d is exact: a floating-point filter decides the common case, and only
+    // inputs within its error bound are re-evaluated with exact expansion
+    // arithmetic (Shewchuk).
+    static final class Predicates {
+        private Predicates() {
+        }
+
+        // Sign of (b - a) x (c - a): 1 counterclockwise, -1 clockwise, 0 collinear.
+        // Exact for all int coordinates.
+        static int orient(long ax, long ay, long bx, long by, long cx, long cy) {
+            long abx = bx - ax, aby = by - ay, acx = cx - ax, acy = cy - ay;
+            if (((Math.abs(abx) | Math.abs(aby) | Math.abs(acx) | Math.abs(acy)) >>> 31) == 0)
+                return Long.signum(abx * acy - aby * acx);
+
+            // Products need up to 66 bits here, compare them as 128-bit values
+            long h1 = Math.multiplyHigh(abx, acy), h2 = Math.multiplyHigh(aby, acx);
+            if (h1 != h2) return h1 < h2 ? -1 : 1;
+            return Integer.signum(Long.compareUnsigned(abx * acy, aby * acx));
+        }
+
+        // True if q lies within the bounding box of segment pr (use after orient == 0)
+        static boolean onSegment(long px, long py, long qx, long qy, long rx, long ry) {
+            return qx >= Math.min(px, rx) && qx <= Math.max(px, rx)
+                && qy >= Math.min(py, ry) && qy <= Math.max(py, ry);
+        }
+
+        static final double EPS = 0x1p-53;
+        static final double CCW_ERR = (3 + 16 * EPS) * EPS;
+
+        // Sign of (a - c) x (b - c) for double coordinates: 1 counterclockwise,
+        // -1 clockwise, 0 collinear. Exact.
+        static int orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+            double detLeft = (ax - cx) * (by - cy);
+            double detRight = (ay - cy) * (bx - cx);
+            double det = detLeft - detRight, detSum;
+            if (detLeft > 0) {
+                if (detRight <= 0) return signum(det);
+                detSum = detLeft + detRight;
+            } else if (detLeft < 0) {
+                if (detRight >= 0) return signum(det);
+                detSum = -detLeft - detRight;
+            } else {
+                return signum(det);
+            }
+            if (Math.abs(det) >= CCW_ERR * detSum) return signum(det);
+
+            // Too close to call: evaluate the determinant exactly
+            double[] acx = diff(ax, cx), acy = diff(ay, cy);
+            double[] bcx = diff(bx, cx), bcy = diff(by, cy);
+            return sign(sum(mul(acx, bcy), negate(mul(acy, bcx))));
+        }
+
+        private static int signum(double v) {
+            return v > 0 ? 1 : v < 0 ? -1 : 0;
+        }
+
+        // Exact expansion arithmetic. An expansion is a double[] of non-overlapping
+        // components in increasing magnitude whose sum is the exact value.
+        // These only run when a filter cannot decide, so they may allocate.
+
+        // a + b and a - b as exact two-component expansions
+        static double[] sum(double a, double b) {
+            double x = a + b, bv = x - a, av = x - bv;
+            return new double[]{(a - av) + (b - bv), x};
+        }
+
+        static double[] diff(double a, double b) {
+            return sum(a, -b);
+        }
+
+        static double[] sum(double[] e, double[] f) {
+            double[] h = e;
+            for (double b : f) h = grow(h, b);
+            return h;
+        }
+
+        static double[] mul(double[] e, double[] f) {
+            double[] h = {0};
+            for (double b : f) h = sum(h, scale(e, b));
+            return h;
+        }
+
+        static double[] negate(double[] e) {
+            double[] h = new double[e.length];
+            for (int i = 0; i < e.length; i++) h[i] = -e[i];
+            return h;
+        }
+
+        // Sign of an expansion: the sign of its largest component
+        static int sign(double[] e) {
+            return signum(e[e.length - 1]);
+        }
+
+        // e + b, dropping zero components
+        private static double[] grow(double[] e, double b) {
+            double[] h = new double[e.length + 1];
+            int k = 0;
+            double q = b;
+            for (double v : e) {
+                double x = q + v, bv = x - q, av = x - bv;
+                double err = (q - av) + (v - bv);
+                if (err != 0) h[k++] = err;
+                q = x;
+            }
+            if (q != 0 || k == 0) h[k++] = q;
+            return k == h.length ? h : Arrays.copyOf(h, k);
+        }
+
+        // e * b, dropping zero components
+        private static double[] scale(double[] e, double b) {
+            double[] h = new double[2 * e.length];
+            int k = 0;
+            double q = e[0] * b, err = Math.fma(e[0], b, -q);
+            if (err != 0) h[k++] = err;
+            for (int i = 1; i < e.length; i++) {
+                double p1 = e[i] * b, p0 = Math.fma(e[i], b, -p1);
+                double s = q + p0, bv = s - q, av = s - bv;
+                err = (q - av) + (p0 - bv);
+                if (err != 0) h[k++] = err;
+                q = p1 + s;
+                err = s - (q - p1);
+                if (err != 0) h[k++] = err;
+            }
+            if (q != 0 || k == 0) h[k++] = q;
+            return k == h.length ? h : Arrays.copyOf(h, k);
+        }
+    }
+
+    // Headless batch I/O. Every algorithm file carries its own copy of this class,
+    // trimmed to what it uses.
+    //
+    // Binary tables start with a 24-byte little-endian header: magic "GEOB", the
+    // column count, the element type (0 = int32, 1 = float64), a reserved zero word
+    // and the record count as a long. The columns follow one after another. Files are memory-mapped and
+    // each column is bulk-copied straight into a primitive array, no parsing.
+    // Anything without the magic is read as text: one record per line, numbers
+    // separated by spaces, tabs or commas, '#' starts a comment.
+    static final class PointIO {
+        static final int MAGIC = 0x424F4547; // "GEOB" read little-endian
+        static final int INT32 = 0, FLOAT64 = 1;
+        private static final int HEADER = 24;
+        private static final long WINDOW = 1 << 30; // bytes mapped at a time
+
+        // n records of `columns` values each, stored by column
+        static final class Table {
+            final int n, columns;
+            final int[][] ints;       // int32 tables
+            final double[][] doubles; // float64 tables
+
+            Table(int n, int[][] ints) {
+                this.n = n;
+                this.columns = ints.length;
+                this.ints = ints;
+                this.doubles = null;
+            }
+
+            Table(int n, double[][] doubles) {
+                this.n = n;
+                this.columns = doubles.length;
+                this.ints = null;
+                this.doubles = doubles;
+            }
+
+            int[] intColumn(int c) {
+                if (ints != null) return ints[c];
+                int[] col = new int[n];
+                for (int i = 0; i < n; i++) {
+                    double v = doubles[c][i];
+                    if (v != (int) v) throw new IllegalArgumentException("column " + c + " is not integral");
+                    col[i] = (int) v;
+                }
+                return col;
+            }
+
+            void requireColumns(int c) {
+                if (columns != c)
+                    throw new IllegalArgumentException("expected " + c + " values per record, got " + columns);
+            }
+        }
+
+        // Reads a binary or text table; "-" reads text from stdin
+        static Table read(String path) throws IOException {
+            if (path.equals("-")) return readText(System.in);
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                if (ch.size() >= HEADER) {
+                    ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                    while (head.hasRemaining() && ch.read(head, head.position()) > 0) { }
+                    head.flip();
+                    if (head.getInt() == MAGIC) return readBinary(ch, head);
+                }
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                return readText(in);
+            }
+        }
+
+        private static Table readBinary(FileChannel ch, ByteBuffer head) throws IOException {
+            int columns = head.getInt(), type = head.getInt();
+            head.getInt(); // reserved
+            long count = head.getLong();
+            int width = type == INT32 ? 4 : 8;
+            if (columns <= 0 || (type != INT32 && type != FLOAT64) || count < 0 || count > Integer.MAX_VALUE - 8
+                    || ch.size() < HEADER + count * width * columns)
+                throw new IOException("corrupt GEOB header");
+            int n = (int) count;
+            long offset = HEADER;
+            if (type == INT32) {
+                int[][] cols = new int[columns][n];
+                for (int[] col : cols) {
+                    for (int done = 0; done < n; ) {
+                        int len = (int) Math.min(n - done, WINDOW / 4);
+                        ch.map(FileChannel.MapMode.READ_ONLY, offset, 4L * len)
+                          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(col, done, len);
+                        offset += 4L * len;
+                        done += len;
+                    }
+                }
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (double[] col : cols) {
+                for (int done = 0; done < n; ) {
+                    int len = (int) Math.min(n - done, WINDOW / 8);
+                    ch.map(FileChannel.MapMode.READ_ONLY, offset, 8L * len)
+                      .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(col, done, len);
+                    offset += 8L * len;
+                    done += len;
+                }
+            }
+            return new Table(n, cols);
+        }
+
+        // Line-oriented text reader over a byte buffer; numbers are parsed in place
+        static Table readText(InputStream in) throws IOException {
+            TextReader r = new TextReader(in);
+            double[] vals = new double[1024];
+            int count = 0, columns = -1, onLine = 0, line = 1;
+            boolean integral = true;
+            while (true) {
+                int c = r.peek();
+                if (c == -1 || c == '\n') {
+                    if (onLine > 0) {
+                        if (columns == -1) columns = onLine;
+                        else if (onLine != columns)
+                            throw new IOException("line " + line + ": expected " + columns + " values, got " + onLine);
+                    }
+                    onLine = 0;
+                    if (c == -1) break;
+                    r.skip();
+                    line++;
+                } else if (c == '#') {
+                    while (r.peek() != '\n' && r.peek() != -1) r.skip();
+                } else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+                    r.skip();
+                } else {
+                    if (count == vals.length) vals = Arrays.copyOf(vals, count * 2);
+                    double v = r.number(line);
+                    integral &= v == (int) v && !r.sawFraction;
+                    vals[count++] = v;
+                    onLine++;
+                }
+            }
+            if (columns == -1) return new Table(0, new int[0][0]);
+
+            int n = count / columns;
+            if (integral) {
+                int[][] cols = new int[columns][n];
+                for (int i = 0; i < count; i++) cols[i % columns][i / columns] = (int) vals[i];
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (int i = 0; i < count; i++) cols[i % columns][i / columns] = vals[i];
+            return new Table(n, cols);
+        }
+
+        private static final class TextReader {
+            private static final double[] POW10 = new double[23];
+            static {
+                POW10[0] = 1;
+                for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+            }
+
+            private final InputStream in;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] token = new byte[64];
+            private int pos, len;
+            boolean sawFraction;
+
+            TextReader(InputStream in) {
+                this.in = in;
+            }
+
+            int peek() throws IOException {
+                if (pos == len) {
+                    len = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (len <= 0) {
+                        len = 0;
+                        return -1;
+                    }
+                }
+                return buf[pos];
+            }
+
+            void skip() {
+                pos++;
+            }
+
+            // Decimal number; short ones are assembled exactly from an integer
+            // mantissa and a power of ten, the rest go through Double.parseDouble
+            double number(int line) throws IOException {
+                int t = 0, c;
+                while ((c = peek()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                        || (c >= '0' && c <= '9'))) {
+                    if (t == token.length) throw new IOException("line " + line + ": number too long");
+                    token[t++] = (byte) c;
+                    skip();
+                }
+                if (t == 0) throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+
+                int i = 0;
+                boolean neg = token[0] == '-';
+                if (token[0] == '-' || token[0] == '+') i++;
+                long mant = 0;
+                int digits = 0, exp = 0;
+                boolean any = false;
+                sawFraction = false;
+                for (; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                    if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; }
+                    else exp++;
+                }
+                if (i < t && token[i] == '.') {
+                    sawFraction = true;
+                    for (i++; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                        if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; exp--; }
+                    }
+                }
+                if (i < t && (token[i] == 'e' || token[i] == 'E')) {
+                    sawFraction = true;
+                    return slow(t, line);
+                }
+                if (!any || i != t) throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                if (digits <= 15 && exp >= -22 && exp <= 22) {
+                    double v = exp >= 0 ? mant * POW10[exp] : mant / POW10[-exp];
+                    return neg ? -v : v;
+                }
+                return slow(t, line);
+            }
+
+            private double slow(int t, int line) throws IOException {
+                try {
+                    return Double.parseDouble(new String(token, 0, t));
+                } catch (NumberFormatException e) {
+                    throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                }
+            }
+        }
+
+        // Writes a table as a binary GEOB file
+        static void writeBinary(Table t, String path) throws IOException {
+            int width = t.ints != null ? 4 : 8;
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(MAGIC).putInt(t.columns).putInt(t.ints != null ? INT32 : FLOAT64).putInt(0).putLong(t.n);
+                for (int c = 0; c < t.columns; c++) {
+                    for (int i = 0; i < t.n; i++) {
+                        if (buf.remaining() < width) {
+                            buf.flip();
+                            while (buf.hasRemaining()) ch.write(buf);
+                            buf.clear();
+                        }
+                        if (t.ints != null) buf.putInt(t.ints[c][i]);
+                        else buf.putDouble(t.doubles[c][i]);
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+        }
+
+        // Streaming text writer: numbers are formatted straight into a byte buffer
+        static final class Writer implements Closeable {
+            private final OutputStream out;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] digits = new byte[20];
+            private int pos;
+
+            Writer(OutputStream out) {
+                this.out = out;
+            }
+
+            // "-" writes to stdout
+            static Writer open(String path) throws IOException {
+                return new Writer(path.equals("-") ? System.out : Files.newOutputStream(Paths.get(path)));
+            }
+
+            Writer num(long v) throws IOException {
+                if (v == Long.MIN_VALUE) return text(Long.toString(v));
+                if (v < 0) {
+                    put('-');
+                    v = -v;
+                }
+                int k = 0;
+                do {
+                    digits[k++] = (byte) ('0' + v % 10);
+                    v /= 10;
+                } while (v != 0);
+                while (k > 0) put(digits[--k]);
+                return this;
+            }
+
+            // Integral values print as integers, others as Double.toString does,
+            // which reads back as the same double
+            Writer num(double v) throws IOException {
+                if (v == (long) v && Math.abs(v) < 1e15) return num((long) v);
+                return text(Double.toString(v));
+            }
+
+            Writer text(String s) throws IOException {
+                for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+                return this;
+            }
+
+            Writer sep() throws IOException {
+                put(' ');
+                return this;
+            }
+
+            Writer newline() throws IOException {
+                put('\n');
+                return this;
+            }
+
+            private void put(int b) throws IOException {
+                if (pos == buf.length) flush();
+                buf[pos++] = (byte) b;
+            }
+
+            void flush() throws IOException {
+                out.write(buf, 0, pos);
+                pos = 0;
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+                if (out != System.out) out.close();
+            }
+        }
+
+        // "convert <in> <out>": any readable table to a binary GEOB file
+        static void convert(String in, String out) throws IOException {
+            writeBinary(read(in), out);
+        }
     }
 
-    // Check if point q lies on segment pr
-    static boolean onSegment(int[] p, int[] q, int[] r) {
-        return (q[0] >= Math.min(p[0], r[0]) && q[0] <= Math.max(p[0], r[0]) &&
-                q[1] >= Math.min(p[1], r[1]) && q[1] <= Math.max(p[1], r[1]));
+    // Space-filling-curve order for cache locality. Every algorithm file that
+    // uses it carries its own copy, trimmed to what it calls. Engines opt in by
+    // permuting their input with an order from here and mapping result indices
+    // back through it.
+    //
+    // Points are snapped to a 2^16 x 2^16 grid over their bounding square and
+    // keyed by Hilbert index. The keys are sorted by a three-pass LSD radix sort
+    // that carries the point index, so equal keys keep input order.
+    static final class SpatialOrder {
+        static final int BITS = 16;
+        private static final int RADIX = 11;
+
+        // order[k] = index of the k-th point along the curve
+        static int[] hilbert(int[] xs, int[] ys, int n) {
+            return sort(keys(xs, ys, n), n);
+        }
+
+        // a[order[k]] at k
+        static int[] permute(int[] a, int[] order, int n) {
+            int[] b = new int[n];
+            for (int k = 0; k < n; k++) b[k] = a[order[k]];
+            return b;
+        }
+
+        // Hilbert index of grid cell (x, y), 0 <= x, y < 2^BITS, as an unsigned int.
+        // The usual loop rotates quadrant by quadrant and branches on every bit.
+        // Here the quadrant transforms of all 16 levels are composed as a prefix
+        // scan over bit masks in four rounds instead: same curve, no branches.
+        static int key(int x, int y) {
+            int a = x ^ y, b = 0xFFFF ^ a, c = 0xFFFF ^ (x | y), d = x & (y ^ 0xFFFF);
+            int pa = a | (b >>> 1), pb = (a >>> 1) ^ a;
+            int pc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c, pd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+            for (int s = 2; s <= 8; s <<= 1) {
+                a = pa;
+                b = pb;
+                c = pc;
+                d = pd;
+                pa = (a & (a >>> s)) ^ (b & (b >>> s));
+                pb = (a & (b >>> s)) ^ (b & ((a ^ b) >>> s));
+                pc ^= (a & (c >>> s)) ^ (b & (d >>> s));
+                pd ^= (b & (c >>> s)) ^ ((a ^ b) & (d >>> s));
+            }
+            a = pc ^ (pc >>> 1);
+            b = pd ^ (pd >>> 1);
+            int i0 = x ^ y, i1 = b | (0xFFFF ^ (i0 | a));
+            return spread(i1) << 1 | spread(i0);
+        }
+
+        // The low 16 bits of v moved to the even bit positions
+        private static int spread(int v) {
+            v = (v | v << 8) & 0x00FF00FF;
+            v = (v | v << 4) & 0x0F0F0F0F;
+            v = (v | v << 2) & 0x33333333;
+            return (v | v << 1) & 0x55555555;
+        }
+
+        // Keys in the high word, indices in the low word
+        private static long[] keys(int[] xs, int[] ys, int n) {
+            long minX = Long.MAX_VALUE, minY = minX, maxX = Long.MIN_VALUE, maxY = maxX;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            long side = Math.max(1, Math.max(maxX - minX, maxY - minY)), cells = (1 << BITS) - 1;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                int cx = (int) ((xs[i] - minX) * cells / side), cy = (int) ((ys[i] - minY) * cells / side);
+                keys[i] = (long) key(cx, cy) << 32 | i;
+            }
+            return keys;
+        }
+
+        // LSD radix sort on the unsigned high word, stable; returns the low words
+        private static int[] sort(long[] keys, int n) {
+            long[] buf = new long[n];
+            int[] count = new int[1 << RADIX];
+            for (int shift = 32; shift < 64; shift += RADIX) {
+                Arrays.fill(count, 0);
+                for (int i = 0; i < n; i++) count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++;
+                for (int b = 0, sum = 0; b < count.length; b++) {
+                    int c = count[b];
+                    count[b] = sum;
+                    sum += c;
+                }
+                for (int i = 0; i < n; i++) buf[count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++] = keys[i];
+                long[] t = keys;
+                keys = buf;
+                buf = t;
+            }
+            int[] order = new int[n];
+            for (int k = 0; k < n; k++) order[k] = (int) keys[k];
+            return order;
+        }
+    }
+
+    // Standard benchmark workloads and timing. Every algorithm file carries its own
+    // copy, trimmed to the workloads it runs, so the suites of all files share
+    // inputs and output format.
+    //
+    // Workloads are seeded, so a run can be repeated exactly; coordinates lie in
+    // [0, 2^28). A measurement warms up for half a second, then repeats the body
+    // for at least a second. It reports time per run, items per second, and heap
+    // allocated per item and per second summed over all live threads (what JMH's
+    // gc profiler reports). Sizes step by 10 from 10^3.
+    static final class Bench {
+        static final int BOX = 1 << 28;
+        static final long SEED = 42;
+        static final String[] SEGMENTS = {"uniform", "grid", "thin"};
+
+        interface Body {
+            long run(); // a checksum, so the work cannot be dropped
+        }
+
+        static int[] sizes(int max) {
+            int k = 0;
+            int[] sizes = new int[10];
+            for (long n = 1000; n <= max; n *= 10) sizes[k++] = (int) n;
+            return Arrays.copyOf(sizes, k);
+        }
+
+        // 1, 2, 4, .. up to and including the number of cores
+        static int[] threads() {
+            int cores = Runtime.getRuntime().availableProcessors(), k = 0;
+            int[] counts = new int[32];
+            for (int t = 1; ; t = Math.min(cores, t * 2)) {
+                counts[k++] = t;
+                if (t == cores) break;
+            }
+            return Arrays.copyOf(counts, k);
+        }
+
+        // n segments of a workload, about a few crossings per segment:
+        //   uniform  random direction and place, length ~ 4 / sqrt(n) of the box
+        //   grid     lattice edges: shared endpoints, collinear touching, repeats
+        //   thin     long, nearly horizontal, half the box wide
+        static void segments(String workload, int n, long seed, int[] x1, int[] y1, int[] x2, int[] y2) {
+            Random rnd = new Random(seed);
+            int side = (int) Math.ceil(Math.sqrt(n)), step = BOX / Math.max(1, side);
+            double length = Math.min(BOX / 4.0, 4.0 * BOX / Math.sqrt(n));
+            for (int i = 0; i < n; i++) {
+                switch (workload) {
+                    case "uniform":
+                        double a = rnd.nextDouble() * 2 * Math.PI;
+                        x1[i] = rnd.nextInt(BOX);
+                        y1[i] = rnd.nextInt(BOX);
+                        x2[i] = clamp(x1[i] + Math.cos(a) * length);
+                        y2[i] = clamp(y1[i] + Math.sin(a) * length);
+                        break;
+                    case "grid":
+                        x1[i] = rnd.nextInt(Math.max(1, side - 1)) * step;
+                        y1[i] = rnd.nextInt(Math.max(1, side - 1)) * step;
+                        boolean across = rnd.nextBoolean();
+                        x2[i] = x1[i] + (across ? step : 0);
+                        y2[i] = y1[i] + (across ? 0 : step);
+                        break;
+                    case "thin":
+                        x1[i] = rnd.nextInt(BOX / 2);
+                        y1[i] = rnd.nextInt(BOX);
+                        x2[i] = x1[i] + BOX / 2;
+                        y2[i] = clamp(y1[i] + (rnd.nextDouble() - 0.5) * 16.0 * BOX / n);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown segment workload " + workload);
+                }
+            }
+        }
+
+        static double[] doubles(int[] a, int n) {
+            double[] d = new double[n];
+            for (int i = 0; i < n; i++) d[i] = a[i];
+            return d;
+        }
+
+        static void header(PrintWriter pw) {
+            pw.printf("%-32s %-10s %9s %14s %16s %13s %12s%n", "benchmark", "workload", "n", "time", "throughput",
+                "allocated", "alloc rate");
+            pw.flush();
+        }
+
+        static void measure(PrintWriter pw, String name, String workload, int n, Body body) {
+            long sink = 0;
+            long end = System.nanoTime() + 500_000_000L;
+            do sink += body.run(); while (System.nanoTime() < end);
+            long runs = 0, bytes = allocated(), t0 = System.nanoTime(), nanos;
+            do {
+                sink += body.run();
+                runs++;
+            } while ((nanos = System.nanoTime() - t0) < 1_000_000_000L);
+            bytes = allocated() - bytes;
+            double ms = nanos / 1e6 / runs;
+            pw.printf("%-32s %-10s %9d %10.3f ms %10.2f Mitem/s %8.1f B/item %7.1f MB/s%n", name, workload, n, ms,
+                n / ms / 1e3, (double) bytes / runs / n, bytes / (nanos / 1e3));
+            if (sink == 42) pw.print("");
+            pw.flush();
+        }
+
+        // Bytes allocated so far by every live thread
+        private static long allocated() {
+            com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            long sum = 0;
+            for (long b : mx.getThreadAllocatedBytes(mx.getAllThreadIds())) sum += Math.max(b, 0);
+            return sum;
+        }
+
+        private static int clamp(double v) {
+            return (int) Math.max(0, Math.min(BOX - 1, Math.round(v)));
+        }
+    }
+
+    // Optional hot-path metrics. Every algorithm file carries its own copy of this
+    // class, trimmed to the kinds of metric it uses.
+    // They are off unless the JVM runs with -Dgeometry.metrics=true; ENABLED is
+    // a static final, so with it off the JIT drops every `if (Metrics.ENABLED)`
+    // block and the engines run as before. Engines count into locals or plain
+    // fields and publish once per call, so hot loops never touch shared state.
+    //
+    // Counters sum, peaks keep the largest value seen, and timers sum calls and
+    // nanoseconds per phase. All are striped (LongAdder, LongAccumulator), so any
+    // number of threads can publish at once. snapshot() reads them by name, and
+    // export() serves the same values as read-only attributes of the MBean
+    // geometry:type=Metrics,name=<engine>, and prints them to stderr on exit.
+    static final class Metrics {
+        static final boolean ENABLED = Boolean.getBoolean("geometry.metrics");
+        private static final Map<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+        private Metrics() {
+        }
+
+        static final class Counter {
+            private final LongAdder sum = new LongAdder();
+
+            void add(long v) {
+                sum.add(v);
+            }
+        }
+
+        static final class Peak {
+            private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+            void record(long v) {
+                max.accumulate(v);
+            }
+        }
+
+        static final class Timer {
+            private final LongAdder calls = new LongAdder(), nanos = new LongAdder();
+
+            // Adds the time since start and returns now, the start of the next phase
+            long lap(long start) {
+                long now = System.nanoTime();
+                calls.increment();
+                nanos.add(now - start);
+                return now;
+            }
+        }
+
+        static Counter counter(String name) {
+            return register(name, new Counter());
+        }
+
+        static Peak peak(String name) {
+            return register(name, new Peak());
+        }
+
+        static Timer timer(String name) {
+            return register(name, new Timer());
+        }
+
+        // Start of a timed phase, 0 when metrics are off
+        static long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        // Current values by name; a timer shows up as name.calls and name.ns
+        static Map<String, Long> snapshot() {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+                String name = e.getKey();
+                Object m = e.getValue();
+                if (m instanceof Counter) {
+                    values.put(name, ((Counter) m).sum.sum());
+                } else if (m instanceof Peak) {
+                    values.put(name, ((Peak) m).max.get());
+                } else {
+                    values.put(name + ".calls", ((Timer) m).calls.sum());
+                    values.put(name + ".ns", ((Timer) m).nanos.sum());
+                }
+            }
+            return values;
+        }
+
+        static void reset() {
+            for (Object m : REGISTRY.values()) {
+                if (m instanceof Counter) {
+                    ((Counter) m).sum.reset();
+                } else if (m instanceof Peak) {
+                    ((Peak) m).max.reset();
+                } else {
+                    ((Timer) m).calls.reset();
+                    ((Timer) m).nanos.reset();
+                }
+            }
+        }
+
+        static void print(PrintWriter pw) {
+            for (Map.Entry<String, Long> e : snapshot().entrySet()) pw.printf("%-40s %15d%n", e.getKey(), e.getValue());
+            pw.flush();
+        }
+
+        static void export(String engine) {
+            try {
+                java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new View(), new ObjectName("geometry:type=Metrics,name=" + engine));
+            } catch (JMException e) {
+                throw new IllegalStateException("cannot export metrics for " + engine, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> print(new PrintWriter(System.err))));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T register(String name, T metric) {
+            Object old = REGISTRY.putIfAbsent(name, metric);
+            if (old == null) return metric;
+            if (old.getClass() != metric.getClass()) throw new IllegalArgumentException("metric " + name + " exists");
+            return (T) old;
+        }
+
+        // The snapshot as a dynamic MBean: one long attribute per value, and a
+        // reset operation
+        private static final class View implements DynamicMBean {
+            @Override
+            public Object getAttribute(String name) throws AttributeNotFoundException {
+                Long v = snapshot().get(name);
+                if (v == null) throw new AttributeNotFoundException(name);
+                return v;
+            }
+
+            @Override
+            public AttributeList getAttributes(String[] names) {
+                Map<String, Long> values = snapshot();
+                AttributeList list = new AttributeList();
+                for (String name : names)
+                    if (values.containsKey(name)) list.add(new Attribute(name, values.get(name)));
+                return list;
+            }
+
+            @Override
+            public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+            }
+
+            @Override
+            public AttributeList setAttributes(AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+                if (!action.equals("reset")) throw new ReflectionException(new NoSuchMethodException(action));
+                reset();
+                return null;
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                Set<String> names = snapshot().keySet();
+                MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+                int k = 0;
+                for (String name : names)
+                    attributes[k++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+                MBeanOperationInfo reset = new MBeanOperationInfo("reset", "zero every metric",
+                    new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+                return new MBeanInfo(Metrics.class.getName(), "geometry engine metrics", attributes, null,
+                    new MBeanOperationInfo[]{reset}, null);
+            }
+        }
     }
 
     // Function to check if two segments intersect
     static boolean intersect(Segment s1, Segment s2) {
-        int[] p1 = {s1.x1, s1.y1}, q1 = {s1.x2, s1.y2};
-        int[] p2 = {s2.x1, s2.y1}, q2 = {s2.x2, s2.y2};
+        return intersect(s1.x1, s1.y1, s1.x2, s1.y2, s2.x1, s2.y1, s2.x2, s2.y2);
+    }
 
-        int o1 = orientation(p1, q1, p2);
-        int o2 = orientation(p1, q1, q2);
-        int o3 = orientation(p2, q2, p1);
-        int o4 = orientation(p2, q2, q1);
+    // Same test for segments (ax, ay) - (bx, by) and (cx, cy) - (dx, dy)
+    static boolean intersect(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy) {
+        // Orientation of each endpoint relative to the other segment
+        int o1 = Predicates.orient(ax, ay, bx, by, cx, cy);
+        int o2 = Predicates.orient(ax, ay, bx, by, dx, dy);
+        int o3 = Predicates.orient(cx, cy, dx, dy, ax, ay);
+        int o4 = Predicates.orient(cx, cy, dx, dy, bx, by);
 
         // General intersection case
         if (o1 != o2 && o3 != o4) return true;
 
         // Collinear cases
-        if (o1 == 0 && onSegment(p1, p2, q1)) return true;
-        if (o2 == 0 && onSegment(p1, q2, q1)) return true;
-        if (o3 == 0 && onSegment(p2, p1, q2)) return true;
-        if (o4 == 0 && onSegment(p2, q1, q2)) return true;
+        if (o1 == 0 && Predicates.onSegment(ax, ay, cx, cy, bx, by)) return true;
+        if (o2 == 0 && Predicates.onSegment(ax, ay, dx, dy, bx, by)) return true;
+        if (o3 == 0 && Predicates.onSegment(cx, cy, ax, ay, dx, dy)) return true;
+        if (o4 == 0 && Predicates.onSegment(cx, cy, bx, by, dx, dy)) return true;
 
         return false;
     }
 
-    // Line Sweep algorithm to find all intersections
-    static List<String> lineSweep(List<Segment> segments) {
-        // Step 1: Prepare event points (x-coordinate, type, segment)
-        class Event {
-            int x; char type; Segment seg;
-            Event(int x, char type, Segment seg) {
-                this.x = x; this.type = type; this.seg = seg;
+    // Bentley-Ottmann sweep over segments with int coordinates.
+    // Events run left to right, then bottom to top. The status holds the active
+    // segments in the order they cross the sweep line. At each event point P the
+    // segments that start, end or pass through P are reported together. The ones
+    // that continue are reinserted in their order just after P, which swaps
+    // segments that cross there. Only segments that become neighbours are
+    // tested, and a crossing to the right of P is queued as a new event. The
+    // cost is O((n + k) log n) for k reported points.
+    //
+    // Every decision is exact. Endpoints are integers and use long and 128-bit
+    // arithmetic. Crossing points are rationals: a double filter settles almost
+    // every comparison, and BigInteger only steps in when the filter cannot
+    // decide. Status comparisons at integer points take the same route when a
+    // coordinate lies beyond +-2^30, where their long products would overflow. Vertical segments sit at the event's y, clamped to their span,
+    // with slope +infinity. Collinear overlapping segments are reported at every
+    // event point on their common part, since they share each of those points.
+    //
+    // With metrics on, each sweep publishes its segments, events, neighbour tests
+    // and queued crossings, the largest status it held, how often a status
+    // comparison needed BigInteger, and the time to sort endpoints and to sweep.
+    static final class IntersectionSweep {
+        private static final Metrics.Counter SEGMENTS = Metrics.counter("sweep.segments");
+        private static final Metrics.Counter EVENTS = Metrics.counter("sweep.events");
+        private static final Metrics.Counter TESTS = Metrics.counter("sweep.neighbour.tests");
+        private static final Metrics.Counter CROSSINGS = Metrics.counter("sweep.crossings.queued");
+        private static final Metrics.Counter EXACT = Metrics.counter("sweep.exact.comparisons");
+        private static final Metrics.Peak ACTIVE = Metrics.peak("sweep.status.peak");
+        private static final Metrics.Timer SORT = Metrics.timer("sweep.sort");
+        private static final Metrics.Timer SCAN = Metrics.timer("sweep.scan");
+
+        private static final int PROBE_LOW = -1, PROBE_HIGH = -2; // just below / above P
+        private static final double FILTER = 0x1p-48;
+
+        private int[] ax = new int[0], ay = ax, bx = ax, by = ax; // a = left (then lower) endpoint
+        private int[] starts = ax, ends = ax, scratch = ax;
+        private final TreeSet<Integer> status = new TreeSet<>(this::compare);
+        private final TreeSet<Pt> queue = new TreeSet<>(IntersectionSweep::comparePts);
+        private final Pt cursor = new Pt(0, 0);
+        private int[] group = new int[16];
+        private int groupSize;
+        private int[] mark = ax; // mark[s] == stamp: s passes through the current event
+        private int stamp;
+        private Pt at;          // current event point
+        private boolean before; // order segments through P as just before P
+        private boolean wide;   // a coordinate beyond +-2^30: no long status products
+        private long tests, crossings, exact; // counted only with metrics on
+
+        // A sweep point: integer, or the exact rational (X / W, Y / W) with W > 0
+        private static final class Pt {
+            long ix, iy;
+            BigInteger X, Y, W; // W == null for integer points
+            double x, y;        // nearest doubles, for the filters
+            int s, t;           // two segments through a rational point
+
+            Pt(long ix, long iy) {
+                set(ix, iy);
+            }
+
+            Pt(BigInteger X, BigInteger Y, BigInteger W) {
+                this.X = X;
+                this.Y = Y;
+                this.W = W;
+                x = X.doubleValue() / W.doubleValue();
+                y = Y.doubleValue() / W.doubleValue();
+            }
+
+            Pt set(long ix, long iy) {
+                this.ix = ix;
+                this.iy = iy;
+                x = ix;
+                y = iy;
+                return this;
+            }
+
+            BigInteger bigX() {
+                return W == null ? BigInteger.valueOf(ix) : X;
+            }
+
+            BigInteger bigY() {
+                return W == null ? BigInteger.valueOf(iy) : Y;
+            }
+
+            BigInteger bigW() {
+                return W == null ? BigInteger.ONE : W;
+            }
+
+            // Bound on |x - X / W| relative to the value
+            double err(double v) {
+                return W == null ? 0 : Math.abs(v) * 0x1p-50;
+            }
+        }
+
+        // All intersection points of the n segments (x1[i], y1[i]) - (x2[i], y2[i])
+        Intersections intersections(int[] x1, int[] y1, int[] x2, int[] y2, int n) {
+            Intersections out = new Intersections();
+            intersections(x1, y1, x2, y2, n, out);
+            return out;
+        }
+
+        // Each intersecting pair i < j once, with the first point the two share.
+        // Collinear overlapping segments meet at a run of event points; only the
+        // start of their overlap counts, so no pair set is needed.
+        void pairs(int[] x1, int[] y1, int[] x2, int[] y2, int n, IntPairBuffer out) {
+            intersections(x1, y1, x2, y2, n, (x, y, segs, m) -> {
+                for (int a = 0; a < m; a++) {
+                    for (int b = a + 1; b < m; b++) {
+                        int s = segs[a], t = segs[b];
+                        if (!overlapStart(s, t, x, y)) continue;
+                        out.add(s, t, x, y);
+                    }
+                }
+            });
+        }
+
+        // False if s and t overlap and (x, y) lies past the start of the overlap
+        private boolean overlapStart(int s, int t, double x, double y) {
+            if (Predicates.orient(ax[s], ay[s], bx[s], by[s], ax[t], ay[t]) != 0
+                || Predicates.orient(ax[s], ay[s], bx[s], by[s], bx[t], by[t]) != 0) return true;
+            boolean later = ax[t] > ax[s] || (ax[t] == ax[s] && ay[t] > ay[s]);
+            return x == (later ? ax[t] : ax[s]) && y == (later ? ay[t] : ay[s]);
+        }
+
+        // Same points, handed to the sink in sweep order as they are found. A
+        // StatusSink also sees the status order after each event point.
+        void intersections(int[] x1, int[] y1, int[] x2, int[] y2, int n, IntersectionSink sink) {
+            StatusSink order = sink instanceof StatusSink ? (StatusSink) sink : null;
+            ensureCapacity(n);
+            long span = 0;
+            for (int i = 0; i < n; i++) {
+                span |= Math.abs((long) x1[i]) | Math.abs((long) y1[i]) | Math.abs((long) x2[i]) | Math.abs((long) y2[i]);
+                boolean flip = x2[i] < x1[i] || (x2[i] == x1[i] && y2[i] < y1[i]);
+                ax[i] = flip ? x2[i] : x1[i];
+                ay[i] = flip ? y2[i] : y1[i];
+                bx[i] = flip ? x1[i] : x2[i];
+                by[i] = flip ? y1[i] : y2[i];
+                starts[i] = ends[i] = i;
+            }
+            wide = (span >>> 30) != 0;
+            long t = Metrics.start();
+            sortByPoint(starts, ax, ay, n);
+            sortByPoint(ends, bx, by, n);
+            if (Metrics.ENABLED) t = SORT.lap(t);
+            status.clear();
+            queue.clear();
+
+            int si = 0, ei = 0, events = 0, active = 0;
+            while (true) {
+                // Step 1: next event, the smallest of the next left endpoint, the
+                // next right endpoint and the first queued crossing
+                Pt p = null;
+                if (si < n) p = cursor.set(ax[starts[si]], ay[starts[si]]);
+                if (ei < n && (p == null || bx[ends[ei]] < p.ix || (bx[ends[ei]] == p.ix && by[ends[ei]] < p.iy)))
+                    p = cursor.set(bx[ends[ei]], by[ends[ei]]);
+                Pt q = queue.isEmpty() ? null : queue.first();
+                if (q != null && (p == null || comparePts(q, p) <= 0)) {
+                    queue.pollFirst();
+                    if (p == null || comparePts(q, p) < 0) p = q;
+                }
+                if (p == null) break;
+                at = p;
+                if (Metrics.ENABLED) events++;
+
+                // Step 2: segments starting here, then those in the status that
+                // end here or pass through
+                groupSize = 0;
+                stamp++;
+                if (p.W != null) mark[p.s] = mark[p.t] = stamp; // spares their exact tests
+                if (p.W == null) {
+                    while (si < n && ax[starts[si]] == p.ix && ay[starts[si]] == p.iy) add(starts[si++]);
+                    while (ei < n && bx[ends[ei]] == p.ix && by[ends[ei]] == p.iy) ei++;
+                }
+                before = true;
+                SortedSet<Integer> through = status.subSet(PROBE_LOW, PROBE_HIGH);
+                for (int s : through) add(s);
+                if (groupSize >= 2) {
+                    Arrays.sort(group, 0, groupSize);
+                    sink.point(p.x, p.y, group, groupSize);
+                }
+
+                // Step 3: reinsert whatever continues past P in its new order
+                through.clear();
+                before = false;
+                boolean inserted = false;
+                for (int k = 0; k < groupSize; k++) {
+                    int s = group[k];
+                    if (p.W == null && bx[s] == p.ix && by[s] == p.iy) continue; // ends here
+                    status.add(s);
+                    inserted = true;
+                }
+                if (Metrics.ENABLED) active = Math.max(active, status.size());
+                if (order != null && inserted) {
+                    int m = 0;
+                    for (int s : status.subSet(PROBE_LOW, PROBE_HIGH)) group[m++] = s;
+                    Integer below = status.lower(PROBE_LOW);
+                    order.continuing(below == null ? -1 : below, group, m);
+                }
+
+                // Step 4: test the new neighbours
+                if (!inserted) {
+                    check(status.lower(PROBE_LOW), status.higher(PROBE_LOW));
+                } else {
+                    Integer lo = status.higher(PROBE_LOW), hi = status.lower(PROBE_HIGH);
+                    check(status.lower(lo), lo);
+                    check(hi, status.higher(hi));
+                }
+            }
+            at = null;
+            if (Metrics.ENABLED) {
+                SEGMENTS.add(n);
+                EVENTS.add(events);
+                ACTIVE.record(active);
+                TESTS.add(tests);
+                CROSSINGS.add(crossings);
+                EXACT.add(exact);
+                tests = crossings = exact = 0;
+                SCAN.lap(t);
+            }
+        }
+
+        private void add(int s) {
+            if (groupSize == group.length) group = Arrays.copyOf(group, groupSize * 2);
+            group[groupSize++] = s;
+            mark[s] = stamp;
+        }
+
+        // Queues the crossing of s and t if it lies beyond the current event
+        private void check(Integer s, Integer t) {
+            if (s == null || t == null) return;
+            if (Metrics.ENABLED) tests++;
+            long ax1 = ax[s], ay1 = ay[s], bx1 = bx[s], by1 = by[s];
+            long ax2 = ax[t], ay2 = ay[t], bx2 = bx[t], by2 = by[t];
+            int o1 = Predicates.orient(ax1, ay1, bx1, by1, ax2, ay2);
+            int o2 = Predicates.orient(ax1, ay1, bx1, by1, bx2, by2);
+            int o3 = Predicates.orient(ax2, ay2, bx2, by2, ax1, ay1);
+            int o4 = Predicates.orient(ax2, ay2, bx2, by2, bx1, by1);
+            if (o1 * o2 > 0 || o3 * o4 > 0) return; // apart
+            if (o1 == 0 && o2 == 0) return;         // collinear: shared points are endpoints
+
+            // One common point: a1 + (b1 - a1) * u / d, with d and u cross products
+            // of coordinate differences (up to 2^63, so built as BigIntegers)
+            BigInteger W = cross(bx1 - ax1, by1 - ay1, bx2 - ax2, by2 - ay2);
+            BigInteger U = cross(ax2 - ax1, ay2 - ay1, bx2 - ax2, by2 - ay2);
+            BigInteger X = BigInteger.valueOf(ax1).multiply(W).add(BigInteger.valueOf(bx1 - ax1).multiply(U));
+            BigInteger Y = BigInteger.valueOf(ay1).multiply(W).add(BigInteger.valueOf(by1 - ay1).multiply(U));
+            if (W.signum() < 0) {
+                W = W.negate();
+                X = X.negate();
+                Y = Y.negate();
+            }
+            BigInteger[] qx = X.divideAndRemainder(W), qy = Y.divideAndRemainder(W);
+            Pt q;
+            if (qx[1].signum() == 0 && qy[1].signum() == 0) {
+                q = new Pt(qx[0].longValue(), qy[0].longValue());
+            } else {
+                q = new Pt(X, Y, W);
+                q.s = s;
+                q.t = t;
+            }
+            if (comparePts(q, at) > 0) {
+                queue.add(q);
+                if (Metrics.ENABLED) crossings++;
+            }
+        }
+
+        private static BigInteger cross(long ux, long uy, long vx, long vy) {
+            return BigInteger.valueOf(ux).multiply(BigInteger.valueOf(vy))
+                .subtract(BigInteger.valueOf(uy).multiply(BigInteger.valueOf(vx)));
+        }
+
+        // Event order: x, then y
+        private static int comparePts(Pt a, Pt b) {
+            if (a.W == null && b.W == null) {
+                int c = Long.compare(a.ix, b.ix);
+                return c != 0 ? c : Long.compare(a.iy, b.iy);
+            }
+            double dx = a.x - b.x, tx = a.err(a.x) + b.err(b.x);
+            if (dx > tx) return 1;
+            if (dx < -tx) return -1;
+            int c = a.bigX().multiply(b.bigW()).compareTo(b.bigX().multiply(a.bigW()));
+            if (c != 0) return c;
+            double dy = a.y - b.y, ty = a.err(a.y) + b.err(b.y);
+            if (dy > ty) return 1;
+            if (dy < -ty) return -1;
+            return a.bigY().multiply(b.bigW()).compareTo(b.bigY().multiply(a.bigW()));
+        }
+
+        // Status order at the current event point
+        private int compare(Integer s, Integer t) {
+            if (s < 0 && t < 0) return s.intValue() == t.intValue() ? 0 : s == PROBE_LOW ? -1 : 1;
+            if (s < 0) return -compare(t, s);
+            if (t < 0) {
+                int c = side(s);
+                return c != 0 ? c : t == PROBE_LOW ? 1 : -1;
+            }
+            if (s.intValue() == t.intValue()) return 0;
+            boolean atP = mark[s] == stamp && mark[t] == stamp; // known to meet at P
+            if (!atP) {
+                int c = compareY(s, t);
+                if (c != 0) return c;
+            }
+
+            // Both cross the sweep line at one point. Left of it the steeper
+            // segment is below, right of it above. Points above P are still ahead.
+            int slope = -Predicates.orient(0, 0, (long) bx[s] - ax[s], (long) by[s] - ay[s],
+                (long) bx[t] - ax[t], (long) by[t] - ay[t]);
+            int above = atP ? 0 : side(s);
+            if (above > 0 || (above == 0 && before)) slope = -slope;
+            return slope != 0 ? slope : Integer.compare(s, t); // collinear: any fixed order
+        }
+
+        // Sign of (y of s on the sweep line) - (y of P)
+        private int side(int s) {
+            if (mark[s] == stamp) return 0;
+            long x1 = ax[s], y1 = ay[s], dx = bx[s] - x1, dy = by[s] - y1;
+            Pt p = at;
+            if (dx == 0) { // vertical: clamped to its span
+                if (compareY(p, y1) < 0) return 1;
+                return compareY(p, by[s]) > 0 ? -1 : 0;
+            }
+            if (p.W == null) return -Predicates.orient(x1, y1, bx[s], by[s], p.ix, p.iy); // dx > 0
+            double ys = y1 + dy * ((p.x - x1) / dx);
+            double err = FILTER * (Math.abs(y1) + Math.abs((double) dy / dx) * (Math.abs(p.x) + Math.abs(x1)) + Math.abs(ys))
+                + p.err(p.y);
+            if (ys - p.y > err) return 1;
+            if (ys - p.y < -err) return -1;
+            if (Metrics.ENABLED) exact++;
+            return numerator(s).compareTo(p.Y.multiply(BigInteger.valueOf(dx)));
+        }
+
+        private static int compareY(Pt p, long y) {
+            if (p.W == null) return Long.compare(p.iy, y);
+            if (p.y - y > p.err(p.y)) return 1;
+            if (p.y - y < -p.err(p.y)) return -1;
+            return p.Y.compareTo(BigInteger.valueOf(y).multiply(p.W));
+        }
+
+        // Sign of y(s) - y(t) on the sweep line
+        private int compareY(int s, int t) {
+            Pt p = at;
+            boolean vs = ax[s] == bx[s], vt = ax[t] == bx[t];
+            if (p.W == null && !wide) { // y = num / den with longs
+                long ns = vs ? clamp(p.iy, s) : (long) ay[s] * (bx[s] - ax[s]) + (long) (by[s] - ay[s]) * (p.ix - ax[s]);
+                long nt = vt ? clamp(p.iy, t) : (long) ay[t] * (bx[t] - ax[t]) + (long) (by[t] - ay[t]) * (p.ix - ax[t]);
+                long ds = vs ? 1 : bx[s] - ax[s], dt = vt ? 1 : bx[t] - ax[t];
+                long h1 = Math.multiplyHigh(ns, dt), h2 = Math.multiplyHigh(nt, ds);
+                return h1 != h2 ? Long.compare(h1, h2) : Long.compareUnsigned(ns * dt, nt * ds);
+            }
+            double ys = yAt(s), yt = yAt(t);
+            double err = errAt(s, ys) + errAt(t, yt);
+            if (ys - yt > err) return 1;
+            if (ys - yt < -err) return -1;
+
+            // Exact: num / den for each, den = dx * W, or W / 1 for vertical segments
+            // (W = 1 at an integer point)
+            if (Metrics.ENABLED) exact++;
+            BigInteger[] fs = fraction(s), ft = fraction(t);
+            return fs[0].multiply(ft[1]).compareTo(ft[0].multiply(fs[1]));
+        }
+
+        private long clamp(long y, int s) {
+            return Math.max(ay[s], Math.min(by[s], y));
+        }
+
+        private double yAt(int s) {
+            if (ax[s] == bx[s]) return Math.max(ay[s], Math.min(by[s], at.y));
+            long dx = (long) bx[s] - ax[s];
+            return ay[s] + ((long) by[s] - ay[s]) * ((at.x - ax[s]) / dx);
+        }
+
+        private double errAt(int s, double ys) {
+            if (ax[s] == bx[s]) return at.err(at.y);
+            double slope = Math.abs((double) ((long) by[s] - ay[s]) / ((long) bx[s] - ax[s]));
+            return FILTER * (Math.abs(ay[s]) + slope * (Math.abs(at.x) + Math.abs(ax[s])) + Math.abs(ys));
+        }
+
+        // y of s on the sweep line as {numerator, denominator} at P
+        private BigInteger[] fraction(int s) {
+            if (ax[s] != bx[s]) return new BigInteger[]{numerator(s), BigInteger.valueOf((long) bx[s] - ax[s]).multiply(at.bigW())};
+            if (compareY(at, ay[s]) < 0) return new BigInteger[]{BigInteger.valueOf(ay[s]), BigInteger.ONE};
+            if (compareY(at, by[s]) > 0) return new BigInteger[]{BigInteger.valueOf(by[s]), BigInteger.ONE};
+            return new BigInteger[]{at.bigY(), at.bigW()};
+        }
+
+        // y1 * dx * W + dy * (X - x1 * W): the y of s at X / W, times dx * W
+        private BigInteger numerator(int s) {
+            long dx = (long) bx[s] - ax[s], dy = (long) by[s] - ay[s];
+            BigInteger W = at.bigW();
+            return BigInteger.valueOf(ay[s]).multiply(BigInteger.valueOf(dx)).multiply(W)
+                .add(BigInteger.valueOf(dy).multiply(at.bigX().subtract(BigInteger.valueOf(ax[s]).multiply(W))));
+        }
+
+        // Stable merge sort of the indices in idx by point (x[i], y[i])
+        private void sortByPoint(int[] idx, int[] x, int[] y, int n) {
+            int[] src = idx, dst = scratch;
+            for (int width = 1; width < n; width <<= 1) {
+                for (int lo = 0; lo < n; lo += width << 1) {
+                    int mid = Math.min(lo + width, n), hi = Math.min(lo + (width << 1), n);
+                    int a = lo, b = mid, k = lo;
+                    while (a < mid && b < hi) {
+                        int p = src[a], q = src[b];
+                        dst[k++] = x[q] < x[p] || (x[q] == x[p] && y[q] < y[p]) ? src[b++] : src[a++];
+                    }
+                    while (a < mid) dst[k++] = src[a++];
+                    while (b < hi) dst[k++] = src[b++];
+                }
+                int[] t = src;
+                src = dst;
+                dst = t;
+            }
+            if (src != idx) System.arraycopy(src, 0, idx, 0, n);
+        }
+
+        private void ensureCapacity(int n) {
+            if (ax.length < n) {
+                ax = new int[n];
+                ay = new int[n];
+                bx = new int[n];
+                by = new int[n];
+                starts = new int[n];
+                ends = new int[n];
+                scratch = new int[n];
+                mark = new int[n];
+                stamp = 0;
+            }
+        }
+    }
+
+    // Intersection points with the segments through each: point i is
+    // (xs[i], ys[i]) and its segments are segments[offsets[i] .. offsets[i + 1]),
+    // in ascending index order
+    static final class Intersections implements IntersectionSink {
+        int count;
+        double[] xs = new double[16], ys = new double[16];
+        int[] offsets = new int[17], segments = new int[32];
+
+        @Override
+        public void point(double x, double y, int[] segs, int m) {
+            if (count + 1 == offsets.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            }
+            int base = offsets[count];
+            if (base + m > segments.length) segments = Arrays.copyOf(segments, Math.max(segments.length * 2, base + m));
+            System.arraycopy(segs, 0, segments, base, m);
+            xs[count] = x;
+            ys[count] = y;
+            offsets[++count] = base + m;
+        }
+
+        // Distinct intersecting pairs i < j as i << 32 | j, ascending. Segments
+        // that overlap share several points but give one pair.
+        long[] pairs() {
+            PairSet set = new PairSet();
+            for (int p = 0; p < count; p++) {
+                for (int a = offsets[p]; a < offsets[p + 1]; a++)
+                    for (int b = a + 1; b < offsets[p + 1]; b++) set.add((long) segments[a] << 32 | segments[b]);
+            }
+            return set.toSortedArray();
+        }
+    }
+
+    // Receives intersection points as the sweep finds them. segs[0 .. m) are the
+    // segments through (x, y) in ascending order; the array is reused after the
+    // call returns.
+    interface IntersectionSink {
+        void point(double x, double y, int[] segs, int m);
+    }
+
+    // A sink that also follows the status. After each event point, segs[0 .. m)
+    // are the segments that go on past it, bottom to top just right of it, and
+    // below is the active segment just under them (-1 for none). Collinear
+    // overlapping segments sit next to each other in any fixed order.
+    interface StatusSink extends IntersectionSink {
+        void continuing(int below, int[] segs, int m);
+    }
+
+    // Growable buffer of index pairs, plus the point where each pair meets when
+    // built with points. Pair k is (first(k), second(k)).
+    static final class IntPairBuffer {
+        private int[] pairs = new int[32];
+        private double[] points; // x, y per pair, or null
+        private int size;
+
+        IntPairBuffer(boolean withPoints) {
+            if (withPoints) points = new double[32];
+        }
+
+        void add(int i, int j, double x, double y) {
+            if (2 * size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, 4 * size);
+                if (points != null) points = Arrays.copyOf(points, 4 * size);
+            }
+            pairs[2 * size] = i;
+            pairs[2 * size + 1] = j;
+            if (points != null) {
+                points[2 * size] = x;
+                points[2 * size + 1] = y;
+            }
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int first(int k) {
+            return pairs[2 * k];
+        }
+
+        int second(int k) {
+            return pairs[2 * k + 1];
+        }
+
+        double x(int k) {
+            return points[2 * k];
+        }
+
+        double y(int k) {
+            return points[2 * k + 1];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    // Open-addressing hash set of pair keys i << 32 | j (both >= 0), with linear
+    // probing at load <= 1/2 and -1 marking empty slots
+    static final class PairSet {
+        private long[] slots = new long[16];
+        private int size;
+
+        PairSet() {
+            Arrays.fill(slots, -1);
+        }
+
+        boolean add(long key) {
+            if (2 * (size + 1) > slots.length) grow();
+            int mask = slots.length - 1;
+            for (int s = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask; ; s = (s + 1) & mask) {
+                if (slots[s] == key) return false;
+                if (slots[s] < 0) {
+                    slots[s] = key;
+                    size++;
+                    return true;
+                }
+            }
+        }
+
+        void addAll(PairSet other) {
+            for (long key : other.slots) if (key >= 0) add(key);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] toSortedArray() {
+            long[] keys = new long[size];
+            int k = 0;
+            for (long key : slots) if (key >= 0) keys[k++] = key;
+            Arrays.sort(keys);
+            return keys;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            Arrays.fill(slots, -1);
+            size = 0;
+            for (long key : old) if (key >= 0) add(key);
+        }
+    }
+
+    // Broad phase for dense inputs with many crossings, where the sweep pays
+    // log n per crossing. A uniform grid, with cells about one median segment
+    // box across, sized by the segments alone: only occupied cells exist,
+    // found through a hash table of cell coordinates, so a far-away segment
+    // adds a cell instead of stretching every cell. Every segment goes into
+    // each cell its bounding box touches. Only segments
+    // sharing a cell can meet, so each cell tests just its own pairs: boxes
+    // first, then intersect. Cells are split into ranges run as ForkJoin tasks,
+    // each collecting pairs in its own PairSet. Pairs whose boxes share several
+    // cells turn up once per cell and merge away. The result is the sweep's pair
+    // list, Intersections.pairs(). Long segments that span many cells are the
+    // sweep's case: each of them is tested against everything it passes.
+    //
+    // With metrics on, each call publishes its grid size and cell entries, the
+    // fullest cell, the pairs whose boxes overlap (each tested exactly), and the
+    // time to bin, to test the cells and to merge the parts.
+    static final class GridBroadPhase {
+        private static final Metrics.Counter SEGMENTS = Metrics.counter("grid.segments");
+        private static final Metrics.Counter CELLS = Metrics.counter("grid.cells");
+        private static final Metrics.Counter ENTRIES = Metrics.counter("grid.entries");
+        private static final Metrics.Counter TESTS = Metrics.counter("grid.exact.tests");
+        private static final Metrics.Peak FULLEST = Metrics.peak("grid.cell.peak");
+        private static final Metrics.Timer BIN = Metrics.timer("grid.bin");
+        private static final Metrics.Timer TEST = Metrics.timer("grid.test");
+        private static final Metrics.Timer MERGE = Metrics.timer("grid.merge");
+
+        private final ForkJoinPool pool;
+
+        GridBroadPhase(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        // Distinct intersecting pairs i < j as i << 32 | j, ascending
+        long[] pairs(int[] x1, int[] y1, int[] x2, int[] y2, int n) {
+            if (n < 2) return new long[0];
+            long t = Metrics.start();
+
+            // Step 1: grid side from the median box extent (of up to 1024
+            // segments spread over the input), doubled up to three times while
+            // the segments' low corners fill more than n / 2 cells, as sparse
+            // cells cost more to visit than they save, then while there would
+            // be more than 16n entries or 2^31 cells a side
+            long x0 = Long.MAX_VALUE, y0 = Long.MAX_VALUE, xe = Long.MIN_VALUE, ye = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                x0 = Math.min(x0, Math.min(x1[i], x2[i]));
+                y0 = Math.min(y0, Math.min(y1[i], y2[i]));
+                xe = Math.max(xe, Math.max(x1[i], x2[i]));
+                ye = Math.max(ye, Math.max(y1[i], y2[i]));
             }
+            long[] sample = new long[Math.min(n, 1024)];
+            for (int k = 0; k < sample.length; k++) {
+                int i = (int) ((long) k * n / sample.length);
+                sample[k] = Math.max(Math.abs((long) x2[i] - x1[i]), Math.abs((long) y2[i] - y1[i]));
+            }
+            Arrays.sort(sample);
+            long side = Math.max(1, sample[sample.length / 2]);
+            for (int k = 0; k < 3 && lowCells(x1, y1, x2, y2, n, x0, y0, side) > n / 2; k++) side *= 2;
+            while ((xe - x0) / side >= 1L << 31 || (ye - y0) / side >= 1L << 31
+                || entries(x1, y1, x2, y2, n, x0, y0, side) > 16L * n + 1024) side *= 2;
+
+            // Step 2: counting sort of (cell, segment) entries, cells numbered
+            // as first met, with each segment's box copied next to its index
+            CellTable table = new CellTable();
+            int[] count = new int[16];
+            for (int i = 0; i < n; i++) {
+                long cx0 = (Math.min(x1[i], x2[i]) - x0) / side, cx1 = (Math.max(x1[i], x2[i]) - x0) / side;
+                long cy0 = (Math.min(y1[i], y2[i]) - y0) / side, cy1 = (Math.max(y1[i], y2[i]) - y0) / side;
+                for (long gy = cy0; gy <= cy1; gy++) {
+                    for (long gx = cx0; gx <= cx1; gx++) {
+                        int c = table.idOf(gy << 32 | gx);
+                        if (c == count.length) count = Arrays.copyOf(count, 2 * c);
+                        count[c]++;
+                    }
+                }
+            }
+            int cells = table.size;
+            int[] start = new int[cells + 1];
+            for (int c = 0; c < cells; c++) start[c + 1] = start[c] + count[c];
+            int m = start[cells];
+            int[] seg = new int[m], lx = new int[m], ly = new int[m], hx = new int[m], hy = new int[m];
+            int[] fill = Arrays.copyOf(start, cells);
+            for (int i = 0; i < n; i++) {
+                int minX = Math.min(x1[i], x2[i]), maxX = Math.max(x1[i], x2[i]);
+                int minY = Math.min(y1[i], y2[i]), maxY = Math.max(y1[i], y2[i]);
+                long cx0 = (minX - x0) / side, cx1 = (maxX - x0) / side;
+                long cy0 = (minY - y0) / side, cy1 = (maxY - y0) / side;
+                for (long gy = cy0; gy <= cy1; gy++) {
+                    for (long gx = cx0; gx <= cx1; gx++) {
+                        int k = fill[table.idOf(gy << 32 | gx)]++;
+                        seg[k] = i;
+                        lx[k] = minX;
+                        ly[k] = minY;
+                        hx[k] = maxX;
+                        hy[k] = maxY;
+                    }
+                }
+            }
+
+            if (Metrics.ENABLED) t = BIN.lap(t);
+
+            // Step 3: pairs within each cell, cell ranges in parallel
+            List<PairSet> parts = Collections.synchronizedList(new ArrayList<>());
+            int chunk = Math.max(256, cells / (pool.getParallelism() * 8));
+            pool.invoke(new Ranges(0, cells, chunk, (lo, hi) -> {
+                PairSet found = new PairSet();
+                long tests = 0;
+                int fullest = 0;
+                for (int c = lo; c < hi; c++) {
+                    if (Metrics.ENABLED) fullest = Math.max(fullest, start[c + 1] - start[c]);
+                    for (int a = start[c]; a < start[c + 1]; a++) {
+                        int i = seg[a];
+                        for (int b = a + 1; b < start[c + 1]; b++) {
+                            if (lx[b] > hx[a] || lx[a] > hx[b] || ly[b] > hy[a] || ly[a] > hy[b]) continue;
+                            int j = seg[b];
+                            if (Metrics.ENABLED) tests++;
+                            if (intersect(x1[i], y1[i], x2[i], y2[i], x1[j], y1[j], x2[j], y2[j]))
+                                found.add(i < j ? (long) i << 32 | j : (long) j << 32 | i);
+                        }
+                    }
+                }
+                if (Metrics.ENABLED) {
+                    TESTS.add(tests);
+                    FULLEST.record(fullest);
+                }
+                parts.add(found);
+            }));
+            if (Metrics.ENABLED) t = TEST.lap(t);
+
+            // Step 4: merge into the largest part
+            PairSet all = parts.get(0);
+            for (PairSet part : parts) if (part.size() > all.size()) all = part;
+            for (PairSet part : parts) if (part != all) all.addAll(part);
+            long[] pairs = all.toSortedArray();
+            if (Metrics.ENABLED) {
+                SEGMENTS.add(n);
+                CELLS.add(cells);
+                ENTRIES.add(m);
+                MERGE.lap(t);
+            }
+            return pairs;
         }
 
-        List<Event> events = new ArrayList<>();
-        for (Segment s : segments) {
-            events.add(new Event(Math.min(s.x1, s.x2), 'L', s)); // left endpoint
-            events.add(new Event(Math.max(s.x1, s.x2), 'R', s)); // right endpoint
+        // Number of cells holding some segment's low corner for the given side
+        private static int lowCells(int[] x1, int[] y1, int[] x2, int[] y2, int n, long x0, long y0, long side) {
+            CellTable table = new CellTable();
+            for (int i = 0; i < n; i++)
+                table.idOf((Math.min(y1[i], y2[i]) - y0) / side << 32 | (Math.min(x1[i], x2[i]) - x0) / side);
+            return table.size;
         }
 
-        // Step 2: Sort events by x-coordinate
-        events.sort(Comparator.comparingInt(e -> e.x));
+        // Number of cell entries for the given side
+        private static long entries(int[] x1, int[] y1, int[] x2, int[] y2, int n, long x0, long y0, long side) {
+            long total = 0;
+            for (int i = 0; i < n; i++) {
+                long w = (Math.max(x1[i], x2[i]) - x0) / side - (Math.min(x1[i], x2[i]) - x0) / side + 1;
+                long h = (Math.max(y1[i], y2[i]) - y0) / side - (Math.min(y1[i], y2[i]) - y0) / side + 1;
+                total += w * h;
+            }
+            return total;
+        }
 
-        // Step 3: Active set storing segments currently intersecting sweep line
-        TreeMap<Double, Segment> active = new TreeMap<>();
-        List<String> result = new ArrayList<>();
+        // Open-addressing hash map from cell key (>= 0) to the order it was
+        // first seen in, with linear probing at load <= 1/2 and -1 marking
+        // empty slots
+        private static final class CellTable {
+            private long[] slots = new long[16];
+            private int[] ids = new int[16];
+            int size;
 
-        // Step 4: Process each event
-        for (Event e : events) {
-            double yMid = (e.seg.y1 + e.seg.y2) / 2.0;
+            CellTable() {
+                Arrays.fill(slots, -1);
+            }
 
-            if (e.type == 'L') { 
-                // Insert segment into active set
-                active.put(yMid, e.seg);
-                // Find neighbors (previous and next)
-                Map.Entry<Double, Segment> lower = active.lowerEntry(yMid);
-                Map.Entry<Double, Segment> higher = active.higherEntry(yMid);
+            int idOf(long key) {
+                int mask = slots.length - 1;
+                int i = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+                while (slots[i] != -1) {
+                    if (slots[i] == key) return ids[i];
+                    i = (i + 1) & mask;
+                }
+                if (2 * (size + 1) > slots.length) {
+                    grow();
+                    return idOf(key);
+                }
+                slots[i] = key;
+                ids[i] = size;
+                return size++;
+            }
+
+            private void grow() {
+                long[] old = slots;
+                int[] oldIds = ids;
+                slots = new long[2 * old.length];
+                ids = new int[2 * old.length];
+                Arrays.fill(slots, -1);
+                int mask = slots.length - 1;
+                for (int k = 0; k < old.length; k++) {
+                    if (old[k] == -1) continue;
+                    int i = (int) (old[k] * 0x9E3779B97F4A7C15L >>> 40) & mask;
+                    while (slots[i] != -1) i = (i + 1) & mask;
+                    slots[i] = old[k];
+                    ids[i] = oldIds[k];
+                }
+            }
+        }
+
+        interface RangeBody {
+            void run(int lo, int hi);
+        }
+
+        // Splits [lo, hi) in halves down to the chunk size
+        @SuppressWarnings("serial") // never serialized
+        private static final class Ranges extends RecursiveAction {
+            private final int lo, hi, chunk;
+            private final RangeBody body;
+
+            Ranges(int lo, int hi, int chunk, RangeBody body) {
+                this.lo = lo;
+                this.hi = hi;
+                this.chunk = chunk;
+                this.body = body;
+            }
+
+            @Override
+            protected void compute() {
+                if (hi - lo <= chunk) {
+                    body.run(lo, hi);
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Ranges(lo, mid, chunk, body), new Ranges(mid, hi, chunk, body));
+            }
+        }
+    }
+
+    // Boolean operations offered by PolygonBoolean
+    enum BooleanOp {
+        INTERSECTION, // inside A and inside B
+        UNION,        // inside A or inside B
+        DIFFERENCE,   // inside A, not inside B
+        XOR;          // inside exactly one
+
+        boolean inside(boolean a, boolean b) {
+            switch (this) {
+                case INTERSECTION: return a && b;
+                case UNION: return a || b;
+                case DIFFERENCE: return a && !b;
+                default: return a != b;
+            }
+        }
+    }
 
-                // Check for intersection with immediate neighbors
-                if (lower != null && intersect(e.seg, lower.getValue()))
-                    result.add(format(e.seg, lower.getValue()));
-                if (higher != null && intersect(e.seg, higher.getValue()))
-                    result.add(format(e.seg, higher.getValue()));
-            } 
-            else {
-                // Remove segment from active set
-                Map.Entry<Double, Segment> lower = active.lowerEntry(yMid);
-                Map.Entry<Double, Segment> higher = active.higherEntry(yMid);
-                active.remove(yMid);
+    // Polygon rings as flat arrays: ring i is (xs[k], ys[k]) for k in
+    // offsets[i] .. offsets[i + 1]), closed implicitly
+    static final class Rings {
+        int count, size;
+        double[] xs = new double[16], ys = new double[16];
+        int[] offsets = new int[17];
 
-                // Check intersection between neighbors after removal
-                if (lower != null && higher != null && intersect(lower.getValue(), higher.getValue()))
-                    result.add(format(lower.getValue(), higher.getValue()));
+        void add(double x, double y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
             }
+            xs[size] = x;
+            ys[size++] = y;
         }
 
+        // Ends the ring started by the points added since the last one
+        void close() {
+            if (count + 1 == offsets.length) offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            offsets[++count] = size;
+        }
+
+        // Sum of the signed ring areas: the area enclosed when outer rings run
+        // counterclockwise and holes clockwise
+        double area() {
+            double sum = 0;
+            for (int r = 0; r < count; r++) {
+                int a = offsets[r], b = offsets[r + 1];
+                for (int k = a, j = b - 1; k < b; j = k++) sum += (xs[j] - xs[k]) * (ys[j] + ys[k]);
+            }
+            return sum / 2;
+        }
+    }
+
+    // Boolean operations on polygons with integer vertices within +-2^30. A
+    // polygon is a set of rings in flat arrays, ring i being (xs[k], ys[k]) for
+    // k in rings[i] .. rings[i + 1]), closed implicitly. Its inside is the
+    // even-odd fill of all its rings, so holes need no orientation and rings
+    // may cross themselves and each other.
+    //
+    // One sweep over the edges of both polygons does the work. Every event
+    // point where edges meet is an output vertex, and it splits the edges
+    // through it, so the pieces meet only at their ends. Right after the point
+    // the status order tells, for each piece, whether the region above it is
+    // inside A and inside B: the answer above the piece below it, with the
+    // piece's own polygon flipped. Overlapping edges of A and B form one piece
+    // and flip both. A piece is kept when the operation differs above and
+    // below it, directed so the result lies on its left (the Martinez-Rueda
+    // selection rule). Linking the kept pieces, taking the sharpest left turn
+    // at each vertex, closes the rings.
+    //
+    // Splitting and classifying are the sweep's decisions, so exact. Only
+    // crossing points are rounded, to the doubles the sweep reports, and the
+    // turn at a vertex where rings touch is taken on those. Outer rings run
+    // counterclockwise and holes clockwise, rings touch at most at vertices,
+    // and vertices inside a straight run are dropped. Buffers grow once and
+    // are reused, so keep one engine per thread.
+    //
+    // With metrics on, each call publishes its edges, output vertices, kept
+    // pieces and rings, and the time spent sweeping and linking.
+    static final class PolygonBoolean implements StatusSink {
+        private static final Metrics.Counter EDGES = Metrics.counter("boolean.edges");
+        private static final Metrics.Counter VERTICES = Metrics.counter("boolean.vertices");
+        private static final Metrics.Counter KEPT = Metrics.counter("boolean.pieces.kept");
+        private static final Metrics.Counter RINGS = Metrics.counter("boolean.rings");
+        private static final Metrics.Timer SWEEP = Metrics.timer("boolean.sweep");
+        private static final Metrics.Timer LINK = Metrics.timer("boolean.link");
+
+        // Per edge state: the region above its current piece is inside A (bit 0)
+        // and inside B (bit 1); the piece is kept (bit 2), left to right (bit 3)
+        private static final int IN_A = 1, IN_B = 2, KEEP = 4, FORWARD = 8;
+
+        private final IntersectionSweep sweep = new IntersectionSweep();
+        private int[] x1 = new int[0], y1 = x1, x2 = x1, y2 = x1; // edges of A, then of B
+        private int[] from = x1;   // vertex where the edge's current piece starts, -1 before it starts
+        private byte[] state = new byte[0];
+        private int edgesA;
+        private BooleanOp op;
+        private double[] vx = new double[16], vy = new double[16]; // output vertices
+        private int vertices;
+        private int[] tail = new int[16], head = new int[16];      // kept pieces, directed
+        private int pieces;
+        private int[] first = x1, out = x1, ring = x1, seen = x1; // seen: position in the ring walked, or -1
+        private boolean[] used = new boolean[0];
+
+        // op applied to polygons A (ax, ay, aRings, ringsA rings) and B
+        Rings apply(BooleanOp op, int[] ax, int[] ay, int[] aRings, int ringsA,
+                    int[] bx, int[] by, int[] bRings, int ringsB) {
+            this.op = op;
+            ensureEdges(aRings[ringsA] + bRings[ringsB]);
+            int n = addEdges(ax, ay, aRings, ringsA, 0);
+            edgesA = n;
+            n = addEdges(bx, by, bRings, ringsB, n);
+            Arrays.fill(from, 0, n, -1);
+            vertices = pieces = 0;
+
+            long t = Metrics.start();
+            sweep.intersections(x1, y1, x2, y2, n, this);
+            if (Metrics.ENABLED) t = SWEEP.lap(t);
+            Rings result = link();
+            if (Metrics.ENABLED) {
+                LINK.lap(t);
+                EDGES.add(n);
+                VERTICES.add(vertices);
+                KEPT.add(pieces);
+                RINGS.add(result.count);
+            }
+            return result;
+        }
+
+        // The edges of each ring, zero length ones left out
+        private int addEdges(int[] xs, int[] ys, int[] rings, int count, int n) {
+            for (int r = 0; r < count; r++) {
+                int a = rings[r], b = rings[r + 1];
+                for (int k = a, j = b - 1; k < b; j = k++) {
+                    if (xs[j] == xs[k] && ys[j] == ys[k]) continue;
+                    x1[n] = xs[j];
+                    y1[n] = ys[j];
+                    x2[n] = xs[k];
+                    y2[n] = ys[k];
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        // A new vertex: the pieces that reach it end here
+        @Override
+        public void point(double x, double y, int[] segs, int m) {
+            if (vertices == vx.length) {
+                vx = Arrays.copyOf(vx, vertices * 2);
+                vy = Arrays.copyOf(vy, vertices * 2);
+            }
+            int v = vertices++;
+            vx[v] = x;
+            vy[v] = y;
+            for (int k = 0; k < m; k++) {
+                int s = segs[k], u = from[s];
+                if (u < 0 || (state[s] & KEEP) == 0) continue;
+                if ((state[s] & FORWARD) != 0) keep(u, v);
+                else keep(v, u);
+            }
+        }
+
+        // New pieces start at the last vertex, bottom to top. A run of
+        // overlapping edges is decided by its lowest one.
+        @Override
+        public void continuing(int below, int[] segs, int m) {
+            int v = vertices - 1;
+            int inside = below < 0 ? 0 : state[below] & (IN_A | IN_B);
+            for (int k = 0, j; k < m; k = j) {
+                int s = segs[k], above = inside ^ side(s);
+                for (j = k + 1; j < m && collinear(s, segs[j]); j++) above ^= side(segs[j]);
+                boolean in = op.inside((above & IN_A) != 0, (above & IN_B) != 0);
+                int decided = in != op.inside((inside & IN_A) != 0, (inside & IN_B) != 0) ? KEEP : 0;
+                if (in) decided |= FORWARD;
+                for (int i = k; i < j; i++) {
+                    state[segs[i]] = (byte) (i == k ? above | decided : above);
+                    from[segs[i]] = v;
+                }
+                inside = above;
+            }
+        }
+
+        private int side(int s) {
+            return s < edgesA ? IN_A : IN_B;
+        }
+
+        // Both go on to the right of the same point, so collinear means overlapping
+        private boolean collinear(int s, int t) {
+            return Predicates.orient(x1[s], y1[s], x2[s], y2[s], x1[t], y1[t]) == 0
+                && Predicates.orient(x1[s], y1[s], x2[s], y2[s], x2[t], y2[t]) == 0;
+        }
+
+        private void keep(int u, int v) {
+            if (pieces == tail.length) {
+                tail = Arrays.copyOf(tail, pieces * 2);
+                head = Arrays.copyOf(head, pieces * 2);
+            }
+            tail[pieces] = u;
+            head[pieces++] = v;
+        }
+
+        // Follows the kept pieces around each ring
+        private Rings link() {
+            // Step 1: pieces by tail vertex
+            if (first.length < vertices + 1) {
+                first = new int[vertices + 1];
+                seen = new int[vertices];
+            }
+            if (out.length < pieces) {
+                out = new int[pieces];
+                ring = new int[pieces];
+                used = new boolean[pieces];
+            }
+            Arrays.fill(first, 0, vertices + 1, 0);
+            Arrays.fill(used, 0, pieces, false);
+            for (int e = 0; e < pieces; e++) first[tail[e] + 1]++;
+            for (int v = 0; v < vertices; v++) first[v + 1] += first[v];
+            for (int e = 0; e < pieces; e++) out[first[tail[e]]++] = e;
+            for (int v = vertices; v > 0; v--) first[v] = first[v - 1];
+            first[0] = 0;
+
+            // Step 2: walk each ring from its first unused piece. Coming back to a
+            // vertex passed before (a hole touching the outer ring does) closes
+            // the loop since then as a ring of its own, so every ring is simple.
+            Rings result = new Rings();
+            Arrays.fill(seen, 0, vertices, -1);
+            for (int start = 0; start < pieces; start++) {
+                if (used[start]) continue;
+                int len = 0, e = start;
+                do {
+                    used[e] = true;
+                    int v = tail[e], k = seen[v];
+                    if (k >= 0) {
+                        emit(result, k, len);
+                        while (len > k + 1) seen[ring[--len]] = -1;
+                    } else {
+                        seen[v] = len;
+                        ring[len++] = v;
+                    }
+                    e = next(e, start);
+                } while (e != start);
+                emit(result, 0, len);
+                while (len > 0) seen[ring[--len]] = -1;
+            }
+            return result;
+        }
+
+        // Adds ring[a .. b) as a ring, less the vertices in the middle of a
+        // straight run
+        private void emit(Rings result, int a, int b) {
+            int kept = result.size;
+            for (int k = a; k < b; k++) {
+                int p = ring[k == a ? b - 1 : k - 1], v = ring[k], q = ring[k == b - 1 ? a : k + 1];
+                if (Predicates.orient2d(vx[p], vy[p], vx[v], vy[v], vx[q], vy[q]) != 0) result.add(vx[v], vy[v]);
+            }
+            if (result.size - kept >= 3) result.close();
+            else result.size = kept;
+        }
+
+        // The piece after e: of those leaving its head that are unused (or the
+        // ring's first), the first clockwise from the way back along e
+        private int next(int e, int start) {
+            int v = head[e], w = tail[e], best = -1;
+            for (int k = first[v]; k < first[v + 1]; k++) {
+                int f = out[k];
+                if (used[f] && f != start) continue;
+                if (best < 0 || clockwiseBefore(v, w, head[f], head[best])) best = f;
+            }
+            if (best < 0) throw new IllegalStateException("open ring at " + vx[v] + ", " + vy[v]);
+            return best;
+        }
+
+        // Turning clockwise from v -> w, v -> a comes before v -> b
+        private boolean clockwiseBefore(int v, int w, int a, int b) {
+            int ha = half(v, w, a), hb = half(v, w, b);
+            if (ha != hb) return ha < hb;
+            return Predicates.orient2d(vx[v], vy[v], vx[a], vy[a], vx[b], vy[b]) < 0;
+        }
+
+        // 0 clockwise of v -> w, 1 straight opposite, 2 counterclockwise, 3 along it
+        private int half(int v, int w, int a) {
+            int o = Predicates.orient2d(vx[v], vy[v], vx[w], vy[w], vx[a], vy[a]);
+            if (o != 0) return o < 0 ? 0 : 2;
+            boolean along = Math.signum(vx[a] - vx[v]) == Math.signum(vx[w] - vx[v])
+                && Math.signum(vy[a] - vy[v]) == Math.signum(vy[w] - vy[v]);
+            return along ? 3 : 1;
+        }
+
+        private void ensureEdges(int n) {
+            if (x1.length < n) {
+                x1 = new int[n];
+                y1 = new int[n];
+                x2 = new int[n];
+                y2 = new int[n];
+                from = new int[n];
+                state = new byte[n];
+            }
+        }
+    }
+
+    // Adapter for the original entry point: the intersecting pairs, as indices
+    // into the list, in the order the sweep meets them
+    static IntPairBuffer lineSweep(List<Segment> segments) {
+        int n = segments.size();
+        int[] x1 = new int[n], y1 = new int[n], x2 = new int[n], y2 = new int[n];
+        for (int i = 0; i < n; i++) {
+            Segment s = segments.get(i);
+            x1[i] = s.x1;
+            y1[i] = s.y1;
+            x2[i] = s.x2;
+            y2[i] = s.y2;
+        }
+        IntPairBuffer result = new IntPairBuffer(false);
+        new IntersectionSweep().pairs(x1, y1, x2, y2, n, result);
         return result;
     }
 
@@ -124,8 +2038,440 @@ public class LineSweepIntersection {
                ") intersects with (" + s2.x1 + "," + s2.y1 + ")-(" + s2.x2 + "," + s2.y2 + ")";
     }
 
+    // Headless run: batch [--grid] <segments> [out]
+    // Reads x1 y1 x2 y2 records (binary or text, "-" for stdin) and writes one
+    // line per intersection point: x y and the indices of the segments through it.
+    // With --grid it runs the grid broad phase and writes the pairs: i j.
+    // batch --boolean runs a polygon Boolean operation instead, see booleanBatch.
+    static void batch(String[] args) throws IOException {
+        if (args.length > 1 && args[1].equals("--boolean")) {
+            booleanBatch(args);
+            return;
+        }
+        boolean grid = args.length > 1 && args[1].equals("--grid");
+        int first = grid ? 2 : 1;
+        if (args.length < first + 1 || args.length > first + 2)
+            throw new IllegalArgumentException("usage: batch [--grid] <segments> [out]");
+        PointIO.Table t = PointIO.read(args[first]);
+        t.requireColumns(4);
+        String out = args.length == first + 2 ? args[first + 1] : "-";
+        if (grid) {
+            long[] pairs = new GridBroadPhase(ForkJoinPool.commonPool())
+                .pairs(t.intColumn(0), t.intColumn(1), t.intColumn(2), t.intColumn(3), t.n);
+            try (PointIO.Writer w = PointIO.Writer.open(out)) {
+                for (long pair : pairs) w.num(pair >>> 32).sep().num((int) pair).newline();
+            }
+            return;
+        }
+
+        // Points go out as the sweep finds them, nothing is kept
+        try (PointIO.Writer w = PointIO.Writer.open(out)) {
+            new IntersectionSweep().intersections(t.intColumn(0), t.intColumn(1), t.intColumn(2), t.intColumn(3), t.n,
+                (x, y, segs, m) -> {
+                    try {
+                        w.num(x).sep().num(y);
+                        for (int k = 0; k < m; k++) w.sep().num(segs[k]);
+                        w.newline();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Headless Boolean operation: batch --boolean <op> <a> <b> [out]
+    // Polygons are ring x y records, a ring being a run of records with the same
+    // ring number. The result goes out the same way, with double coordinates.
+    private static void booleanBatch(String[] args) throws IOException {
+        if (args.length < 5 || args.length > 6)
+            throw new IllegalArgumentException("usage: batch --boolean <intersection|union|difference|xor> <a> <b> [out]");
+        BooleanOp op = BooleanOp.valueOf(args[2].toUpperCase(Locale.ROOT));
+        int[][] a = readPolygon(args[3]), b = readPolygon(args[4]);
+        Rings r = new PolygonBoolean().apply(op, a[0], a[1], a[2], a[2].length - 1, b[0], b[1], b[2], b[2].length - 1);
+        try (PointIO.Writer w = PointIO.Writer.open(args.length == 6 ? args[5] : "-")) {
+            for (int i = 0; i < r.count; i++) {
+                for (int k = r.offsets[i]; k < r.offsets[i + 1]; k++) w.num(i).sep().num(r.xs[k]).sep().num(r.ys[k]).newline();
+            }
+        }
+    }
+
+    // {xs, ys, rings} from ring x y records
+    private static int[][] readPolygon(String path) throws IOException {
+        PointIO.Table t = PointIO.read(path);
+        t.requireColumns(3);
+        int[] id = t.intColumn(0);
+        int[] rings = new int[t.n + 1];
+        int count = 0;
+        for (int i = 1; i <= t.n; i++) if (i == t.n || id[i] != id[i - 1]) rings[++count] = i;
+        return new int[][]{t.intColumn(1), t.intColumn(2), Arrays.copyOf(rings, count + 1)};
+    }
+
+    // Random inputs, degenerate ones included, up to the whole int range (range
+    // 0): the sweep and the grid must both find exactly the pairs brute force
+    // finds. Returns the number of failures.
+    static int selfCheck(PrintWriter pw, int cases) {
+        IntersectionSweep sweep = new IntersectionSweep();
+        IntPairBuffer pairs = new IntPairBuffer(true);
+        GridBroadPhase grid = new GridBroadPhase(ForkJoinPool.commonPool());
+        int failures = 0;
+        for (int c = 0; c < cases; c++) {
+            Random rnd = new Random(c);
+            int n = 1 + rnd.nextInt(c % 10 == 0 ? 1000 : 40);
+            int range = new int[]{3, 6, 20, 1000, 1 << 30, 0}[c % 6];
+            int[] x1 = new int[n], y1 = new int[n], x2 = new int[n], y2 = new int[n];
+            for (int i = 0; i < n; i++) {
+                x1[i] = range == 0 ? rnd.nextInt() : (int) (rnd.nextLong() % range);
+                y1[i] = range == 0 ? rnd.nextInt() : (int) (rnd.nextLong() % range);
+                x2[i] = range == 0 ? rnd.nextInt() : (int) (rnd.nextLong() % range);
+                y2[i] = range == 0 ? rnd.nextInt() : (int) (rnd.nextLong() % range);
+                if (rnd.nextInt(6) == 0) x2[i] = x1[i]; // vertical
+                if (rnd.nextInt(6) == 0) y2[i] = y1[i]; // horizontal, or a point
+                if (i > 0 && rnd.nextInt(10) == 0) {    // shared endpoint
+                    int k = rnd.nextInt(i);
+                    x1[i] = x2[k];
+                    y1[i] = y2[k];
+                }
+            }
+            if (c % 15 == 3) { // short segments, the last one far out
+                x1[n - 1] = x2[n - 1] = Integer.MAX_VALUE - rnd.nextInt(4);
+                y1[n - 1] = Integer.MIN_VALUE + rnd.nextInt(4);
+                y2[n - 1] = Integer.MAX_VALUE - rnd.nextInt(4);
+            }
+            PairSet brute = new PairSet();
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (intersect(x1[i], y1[i], x2[i], y2[i], x1[j], y1[j], x2[j], y2[j])) brute.add((long) i << 32 | j);
+                }
+            }
+            long[] expect = brute.toSortedArray();
+            pairs.clear();
+            sweep.pairs(x1, y1, x2, y2, n, pairs);
+            long[] streamed = new long[pairs.size()];
+            for (int k = 0; k < streamed.length; k++) streamed[k] = (long) pairs.first(k) << 32 | pairs.second(k);
+            Arrays.sort(streamed);
+            if (!Arrays.equals(expect, sweep.intersections(x1, y1, x2, y2, n).pairs())
+                || !Arrays.equals(expect, streamed)
+                || !Arrays.equals(expect, grid.pairs(x1, y1, x2, y2, n))) {
+                failures++;
+                pw.printf("case %d (n=%d, range %d): intersecting pairs differ%n", c, n, range);
+            }
+        }
+        pw.printf("%d of %d cases passed%n", cases - failures, cases);
+        pw.flush();
+        return failures;
+    }
+
+    // Random polygon pairs, degenerate ones included: for every operation,
+    // sample points must fall inside the result exactly when the operation
+    // says so, no ring may pass a vertex twice, no edge may show up twice,
+    // and the areas must add up (|A u B| + |A n B| = |A| + |B|,
+    // |A - B| + |A n B| = |A|, |A xor B| = |A u B| - |A n B|). Returns the
+    // number of failures.
+    static int booleanCheck(PrintWriter pw, int cases) {
+        PolygonBoolean engine = new PolygonBoolean();
+        int[] empty = {0};
+        int failures = 0;
+        for (int c = 0; c < cases; c++) {
+            Random rnd = new Random(c);
+            int range = new int[]{3, 6, 20, 1000, 1 << 30}[c % 5];
+            int size = c % 10 == 0 ? 60 : 12;
+            int[][] a = randomPolygon(rnd, range, size), b = c % 7 == 0 ? a : randomPolygon(rnd, range, size);
+            int ra = a[2].length - 1, rb = b[2].length - 1;
+            double[] adx = Bench.doubles(a[0], a[0].length), ady = Bench.doubles(a[1], a[1].length);
+            double[] bdx = Bench.doubles(b[0], b[0].length), bdy = Bench.doubles(b[1], b[1].length);
+            String problem = null;
+            double[] area = new double[BooleanOp.values().length];
+            for (BooleanOp op : BooleanOp.values()) {
+                Rings r = engine.apply(op, a[0], a[1], a[2], ra, b[0], b[1], b[2], rb);
+                area[op.ordinal()] = r.area();
+                Set<String> edges = new HashSet<>();
+                for (int i = 0; i < r.count && problem == null; i++) {
+                    Set<String> seen = new HashSet<>();
+                    for (int k = r.offsets[i], j = r.offsets[i + 1] - 1; k < r.offsets[i + 1]; j = k++) {
+                        if (!seen.add(r.xs[k] + " " + r.ys[k]))
+                            problem = op + " ring " + i + " passes (" + r.xs[k] + ", " + r.ys[k] + ") twice";
+                        boolean up = r.xs[j] < r.xs[k] || (r.xs[j] == r.xs[k] && r.ys[j] < r.ys[k]);
+                        int p = up ? j : k, q = up ? k : j;
+                        if (!edges.add(r.xs[p] + " " + r.ys[p] + " " + r.xs[q] + " " + r.ys[q]))
+                            problem = op + " has edge (" + r.xs[p] + ", " + r.ys[p] + ") - (" + r.xs[q] + ", " + r.ys[q] + ") twice";
+                    }
+                }
+                for (int k = 0; k < 100 && problem == null; k++) {
+                    double px = (rnd.nextDouble() * 2 - 1) * range, py = (rnd.nextDouble() * 2 - 1) * range;
+                    boolean expect = op.inside(inside(px, py, adx, ady, a[2], ra), inside(px, py, bdx, bdy, b[2], rb));
+                    if (inside(px, py, r.xs, r.ys, r.offsets, r.count) != expect)
+                        problem = op + " misplaces (" + px + ", " + py + ")";
+                }
+            }
+            double areaA = engine.apply(BooleanOp.UNION, a[0], a[1], a[2], ra, b[0], b[1], empty, 0).area();
+            double areaB = engine.apply(BooleanOp.UNION, b[0], b[1], b[2], rb, a[0], a[1], empty, 0).area();
+            double union = area[BooleanOp.UNION.ordinal()], common = area[BooleanOp.INTERSECTION.ordinal()];
+            double tol = 1e-9 * (areaA + areaB) + 1e-6;
+            if (problem == null && (Math.abs(union + common - areaA - areaB) > tol
+                || Math.abs(area[BooleanOp.DIFFERENCE.ordinal()] + common - areaA) > tol
+                || Math.abs(area[BooleanOp.XOR.ordinal()] - union + common) > tol))
+                problem = "areas do not add up";
+            if (problem != null) {
+                failures++;
+                pw.printf("case %d (range %d): %s%n", c, range, problem);
+            }
+        }
+        pw.printf("%d of %d polygon cases passed%n", cases - failures, cases);
+        pw.flush();
+        return failures;
+    }
+
+    // One to three rings of 3 .. size vertices as {xs, ys, rings}: random
+    // (so mostly self-crossing) or, one time in three, star-shaped
+    private static int[][] randomPolygon(Random rnd, int range, int size) {
+        int count = 1 + rnd.nextInt(3);
+        int[] rings = new int[count + 1];
+        for (int r = 0; r < count; r++) rings[r + 1] = rings[r] + 3 + rnd.nextInt(size - 2);
+        int n = rings[count];
+        int[] xs = new int[n], ys = new int[n];
+        for (int r = 0; r < count; r++) {
+            boolean star = rnd.nextInt(3) == 0;
+            long cx = rnd.nextLong() % range, cy = rnd.nextLong() % range;
+            int m = rings[r + 1] - rings[r];
+            for (int k = 0; k < m; k++) {
+                int i = rings[r] + k;
+                if (star) { // around (cx, cy) in angle order, clamped to the range
+                    double angle = 2 * Math.PI * (k + rnd.nextDouble()) / m, radius = rnd.nextDouble() * range;
+                    xs[i] = (int) Math.max(1 - range, Math.min(range - 1, Math.round(cx + Math.cos(angle) * radius)));
+                    ys[i] = (int) Math.max(1 - range, Math.min(range - 1, Math.round(cy + Math.sin(angle) * radius)));
+                } else {
+                    xs[i] = (int) (rnd.nextLong() % range);
+                    ys[i] = (int) (rnd.nextLong() % range);
+                }
+            }
+        }
+        return new int[][]{xs, ys, rings};
+    }
+
+    // Even-odd test of (px, py) against count rings
+    private static boolean inside(double px, double py, double[] xs, double[] ys, int[] rings, int count) {
+        boolean in = false;
+        for (int r = 0; r < count; r++) {
+            for (int k = rings[r], j = rings[r + 1] - 1; k < rings[r + 1]; j = k++) {
+                if ((ys[k] > py) == (ys[j] > py)) continue;
+                int o = Predicates.orient2d(xs[j], ys[j], xs[k], ys[k], px, py);
+                if ((o > 0) == (ys[k] > ys[j])) in = !in;
+            }
+        }
+        return in;
+    }
+
+    // Sweep against grid on n random segments. With similar lengths the grid
+    // wins at any density, and more so as crossings grow. A few segments
+    // spanning the whole box land in most cells and are tested against nearly
+    // everything, and there the sweep takes over.
+    static void benchmark(PrintWriter pw) {
+        int n = 1 << 17, box = 1 << 24;
+        for (int length = 1 << 10; length <= 1 << 17; length <<= 2) benchmark(pw, n, box, length, 0);
+        for (int spanning = 1 << 4; spanning <= 1 << 8; spanning <<= 2) benchmark(pw, n, box, 1 << 12, spanning);
+        for (String workload : OVERLAYS) benchmarkOverlay(pw, workload, n);
+    }
+
+    private static void benchmark(PrintWriter pw, int n, int box, int length, int spanning) {
+        Random rnd = new Random(42);
+        int[] x1 = new int[n], y1 = new int[n], x2 = new int[n], y2 = new int[n];
+        for (int i = 0; i < n; i++) {
+            x1[i] = rnd.nextInt(box);
+            y1[i] = rnd.nextInt(box);
+            double a = rnd.nextDouble() * 2 * Math.PI;
+            x2[i] = i < spanning ? rnd.nextInt(box) : x1[i] + (int) (length * Math.cos(a));
+            y2[i] = i < spanning ? rnd.nextInt(box) : y1[i] + (int) (length * Math.sin(a));
+        }
+        IntersectionSweep sweep = new IntersectionSweep();
+        IntPairBuffer pairs = new IntPairBuffer(false);
+        sweep.pairs(x1, y1, x2, y2, n, pairs); // also warms up
+        int k = pairs.size();
+        String name = spanning == 0 ? "length=" + length : "spanning=" + spanning;
+        pw.printf("%s: %d intersecting pairs%n", name, k);
+        int reps = 3;
+        long t0 = System.nanoTime();
+        for (int r = 0; r < reps; r++) {
+            pairs.clear();
+            sweep.pairs(x1, y1, x2, y2, n, pairs);
+        }
+        report(pw, "sweep " + name, n, reps, System.nanoTime() - t0);
+
+        // Grid scaling from 1 to all cores
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            GridBroadPhase grid = new GridBroadPhase(pool);
+            grid.pairs(x1, y1, x2, y2, n); // warm up
+            t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) grid.pairs(x1, y1, x2, y2, n);
+            report(pw, "grid x" + threads + " " + name, n, reps, System.nanoTime() - t0);
+            pool.shutdown();
+            if (threads == cores) break;
+        }
+        if (spanning > 0) return;
+
+        // One thread again, the segments renumbered along the Hilbert curve of
+        // their midpoints
+        SpatialOrder.hilbert(x1, y1, n); // warm up
+        t0 = System.nanoTime();
+        int[] mx = new int[n], my = new int[n];
+        for (int i = 0; i < n; i++) {
+            mx[i] = (int) (((long) x1[i] + x2[i]) >> 1);
+            my[i] = (int) (((long) y1[i] + y2[i]) >> 1);
+        }
+        int[] order = SpatialOrder.hilbert(mx, my, n);
+        int[] hx1 = SpatialOrder.permute(x1, order, n), hy1 = SpatialOrder.permute(y1, order, n);
+        int[] hx2 = SpatialOrder.permute(x2, order, n), hy2 = SpatialOrder.permute(y2, order, n);
+        report(pw, "hilbert sort " + name, n, 1, System.nanoTime() - t0);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        GridBroadPhase grid = new GridBroadPhase(pool);
+        grid.pairs(hx1, hy1, hx2, hy2, n);
+        t0 = System.nanoTime();
+        for (int r = 0; r < reps; r++) grid.pairs(hx1, hy1, hx2, hy2, n);
+        report(pw, "grid x1 hilbert " + name, n, reps, System.nanoTime() - t0);
+        pool.shutdown();
+    }
+
+    // Every operation on an overlay workload of n vertices, half in each polygon
+    private static void benchmarkOverlay(PrintWriter pw, String workload, int n) {
+        int[][] a = overlay(workload, n / 2, Bench.SEED, 0), b = overlay(workload, n / 2, Bench.SEED, 1);
+        int ra = a[2].length - 1, rb = b[2].length - 1;
+        PolygonBoolean engine = new PolygonBoolean();
+        for (BooleanOp op : BooleanOp.values()) {
+            Rings r = engine.apply(op, a[0], a[1], a[2], ra, b[0], b[1], b[2], rb); // also warms up
+            String name = op.name().toLowerCase(Locale.ROOT) + " " + workload;
+            pw.printf("%s: %d rings, %d vertices%n", name, r.count, r.size);
+            int reps = 3;
+            long t0 = System.nanoTime();
+            for (int k = 0; k < reps; k++) engine.apply(op, a[0], a[1], a[2], ra, b[0], b[1], b[2], rb);
+            report(pw, name, n, reps, System.nanoTime() - t0);
+        }
+    }
+
+    // Polygon overlay workloads, each a pair of polygons with about n vertices:
+    //   stars    two star-shaped rings around one centre, radii random, so the
+    //            boundaries cross about once per vertex
+    //   circles  two slightly jittered circles half a radius apart: long
+    //            boundaries that cross twice
+    //   tiles    a checkerboard of square rings and a copy shifted by a third of
+    //            a cell, the map overlay case: many rings, corners touching
+    static final String[] OVERLAYS = {"stars", "circles", "tiles"};
+
+    // Polygon `which` (0 or 1) of a workload as {xs, ys, rings}
+    static int[][] overlay(String workload, int n, long seed, int which) {
+        Random rnd = new Random(seed + which);
+        int c = Bench.BOX / 2, radius = Bench.BOX / 2 - 1;
+        int[] xs = new int[n], ys = new int[n];
+        switch (workload) {
+            case "stars":
+            case "circles":
+                boolean star = workload.equals("stars");
+                int shift = star ? 0 : (2 * which - 1) * radius / 4;
+                for (int i = 0; i < n; i++) {
+                    double a = 2 * Math.PI * (i + rnd.nextDouble()) / n;
+                    double r = star ? radius * (0.5 + 0.5 * rnd.nextDouble()) : radius / 2 + rnd.nextInt(16);
+                    xs[i] = (int) Math.round(c + shift + Math.cos(a) * r);
+                    ys[i] = (int) Math.round(c + Math.sin(a) * r);
+                }
+                return new int[][]{xs, ys, {0, n}};
+            case "tiles":
+                int cells = Math.max(1, n / 4), side = (int) Math.ceil(Math.sqrt(2.0 * cells)) + 1;
+                int step = Bench.BOX / (side + 1), dx = which * step / 3, dy = which * step / 5, count = 0;
+                int[] rings = new int[cells + 1];
+                for (int i = 0; i < side && count < cells; i++) {
+                    for (int j = i & 1; j < side && count < cells; j += 2) {
+                        int x = i * step + dx, y = j * step + dy, k = 4 * count;
+                        xs[k] = xs[k + 3] = x;
+                        xs[k + 1] = xs[k + 2] = x + step;
+                        ys[k] = ys[k + 1] = y;
+                        ys[k + 2] = ys[k + 3] = y + step;
+                        rings[++count] = k + 4;
+                    }
+                }
+                return new int[][]{xs, ys, Arrays.copyOf(rings, count + 1)};
+            default:
+                throw new IllegalArgumentException("unknown overlay workload " + workload);
+        }
+    }
+
+    // Standard suite: the sweep and the one-thread grid on every segment
+    // workload from 10^3 segments to max, then the grid from one thread to all
+    // cores at the largest size. Then intersection, union and difference on
+    // every overlay workload of as many vertices, half in each polygon.
+    static void suite(PrintWriter pw, int max) {
+        Bench.header(pw);
+        IntersectionSweep sweep = new IntersectionSweep();
+        IntPairBuffer pairs = new IntPairBuffer(false);
+        ForkJoinPool single = new ForkJoinPool(1);
+        GridBroadPhase serial = new GridBroadPhase(single);
+        int[] sizes = Bench.sizes(max);
+        for (String workload : Bench.SEGMENTS) {
+            for (int n : sizes) {
+                int[] x1 = new int[n], y1 = new int[n], x2 = new int[n], y2 = new int[n];
+                Bench.segments(workload, n, Bench.SEED, x1, y1, x2, y2);
+                Bench.measure(pw, "sweep", workload, n, () -> {
+                    pairs.clear();
+                    sweep.pairs(x1, y1, x2, y2, n, pairs);
+                    return pairs.size();
+                });
+                Bench.measure(pw, "grid", workload, n, () -> serial.pairs(x1, y1, x2, y2, n).length);
+                if (n < sizes[sizes.length - 1]) continue;
+                for (int threads : Bench.threads()) {
+                    ForkJoinPool pool = new ForkJoinPool(threads);
+                    GridBroadPhase grid = new GridBroadPhase(pool);
+                    Bench.measure(pw, "grid x" + threads, workload, n, () -> grid.pairs(x1, y1, x2, y2, n).length);
+                    pool.shutdown();
+                }
+            }
+        }
+        single.shutdown();
+        PolygonBoolean engine = new PolygonBoolean();
+        for (String workload : OVERLAYS) {
+            for (int n : sizes) {
+                int[][] a = overlay(workload, n / 2, Bench.SEED, 0), b = overlay(workload, n / 2, Bench.SEED, 1);
+                int ra = a[2].length - 1, rb = b[2].length - 1;
+                for (BooleanOp op : new BooleanOp[]{BooleanOp.INTERSECTION, BooleanOp.UNION, BooleanOp.DIFFERENCE}) {
+                    Bench.measure(pw, op.name().toLowerCase(Locale.ROOT), workload, n,
+                        () -> engine.apply(op, a[0], a[1], a[2], ra, b[0], b[1], b[2], rb).size);
+                }
+            }
+        }
+    }
+
+    static void report(PrintWriter pw, String name, int n, int reps, long nanos) {
+        double ms = nanos / 1e6 / reps;
+        pw.printf("%-28s %10.2f ms/run %10.2f Msegments/s%n", name, ms, n / ms / 1e3);
+        pw.flush();
+    }
+
     // Main driver method
     public static void main(String[] args) throws IOException {
+        if (Metrics.ENABLED) Metrics.export("segment-intersection");
+        if (args.length > 0 && args[0].equals("check")) {
+            PrintWriter pw = new PrintWriter(System.out);
+            int cases = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+            if (selfCheck(pw, cases) + booleanCheck(pw, cases) > 0) System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(new PrintWriter(System.out));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("suite")) {
+            suite(new PrintWriter(System.out), args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("convert")) {
+            PointIO.convert(args[1], args[2]);
+            return;
+        }
+
         // Input: list of line segments
         List<Segment> segments = Arrays.asList(
             new Segment(1, 1, 4, 4),
@@ -134,10 +2480,11 @@ public class LineSweepIntersection {
         );
 
         // Run Line Sweep algorithm
-        List<String> intersections = lineSweep(segments);
+        IntPairBuffer intersections = lineSweep(segments);
 
         // Print results
         System.out.println("Intersections found:");
-        for (String s : intersections) System.out.println(s);
+        for (int k = 0; k < intersections.size(); k++)
+            System.out.println(format(segments.get(intersections.first(k)), segments.get(intersections.second(k))));
     }
 }
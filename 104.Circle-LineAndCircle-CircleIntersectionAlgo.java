@@ -14,10 +14,846 @@
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.lang.Math;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.management.*;
 
 public class Main {
 
+    // Shared predicate kernel. Every algorithm file carries its own copy, cut down
+    // to the predicates it calls, so each file still runs on its own. Here that is
+    // the exact expansion arithmetic (Shewchuk) behind the tangency classification.
+    static final class Predicates {
+        private Predicates() {
+        }
+
+        static final double EPS = 0x1p-53;
+
+        private static int signum(double v) {
+            return v > 0 ? 1 : v < 0 ? -1 : 0;
+        }
+
+        // Exact expansion arithmetic. An expansion is a double[] of non-overlapping
+        // components in increasing magnitude whose sum is the exact value.
+        // These only run when a filter cannot decide, so they may allocate.
+
+        // a + b, a - b and a * b as exact two-component expansions
+        static double[] sum(double a, double b) {
+            double x = a + b, bv = x - a, av = x - bv;
+            return new double[]{(a - av) + (b - bv), x};
+        }
+
+        static double[] diff(double a, double b) {
+            return sum(a, -b);
+        }
+
+        static double[] product(double a, double b) {
+            double x = a * b;
+            return new double[]{Math.fma(a, b, -x), x};
+        }
+
+        static double[] sum(double[] e, double[] f) {
+            double[] h = e;
+            for (double b : f) h = grow(h, b);
+            return h;
+        }
+
+        static double[] mul(double[] e, double[] f) {
+            double[] h = {0};
+            for (double b : f) h = sum(h, scale(e, b));
+            return h;
+        }
+
+        static double[] negate(double[] e) {
+            double[] h = new double[e.length];
+            for (int i = 0; i < e.length; i++) h[i] = -e[i];
+            return h;
+        }
+
+        // Sign of an expansion: the sign of its largest component
+        static int sign(double[] e) {
+            return signum(e[e.length - 1]);
+        }
+
+        // e + b, dropping zero components
+        private static double[] grow(double[] e, double b) {
+            double[] h = new double[e.length + 1];
+            int k = 0;
+            double q = b;
+            for (double v : e) {
+                double x = q + v, bv = x - q, av = x - bv;
+                double err = (q - av) + (v - bv);
+                if (err != 0) h[k++] = err;
+                q = x;
+            }
+            if (q != 0 || k == 0) h[k++] = q;
+            return k == h.length ? h : Arrays.copyOf(h, k);
+        }
+
+        // e * b, dropping zero components
+        private static double[] scale(double[] e, double b) {
+            double[] h = new double[2 * e.length];
+            int k = 0;
+            double q = e[0] * b, err = Math.fma(e[0], b, -q);
+            if (err != 0) h[k++] = err;
+            for (int i = 1; i < e.length; i++) {
+                double p1 = e[i] * b, p0 = Math.fma(e[i], b, -p1);
+                double s = q + p0, bv = s - q, av = s - bv;
+                err = (q - av) + (p0 - bv);
+                if (err != 0) h[k++] = err;
+                q = p1 + s;
+                err = s - (q - p1);
+                if (err != 0) h[k++] = err;
+            }
+            if (q != 0 || k == 0) h[k++] = q;
+            return k == h.length ? h : Arrays.copyOf(h, k);
+        }
+    }
+
+    // Headless batch I/O. Every algorithm file carries its own copy of this class,
+    // trimmed to what it uses.
+    //
+    // Binary tables start with a 24-byte little-endian header: magic "GEOB", the
+    // column count, the element type (0 = int32, 1 = float64), a reserved zero word
+    // and the record count as a long. The columns follow one after another. Files are memory-mapped and
+    // each column is bulk-copied straight into a primitive array, no parsing.
+    // Anything without the magic is read as text: one record per line, numbers
+    // separated by spaces, tabs or commas, '#' starts a comment.
+    static final class PointIO {
+        static final int MAGIC = 0x424F4547; // "GEOB" read little-endian
+        static final int INT32 = 0, FLOAT64 = 1;
+        private static final int HEADER = 24;
+        private static final long WINDOW = 1 << 30; // bytes mapped at a time
+
+        // n records of `columns` values each, stored by column
+        static final class Table {
+            final int n, columns;
+            final int[][] ints;       // int32 tables
+            final double[][] doubles; // float64 tables
+
+            Table(int n, int[][] ints) {
+                this.n = n;
+                this.columns = ints.length;
+                this.ints = ints;
+                this.doubles = null;
+            }
+
+            Table(int n, double[][] doubles) {
+                this.n = n;
+                this.columns = doubles.length;
+                this.ints = null;
+                this.doubles = doubles;
+            }
+
+            double[] doubleColumn(int c) {
+                if (doubles != null) return doubles[c];
+                double[] col = new double[n];
+                for (int i = 0; i < n; i++) col[i] = ints[c][i];
+                return col;
+            }
+        }
+
+        // Reads a binary or text table; "-" reads text from stdin
+        static Table read(String path) throws IOException {
+            if (path.equals("-")) return readText(System.in);
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                if (ch.size() >= HEADER) {
+                    ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                    while (head.hasRemaining() && ch.read(head, head.position()) > 0) { }
+                    head.flip();
+                    if (head.getInt() == MAGIC) return readBinary(ch, head);
+                }
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                return readText(in);
+            }
+        }
+
+        private static Table readBinary(FileChannel ch, ByteBuffer head) throws IOException {
+            int columns = head.getInt(), type = head.getInt();
+            head.getInt(); // reserved
+            long count = head.getLong();
+            int width = type == INT32 ? 4 : 8;
+            if (columns <= 0 || (type != INT32 && type != FLOAT64) || count < 0 || count > Integer.MAX_VALUE - 8
+                    || ch.size() < HEADER + count * width * columns)
+                throw new IOException("corrupt GEOB header");
+            int n = (int) count;
+            long offset = HEADER;
+            if (type == INT32) {
+                int[][] cols = new int[columns][n];
+                for (int[] col : cols) {
+                    for (int done = 0; done < n; ) {
+                        int len = (int) Math.min(n - done, WINDOW / 4);
+                        ch.map(FileChannel.MapMode.READ_ONLY, offset, 4L * len)
+                          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(col, done, len);
+                        offset += 4L * len;
+                        done += len;
+                    }
+                }
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (double[] col : cols) {
+                for (int done = 0; done < n; ) {
+                    int len = (int) Math.min(n - done, WINDOW / 8);
+                    ch.map(FileChannel.MapMode.READ_ONLY, offset, 8L * len)
+                      .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(col, done, len);
+                    offset += 8L * len;
+                    done += len;
+                }
+            }
+            return new Table(n, cols);
+        }
+
+        // Line-oriented text reader over a byte buffer; numbers are parsed in place
+        static Table readText(InputStream in) throws IOException {
+            TextReader r = new TextReader(in);
+            double[] vals = new double[1024];
+            int count = 0, columns = -1, onLine = 0, line = 1;
+            boolean integral = true;
+            while (true) {
+                int c = r.peek();
+                if (c == -1 || c == '\n') {
+                    if (onLine > 0) {
+                        if (columns == -1) columns = onLine;
+                        else if (onLine != columns)
+                            throw new IOException("line " + line + ": expected " + columns + " values, got " + onLine);
+                    }
+                    onLine = 0;
+                    if (c == -1) break;
+                    r.skip();
+                    line++;
+                } else if (c == '#') {
+                    while (r.peek() != '\n' && r.peek() != -1) r.skip();
+                } else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+                    r.skip();
+                } else {
+                    if (count == vals.length) vals = Arrays.copyOf(vals, count * 2);
+                    double v = r.number(line);
+                    integral &= v == (int) v && !r.sawFraction;
+                    vals[count++] = v;
+                    onLine++;
+                }
+            }
+            if (columns == -1) return new Table(0, new int[0][0]);
+
+            int n = count / columns;
+            if (integral) {
+                int[][] cols = new int[columns][n];
+                for (int i = 0; i < count; i++) cols[i % columns][i / columns] = (int) vals[i];
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (int i = 0; i < count; i++) cols[i % columns][i / columns] = vals[i];
+            return new Table(n, cols);
+        }
+
+        private static final class TextReader {
+            private static final double[] POW10 = new double[23];
+            static {
+                POW10[0] = 1;
+                for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+            }
+
+            private final InputStream in;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] token = new byte[64];
+            private int pos, len;
+            boolean sawFraction;
+
+            TextReader(InputStream in) {
+                this.in = in;
+            }
+
+            int peek() throws IOException {
+                if (pos == len) {
+                    len = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (len <= 0) {
+                        len = 0;
+                        return -1;
+                    }
+                }
+                return buf[pos];
+            }
+
+            void skip() {
+                pos++;
+            }
+
+            // Decimal number; short ones are assembled exactly from an integer
+            // mantissa and a power of ten, the rest go through Double.parseDouble
+            double number(int line) throws IOException {
+                int t = 0, c;
+                while ((c = peek()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                        || (c >= '0' && c <= '9'))) {
+                    if (t == token.length) throw new IOException("line " + line + ": number too long");
+                    token[t++] = (byte) c;
+                    skip();
+                }
+                if (t == 0) throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+
+                int i = 0;
+                boolean neg = token[0] == '-';
+                if (token[0] == '-' || token[0] == '+') i++;
+                long mant = 0;
+                int digits = 0, exp = 0;
+                boolean any = false;
+                sawFraction = false;
+                for (; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                    if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; }
+                    else exp++;
+                }
+                if (i < t && token[i] == '.') {
+                    sawFraction = true;
+                    for (i++; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                        if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; exp--; }
+                    }
+                }
+                if (i < t && (token[i] == 'e' || token[i] == 'E')) {
+                    sawFraction = true;
+                    return slow(t, line);
+                }
+                if (!any || i != t) throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                if (digits <= 15 && exp >= -22 && exp <= 22) {
+                    double v = exp >= 0 ? mant * POW10[exp] : mant / POW10[-exp];
+                    return neg ? -v : v;
+                }
+                return slow(t, line);
+            }
+
+            private double slow(int t, int line) throws IOException {
+                try {
+                    return Double.parseDouble(new String(token, 0, t));
+                } catch (NumberFormatException e) {
+                    throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                }
+            }
+        }
+
+        // Writes a table as a binary GEOB file
+        static void writeBinary(Table t, String path) throws IOException {
+            int width = t.ints != null ? 4 : 8;
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(MAGIC).putInt(t.columns).putInt(t.ints != null ? INT32 : FLOAT64).putInt(0).putLong(t.n);
+                for (int c = 0; c < t.columns; c++) {
+                    for (int i = 0; i < t.n; i++) {
+                        if (buf.remaining() < width) {
+                            buf.flip();
+                            while (buf.hasRemaining()) ch.write(buf);
+                            buf.clear();
+                        }
+                        if (t.ints != null) buf.putInt(t.ints[c][i]);
+                        else buf.putDouble(t.doubles[c][i]);
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+        }
+
+        // Streaming text writer: numbers are formatted straight into a byte buffer
+        static final class Writer implements Closeable {
+            private final OutputStream out;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] digits = new byte[20];
+            private int pos;
+
+            Writer(OutputStream out) {
+                this.out = out;
+            }
+
+            // "-" writes to stdout
+            static Writer open(String path) throws IOException {
+                return new Writer(path.equals("-") ? System.out : Files.newOutputStream(Paths.get(path)));
+            }
+
+            Writer num(long v) throws IOException {
+                if (v == Long.MIN_VALUE) return text(Long.toString(v));
+                if (v < 0) {
+                    put('-');
+                    v = -v;
+                }
+                int k = 0;
+                do {
+                    digits[k++] = (byte) ('0' + v % 10);
+                    v /= 10;
+                } while (v != 0);
+                while (k > 0) put(digits[--k]);
+                return this;
+            }
+
+            // Integral values print as integers, others as Double.toString does,
+            // which reads back as the same double
+            Writer num(double v) throws IOException {
+                if (v == (long) v && Math.abs(v) < 1e15) return num((long) v);
+                return text(Double.toString(v));
+            }
+
+            Writer text(String s) throws IOException {
+                for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+                return this;
+            }
+
+            Writer sep() throws IOException {
+                put(' ');
+                return this;
+            }
+
+            Writer newline() throws IOException {
+                put('\n');
+                return this;
+            }
+
+            private void put(int b) throws IOException {
+                if (pos == buf.length) flush();
+                buf[pos++] = (byte) b;
+            }
+
+            void flush() throws IOException {
+                out.write(buf, 0, pos);
+                pos = 0;
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+                if (out != System.out) out.close();
+            }
+        }
+
+        // "convert <in> <out>": any readable table to a binary GEOB file
+        static void convert(String in, String out) throws IOException {
+            writeBinary(read(in), out);
+        }
+    }
+
+    // Space-filling-curve order for cache locality. Every algorithm file that
+    // uses it carries its own copy, trimmed to what it calls. Engines opt in by
+    // permuting their input with an order from here and mapping result indices
+    // back through it.
+    //
+    // Points are snapped to a 2^16 x 2^16 grid over their bounding square and
+    // keyed by Hilbert index. The keys are sorted by a three-pass LSD radix sort
+    // that carries the point index, so equal keys keep input order.
+    static final class SpatialOrder {
+        static final int BITS = 16;
+        private static final int RADIX = 11;
+
+        static int[] hilbert(double[] xs, double[] ys, int n) {
+            return sort(keys(xs, ys, n), n);
+        }
+
+        static double[] permute(double[] a, int[] order, int n) {
+            double[] b = new double[n];
+            for (int k = 0; k < n; k++) b[k] = a[order[k]];
+            return b;
+        }
+
+        // Hilbert index of grid cell (x, y), 0 <= x, y < 2^BITS, as an unsigned int.
+        // The usual loop rotates quadrant by quadrant and branches on every bit.
+        // Here the quadrant transforms of all 16 levels are composed as a prefix
+        // scan over bit masks in four rounds instead: same curve, no branches.
+        static int key(int x, int y) {
+            int a = x ^ y, b = 0xFFFF ^ a, c = 0xFFFF ^ (x | y), d = x & (y ^ 0xFFFF);
+            int pa = a | (b >>> 1), pb = (a >>> 1) ^ a;
+            int pc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c, pd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+            for (int s = 2; s <= 8; s <<= 1) {
+                a = pa;
+                b = pb;
+                c = pc;
+                d = pd;
+                pa = (a & (a >>> s)) ^ (b & (b >>> s));
+                pb = (a & (b >>> s)) ^ (b & ((a ^ b) >>> s));
+                pc ^= (a & (c >>> s)) ^ (b & (d >>> s));
+                pd ^= (b & (c >>> s)) ^ ((a ^ b) & (d >>> s));
+            }
+            a = pc ^ (pc >>> 1);
+            b = pd ^ (pd >>> 1);
+            int i0 = x ^ y, i1 = b | (0xFFFF ^ (i0 | a));
+            return spread(i1) << 1 | spread(i0);
+        }
+
+        // The low 16 bits of v moved to the even bit positions
+        private static int spread(int v) {
+            v = (v | v << 8) & 0x00FF00FF;
+            v = (v | v << 4) & 0x0F0F0F0F;
+            v = (v | v << 2) & 0x33333333;
+            return (v | v << 1) & 0x55555555;
+        }
+
+        private static long[] keys(double[] xs, double[] ys, int n) {
+            double minX = Double.POSITIVE_INFINITY, minY = minX, maxX = -minX, maxY = -minX;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            double side = Math.max(maxX - minX, maxY - minY);
+            double scale = side > 0 ? ((1 << BITS) - 1) / side : 0;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                int cx = (int) ((xs[i] - minX) * scale), cy = (int) ((ys[i] - minY) * scale);
+                keys[i] = (long) key(cx, cy) << 32 | i;
+            }
+            return keys;
+        }
+
+        // LSD radix sort on the unsigned high word, stable; returns the low words
+        private static int[] sort(long[] keys, int n) {
+            long[] buf = new long[n];
+            int[] count = new int[1 << RADIX];
+            for (int shift = 32; shift < 64; shift += RADIX) {
+                Arrays.fill(count, 0);
+                for (int i = 0; i < n; i++) count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++;
+                for (int b = 0, sum = 0; b < count.length; b++) {
+                    int c = count[b];
+                    count[b] = sum;
+                    sum += c;
+                }
+                for (int i = 0; i < n; i++) buf[count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++] = keys[i];
+                long[] t = keys;
+                keys = buf;
+                buf = t;
+            }
+            int[] order = new int[n];
+            for (int k = 0; k < n; k++) order[k] = (int) keys[k];
+            return order;
+        }
+    }
+
+    // Standard benchmark workloads and timing. Every algorithm file carries its own
+    // copy, trimmed to the workloads it runs, so the suites of all files share
+    // inputs and output format.
+    //
+    // Workloads are seeded, so a run can be repeated exactly; coordinates lie in
+    // [0, 2^28). A measurement warms up for half a second, then repeats the body
+    // for at least a second. It reports time per run, items per second, and heap
+    // allocated per item and per second summed over all live threads (what JMH's
+    // gc profiler reports). Sizes step by 10 from 10^3.
+    static final class Bench {
+        static final int BOX = 1 << 28;
+        static final long SEED = 42;
+        static final String[] POINTS = {"uniform", "clustered", "circle", "grid"};
+
+        interface Body {
+            long run(); // a checksum, so the work cannot be dropped
+        }
+
+        static int[] sizes(int max) {
+            int k = 0;
+            int[] sizes = new int[10];
+            for (long n = 1000; n <= max; n *= 10) sizes[k++] = (int) n;
+            return Arrays.copyOf(sizes, k);
+        }
+
+        // 1, 2, 4, .. up to and including the number of cores
+        static int[] threads() {
+            int cores = Runtime.getRuntime().availableProcessors(), k = 0;
+            int[] counts = new int[32];
+            for (int t = 1; ; t = Math.min(cores, t * 2)) {
+                counts[k++] = t;
+                if (t == cores) break;
+            }
+            return Arrays.copyOf(counts, k);
+        }
+
+        // n points of a workload:
+        //   uniform    anywhere in the box
+        //   clustered  64 tight Gaussian clusters
+        //   circle     on one circle, the worst case for hulls
+        //   grid       lattice points, so repeated, collinear and cocircular
+        static void points(String workload, int n, long seed, int[] xs, int[] ys) {
+            Random rnd = new Random(seed);
+            int side = (int) Math.ceil(Math.sqrt(n)), step = BOX / Math.max(1, side);
+            int[] cx = new int[64], cy = new int[64];
+            for (int c = 0; c < 64; c++) {
+                cx[c] = rnd.nextInt(BOX);
+                cy[c] = rnd.nextInt(BOX);
+            }
+            for (int i = 0; i < n; i++) {
+                switch (workload) {
+                    case "uniform":
+                        xs[i] = rnd.nextInt(BOX);
+                        ys[i] = rnd.nextInt(BOX);
+                        break;
+                    case "clustered":
+                        int c = rnd.nextInt(64);
+                        xs[i] = clamp(cx[c] + rnd.nextGaussian() * (BOX >> 10));
+                        ys[i] = clamp(cy[c] + rnd.nextGaussian() * (BOX >> 10));
+                        break;
+                    case "circle":
+                        double a = 2 * Math.PI * (i + rnd.nextDouble()) / n;
+                        xs[i] = clamp(BOX / 2 + Math.cos(a) * (BOX / 2 - 1));
+                        ys[i] = clamp(BOX / 2 + Math.sin(a) * (BOX / 2 - 1));
+                        break;
+                    case "grid":
+                        xs[i] = rnd.nextInt(side) * step;
+                        ys[i] = rnd.nextInt(side) * step;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown point workload " + workload);
+                }
+            }
+        }
+
+        static double[] doubles(int[] a, int n) {
+            double[] d = new double[n];
+            for (int i = 0; i < n; i++) d[i] = a[i];
+            return d;
+        }
+
+        static void header(PrintWriter pw) {
+            pw.printf("%-32s %-10s %9s %14s %16s %13s %12s%n", "benchmark", "workload", "n", "time", "throughput",
+                "allocated", "alloc rate");
+            pw.flush();
+        }
+
+        static void measure(PrintWriter pw, String name, String workload, int n, Body body) {
+            long sink = 0;
+            long end = System.nanoTime() + 500_000_000L;
+            do sink += body.run(); while (System.nanoTime() < end);
+            long runs = 0, bytes = allocated(), t0 = System.nanoTime(), nanos;
+            do {
+                sink += body.run();
+                runs++;
+            } while ((nanos = System.nanoTime() - t0) < 1_000_000_000L);
+            bytes = allocated() - bytes;
+            double ms = nanos / 1e6 / runs;
+            pw.printf("%-32s %-10s %9d %10.3f ms %10.2f Mitem/s %8.1f B/item %7.1f MB/s%n", name, workload, n, ms,
+                n / ms / 1e3, (double) bytes / runs / n, bytes / (nanos / 1e3));
+            if (sink == 42) pw.print("");
+            pw.flush();
+        }
+
+        // Bytes allocated so far by every live thread
+        private static long allocated() {
+            com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            long sum = 0;
+            for (long b : mx.getThreadAllocatedBytes(mx.getAllThreadIds())) sum += Math.max(b, 0);
+            return sum;
+        }
+
+        private static int clamp(double v) {
+            return (int) Math.max(0, Math.min(BOX - 1, Math.round(v)));
+        }
+    }
+
+    // Optional hot-path metrics. Every algorithm file carries its own copy of this
+    // class, trimmed to the kinds of metric it uses.
+    // They are off unless the JVM runs with -Dgeometry.metrics=true; ENABLED is
+    // a static final, so with it off the JIT drops every `if (Metrics.ENABLED)`
+    // block and the engines run as before. Engines count into locals or plain
+    // fields and publish once per call, so hot loops never touch shared state.
+    //
+    // Counters sum, peaks keep the largest value seen, and timers sum calls and
+    // nanoseconds per phase. All are striped (LongAdder, LongAccumulator), so any
+    // number of threads can publish at once. snapshot() reads them by name, and
+    // export() serves the same values as read-only attributes of the MBean
+    // geometry:type=Metrics,name=<engine>, and prints them to stderr on exit.
+    static final class Metrics {
+        static final boolean ENABLED = Boolean.getBoolean("geometry.metrics");
+        private static final Map<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+        private Metrics() {
+        }
+
+        static final class Counter {
+            private final LongAdder sum = new LongAdder();
+
+            void add(long v) {
+                sum.add(v);
+            }
+        }
+
+        static final class Peak {
+            private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+            void record(long v) {
+                max.accumulate(v);
+            }
+        }
+
+        static final class Timer {
+            private final LongAdder calls = new LongAdder(), nanos = new LongAdder();
+
+            // Adds the time since start and returns now, the start of the next phase
+            long lap(long start) {
+                long now = System.nanoTime();
+                calls.increment();
+                nanos.add(now - start);
+                return now;
+            }
+        }
+
+        static Counter counter(String name) {
+            return register(name, new Counter());
+        }
+
+        static Peak peak(String name) {
+            return register(name, new Peak());
+        }
+
+        static Timer timer(String name) {
+            return register(name, new Timer());
+        }
+
+        // Start of a timed phase, 0 when metrics are off
+        static long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        // Current values by name; a timer shows up as name.calls and name.ns
+        static Map<String, Long> snapshot() {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+                String name = e.getKey();
+                Object m = e.getValue();
+                if (m instanceof Counter) {
+                    values.put(name, ((Counter) m).sum.sum());
+                } else if (m instanceof Peak) {
+                    values.put(name, ((Peak) m).max.get());
+                } else {
+                    values.put(name + ".calls", ((Timer) m).calls.sum());
+                    values.put(name + ".ns", ((Timer) m).nanos.sum());
+                }
+            }
+            return values;
+        }
+
+        static void reset() {
+            for (Object m : REGISTRY.values()) {
+                if (m instanceof Counter) {
+                    ((Counter) m).sum.reset();
+                } else if (m instanceof Peak) {
+                    ((Peak) m).max.reset();
+                } else {
+                    ((Timer) m).calls.reset();
+                    ((Timer) m).nanos.reset();
+                }
+            }
+        }
+
+        static void print(PrintWriter pw) {
+            for (Map.Entry<String, Long> e : snapshot().entrySet()) pw.printf("%-40s %15d%n", e.getKey(), e.getValue());
+            pw.flush();
+        }
+
+        static void export(String engine) {
+            try {
+                java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new View(), new ObjectName("geometry:type=Metrics,name=" + engine));
+            } catch (JMException e) {
+                throw new IllegalStateException("cannot export metrics for " + engine, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> print(new PrintWriter(System.err))));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T register(String name, T metric) {
+            Object old = REGISTRY.putIfAbsent(name, metric);
+            if (old == null) return metric;
+            if (old.getClass() != metric.getClass()) throw new IllegalArgumentException("metric " + name + " exists");
+            return (T) old;
+        }
+
+        // The snapshot as a dynamic MBean: one long attribute per value, and a
+        // reset operation
+        private static final class View implements DynamicMBean {
+            @Override
+            public Object getAttribute(String name) throws AttributeNotFoundException {
+                Long v = snapshot().get(name);
+                if (v == null) throw new AttributeNotFoundException(name);
+                return v;
+            }
+
+            @Override
+            public AttributeList getAttributes(String[] names) {
+                Map<String, Long> values = snapshot();
+                AttributeList list = new AttributeList();
+                for (String name : names)
+                    if (values.containsKey(name)) list.add(new Attribute(name, values.get(name)));
+                return list;
+            }
+
+            @Override
+            public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+            }
+
+            @Override
+            public AttributeList setAttributes(AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+                if (!action.equals("reset")) throw new ReflectionException(new NoSuchMethodException(action));
+                reset();
+                return null;
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                Set<String> names = snapshot().keySet();
+                MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+                int k = 0;
+                for (String name : names)
+                    attributes[k++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+                MBeanOperationInfo reset = new MBeanOperationInfo("reset", "zero every metric",
+                    new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+                return new MBeanInfo(Metrics.class.getName(), "geometry engine metrics", attributes, null,
+                    new MBeanOperationInfo[]{reset}, null);
+            }
+        }
+    }
+
+    // ---------------------- Exact Classification ----------------------
+    static final double CLASSIFY_ERR = 16 * Predicates.EPS;
+
+    // Sign of r^2 (1 + m^2) - (m a + c - b)^2, a quarter of the discriminant below:
+    // 1 secant, 0 tangent, -1 no intersection. Exact, with a floating-point filter.
+    static int lineSide(double a, double b, double r, double m, double c) {
+        double t = m * a + c - b, rr = r * r * (1 + m * m);
+        double det = rr - t * t;
+        double mag = Math.abs(m * a) + Math.abs(c) + Math.abs(b);
+        if (Math.abs(det) > CLASSIFY_ERR * (rr + mag * mag)) return det > 0 ? 1 : -1;
+
+        double[] te = Predicates.sum(Predicates.product(m, a), Predicates.diff(c, b));
+        double[] r2 = Predicates.product(r, r);
+        double[] lhs = Predicates.sum(r2, Predicates.mul(r2, Predicates.product(m, m)));
+        return Predicates.sign(Predicates.sum(lhs, Predicates.negate(Predicates.mul(te, te))));
+    }
+
+    // Sign of (x1 - x0)^2 + (y1 - y0)^2 - s^2 where s = r0 + sgn * r1. Exact, with a
+    // floating-point filter.
+    static int compareDistance(double x0, double y0, double x1, double y1,
+                               double r0, double r1, int sgn) {
+        double dx = x1 - x0, dy = y1 - y0, sr = r0 + sgn * r1;
+        double det = dx * dx + dy * dy - sr * sr;
+        double mx = Math.abs(x0) + Math.abs(x1), my = Math.abs(y0) + Math.abs(y1);
+        double mr = Math.abs(r0) + Math.abs(r1);
+        if (Math.abs(det) > CLASSIFY_ERR * (mx * mx + my * my + mr * mr)) return det > 0 ? 1 : -1;
+
+        double[] ex = Predicates.diff(x1, x0), ey = Predicates.diff(y1, y0);
+        double[] es = Predicates.sum(r0, sgn * r1);
+        double[] d2 = Predicates.sum(Predicates.mul(ex, ex), Predicates.mul(ey, ey));
+        return Predicates.sign(Predicates.sum(d2, Predicates.negate(Predicates.mul(es, es))));
+    }
+
     // ---------------------- Circle-Line Intersection ----------------------
     static List<double[]> circleLineIntersection(double a, double b, double r, double m, double c) {
         // Circle: (x - a)^2 + (y - b)^2 = r^2
@@ -27,17 +863,18 @@ public class Main {
         double B = 2 * (m * (c - b) - a);            // Coefficient of x
         double C = a * a + (c - b) * (c - b) - r * r;// Constant term
 
-        double D = B * B - 4 * A * C;                // Discriminant check
+        double D = B * B - 4 * A * C;                // Discriminant
+        int side = lineSide(a, b, r, m, c);          // Its exact sign
 
         List<double[]> res = new ArrayList<>();
 
-        if (D < 0) return res;                       // No intersection
-        else if (D == 0) {
+        if (side < 0) return res;                    // No intersection
+        else if (side == 0) {
             double x = -B / (2 * A);
             double y = m * x + c;
             res.add(new double[]{x, y});             // Tangent point
         } else {
-            double sqrtD = Math.sqrt(D);
+            double sqrtD = Math.sqrt(Math.max(D, 0));
             double x1 = (-B + sqrtD) / (2 * A);
             double x2 = (-B - sqrtD) / (2 * A);
             double y1 = m * x1 + c;
@@ -56,14 +893,17 @@ public class Main {
 
         double dx = x1 - x0;
         double dy = y1 - y0;
-        double d = Math.hypot(dx, dy);               // Distance between centers
+        double d = Math.sqrt(dx * dx + dy * dy);     // Distance between centers
 
         List<double[]> res = new ArrayList<>();
 
-        if (d > r0 + r1 || d < Math.abs(r0 - r1)) return res; // No intersection
+        if (d == 0) return res;                      // Concentric: none or infinitely many
+        int outer = compareDistance(x0, y0, x1, y1, r0, r1, 1);   // d vs r0 + r1
+        int inner = compareDistance(x0, y0, x1, y1, r0, r1, -1);  // d vs |r0 - r1|
+        if (outer > 0 || inner < 0) return res;      // No intersection
 
         double a = (r0 * r0 - r1 * r1 + d * d) / (2 * d);
-        double h = Math.sqrt(Math.abs(r0 * r0 - a * a));
+        double h = (outer == 0 || inner == 0) ? 0 : Math.sqrt(Math.abs(r0 * r0 - a * a));
 
         double xm = x0 + a * dx / d;
         double ym = y0 + a * dy / d;
@@ -82,8 +922,829 @@ public class Main {
         return res;
     }
 
+    // ---------------------- Batch Kernels ----------------------
+    // Structure-of-arrays versions of both intersections for bulk jobs. Record i
+    // writes its point count to count[i] and its points to (px, py) at 2i and
+    // 2i + 1, with NaN in unused slots. Each returns the total number of points.
+    // Results equal the single-pair functions'. Nothing is allocated unless the
+    // filter has to defer to exact arithmetic.
+    //
+    // Records run in blocks of two passes. The first is tight arithmetic with no
+    // calls: it applies the floating-point filter to every record and stores the
+    // decided count, or -1. The second settles the -1s exactly and writes the
+    // points while the block is still in cache.
+    //
+    // With metrics on, each call publishes its record count and how many of
+    // them the filter left to exact arithmetic.
+    static final int BLOCK = 1024;
+    private static final Metrics.Counter LINE_RECORDS = Metrics.counter("batch.line.records");
+    private static final Metrics.Counter LINE_EXACT = Metrics.counter("batch.line.exact");
+    private static final Metrics.Counter CIRCLE_RECORDS = Metrics.counter("batch.circle.records");
+    private static final Metrics.Counter CIRCLE_EXACT = Metrics.counter("batch.circle.exact");
+
+    static int circleLineBatch(double[] a, double[] b, double[] r, double[] m, double[] c, int n,
+                               int[] count, double[] px, double[] py) {
+        int total = 0, exact = 0;
+        for (int lo = 0; lo < n; lo += BLOCK) {
+            int hi = Math.min(n, lo + BLOCK);
+
+            // Pass 1: lineSide's filter, 2 secant, 0 apart, -1 undecided
+            for (int i = lo; i < hi; i++) {
+                double t = m[i] * a[i] + c[i] - b[i], rr = r[i] * r[i] * (1 + m[i] * m[i]);
+                double det = rr - t * t;
+                double mag = Math.abs(m[i] * a[i]) + Math.abs(c[i]) + Math.abs(b[i]);
+                double bound = CLASSIFY_ERR * (rr + mag * mag);
+                count[i] = det > bound ? 2 : det < -bound ? 0 : -1;
+            }
+
+            // Pass 2: exact sides where needed, then the points
+            for (int i = lo; i < hi; i++) {
+                int k = count[i];
+                if (k < 0) {
+                    count[i] = k = lineSide(a[i], b[i], r[i], m[i], c[i]) + 1;
+                    if (Metrics.ENABLED) exact++;
+                }
+                double A = 1 + m[i] * m[i];
+                double B = 2 * (m[i] * (c[i] - b[i]) - a[i]);
+                double C = a[i] * a[i] + (c[i] - b[i]) * (c[i] - b[i]) - r[i] * r[i];
+                double sqrtD = k == 2 ? Math.sqrt(Math.max(B * B - 4 * A * C, 0)) : 0;
+                double x1 = (-B + sqrtD) / (2 * A), x2 = (-B - sqrtD) / (2 * A);
+                px[2 * i] = k > 0 ? x1 : Double.NaN;
+                py[2 * i] = k > 0 ? m[i] * x1 + c[i] : Double.NaN;
+                px[2 * i + 1] = k > 1 ? x2 : Double.NaN;
+                py[2 * i + 1] = k > 1 ? m[i] * x2 + c[i] : Double.NaN;
+                total += k;
+            }
+        }
+        if (Metrics.ENABLED) {
+            LINE_RECORDS.add(n);
+            LINE_EXACT.add(exact);
+        }
+        return total;
+    }
+
+    static int circleCircleBatch(double[] x0, double[] y0, double[] r0, double[] x1, double[] y1, double[] r1, int n,
+                                 int[] count, double[] px, double[] py) {
+        int total = 0, exact = 0;
+        for (int lo = 0; lo < n; lo += BLOCK) {
+            int hi = Math.min(n, lo + BLOCK);
+
+            // Pass 1: compareDistance's filter for d against r0 + r1 and |r0 - r1|.
+            // 0 if apart, nested or concentric, 2 if strictly between, else -1.
+            for (int i = lo; i < hi; i++) {
+                double dx = x1[i] - x0[i], dy = y1[i] - y0[i], d2 = dx * dx + dy * dy;
+                double mx = Math.abs(x0[i]) + Math.abs(x1[i]), my = Math.abs(y0[i]) + Math.abs(y1[i]);
+                double mr = Math.abs(r0[i]) + Math.abs(r1[i]);
+                double bound = CLASSIFY_ERR * (mx * mx + my * my + mr * mr);
+                double so = r0[i] + r1[i], si = r0[i] - r1[i];
+                double outer = d2 - so * so, inner = d2 - si * si;
+                count[i] = d2 == 0 || outer > bound || inner < -bound ? 0 : outer < -bound && inner > bound ? 2 : -1;
+            }
+
+            // Pass 2: exact comparisons where needed, then the points
+            for (int i = lo; i < hi; i++) {
+                int k = count[i];
+                if (k < 0) {
+                    int outer = compareDistance(x0[i], y0[i], x1[i], y1[i], r0[i], r1[i], 1);
+                    int inner = compareDistance(x0[i], y0[i], x1[i], y1[i], r0[i], r1[i], -1);
+                    count[i] = k = outer > 0 || inner < 0 ? 0 : outer == 0 || inner == 0 ? 1 : 2;
+                    if (Metrics.ENABLED) exact++;
+                }
+                double dx = x1[i] - x0[i], dy = y1[i] - y0[i], d = Math.sqrt(dx * dx + dy * dy);
+                double a = (r0[i] * r0[i] - r1[i] * r1[i] + d * d) / (2 * d);
+                double h = k == 2 ? Math.sqrt(Math.abs(r0[i] * r0[i] - a * a)) : 0;
+                if (h == 0 && k == 2) count[i] = k = 1; // points too close to tell apart
+                double xm = x0[i] + a * dx / d, ym = y0[i] + a * dy / d;
+                px[2 * i] = k > 0 ? xm + h * dy / d : Double.NaN;
+                py[2 * i] = k > 0 ? ym - h * dx / d : Double.NaN;
+                px[2 * i + 1] = k > 1 ? xm - h * dy / d : Double.NaN;
+                py[2 * i + 1] = k > 1 ? ym + h * dx / d : Double.NaN;
+                total += k;
+            }
+        }
+        if (Metrics.ENABLED) {
+            CIRCLE_RECORDS.add(n);
+            CIRCLE_EXACT.add(exact);
+        }
+        return total;
+    }
+
+    // ---------------------- All Intersecting Pairs ----------------------
+    // Receives pairs of circles i < j whose boundaries meet at count points:
+    // (x1, y1), and (x2, y2) too if count == 2
+    interface OverlapSink {
+        void pair(int i, int j, int count, double x1, double y1, double x2, double y2);
+    }
+
+    // Every pair of circles whose boundaries meet, with their points. Nested
+    // and concentric circles have no common point and are not reported.
+    //
+    // A uniform grid, with cells about one median diameter across, sized by
+    // the radii alone. Only occupied cells exist: a hash table of cell
+    // coordinates numbers them in row order, so one far-away circle adds a
+    // cell instead of stretching every cell. Every circle goes into each cell
+    // its bounding box touches.
+    // Circles can only meet if their boxes overlap, and each overlapping pair
+    // is taken up once: in the cell holding the low corner of the overlap. The
+    // candidates are gathered in blocks for circleCircleBatch, with the smaller
+    // index as the first circle, so points and counts are exactly
+    // circleCircleIntersection(i, j)'s. Boxes are widened by a few ulps, so
+    // rounding never drops a tangent pair; the kernel makes the exact call.
+    //
+    // Pairs stream to the sink as they are found, in cell order. With a pool,
+    // ranges of cells run as ForkJoin tasks a wave at a time. Each wave is
+    // handed over in order, so the output matches the sequential run and only
+    // one wave's pairs are held at once. A few circles far larger than the rest
+    // cover many cells and meet every candidate there.
+    //
+    // With metrics on, each call publishes its grid size and cell entries, the
+    // fullest cell, the candidate pairs handed to the kernel and the pairs that
+    // meet, and the time to bin and to scan (sink included).
+    static final class CircleOverlaps {
+        private static final Metrics.Counter CIRCLES = Metrics.counter("overlaps.circles");
+        private static final Metrics.Counter CELLS = Metrics.counter("overlaps.cells");
+        private static final Metrics.Counter ENTRIES = Metrics.counter("overlaps.entries");
+        private static final Metrics.Counter CANDIDATES = Metrics.counter("overlaps.candidates");
+        private static final Metrics.Counter MEETING = Metrics.counter("overlaps.meeting");
+        private static final Metrics.Peak FULLEST = Metrics.peak("overlaps.cell.peak");
+        private static final Metrics.Timer BIN = Metrics.timer("overlaps.bin");
+        private static final Metrics.Timer SCAN = Metrics.timer("overlaps.scan");
+
+        private final ForkJoinPool pool; // null runs sequentially
+
+        CircleOverlaps(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        void overlaps(double[] cx, double[] cy, double[] r, int n, OverlapSink sink) {
+            if (n < 2) return;
+            long t = Metrics.start();
+            Grid g = new Grid(cx, cy, r, n);
+            int cells = g.cells;
+            if (Metrics.ENABLED) {
+                CIRCLES.add(n);
+                CELLS.add(cells);
+                ENTRIES.add(g.start[cells]);
+                t = BIN.lap(t);
+            }
+            if (pool == null) {
+                new Scan(g, cx, cy, r).run(0, cells, sink);
+                if (Metrics.ENABLED) SCAN.lap(t);
+                return;
+            }
+            int chunk = Math.max(64, cells / (pool.getParallelism() * 16));
+            int chunks = (cells + chunk - 1) / chunk, wave = pool.getParallelism() * 4;
+            Found[] found = new Found[wave];
+            for (int c0 = 0; c0 < chunks; c0 += wave) {
+                int first = c0, count = Math.min(wave, chunks - c0);
+                pool.invoke(new Ranges(0, count, 1, (lo, hi) -> {
+                    Scan scan = new Scan(g, cx, cy, r);
+                    for (int c = lo; c < hi; c++) {
+                        if (found[c] == null) found[c] = new Found();
+                        found[c].size = 0;
+                        int from = (first + c) * chunk;
+                        scan.run(from, Math.min(cells, from + chunk), found[c]);
+                    }
+                }));
+                for (int c = 0; c < count; c++) found[c].replay(sink);
+            }
+            if (Metrics.ENABLED) SCAN.lap(t);
+        }
+
+        // Occupied cells in row order, by counting sort: cell c is column
+        // cellX[c], row cellY[c], and holds entries start[c] .. start[c + 1],
+        // each a circle index and its widened box
+        private static final class Grid {
+            final double minX, minY, side;
+            final int cells;
+            final int[] cellX, cellY, start, id;
+            final double[] lx, ly, hx, hy;
+
+            Grid(double[] cx, double[] cy, double[] r, int n) {
+                double x0 = Double.POSITIVE_INFINITY, y0 = x0, x1 = Double.NEGATIVE_INFINITY, y1 = x1, sum = 0;
+                for (int i = 0; i < n; i++) {
+                    x0 = Math.min(x0, lo(cx[i], r[i]));
+                    y0 = Math.min(y0, lo(cy[i], r[i]));
+                    x1 = Math.max(x1, hi(cx[i], r[i]));
+                    y1 = Math.max(y1, hi(cy[i], r[i]));
+                    sum += r[i];
+                }
+
+                // About one median diameter (of up to 1024 radii spread over
+                // the input), or one mean diameter if that is 0. Doubled up to
+                // three times while the centres fill more than n / 2 cells, as
+                // sparse cells cost more to visit than they save, then while
+                // there would be more than 16n entries, or 2^30 cells a side.
+                double[] sample = new double[Math.min(n, 1024)];
+                for (int k = 0; k < sample.length; k++) sample[k] = r[(int) ((long) k * n / sample.length)];
+                Arrays.sort(sample);
+                double s = 2 * sample[sample.length / 2];
+                if (!(s > 0)) s = 2 * sum / n;
+                if (!(s > 0)) s = 1;
+                minX = x0;
+                minY = y0;
+                for (int k = 0; k < 3 && (x1 - x0) / s <= 1 << 29 && (y1 - y0) / s <= 1 << 29
+                        && centreCells(cx, cy, n, s) > n / 2; k++) s *= 2;
+                while ((x1 - x0) / s > 1 << 30 || (y1 - y0) / s > 1 << 30 || entries(cx, cy, r, n, s) > 16L * n + 1024) s *= 2;
+                side = s;
+
+                // Number the occupied cells as they are met, counting entries
+                CellTable table = new CellTable();
+                int[] count = new int[16];
+                for (int i = 0; i < n; i++) {
+                    int gx0 = cx(lo(cx[i], r[i])), gx1 = cx(hi(cx[i], r[i]));
+                    int gy0 = cy(lo(cy[i], r[i])), gy1 = cy(hi(cy[i], r[i]));
+                    for (int gy = gy0; gy <= gy1; gy++) {
+                        for (int gx = gx0; gx <= gx1; gx++) {
+                            int c = table.idOf(key(gx, gy));
+                            if (c == count.length) count = Arrays.copyOf(count, 2 * c);
+                            count[c]++;
+                        }
+                    }
+                }
+
+                // Renumber them in row order
+                cells = table.size;
+                long[] keys = Arrays.copyOf(table.order, cells);
+                Arrays.sort(keys);
+                int[] rank = new int[cells];
+                cellX = new int[cells];
+                cellY = new int[cells];
+                start = new int[cells + 1];
+                for (int c = 0; c < cells; c++) {
+                    int old = table.idOf(keys[c]);
+                    rank[old] = c;
+                    cellX[c] = (int) keys[c];
+                    cellY[c] = (int) (keys[c] >>> 32);
+                    start[c + 1] = start[c] + count[old];
+                }
+
+                int m = start[cells];
+                id = new int[m];
+                lx = new double[m];
+                ly = new double[m];
+                hx = new double[m];
+                hy = new double[m];
+                int[] fill = Arrays.copyOf(start, cells);
+                for (int i = 0; i < n; i++) {
+                    double bx0 = lo(cx[i], r[i]), bx1 = hi(cx[i], r[i]), by0 = lo(cy[i], r[i]), by1 = hi(cy[i], r[i]);
+                    for (int gy = cy(by0); gy <= cy(by1); gy++) {
+                        for (int gx = cx(bx0); gx <= cx(bx1); gx++) {
+                            int k = fill[rank[table.idOf(key(gx, gy))]]++;
+                            id[k] = i;
+                            lx[k] = bx0;
+                            ly[k] = by0;
+                            hx[k] = bx1;
+                            hy[k] = by1;
+                        }
+                    }
+                }
+            }
+
+            int cx(double x) {
+                return (int) ((x - minX) / side);
+            }
+
+            int cy(double y) {
+                return (int) ((y - minY) / side);
+            }
+
+            // Row, then column: sorting keys sorts cells in row order
+            private static long key(int gx, int gy) {
+                return (long) gy << 32 | gx;
+            }
+
+            private int centreCells(double[] cx, double[] cy, int n, double s) {
+                CellTable table = new CellTable();
+                for (int i = 0; i < n; i++) table.idOf(key((int) ((cx[i] - minX) / s), (int) ((cy[i] - minY) / s)));
+                return table.size;
+            }
+
+            private long entries(double[] cx, double[] cy, double[] r, int n, double s) {
+                long total = 0;
+                for (int i = 0; i < n; i++) {
+                    long gw = (long) ((hi(cx[i], r[i]) - minX) / s) - (long) ((lo(cx[i], r[i]) - minX) / s) + 1;
+                    long gh = (long) ((hi(cy[i], r[i]) - minY) / s) - (long) ((lo(cy[i], r[i]) - minY) / s) + 1;
+                    total += gw * gh;
+                }
+                return total;
+            }
+
+            // Box edges, widened by a few ulps
+            private static double lo(double c, double r) {
+                double v = c - r;
+                return v - (Math.abs(c) + Math.abs(r)) * 0x1p-50;
+            }
+
+            private static double hi(double c, double r) {
+                double v = c + r;
+                return v + (Math.abs(c) + Math.abs(r)) * 0x1p-50;
+            }
+        }
+
+        // Open-addressing hash map from cell key (>= 0) to the order it was
+        // first seen in, with linear probing at load <= 1/2 and -1 marking
+        // empty slots
+        private static final class CellTable {
+            private long[] slots = new long[16];
+            private int[] ids = new int[16];
+            long[] order = new long[8]; // key of each id
+            int size;
+
+            CellTable() {
+                Arrays.fill(slots, -1);
+            }
+
+            int idOf(long key) {
+                int mask = slots.length - 1;
+                int i = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+                while (slots[i] != -1) {
+                    if (slots[i] == key) return ids[i];
+                    i = (i + 1) & mask;
+                }
+                if (2 * (size + 1) > slots.length) {
+                    grow();
+                    return idOf(key);
+                }
+                slots[i] = key;
+                ids[i] = size;
+                if (size == order.length) order = Arrays.copyOf(order, 2 * size);
+                order[size] = key;
+                return size++;
+            }
+
+            private void grow() {
+                long[] old = slots;
+                int[] oldIds = ids;
+                slots = new long[2 * old.length];
+                ids = new int[2 * old.length];
+                Arrays.fill(slots, -1);
+                int mask = slots.length - 1;
+                for (int k = 0; k < old.length; k++) {
+                    if (old[k] == -1) continue;
+                    int i = (int) (old[k] * 0x9E3779B97F4A7C15L >>> 40) & mask;
+                    while (slots[i] != -1) i = (i + 1) & mask;
+                    slots[i] = old[k];
+                    ids[i] = oldIds[k];
+                }
+            }
+        }
+
+        // Tests the pairs of cells [lo, hi), with its own candidate block
+        private static final class Scan {
+            private final Grid g;
+            private final double[] cx, cy, r;
+            private final int[] ci = new int[BLOCK], cj = new int[BLOCK], count = new int[BLOCK];
+            private final double[] x0 = new double[BLOCK], y0 = new double[BLOCK], r0 = new double[BLOCK];
+            private final double[] x1 = new double[BLOCK], y1 = new double[BLOCK], r1 = new double[BLOCK];
+            private final double[] px = new double[2 * BLOCK], py = new double[2 * BLOCK];
+            private int m;
+            private long candidates, meeting; // counted only with metrics on
+
+            Scan(Grid g, double[] cx, double[] cy, double[] r) {
+                this.g = g;
+                this.cx = cx;
+                this.cy = cy;
+                this.r = r;
+            }
+
+            void run(int lo, int hi, OverlapSink sink) {
+                int fullest = 0;
+                for (int c = lo; c < hi; c++) {
+                    int gx = g.cellX[c], gy = g.cellY[c];
+                    if (Metrics.ENABLED) fullest = Math.max(fullest, g.start[c + 1] - g.start[c]);
+                    for (int a = g.start[c]; a < g.start[c + 1]; a++) {
+                        for (int b = a + 1; b < g.start[c + 1]; b++) {
+                            if (g.lx[b] > g.hx[a] || g.lx[a] > g.hx[b] || g.ly[b] > g.hy[a] || g.ly[a] > g.hy[b]) continue;
+                            if (g.cx(Math.max(g.lx[a], g.lx[b])) != gx || g.cy(Math.max(g.ly[a], g.ly[b])) != gy) continue;
+                            int i = Math.min(g.id[a], g.id[b]), j = Math.max(g.id[a], g.id[b]);
+                            ci[m] = i;
+                            cj[m] = j;
+                            x0[m] = cx[i];
+                            y0[m] = cy[i];
+                            r0[m] = r[i];
+                            x1[m] = cx[j];
+                            y1[m] = cy[j];
+                            r1[m] = r[j];
+                            if (++m == BLOCK) flush(sink);
+                        }
+                    }
+                }
+                flush(sink);
+                if (Metrics.ENABLED) {
+                    CANDIDATES.add(candidates);
+                    MEETING.add(meeting);
+                    FULLEST.record(fullest);
+                    candidates = meeting = 0;
+                }
+            }
+
+            private void flush(OverlapSink sink) {
+                if (m == 0) return;
+                circleCircleBatch(x0, y0, r0, x1, y1, r1, m, count, px, py);
+                for (int k = 0; k < m; k++) {
+                    if (count[k] > 0) sink.pair(ci[k], cj[k], count[k], px[2 * k], py[2 * k], px[2 * k + 1], py[2 * k + 1]);
+                    if (Metrics.ENABLED && count[k] > 0) meeting++;
+                }
+                if (Metrics.ENABLED) candidates += m;
+                m = 0;
+            }
+        }
+
+        // One chunk's pairs, kept until its wave is handed over
+        private static final class Found implements OverlapSink {
+            int size;
+            int[] ij = new int[64], counts = new int[32];
+            double[] pts = new double[128];
+
+            @Override
+            public void pair(int i, int j, int count, double x1, double y1, double x2, double y2) {
+                if (size == counts.length) {
+                    ij = Arrays.copyOf(ij, 4 * size);
+                    counts = Arrays.copyOf(counts, 2 * size);
+                    pts = Arrays.copyOf(pts, 8 * size);
+                }
+                ij[2 * size] = i;
+                ij[2 * size + 1] = j;
+                counts[size] = count;
+                pts[4 * size] = x1;
+                pts[4 * size + 1] = y1;
+                pts[4 * size + 2] = x2;
+                pts[4 * size + 3] = y2;
+                size++;
+            }
+
+            void replay(OverlapSink sink) {
+                for (int k = 0; k < size; k++) {
+                    sink.pair(ij[2 * k], ij[2 * k + 1], counts[k], pts[4 * k], pts[4 * k + 1], pts[4 * k + 2], pts[4 * k + 3]);
+                }
+            }
+        }
+
+        interface RangeBody {
+            void run(int lo, int hi);
+        }
+
+        // Splits [lo, hi) in halves down to the chunk size
+        @SuppressWarnings("serial") // never serialized
+        private static final class Ranges extends RecursiveAction {
+            private final int lo, hi, chunk;
+            private final RangeBody body;
+
+            Ranges(int lo, int hi, int chunk, RangeBody body) {
+                this.lo = lo;
+                this.hi = hi;
+                this.chunk = chunk;
+                this.body = body;
+            }
+
+            @Override
+            protected void compute() {
+                if (hi - lo <= chunk) {
+                    body.run(lo, hi);
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Ranges(lo, mid, chunk, body), new Ranges(mid, hi, chunk, body));
+            }
+        }
+    }
+
     // ---------------------- Example Usage ----------------------
+    // Headless run: batch [--parallel] <records> [out]
+    // Five values per record (a b r m c) intersect circle (a, b, r) with y = mx + c;
+    // six (x0 y0 r0 x1 y1 r1) intersect two circles. Input is binary or text, "-"
+    // for stdin. Each output line holds the point count followed by the points.
+    // Three (x y r) find every pair of circles that meet, written as they are
+    // found: i j, the point count and the points. --parallel finds them on the
+    // common pool, in the same order.
+    static void batch(String[] args) throws IOException {
+        boolean parallel = args.length > 1 && args[1].equals("--parallel");
+        int first = parallel ? 2 : 1;
+        if (args.length < first + 1 || args.length > first + 2)
+            throw new IllegalArgumentException("usage: batch [--parallel] <records> [out]");
+        PointIO.Table t = PointIO.read(args[first]);
+        if (t.columns != 3 && t.columns != 5 && t.columns != 6)
+            throw new IllegalArgumentException("expected 3 (all circle pairs), 5 (circle-line) or 6 (circle-circle) values per record");
+        double[][] col = new double[t.columns][];
+        for (int c = 0; c < t.columns; c++) col[c] = t.doubleColumn(c);
+        String out = args.length == first + 2 ? args[first + 1] : "-";
+        if (t.columns == 3) {
+            try (PointIO.Writer w = PointIO.Writer.open(out)) {
+                new CircleOverlaps(parallel ? ForkJoinPool.commonPool() : null).overlaps(col[0], col[1], col[2], t.n,
+                    (i, j, count, x1, y1, x2, y2) -> {
+                        try {
+                            w.num(i).sep().num(j).sep().num(count).sep().num(x1).sep().num(y1);
+                            if (count == 2) w.sep().num(x2).sep().num(y2);
+                            w.newline();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        int[] count = new int[t.n];
+        double[] px = new double[2 * t.n], py = new double[2 * t.n];
+        if (t.columns == 5) circleLineBatch(col[0], col[1], col[2], col[3], col[4], t.n, count, px, py);
+        else circleCircleBatch(col[0], col[1], col[2], col[3], col[4], col[5], t.n, count, px, py);
+        try (PointIO.Writer w = PointIO.Writer.open(out)) {
+            for (int i = 0; i < t.n; i++) {
+                w.num(count[i]);
+                for (int k = 0; k < count[i]; k++) w.sep().num(px[2 * i + k]).sep().num(py[2 * i + k]);
+                w.newline();
+            }
+        }
+    }
+
+    // Random pairs, tangent, nested and concentric ones included: the batch
+    // kernels must give exactly what the single-pair functions give, and the
+    // all-pairs search exactly what calling them on every pair gives. Returns
+    // the number of failures.
+    static int selfCheck(PrintWriter pw, int cases) {
+        int failures = 0;
+        for (int c = 0; c < cases; c++) {
+            Random rnd = new Random(c);
+            int n = 1 + rnd.nextInt(3000);
+            double[][] v = new double[6][n];
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < 6; k++) v[k][i] = rnd.nextInt(41) - 20;
+                v[2][i] = 1 + rnd.nextInt(10);
+                v[5][i] = 1 + rnd.nextInt(10);
+                switch (rnd.nextInt(7)) {
+                    case 0: // tangent line y = b + r
+                        v[3][i] = 0;
+                        v[4][i] = v[1][i] + v[2][i];
+                        break;
+                    case 1: // circles touching from outside
+                        v[3][i] = v[0][i] + v[2][i] + v[5][i];
+                        v[4][i] = v[1][i];
+                        break;
+                    case 2: // circles touching from inside
+                        v[3][i] = v[0][i] + Math.abs(v[2][i] - v[5][i]);
+                        v[4][i] = v[1][i];
+                        break;
+                    case 3: // concentric
+                        v[3][i] = v[0][i];
+                        v[4][i] = v[1][i];
+                        break;
+                    case 4: // non-integral values
+                        for (int k = 0; k < 6; k++) v[k][i] += rnd.nextDouble();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            int[] count = new int[n];
+            double[] px = new double[2 * n], py = new double[2 * n];
+            boolean ok = true;
+            for (int kind = 5; kind <= 6; kind++) {
+                int total = kind == 5
+                        ? circleLineBatch(v[0], v[1], v[2], v[3], v[4], n, count, px, py)
+                        : circleCircleBatch(v[0], v[1], v[2], v[3], v[4], v[5], n, count, px, py);
+                int sum = 0;
+                for (int i = 0; i < n; i++) {
+                    List<double[]> pts = kind == 5
+                            ? circleLineIntersection(v[0][i], v[1][i], v[2][i], v[3][i], v[4][i])
+                            : circleCircleIntersection(v[0][i], v[1][i], v[2][i], v[3][i], v[4][i], v[5][i]);
+                    ok &= count[i] == pts.size();
+                    for (int k = 0; k < 2; k++) {
+                        boolean used = k < pts.size();
+                        ok &= used ? px[2 * i + k] == pts.get(k)[0] && py[2 * i + k] == pts.get(k)[1]
+                                : Double.isNaN(px[2 * i + k]) && Double.isNaN(py[2 * i + k]);
+                    }
+                    sum += pts.size();
+                }
+                ok &= total == sum;
+            }
+            if (!ok) pw.printf("case %d (n=%d): batch kernels differ from the single-pair functions%n", c, n);
+
+            // All meeting pairs among the first circles, sequential and parallel.
+            // Some cases move
+            // the last one far out, or make the first one huge.
+            int m = c % 25 == 0 ? n : Math.min(n, 400);
+            if (c % 5 == 1) {
+                v[0][m - 1] = 1e9;
+                v[1][m - 1] = -1e9;
+            } else if (c % 5 == 2) {
+                v[2][0] = 1e4 + rnd.nextInt(10);
+            }
+            List<double[]> brute = new ArrayList<>();
+            for (int i = 0; i < m; i++) {
+                for (int j = i + 1; j < m; j++) {
+                    List<double[]> pts = circleCircleIntersection(v[0][i], v[1][i], v[2][i], v[0][j], v[1][j], v[2][j]);
+                    if (pts.isEmpty()) continue;
+                    double[] q = pts.size() == 2 ? pts.get(1) : new double[]{Double.NaN, Double.NaN};
+                    brute.add(new double[]{i, j, pts.size(), pts.get(0)[0], pts.get(0)[1], q[0], q[1]});
+                }
+            }
+            List<double[]> seq = new ArrayList<>(), par = new ArrayList<>();
+            new CircleOverlaps(null).overlaps(v[0], v[1], v[2], m,
+                (i, j, k, x1, y1, x2, y2) -> seq.add(new double[]{i, j, k, x1, y1, x2, y2}));
+            new CircleOverlaps(ForkJoinPool.commonPool()).overlaps(v[0], v[1], v[2], m,
+                (i, j, k, x1, y1, x2, y2) -> par.add(new double[]{i, j, k, x1, y1, x2, y2}));
+            boolean same = seq.size() == par.size();
+            for (int k = 0; same && k < seq.size(); k++) same = Arrays.equals(seq.get(k), par.get(k));
+            seq.sort(Comparator.<double[]>comparingDouble(e -> e[0]).thenComparingDouble(e -> e[1]));
+            same &= seq.size() == brute.size();
+            for (int k = 0; same && k < seq.size(); k++) same = Arrays.equals(seq.get(k), brute.get(k));
+            if (!same) pw.printf("case %d (n=%d): circle pairs differ from brute force%n", c, m);
+            if (!ok || !same) failures++;
+        }
+        pw.printf("%d of %d cases passed%n", cases - failures, cases);
+        pw.flush();
+        return failures;
+    }
+
+    // Single-pair functions against the batch kernels on n random records,
+    // about half of them intersecting
+    static void benchmark(PrintWriter pw) {
+        int n = 1 << 20, reps = 5;
+        int[] count = new int[n];
+        double[] px = new double[2 * n], py = new double[2 * n];
+        long sink = 0;
+        for (int kind = 5; kind <= 6; kind++) {
+            String name = kind == 5 ? "circle-line" : "circle-circle";
+            Random rnd = new Random(42);
+            double[][] v = new double[6][n];
+            for (int i = 0; i < n; i++) {
+                v[0][i] = rnd.nextDouble() * 1000;
+                v[1][i] = rnd.nextDouble() * 1000;
+                v[2][i] = 1 + rnd.nextDouble() * 100;
+                v[3][i] = kind == 5 ? rnd.nextDouble() * 4 - 2 : v[0][i] + rnd.nextDouble() * 300 - 150;
+                v[4][i] = kind == 5 ? v[1][i] - v[3][i] * v[0][i] + rnd.nextDouble() * 300 - 150
+                        : v[1][i] + rnd.nextDouble() * 300 - 150;
+                v[5][i] = 1 + rnd.nextDouble() * 100;
+            }
+            for (int r = 0; r < reps + 2; r++) {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < n; i++) { // same output as the kernels
+                    List<double[]> pts = kind == 5
+                            ? circleLineIntersection(v[0][i], v[1][i], v[2][i], v[3][i], v[4][i])
+                            : circleCircleIntersection(v[0][i], v[1][i], v[2][i], v[3][i], v[4][i], v[5][i]);
+                    count[i] = pts.size();
+                    for (int k = 0; k < 2; k++) {
+                        px[2 * i + k] = k < pts.size() ? pts.get(k)[0] : Double.NaN;
+                        py[2 * i + k] = k < pts.size() ? pts.get(k)[1] : Double.NaN;
+                    }
+                    sink += pts.size();
+                }
+                if (r == reps + 1) report(pw, name + " single", n, 1, System.nanoTime() - t0);
+            }
+            for (int r = 0; r < reps + 2; r++) {
+                long t0 = System.nanoTime();
+                sink += kind == 5
+                        ? circleLineBatch(v[0], v[1], v[2], v[3], v[4], n, count, px, py)
+                        : circleCircleBatch(v[0], v[1], v[2], v[3], v[4], v[5], n, count, px, py);
+                if (r == reps + 1) report(pw, name + " batch", n, 1, System.nanoTime() - t0);
+            }
+        }
+        pw.printf("(%d points)%n", sink);
+        pw.flush();
+
+        // All meeting pairs: the sweep from 1 to all cores, and every pair
+        // through the single-pair function on a small set
+        for (int size : new int[]{5_000, 1 << 20}) {
+            Random rnd = new Random(7);
+            double[] x = new double[size], y = new double[size], r = new double[size];
+            double box = 1000 * Math.sqrt(size);
+            for (int i = 0; i < size; i++) {
+                x[i] = rnd.nextDouble() * box;
+                y[i] = rnd.nextDouble() * box;
+                r[i] = rnd.nextDouble() * 1000;
+            }
+            long[] pairs = new long[1];
+            OverlapSink counter = (i, j, k, x1, y1, x2, y2) -> pairs[0]++;
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads = 0; ; threads = Math.max(1, Math.min(cores, threads * 2))) {
+                ForkJoinPool pool = threads == 0 ? null : new ForkJoinPool(threads);
+                CircleOverlaps overlaps = new CircleOverlaps(pool);
+                overlaps.overlaps(x, y, r, size, counter); // warm up
+                pairs[0] = 0;
+                long t0 = System.nanoTime();
+                for (int k = 0; k < reps; k++) overlaps.overlaps(x, y, r, size, counter);
+                report(pw, (threads == 0 ? "pairs sequential" : "pairs x" + threads) + " n=" + size, size, reps,
+                    System.nanoTime() - t0);
+                if (pool != null) pool.shutdown();
+                if (threads == cores) break;
+            }
+            pw.printf("(%d meeting pairs)%n", pairs[0] / reps);
+            pw.flush();
+            if (size > 5_000) {
+                // Sequential again, the circles renumbered along the Hilbert curve
+                SpatialOrder.hilbert(x, y, size); // warm up
+                long t0 = System.nanoTime();
+                int[] order = SpatialOrder.hilbert(x, y, size);
+                double[] hx = SpatialOrder.permute(x, order, size), hy = SpatialOrder.permute(y, order, size);
+                double[] hr = SpatialOrder.permute(r, order, size);
+                report(pw, "hilbert sort n=" + size, size, 1, System.nanoTime() - t0);
+                CircleOverlaps overlaps = new CircleOverlaps(null);
+                overlaps.overlaps(hx, hy, hr, size, counter);
+                t0 = System.nanoTime();
+                for (int k = 0; k < reps; k++) overlaps.overlaps(hx, hy, hr, size, counter);
+                report(pw, "pairs sequential hilbert n=" + size, size, reps, System.nanoTime() - t0);
+                continue;
+            }
+
+            long t0 = System.nanoTime();
+            for (int i = 0; i < size; i++)
+                for (int j = i + 1; j < size; j++) sink += circleCircleIntersection(x[i], y[i], r[i], x[j], y[j], r[j]).size();
+            report(pw, "pairs brute force n=" + size, size, 1, System.nanoTime() - t0);
+        }
+    }
+
+    // Standard suite on every point workload from 10^3 circles to max. Centres
+    // are the workload's points, each radius 0.5 to 1.5 times the distance to
+    // the next centre along the Hilbert curve, so clusters stay sparse. The
+    // kernels take each circle with that neighbour, and for lines the line
+    // through the neighbour's centre at a random slope. Then all meeting
+    // pairs, sequential and from one thread to all cores at the largest size.
+    static void suite(PrintWriter pw, int max) {
+        Bench.header(pw);
+        CircleOverlaps sequential = new CircleOverlaps(null);
+        long[] pairs = new long[1];
+        OverlapSink counter = (i, j, k, x1, y1, x2, y2) -> pairs[0]++;
+        int[] sizes = Bench.sizes(max);
+        for (String workload : Bench.POINTS) {
+            for (int n : sizes) {
+                int[] ix = new int[n], iy = new int[n];
+                Bench.points(workload, n, Bench.SEED, ix, iy);
+                double[] x = Bench.doubles(ix, n), y = Bench.doubles(iy, n), r = new double[n];
+                Random rnd = new Random(Bench.SEED);
+                int[] order = SpatialOrder.hilbert(x, y, n);
+                for (int i = 0; i < n; i++) {
+                    int j = order[(i + 1) % n], k = order[i];
+                    r[k] = Math.max(1, Math.hypot(x[j] - x[k], y[j] - y[k])) * (0.5 + rnd.nextDouble());
+                }
+
+                double[] x1 = new double[n], y1 = new double[n], r1 = new double[n];
+                double[] m = new double[n], c = new double[n];
+                for (int i = 0; i < n; i++) {
+                    int j = order[(i + 1) % n], k = order[i];
+                    x1[k] = x[j];
+                    y1[k] = y[j];
+                    r1[k] = r[j];
+                    m[k] = rnd.nextDouble() * 4 - 2;
+                    c[k] = y[j] - m[k] * x[j];
+                }
+                int[] count = new int[n];
+                double[] px = new double[2 * n], py = new double[2 * n];
+                Bench.measure(pw, "circle-circle batch", workload, n,
+                    () -> circleCircleBatch(x, y, r, x1, y1, r1, n, count, px, py));
+                Bench.measure(pw, "circle-line batch", workload, n,
+                    () -> circleLineBatch(x, y, r, m, c, n, count, px, py));
+                Bench.measure(pw, "meeting pairs", workload, n, () -> {
+                    pairs[0] = 0;
+                    sequential.overlaps(x, y, r, n, counter);
+                    return pairs[0];
+                });
+                if (n < sizes[sizes.length - 1]) continue;
+                for (int threads : Bench.threads()) {
+                    ForkJoinPool pool = new ForkJoinPool(threads);
+                    CircleOverlaps overlaps = new CircleOverlaps(pool);
+                    Bench.measure(pw, "meeting pairs x" + threads, workload, n, () -> {
+                        pairs[0] = 0;
+                        overlaps.overlaps(x, y, r, n, counter);
+                        return pairs[0];
+                    });
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    static void report(PrintWriter pw, String name, int n, int reps, long nanos) {
+        double ms = nanos / 1e6 / reps;
+        pw.printf("%-28s %10.2f ms/run %10.2f Mrecords/s%n", name, ms, n / ms / 1e3);
+        pw.flush();
+    }
+
     public static void main(String[] args) throws Exception {
+        if (Metrics.ENABLED) Metrics.export("circle-intersection");
+        if (args.length > 0 && args[0].equals("check")) {
+            PrintWriter pw = new PrintWriter(System.out);
+            if (selfCheck(pw, args.length > 1 ? Integer.parseInt(args[1]) : 500) > 0) System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(new PrintWriter(System.out));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("suite")) {
+            suite(new PrintWriter(System.out), args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("convert")) {
+            PointIO.convert(args[1], args[2]);
+            return;
+        }
+
         PrintWriter out = new PrintWriter(System.out);
 
         // Circle center (0, 0), radius 5
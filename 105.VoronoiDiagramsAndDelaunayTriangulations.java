@@ -15,7 +15,17 @@
 import java.awt.*;
 import java.awt.geom.Line2D;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import javax.swing.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import javax.management.*;
 
 /*  In this code, we implement both Voronoi Diagram and Delaunay Triangulation 
     in Java using Swing for visualization.
@@ -26,7 +36,8 @@ import javax.swing.*;
 public class VoronoiDelaunay extends JPanel {
     private final int n = 10; // number of random points
     private final Point[] pts = new Point[n];
-    private final java.util.List<Triangle> triangles = new ArrayList<>();
+    private Delaunay mesh;
+    private Voronoi cells;
 
     // Constructor
     public VoronoiDelaunay() {
@@ -37,52 +48,1660 @@ public class VoronoiDelaunay extends JPanel {
         computeDelaunay();
     }
 
-    // Class to represent a triangle
-    static class Triangle {
-        Point a, b, c;
-        Triangle(Point a, Point b, Point c) {
-            this.a = a; this.b = b; this.c = c;
+    // Shared predicate kernel. Every algorithm file carries its own copy, cut down
+    // to the predicates it calls, so each file still runs on its own. The double
+    // predicates (orient2d, incircle) are exact: a floating-point filter decides the
+    // common case, and only inputs within its error bound are re-evaluated with
+    // exact expansion arithmetic (Shewchuk).
+    static final class Predicates {
+        private Predicates() {
+        }
+
+        static final double EPS = 0x1p-53;
+        static final double CCW_ERR = (3 + 16 * EPS) * EPS;
+        static final double ICC_ERR = (10 + 96 * EPS) * EPS;
+
+        // Sign of (a - c) x (b - c) for double coordinates: 1 counterclockwise,
+        // -1 clockwise, 0 collinear. Exact.
+        static int orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+            double detLeft = (ax - cx) * (by - cy);
+            double detRight = (ay - cy) * (bx - cx);
+            double det = detLeft - detRight, detSum;
+            if (detLeft > 0) {
+                if (detRight <= 0) return signum(det);
+                detSum = detLeft + detRight;
+            } else if (detLeft < 0) {
+                if (detRight >= 0) return signum(det);
+                detSum = -detLeft - detRight;
+            } else {
+                return signum(det);
+            }
+            if (Math.abs(det) >= CCW_ERR * detSum) return signum(det);
+
+            // Too close to call: evaluate the determinant exactly
+            double[] acx = diff(ax, cx), acy = diff(ay, cy);
+            double[] bcx = diff(bx, cx), bcy = diff(by, cy);
+            return sign(sum(mul(acx, bcy), negate(mul(acy, bcx))));
+        }
+
+        // Sign of the in-circle determinant for double coordinates: 1 if d lies
+        // inside the circle through counterclockwise a, b, c, -1 outside, 0 on it
+        // (signs flip for clockwise a, b, c). Exact.
+        static int incircle(double ax, double ay, double bx, double by,
+                            double cx, double cy, double dx, double dy) {
+            double adx = ax - dx, ady = ay - dy;
+            double bdx = bx - dx, bdy = by - dy;
+            double cdx = cx - dx, cdy = cy - dy;
+            double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy, alift = adx * adx + ady * ady;
+            double cdxady = cdx * ady, adxcdy = adx * cdy, blift = bdx * bdx + bdy * bdy;
+            double adxbdy = adx * bdy, bdxady = bdx * ady, clift = cdx * cdx + cdy * cdy;
+            double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+            double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+                             + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+                             + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+            if (Math.abs(det) > ICC_ERR * permanent) return signum(det);
+
+            // Too close to call: evaluate the determinant exactly
+            double[] eax = diff(ax, dx), eay = diff(ay, dy);
+            double[] ebx = diff(bx, dx), eby = diff(by, dy);
+            double[] ecx = diff(cx, dx), ecy = diff(cy, dy);
+            double[] al = sum(mul(eax, eax), mul(eay, eay));
+            double[] bl = sum(mul(ebx, ebx), mul(eby, eby));
+            double[] cl = sum(mul(ecx, ecx), mul(ecy, ecy));
+            double[] bc = sum(mul(ebx, ecy), negate(mul(ecx, eby)));
+            double[] ca = sum(mul(ecx, eay), negate(mul(eax, ecy)));
+            double[] ab = sum(mul(eax, eby), negate(mul(ebx, eay)));
+            return sign(sum(sum(mul(al, bc), mul(bl, ca)), mul(cl, ab)));
+        }
+
+        private static int signum(double v) {
+            return v > 0 ? 1 : v < 0 ? -1 : 0;
+        }
+
+        // Exact expansion arithmetic. An expansion is a double[] of non-overlapping
+        // components in increasing magnitude whose sum is the exact value.
+        // These only run when a filter cannot decide, so they may allocate.
+
+        // a + b and a - b as exact two-component expansions
+        static double[] sum(double a, double b) {
+            double x = a + b, bv = x - a, av = x - bv;
+            return new double[]{(a - av) + (b - bv), x};
+        }
+
+        static double[] diff(double a, double b) {
+            return sum(a, -b);
+        }
+
+        static double[] sum(double[] e, double[] f) {
+            double[] h = e;
+            for (double b : f) h = grow(h, b);
+            return h;
+        }
+
+        static double[] mul(double[] e, double[] f) {
+            double[] h = {0};
+            for (double b : f) h = sum(h, scale(e, b));
+            return h;
+        }
+
+        static double[] negate(double[] e) {
+            double[] h = new double[e.length];
+            for (int i = 0; i < e.length; i++) h[i] = -e[i];
+            return h;
+        }
+
+        // Sign of an expansion: the sign of its largest component
+        static int sign(double[] e) {
+            return signum(e[e.length - 1]);
+        }
+
+        // e + b, dropping zero components
+        private static double[] grow(double[] e, double b) {
+            double[] h = new double[e.length + 1];
+            int k = 0;
+            double q = b;
+            for (double v : e) {
+                double x = q + v, bv = x - q, av = x - bv;
+                double err = (q - av) + (v - bv);
+                if (err != 0) h[k++] = err;
+                q = x;
+            }
+            if (q != 0 || k == 0) h[k++] = q;
+            return k == h.length ? h : Arrays.copyOf(h, k);
+        }
+
+        // e * b, dropping zero components
+        private static double[] scale(double[] e, double b) {
+            double[] h = new double[2 * e.length];
+            int k = 0;
+            double q = e[0] * b, err = Math.fma(e[0], b, -q);
+            if (err != 0) h[k++] = err;
+            for (int i = 1; i < e.length; i++) {
+                double p1 = e[i] * b, p0 = Math.fma(e[i], b, -p1);
+                double s = q + p0, bv = s - q, av = s - bv;
+                err = (q - av) + (p0 - bv);
+                if (err != 0) h[k++] = err;
+                q = p1 + s;
+                err = s - (q - p1);
+                if (err != 0) h[k++] = err;
+            }
+            if (q != 0 || k == 0) h[k++] = q;
+            return k == h.length ? h : Arrays.copyOf(h, k);
         }
     }
 
-    // Function to compute Delaunay (naive O(n^4))
-    private void computeDelaunay() {
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                for (int k = j + 1; k < n; k++) {
-                    if (isDelaunay(pts[i], pts[j], pts[k])) {
-                        triangles.add(new Triangle(pts[i], pts[j], pts[k]));
+    // Headless batch I/O. Every algorithm file carries its own copy of this class,
+    // trimmed to what it uses.
+    //
+    // Binary tables start with a 24-byte little-endian header: magic "GEOB", the
+    // column count, the element type (0 = int32, 1 = float64), a reserved zero word
+    // and the record count as a long. The columns follow one after another. Files are memory-mapped and
+    // each column is bulk-copied straight into a primitive array, no parsing.
+    // Anything without the magic is read as text: one record per line, numbers
+    // separated by spaces, tabs or commas, '#' starts a comment.
+    static final class PointIO {
+        static final int MAGIC = 0x424F4547; // "GEOB" read little-endian
+        static final int INT32 = 0, FLOAT64 = 1;
+        private static final int HEADER = 24;
+        private static final long WINDOW = 1 << 30; // bytes mapped at a time
+
+        // n records of `columns` values each, stored by column
+        static final class Table {
+            final int n, columns;
+            final int[][] ints;       // int32 tables
+            final double[][] doubles; // float64 tables
+
+            Table(int n, int[][] ints) {
+                this.n = n;
+                this.columns = ints.length;
+                this.ints = ints;
+                this.doubles = null;
+            }
+
+            Table(int n, double[][] doubles) {
+                this.n = n;
+                this.columns = doubles.length;
+                this.ints = null;
+                this.doubles = doubles;
+            }
+
+            double[] doubleColumn(int c) {
+                if (doubles != null) return doubles[c];
+                double[] col = new double[n];
+                for (int i = 0; i < n; i++) col[i] = ints[c][i];
+                return col;
+            }
+
+            void requireColumns(int c) {
+                if (columns != c)
+                    throw new IllegalArgumentException("expected " + c + " values per record, got " + columns);
+            }
+        }
+
+        // Reads a binary or text table; "-" reads text from stdin
+        static Table read(String path) throws IOException {
+            if (path.equals("-")) return readText(System.in);
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                if (ch.size() >= HEADER) {
+                    ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                    while (head.hasRemaining() && ch.read(head, head.position()) > 0) { }
+                    head.flip();
+                    if (head.getInt() == MAGIC) return readBinary(ch, head);
+                }
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                return readText(in);
+            }
+        }
+
+        private static Table readBinary(FileChannel ch, ByteBuffer head) throws IOException {
+            int columns = head.getInt(), type = head.getInt();
+            head.getInt(); // reserved
+            long count = head.getLong();
+            int width = type == INT32 ? 4 : 8;
+            if (columns <= 0 || (type != INT32 && type != FLOAT64) || count < 0 || count > Integer.MAX_VALUE - 8
+                    || ch.size() < HEADER + count * width * columns)
+                throw new IOException("corrupt GEOB header");
+            int n = (int) count;
+            long offset = HEADER;
+            if (type == INT32) {
+                int[][] cols = new int[columns][n];
+                for (int[] col : cols) {
+                    for (int done = 0; done < n; ) {
+                        int len = (int) Math.min(n - done, WINDOW / 4);
+                        ch.map(FileChannel.MapMode.READ_ONLY, offset, 4L * len)
+                          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(col, done, len);
+                        offset += 4L * len;
+                        done += len;
+                    }
+                }
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (double[] col : cols) {
+                for (int done = 0; done < n; ) {
+                    int len = (int) Math.min(n - done, WINDOW / 8);
+                    ch.map(FileChannel.MapMode.READ_ONLY, offset, 8L * len)
+                      .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(col, done, len);
+                    offset += 8L * len;
+                    done += len;
+                }
+            }
+            return new Table(n, cols);
+        }
+
+        // Line-oriented text reader over a byte buffer; numbers are parsed in place
+        static Table readText(InputStream in) throws IOException {
+            TextReader r = new TextReader(in);
+            double[] vals = new double[1024];
+            int count = 0, columns = -1, onLine = 0, line = 1;
+            boolean integral = true;
+            while (true) {
+                int c = r.peek();
+                if (c == -1 || c == '\n') {
+                    if (onLine > 0) {
+                        if (columns == -1) columns = onLine;
+                        else if (onLine != columns)
+                            throw new IOException("line " + line + ": expected " + columns + " values, got " + onLine);
+                    }
+                    onLine = 0;
+                    if (c == -1) break;
+                    r.skip();
+                    line++;
+                } else if (c == '#') {
+                    while (r.peek() != '\n' && r.peek() != -1) r.skip();
+                } else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+                    r.skip();
+                } else {
+                    if (count == vals.length) vals = Arrays.copyOf(vals, count * 2);
+                    double v = r.number(line);
+                    integral &= v == (int) v && !r.sawFraction;
+                    vals[count++] = v;
+                    onLine++;
+                }
+            }
+            if (columns == -1) return new Table(0, new int[0][0]);
+
+            int n = count / columns;
+            if (integral) {
+                int[][] cols = new int[columns][n];
+                for (int i = 0; i < count; i++) cols[i % columns][i / columns] = (int) vals[i];
+                return new Table(n, cols);
+            }
+            double[][] cols = new double[columns][n];
+            for (int i = 0; i < count; i++) cols[i % columns][i / columns] = vals[i];
+            return new Table(n, cols);
+        }
+
+        private static final class TextReader {
+            private static final double[] POW10 = new double[23];
+            static {
+                POW10[0] = 1;
+                for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+            }
+
+            private final InputStream in;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] token = new byte[64];
+            private int pos, len;
+            boolean sawFraction;
+
+            TextReader(InputStream in) {
+                this.in = in;
+            }
+
+            int peek() throws IOException {
+                if (pos == len) {
+                    len = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (len <= 0) {
+                        len = 0;
+                        return -1;
+                    }
+                }
+                return buf[pos];
+            }
+
+            void skip() {
+                pos++;
+            }
+
+            // Decimal number; short ones are assembled exactly from an integer
+            // mantissa and a power of ten, the rest go through Double.parseDouble
+            double number(int line) throws IOException {
+                int t = 0, c;
+                while ((c = peek()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                        || (c >= '0' && c <= '9'))) {
+                    if (t == token.length) throw new IOException("line " + line + ": number too long");
+                    token[t++] = (byte) c;
+                    skip();
+                }
+                if (t == 0) throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+
+                int i = 0;
+                boolean neg = token[0] == '-';
+                if (token[0] == '-' || token[0] == '+') i++;
+                long mant = 0;
+                int digits = 0, exp = 0;
+                boolean any = false;
+                sawFraction = false;
+                for (; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                    if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; }
+                    else exp++;
+                }
+                if (i < t && token[i] == '.') {
+                    sawFraction = true;
+                    for (i++; i < t && token[i] >= '0' && token[i] <= '9'; i++, any = true) {
+                        if (digits < 18) { mant = mant * 10 + (token[i] - '0'); if (mant > 0) digits++; exp--; }
                     }
                 }
+                if (i < t && (token[i] == 'e' || token[i] == 'E')) {
+                    sawFraction = true;
+                    return slow(t, line);
+                }
+                if (!any || i != t) throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                if (digits <= 15 && exp >= -22 && exp <= 22) {
+                    double v = exp >= 0 ? mant * POW10[exp] : mant / POW10[-exp];
+                    return neg ? -v : v;
+                }
+                return slow(t, line);
+            }
+
+            private double slow(int t, int line) throws IOException {
+                try {
+                    return Double.parseDouble(new String(token, 0, t));
+                } catch (NumberFormatException e) {
+                    throw new IOException("line " + line + ": bad number '" + new String(token, 0, t) + "'");
+                }
+            }
+        }
+
+        // Writes a table as a binary GEOB file
+        static void writeBinary(Table t, String path) throws IOException {
+            int width = t.ints != null ? 4 : 8;
+            try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(MAGIC).putInt(t.columns).putInt(t.ints != null ? INT32 : FLOAT64).putInt(0).putLong(t.n);
+                for (int c = 0; c < t.columns; c++) {
+                    for (int i = 0; i < t.n; i++) {
+                        if (buf.remaining() < width) {
+                            buf.flip();
+                            while (buf.hasRemaining()) ch.write(buf);
+                            buf.clear();
+                        }
+                        if (t.ints != null) buf.putInt(t.ints[c][i]);
+                        else buf.putDouble(t.doubles[c][i]);
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+        }
+
+        // Streaming text writer: numbers are formatted straight into a byte buffer
+        static final class Writer implements Closeable {
+            private final OutputStream out;
+            private final byte[] buf = new byte[1 << 16];
+            private final byte[] digits = new byte[20];
+            private int pos;
+
+            Writer(OutputStream out) {
+                this.out = out;
+            }
+
+            // "-" writes to stdout
+            static Writer open(String path) throws IOException {
+                return new Writer(path.equals("-") ? System.out : Files.newOutputStream(Paths.get(path)));
+            }
+
+            Writer num(long v) throws IOException {
+                if (v == Long.MIN_VALUE) return text(Long.toString(v));
+                if (v < 0) {
+                    put('-');
+                    v = -v;
+                }
+                int k = 0;
+                do {
+                    digits[k++] = (byte) ('0' + v % 10);
+                    v /= 10;
+                } while (v != 0);
+                while (k > 0) put(digits[--k]);
+                return this;
+            }
+
+            // Integral values print as integers, others as Double.toString does,
+            // which reads back as the same double
+            Writer num(double v) throws IOException {
+                if (v == (long) v && Math.abs(v) < 1e15) return num((long) v);
+                return text(Double.toString(v));
+            }
+
+            Writer text(String s) throws IOException {
+                for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+                return this;
+            }
+
+            Writer sep() throws IOException {
+                put(' ');
+                return this;
+            }
+
+            Writer newline() throws IOException {
+                put('\n');
+                return this;
+            }
+
+            private void put(int b) throws IOException {
+                if (pos == buf.length) flush();
+                buf[pos++] = (byte) b;
+            }
+
+            void flush() throws IOException {
+                out.write(buf, 0, pos);
+                pos = 0;
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+                if (out != System.out) out.close();
+            }
+        }
+
+        // "convert <in> <out>": any readable table to a binary GEOB file
+        static void convert(String in, String out) throws IOException {
+            writeBinary(read(in), out);
+        }
+    }
+
+    // Space-filling-curve order for cache locality. Every algorithm file that
+    // uses it carries its own copy, trimmed to what it calls. Engines opt in by
+    // permuting their input with an order from here and mapping result indices
+    // back through it.
+    //
+    // Points are snapped to a 2^16 x 2^16 grid over their bounding square and
+    // keyed by Hilbert index. The keys are sorted by a three-pass LSD radix sort
+    // that carries the point index, so equal keys keep input order. BRIO (biased
+    // randomized insertion order) deals the points into rounds, the last holding
+    // about half of them, the one before a quarter, and so on; rounds run in that
+    // order, each along the curve. Incremental constructions keep their expected
+    // bounds from the randomness and get locality from the curve.
+    static final class SpatialOrder {
+        static final int BITS = 16;
+        private static final int RADIX = 11;
+
+        static int[] hilbert(double[] xs, double[] ys, int n) {
+            return sort(keys(xs, ys, n), n);
+        }
+
+        static int[] brio(double[] xs, double[] ys, int n, long seed) {
+            return rounds(hilbert(xs, ys, n), n, seed);
+        }
+
+        static double[] permute(double[] a, int[] order, int n) {
+            double[] b = new double[n];
+            for (int k = 0; k < n; k++) b[k] = a[order[k]];
+            return b;
+        }
+
+        // inverse[order[k]] = k
+        static int[] inverse(int[] order, int n) {
+            int[] inv = new int[n];
+            for (int k = 0; k < n; k++) inv[order[k]] = k;
+            return inv;
+        }
+
+        // Hilbert index of grid cell (x, y), 0 <= x, y < 2^BITS, as an unsigned int.
+        // The usual loop rotates quadrant by quadrant and branches on every bit.
+        // Here the quadrant transforms of all 16 levels are composed as a prefix
+        // scan over bit masks in four rounds instead: same curve, no branches.
+        static int key(int x, int y) {
+            int a = x ^ y, b = 0xFFFF ^ a, c = 0xFFFF ^ (x | y), d = x & (y ^ 0xFFFF);
+            int pa = a | (b >>> 1), pb = (a >>> 1) ^ a;
+            int pc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c, pd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+            for (int s = 2; s <= 8; s <<= 1) {
+                a = pa;
+                b = pb;
+                c = pc;
+                d = pd;
+                pa = (a & (a >>> s)) ^ (b & (b >>> s));
+                pb = (a & (b >>> s)) ^ (b & ((a ^ b) >>> s));
+                pc ^= (a & (c >>> s)) ^ (b & (d >>> s));
+                pd ^= (b & (c >>> s)) ^ ((a ^ b) & (d >>> s));
+            }
+            a = pc ^ (pc >>> 1);
+            b = pd ^ (pd >>> 1);
+            int i0 = x ^ y, i1 = b | (0xFFFF ^ (i0 | a));
+            return spread(i1) << 1 | spread(i0);
+        }
+
+        // The low 16 bits of v moved to the even bit positions
+        private static int spread(int v) {
+            v = (v | v << 8) & 0x00FF00FF;
+            v = (v | v << 4) & 0x0F0F0F0F;
+            v = (v | v << 2) & 0x33333333;
+            return (v | v << 1) & 0x55555555;
+        }
+
+        private static long[] keys(double[] xs, double[] ys, int n) {
+            double minX = Double.POSITIVE_INFINITY, minY = minX, maxX = -minX, maxY = -minX;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            double side = Math.max(maxX - minX, maxY - minY);
+            double scale = side > 0 ? ((1 << BITS) - 1) / side : 0;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                int cx = (int) ((xs[i] - minX) * scale), cy = (int) ((ys[i] - minY) * scale);
+                keys[i] = (long) key(cx, cy) << 32 | i;
+            }
+            return keys;
+        }
+
+        // LSD radix sort on the unsigned high word, stable; returns the low words
+        private static int[] sort(long[] keys, int n) {
+            long[] buf = new long[n];
+            int[] count = new int[1 << RADIX];
+            for (int shift = 32; shift < 64; shift += RADIX) {
+                Arrays.fill(count, 0);
+                for (int i = 0; i < n; i++) count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++;
+                for (int b = 0, sum = 0; b < count.length; b++) {
+                    int c = count[b];
+                    count[b] = sum;
+                    sum += c;
+                }
+                for (int i = 0; i < n; i++) buf[count[(int) (keys[i] >>> shift) & (1 << RADIX) - 1]++] = keys[i];
+                long[] t = keys;
+                keys = buf;
+                buf = t;
             }
+            int[] order = new int[n];
+            for (int k = 0; k < n; k++) order[k] = (int) keys[k];
+            return order;
+        }
+
+        // Stable counting sort of a curve order by round. A point's round is the
+        // number of trailing zero bits of a random word, which is r with
+        // probability 2^-(r + 1); the highest round comes first.
+        private static int[] rounds(int[] order, int n, long seed) {
+            Random rnd = new Random(seed);
+            byte[] round = new byte[n];
+            int top = 0;
+            for (int i = 0; i < n; i++) {
+                round[i] = (byte) Long.numberOfTrailingZeros(rnd.nextLong() | 1L << 40);
+                top = Math.max(top, round[i]);
+            }
+            int[] start = new int[top + 2];
+            for (int i = 0; i < n; i++) start[top - round[i] + 1]++;
+            for (int r = 1; r < start.length; r++) start[r] += start[r - 1];
+            int[] out = new int[n];
+            for (int k = 0; k < n; k++) out[start[top - round[order[k]]]++] = order[k];
+            return out;
         }
     }
 
-    // Check if any other point lies inside circumcircle
-    private boolean isDelaunay(Point a, Point b, Point c) {
-        double[] circle = circumcircle(a, b, c);
-        double cx = circle[0], cy = circle[1], r = circle[2];
-        for (Point p : pts) {
-            if (p != a && p != b && p != c) {
-                double d = p.distance(cx, cy);
-                if (d < r - 1e-6) return false;
+    // Standard benchmark workloads and timing. Every algorithm file carries its own
+    // copy, trimmed to the workloads it runs, so the suites of all files share
+    // inputs and output format.
+    //
+    // Workloads are seeded, so a run can be repeated exactly; coordinates lie in
+    // [0, 2^28). A measurement warms up for half a second, then repeats the body
+    // for at least a second. It reports time per run, items per second, and heap
+    // allocated per item and per second summed over all live threads (what JMH's
+    // gc profiler reports). Sizes step by 10 from 10^3.
+    static final class Bench {
+        static final int BOX = 1 << 28;
+        static final long SEED = 42;
+        static final String[] POINTS = {"uniform", "clustered", "circle", "grid"};
+
+        interface Body {
+            long run(); // a checksum, so the work cannot be dropped
+        }
+
+        static int[] sizes(int max) {
+            int k = 0;
+            int[] sizes = new int[10];
+            for (long n = 1000; n <= max; n *= 10) sizes[k++] = (int) n;
+            return Arrays.copyOf(sizes, k);
+        }
+
+        // 1, 2, 4, .. up to and including the number of cores
+        static int[] threads() {
+            int cores = Runtime.getRuntime().availableProcessors(), k = 0;
+            int[] counts = new int[32];
+            for (int t = 1; ; t = Math.min(cores, t * 2)) {
+                counts[k++] = t;
+                if (t == cores) break;
             }
+            return Arrays.copyOf(counts, k);
+        }
+
+        // n points of a workload:
+        //   uniform    anywhere in the box
+        //   clustered  64 tight Gaussian clusters
+        //   circle     on one circle, the worst case for hulls
+        //   grid       lattice points, so repeated, collinear and cocircular
+        static void points(String workload, int n, long seed, int[] xs, int[] ys) {
+            Random rnd = new Random(seed);
+            int side = (int) Math.ceil(Math.sqrt(n)), step = BOX / Math.max(1, side);
+            int[] cx = new int[64], cy = new int[64];
+            for (int c = 0; c < 64; c++) {
+                cx[c] = rnd.nextInt(BOX);
+                cy[c] = rnd.nextInt(BOX);
+            }
+            for (int i = 0; i < n; i++) {
+                switch (workload) {
+                    case "uniform":
+                        xs[i] = rnd.nextInt(BOX);
+                        ys[i] = rnd.nextInt(BOX);
+                        break;
+                    case "clustered":
+                        int c = rnd.nextInt(64);
+                        xs[i] = clamp(cx[c] + rnd.nextGaussian() * (BOX >> 10));
+                        ys[i] = clamp(cy[c] + rnd.nextGaussian() * (BOX >> 10));
+                        break;
+                    case "circle":
+                        double a = 2 * Math.PI * (i + rnd.nextDouble()) / n;
+                        xs[i] = clamp(BOX / 2 + Math.cos(a) * (BOX / 2 - 1));
+                        ys[i] = clamp(BOX / 2 + Math.sin(a) * (BOX / 2 - 1));
+                        break;
+                    case "grid":
+                        xs[i] = rnd.nextInt(side) * step;
+                        ys[i] = rnd.nextInt(side) * step;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown point workload " + workload);
+                }
+            }
+        }
+
+        static double[] doubles(int[] a, int n) {
+            double[] d = new double[n];
+            for (int i = 0; i < n; i++) d[i] = a[i];
+            return d;
+        }
+
+        static void header(PrintWriter pw) {
+            pw.printf("%-32s %-10s %9s %14s %16s %13s %12s%n", "benchmark", "workload", "n", "time", "throughput",
+                "allocated", "alloc rate");
+            pw.flush();
+        }
+
+        static void measure(PrintWriter pw, String name, String workload, int n, Body body) {
+            long sink = 0;
+            long end = System.nanoTime() + 500_000_000L;
+            do sink += body.run(); while (System.nanoTime() < end);
+            long runs = 0, bytes = allocated(), t0 = System.nanoTime(), nanos;
+            do {
+                sink += body.run();
+                runs++;
+            } while ((nanos = System.nanoTime() - t0) < 1_000_000_000L);
+            bytes = allocated() - bytes;
+            double ms = nanos / 1e6 / runs;
+            pw.printf("%-32s %-10s %9d %10.3f ms %10.2f Mitem/s %8.1f B/item %7.1f MB/s%n", name, workload, n, ms,
+                n / ms / 1e3, (double) bytes / runs / n, bytes / (nanos / 1e3));
+            if (sink == 42) pw.print("");
+            pw.flush();
+        }
+
+        // Bytes allocated so far by every live thread
+        private static long allocated() {
+            com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            long sum = 0;
+            for (long b : mx.getThreadAllocatedBytes(mx.getAllThreadIds())) sum += Math.max(b, 0);
+            return sum;
+        }
+
+        private static int clamp(double v) {
+            return (int) Math.max(0, Math.min(BOX - 1, Math.round(v)));
+        }
+    }
+
+    // Optional hot-path metrics. Every algorithm file carries its own copy of this
+    // class, trimmed to the kinds of metric it uses.
+    // They are off unless the JVM runs with -Dgeometry.metrics=true; ENABLED is
+    // a static final, so with it off the JIT drops every `if (Metrics.ENABLED)`
+    // block and the engines run as before. Engines count into locals or plain
+    // fields and publish once per call, so hot loops never touch shared state.
+    //
+    // Counters sum, and timers sum calls and nanoseconds per phase. Both are
+    // striped (LongAdder), so any number of threads can publish at once. snapshot() reads them by name, and
+    // export() serves the same values as read-only attributes of the MBean
+    // geometry:type=Metrics,name=<engine>, and prints them to stderr on exit.
+    static final class Metrics {
+        static final boolean ENABLED = Boolean.getBoolean("geometry.metrics");
+        private static final Map<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+        private Metrics() {
+        }
+
+        static final class Counter {
+            private final LongAdder sum = new LongAdder();
+
+            void add(long v) {
+                sum.add(v);
+            }
+        }
+
+        static final class Timer {
+            private final LongAdder calls = new LongAdder(), nanos = new LongAdder();
+
+            // Adds the time since start and returns now, the start of the next phase
+            long lap(long start) {
+                long now = System.nanoTime();
+                calls.increment();
+                nanos.add(now - start);
+                return now;
+            }
+        }
+
+        static Counter counter(String name) {
+            return register(name, new Counter());
+        }
+
+        static Timer timer(String name) {
+            return register(name, new Timer());
+        }
+
+        // Start of a timed phase, 0 when metrics are off
+        static long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        // Current values by name; a timer shows up as name.calls and name.ns
+        static Map<String, Long> snapshot() {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+                String name = e.getKey();
+                Object m = e.getValue();
+                if (m instanceof Counter) {
+                    values.put(name, ((Counter) m).sum.sum());
+                } else {
+                    values.put(name + ".calls", ((Timer) m).calls.sum());
+                    values.put(name + ".ns", ((Timer) m).nanos.sum());
+                }
+            }
+            return values;
+        }
+
+        static void reset() {
+            for (Object m : REGISTRY.values()) {
+                if (m instanceof Counter) {
+                    ((Counter) m).sum.reset();
+                } else {
+                    ((Timer) m).calls.reset();
+                    ((Timer) m).nanos.reset();
+                }
+            }
+        }
+
+        static void print(PrintWriter pw) {
+            for (Map.Entry<String, Long> e : snapshot().entrySet()) pw.printf("%-40s %15d%n", e.getKey(), e.getValue());
+            pw.flush();
+        }
+
+        static void export(String engine) {
+            try {
+                java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new View(), new ObjectName("geometry:type=Metrics,name=" + engine));
+            } catch (JMException e) {
+                throw new IllegalStateException("cannot export metrics for " + engine, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> print(new PrintWriter(System.err))));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T register(String name, T metric) {
+            Object old = REGISTRY.putIfAbsent(name, metric);
+            if (old == null) return metric;
+            if (old.getClass() != metric.getClass()) throw new IllegalArgumentException("metric " + name + " exists");
+            return (T) old;
+        }
+
+        // The snapshot as a dynamic MBean: one long attribute per value, and a
+        // reset operation
+        private static final class View implements DynamicMBean {
+            @Override
+            public Object getAttribute(String name) throws AttributeNotFoundException {
+                Long v = snapshot().get(name);
+                if (v == null) throw new AttributeNotFoundException(name);
+                return v;
+            }
+
+            @Override
+            public AttributeList getAttributes(String[] names) {
+                Map<String, Long> values = snapshot();
+                AttributeList list = new AttributeList();
+                for (String name : names)
+                    if (values.containsKey(name)) list.add(new Attribute(name, values.get(name)));
+                return list;
+            }
+
+            @Override
+            public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+            }
+
+            @Override
+            public AttributeList setAttributes(AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+                if (!action.equals("reset")) throw new ReflectionException(new NoSuchMethodException(action));
+                reset();
+                return null;
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                Set<String> names = snapshot().keySet();
+                MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+                int k = 0;
+                for (String name : names)
+                    attributes[k++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+                MBeanOperationInfo reset = new MBeanOperationInfo("reset", "zero every metric",
+                    new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+                return new MBeanInfo(Metrics.class.getName(), "geometry engine metrics", attributes, null,
+                    new MBeanOperationInfo[]{reset}, null);
+            }
+        }
+    }
+
+    // Headless Delaunay engine. Sites are read from parallel double[] buffers and
+    // the mesh is stored as flat index arrays: triangles[3t..3t+2] are the vertices
+    // of triangle t (counterclockwise) and halfedges[e] is the half-edge opposite
+    // to e in the neighbouring triangle, or -1 on the hull. Half-edge e runs from
+    // triangles[e] to triangles[next(e)].
+    //
+    // Construction is a sweep-hull incremental insertion: sites are sorted by
+    // distance from a seed triangle, so each new site lies outside the current hull.
+    // It is joined to the visible hull edges (found through an angular hash) and
+    // the new triangles are legalized with edge flips. Expected O(n log n).
+    //
+    // With metrics on, each build publishes its sites, skipped duplicates and
+    // triangles, the steps spent finding a visible hull edge, the incircle tests
+    // and the flips they forced, and the time for the seed, sort and insertion.
+    static final class Delaunay {
+        private static final Metrics.Counter SITES = Metrics.counter("delaunay.sites");
+        private static final Metrics.Counter DUPLICATES = Metrics.counter("delaunay.duplicates");
+        private static final Metrics.Counter TRIANGLES = Metrics.counter("delaunay.triangles");
+        private static final Metrics.Counter HULL_STEPS = Metrics.counter("delaunay.hull.steps");
+        private static final Metrics.Counter INCIRCLES = Metrics.counter("delaunay.incircle.tests");
+        private static final Metrics.Counter FLIPS = Metrics.counter("delaunay.flips");
+        private static final Metrics.Timer SEED = Metrics.timer("delaunay.seed");
+        private static final Metrics.Timer SORT = Metrics.timer("delaunay.sort");
+        private static final Metrics.Timer INSERT = Metrics.timer("delaunay.insert");
+
+        final double[] xs, ys;
+        final int n;
+        int[] triangles;  // 3 vertex indices per triangle
+        int[] halfedges;  // opposite half-edge, -1 on the hull
+        int[] hull;       // hull vertex indices, counterclockwise
+
+        private int trianglesLen;
+        private int[] hullPrev, hullNext, hullTri, hullHash;
+        private int hashSize, hullStart;
+        private double cx, cy;
+        private int[] edgeStack = new int[512];
+        private long incircles, flips; // counted only with metrics on
+
+        Delaunay(double[] xs, double[] ys, int n) {
+            this.xs = xs;
+            this.ys = ys;
+            this.n = n;
+            build();
+        }
+
+        int triangleCount() {
+            return triangles.length / 3;
+        }
+
+        static int next(int e) {
+            return e % 3 == 2 ? e - 2 : e + 1;
+        }
+
+        static int prev(int e) {
+            return e % 3 == 0 ? e + 2 : e - 1;
+        }
+
+        private void build() {
+            int maxTriangles = Math.max(2 * n - 5, 0);
+            triangles = new int[maxTriangles * 3];
+            halfedges = new int[maxTriangles * 3];
+            hashSize = (int) Math.ceil(Math.sqrt(n));
+            hullPrev = new int[n];
+            hullNext = new int[n];
+            hullTri = new int[n];
+            hullHash = new int[Math.max(hashSize, 1)];
+            int[] ids = new int[n];
+            double[] dists = new double[n];
+            long time = Metrics.start();
+            if (Metrics.ENABLED) SITES.add(n);
+
+            // Step 1: Seed triangle: the site closest to the bounding box center, its
+            // nearest site, and the site forming the smallest circumcircle with both
+            double minX = Double.POSITIVE_INFINITY, minY = minX;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = maxX;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+                ids[i] = i;
+            }
+            double mx = (minX + maxX) / 2, my = (minY + maxY) / 2;
+            int i0 = -1, i1 = -1, i2 = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                double d = dist(mx, my, xs[i], ys[i]);
+                if (d < best) {
+                    i0 = i;
+                    best = d;
+                }
+            }
+            best = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (i == i0) continue;
+                double d = dist(xs[i0], ys[i0], xs[i], ys[i]);
+                if (d < best && d > 0) {
+                    i1 = i;
+                    best = d;
+                }
+            }
+            best = Double.POSITIVE_INFINITY;
+            if (i1 != -1) {
+                for (int i = 0; i < n; i++) {
+                    if (i == i0 || i == i1) continue;
+                    double r = circumradius(xs[i0], ys[i0], xs[i1], ys[i1], xs[i], ys[i]);
+                    if (r < best && Predicates.orient2d(xs[i0], ys[i0], xs[i1], ys[i1], xs[i], ys[i]) != 0) {
+                        i2 = i;
+                        best = r;
+                    }
+                }
+            }
+            if (i2 == -1) {
+                collinearHull(ids, dists);
+                return;
+            }
+
+            // Counterclockwise seed
+            if (Predicates.orient2d(xs[i0], ys[i0], xs[i1], ys[i1], xs[i2], ys[i2]) < 0) {
+                int t = i1;
+                i1 = i2;
+                i2 = t;
+            }
+            double[] c = circumcenter(xs[i0], ys[i0], xs[i1], ys[i1], xs[i2], ys[i2]);
+            cx = c[0];
+            cy = c[1];
+            if (Metrics.ENABLED) time = SEED.lap(time);
+
+            // Step 2: Sort sites by distance from the seed circumcenter
+            for (int i = 0; i < n; i++) dists[i] = dist(xs[i], ys[i], cx, cy);
+            quicksort(ids, dists, 0, n - 1);
+            if (Metrics.ENABLED) time = SORT.lap(time);
+
+            // The seed triangle is the starting hull
+            hullStart = i0;
+            int hullSize = 3;
+            hullNext[i0] = hullPrev[i2] = i1;
+            hullNext[i1] = hullPrev[i0] = i2;
+            hullNext[i2] = hullPrev[i1] = i0;
+            hullTri[i0] = 0;
+            hullTri[i1] = 1;
+            hullTri[i2] = 2;
+            Arrays.fill(hullHash, -1);
+            hullHash[hashKey(xs[i0], ys[i0])] = i0;
+            hullHash[hashKey(xs[i1], ys[i1])] = i1;
+            hullHash[hashKey(xs[i2], ys[i2])] = i2;
+            trianglesLen = 0;
+            addTriangle(i0, i1, i2, -1, -1, -1);
+
+            // Step 3: Insert the remaining sites in order
+            double xp = 0, yp = 0;
+            long duplicates = 0, steps = 0;
+            for (int k = 0; k < n; k++) {
+                int i = ids[k];
+                double x = xs[i], y = ys[i];
+                if (k > 0 && x == xp && y == yp) { // duplicate site
+                    if (Metrics.ENABLED) duplicates++;
+                    continue;
+                }
+                xp = x;
+                yp = y;
+                if (i == i0 || i == i1 || i == i2) continue;
+
+                // Find a visible hull edge, starting from the angular hash
+                int start = 0;
+                for (int j = 0, key = hashKey(x, y); j < hashSize; j++) {
+                    start = hullHash[(key + j) % hashSize];
+                    if (start != -1 && start != hullNext[start]) break;
+                }
+                start = hullPrev[start];
+                int e = start, q;
+                while (Predicates.orient2d(x, y, xs[e], ys[e], xs[q = hullNext[e]], ys[q]) >= 0) {
+                    e = q;
+                    if (Metrics.ENABLED) steps++;
+                    if (e == start) {
+                        e = -1;
+                        break;
+                    }
+                }
+                if (e == -1) { // on the hull already, a duplicate site
+                    if (Metrics.ENABLED) duplicates++;
+                    continue;
+                }
+
+                // First triangle from the site, then flip until locally Delaunay
+                int t = addTriangle(e, i, hullNext[e], -1, -1, hullTri[e]);
+                hullTri[i] = legalize(t + 2);
+                hullTri[e] = t;
+                hullSize++;
+
+                // Walk forward through the hull adding triangles
+                int nx = hullNext[e];
+                while (Predicates.orient2d(x, y, xs[nx], ys[nx], xs[q = hullNext[nx]], ys[q]) < 0) {
+                    t = addTriangle(nx, i, q, hullTri[i], -1, hullTri[nx]);
+                    hullTri[i] = legalize(t + 2);
+                    hullNext[nx] = nx; // removed from the hull
+                    hullSize--;
+                    nx = q;
+                }
+                // ... and backward from the other side
+                if (e == start) {
+                    while (Predicates.orient2d(x, y, xs[q = hullPrev[e]], ys[q], xs[e], ys[e]) < 0) {
+                        t = addTriangle(q, i, e, -1, hullTri[e], hullTri[q]);
+                        legalize(t + 2);
+                        hullTri[q] = t;
+                        hullNext[e] = e;
+                        hullSize--;
+                        e = q;
+                    }
+                }
+
+                hullStart = hullPrev[i] = e;
+                hullNext[e] = hullPrev[nx] = i;
+                hullNext[i] = nx;
+                hullHash[hashKey(x, y)] = i;
+                hullHash[hashKey(xs[e], ys[e])] = e;
+            }
+
+            hull = new int[hullSize];
+            for (int i = 0, e = hullStart; i < hullSize; i++) {
+                hull[i] = e;
+                e = hullNext[e];
+            }
+            triangles = Arrays.copyOf(triangles, trianglesLen);
+            halfedges = Arrays.copyOf(halfedges, trianglesLen);
+            hullPrev = hullNext = hullTri = hullHash = null;
+            if (Metrics.ENABLED) {
+                DUPLICATES.add(duplicates);
+                TRIANGLES.add(trianglesLen / 3);
+                HULL_STEPS.add(steps);
+                INCIRCLES.add(incircles);
+                FLIPS.add(flips);
+                INSERT.lap(time);
+            }
+        }
+
+        // All sites collinear: no triangles, the hull is the distinct sites in order
+        private void collinearHull(int[] ids, double[] dists) {
+            for (int i = 0; i < n; i++) {
+                double d = xs[i] - xs[0];
+                dists[i] = d != 0 ? d : ys[i] - ys[0];
+            }
+            if (n > 0) quicksort(ids, dists, 0, n - 1);
+            int[] h = new int[n];
+            int j = 0;
+            double d0 = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                int id = ids[i];
+                if (dists[id] > d0) {
+                    h[j++] = id;
+                    d0 = dists[id];
+                }
+            }
+            hull = Arrays.copyOf(h, j);
+            triangles = new int[0];
+            halfedges = new int[0];
+        }
+
+        // Flip edge a (and the edges behind it) until every pair is locally Delaunay.
+        // Returns the half-edge that now ends at the new site.
+        private int legalize(int a) {
+            int i = 0, ar;
+            while (true) {
+                int b = halfedges[a];
+                int a0 = a - a % 3;
+                ar = a0 + (a + 2) % 3;
+                if (b == -1) { // hull edge
+                    if (i == 0) break;
+                    a = edgeStack[--i];
+                    continue;
+                }
+                int b0 = b - b % 3;
+                int al = a0 + (a + 1) % 3;
+                int bl = b0 + (b + 2) % 3;
+                int p0 = triangles[ar], pr = triangles[a], pl = triangles[al], p1 = triangles[bl];
+
+                if (Metrics.ENABLED) incircles++;
+                if (Predicates.incircle(xs[p0], ys[p0], xs[pr], ys[pr], xs[pl], ys[pl], xs[p1], ys[p1]) > 0) {
+                    if (Metrics.ENABLED) flips++;
+                    triangles[a] = p1;
+                    triangles[b] = p0;
+                    int hbl = halfedges[bl];
+                    if (hbl == -1) { // flipped an edge on the far side of the hull
+                        int e = hullStart;
+                        do {
+                            if (hullTri[e] == bl) {
+                                hullTri[e] = a;
+                                break;
+                            }
+                            e = hullPrev[e];
+                        } while (e != hullStart);
+                    }
+                    link(a, hbl);
+                    link(b, halfedges[ar]);
+                    link(ar, bl);
+                    if (i == edgeStack.length) edgeStack = Arrays.copyOf(edgeStack, i * 2);
+                    edgeStack[i++] = b0 + (b + 1) % 3;
+                } else {
+                    if (i == 0) break;
+                    a = edgeStack[--i];
+                }
+            }
+            return ar;
+        }
+
+        private void link(int a, int b) {
+            halfedges[a] = b;
+            if (b != -1) halfedges[b] = a;
+        }
+
+        private int addTriangle(int i0, int i1, int i2, int a, int b, int c) {
+            int t = trianglesLen;
+            triangles[t] = i0;
+            triangles[t + 1] = i1;
+            triangles[t + 2] = i2;
+            link(t, a);
+            link(t + 1, b);
+            link(t + 2, c);
+            trianglesLen += 3;
+            return t;
+        }
+
+        // Bucket of a site by its pseudo-angle around the seed circumcenter
+        private int hashKey(double x, double y) {
+            double dx = x - cx, dy = cy - y;
+            double p = dx / (Math.abs(dx) + Math.abs(dy));
+            double angle = (dy > 0 ? 3 - p : 1 + p) / 4; // monotonic in the true angle
+            return (int) Math.floor(angle * hashSize) % hashSize;
+        }
+
+        private static double dist(double ax, double ay, double bx, double by) {
+            double dx = ax - bx, dy = ay - by;
+            return dx * dx + dy * dy;
+        }
+
+        static double circumradius(double ax, double ay, double bx, double by, double cx, double cy) {
+            double dx = bx - ax, dy = by - ay, ex = cx - ax, ey = cy - ay;
+            double bl = dx * dx + dy * dy, cl = ex * ex + ey * ey;
+            double d = 0.5 / (dx * ey - dy * ex);
+            double x = (ey * bl - dy * cl) * d, y = (dx * cl - ex * bl) * d;
+            return x * x + y * y;
+        }
+
+        static double[] circumcenter(double ax, double ay, double bx, double by, double cx, double cy) {
+            double dx = bx - ax, dy = by - ay, ex = cx - ax, ey = cy - ay;
+            double bl = dx * dx + dy * dy, cl = ex * ex + ey * ey;
+            double d = 0.5 / (dx * ey - dy * ex);
+            return new double[]{ax + (ey * bl - dy * cl) * d, ay + (dx * cl - ex * bl) * d};
+        }
+
+        // Sort ids by dists[id]: median-of-three quicksort, insertion sort for short
+        // ranges, recursing into the smaller side only
+        private static void quicksort(int[] ids, double[] dists, int left, int right) {
+            while (right - left > 20) {
+                int median = (left + right) >>> 1, i = left + 1, j = right;
+                swap(ids, median, i);
+                if (dists[ids[left]] > dists[ids[right]]) swap(ids, left, right);
+                if (dists[ids[i]] > dists[ids[right]]) swap(ids, i, right);
+                if (dists[ids[left]] > dists[ids[i]]) swap(ids, left, i);
+                int temp = ids[i];
+                double tempDist = dists[temp];
+                while (true) {
+                    do i++; while (dists[ids[i]] < tempDist);
+                    do j--; while (dists[ids[j]] > tempDist);
+                    if (j < i) break;
+                    swap(ids, i, j);
+                }
+                ids[left + 1] = ids[j];
+                ids[j] = temp;
+                if (right - i + 1 >= j - left) {
+                    quicksort(ids, dists, left, j - 1);
+                    left = i;
+                } else {
+                    quicksort(ids, dists, i, right);
+                    right = j - 1;
+                }
+            }
+            for (int i = left + 1; i <= right; i++) {
+                int temp = ids[i], j = i - 1;
+                double tempDist = dists[temp];
+                while (j >= left && dists[ids[j]] > tempDist) ids[j + 1] = ids[j--];
+                ids[j + 1] = temp;
+            }
+        }
+
+        private static void swap(int[] a, int i, int j) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    // Voronoi diagram derived from a Delaunay mesh, clipped to a bounding box.
+    // Circumcenters are computed once per triangle. Cells are stored flat: the
+    // vertices of cell i are (cellXs[k], cellYs[k]) for k in
+    // [cellOffsets[i], cellOffsets[i + 1]), counterclockwise.
+    //
+    // An interior site's cell is the polygon of the circumcenters around it,
+    // clipped to the box only when it leaves it. A hull site's cell is unbounded,
+    // so it is built by clipping the box with the bisectors of its Delaunay
+    // neighbours. Total work is O(n).
+    static final class Voronoi {
+        final Delaunay mesh;
+        final double minX, minY, maxX, maxY;
+        final double[] circumX, circumY; // one circumcenter per triangle
+        int[] cellOffsets;
+        double[] cellXs, cellYs;
+
+        private final int[] inedges; // a half-edge ending at each site, hull edges preferred
+        private final boolean[] onHull;
+        private int size;
+        private double[] ax = new double[16], ay = new double[16]; // clipping buffers
+        private double[] bx = new double[16], by = new double[16];
+
+        Voronoi(Delaunay mesh, double minX, double minY, double maxX, double maxY) {
+            this.mesh = mesh;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            int n = mesh.n;
+            int[] tri = mesh.triangles, he = mesh.halfedges;
+
+            // Step 1: Circumcenters, once per triangle
+            int t = tri.length / 3;
+            circumX = new double[t];
+            circumY = new double[t];
+            double[] xs = mesh.xs, ys = mesh.ys;
+            for (int i = 0; i < t; i++) {
+                int a = tri[3 * i], b = tri[3 * i + 1], c = tri[3 * i + 2];
+                double dx = xs[b] - xs[a], dy = ys[b] - ys[a];
+                double ex = xs[c] - xs[a], ey = ys[c] - ys[a];
+                double bl = dx * dx + dy * dy, cl = ex * ex + ey * ey;
+                double d = 0.5 / (dx * ey - dy * ex);
+                circumX[i] = xs[a] + (ey * bl - dy * cl) * d;
+                circumY[i] = ys[a] + (dx * cl - ex * bl) * d;
+            }
+
+            // Step 2: Incoming half-edge per site, so each fan starts at the hull
+            inedges = new int[n];
+            Arrays.fill(inedges, -1);
+            for (int e = 0; e < tri.length; e++) {
+                int p = tri[Delaunay.next(e)];
+                if (he[e] == -1 || inedges[p] == -1) inedges[p] = e;
+            }
+            onHull = new boolean[n];
+            for (int h : mesh.hull) onHull[h] = true;
+
+            // Step 3: Cells
+            cellOffsets = new int[n + 1];
+            cellXs = new double[Math.max(16, 6 * n)];
+            cellYs = new double[cellXs.length];
+            for (int i = 0; i < n; i++) {
+                if (onHull[i] || tri.length == 0) hullCell(i);
+                else interiorCell(i);
+                cellOffsets[i + 1] = size;
+            }
+            cellXs = Arrays.copyOf(cellXs, size);
+            cellYs = Arrays.copyOf(cellYs, size);
+        }
+
+        int cellSize(int i) {
+            return cellOffsets[i + 1] - cellOffsets[i];
+        }
+
+        // Circumcenters of the triangles around site i, then clip to the box
+        private void interiorCell(int i) {
+            int e0 = inedges[i];
+            if (e0 == -1) return; // duplicate site, skipped by the triangulation
+            int m = 0, e = e0;
+            do {
+                if (m == ax.length) growBuffers();
+                double x = circumX[e / 3], y = circumY[e / 3];
+                if (m == 0 || x != ax[m - 1] || y != ay[m - 1]) { // cocircular sites share one
+                    ax[m] = x;
+                    ay[m++] = y;
+                }
+                e = mesh.halfedges[Delaunay.next(e)];
+            } while (e != e0);
+            if (m > 1 && ax[m - 1] == ax[0] && ay[m - 1] == ay[0]) m--;
+            reverse(ax, ay, m); // the fan walk runs clockwise
+
+            boolean inside = true;
+            for (int k = 0; k < m && inside; k++)
+                inside = ax[k] >= minX && ax[k] <= maxX && ay[k] >= minY && ay[k] <= maxY;
+            if (!inside) {
+                m = clip(m, 1, 0, minX);   //  x >= minX
+                m = clip(m, -1, 0, -maxX); // -x >= -maxX
+                m = clip(m, 0, 1, minY);
+                m = clip(m, 0, -1, -maxY);
+            }
+            emit(m);
+        }
+
+        // Box clipped by the bisector with every Delaunay neighbour of site i
+        private void hullCell(int i) {
+            int[] tri = mesh.triangles, he = mesh.halfedges;
+            double sx = mesh.xs[i], sy = mesh.ys[i];
+            if (tri.length > 0 && inedges[i] == -1) return; // duplicate site
+            ax[0] = minX; ay[0] = minY;
+            ax[1] = maxX; ay[1] = minY;
+            ax[2] = maxX; ay[2] = maxY;
+            ax[3] = minX; ay[3] = maxY;
+            int m = 4;
+
+            if (tri.length == 0) {
+                // Collinear sites: the neighbours are the adjacent sites on the line
+                int[] hull = mesh.hull;
+                for (int k = 0; k < hull.length; k++) {
+                    if (hull[k] != i) continue;
+                    if (k > 0) m = clipBisector(m, sx, sy, hull[k - 1]);
+                    if (k + 1 < hull.length) m = clipBisector(m, sx, sy, hull[k + 1]);
+                }
+                if (mesh.n > 1 && !onHull[i]) m = 0; // duplicate site
+            } else {
+                int e = inedges[i];
+                do {
+                    m = clipBisector(m, sx, sy, tri[e]);                                // edge into i
+                    m = clipBisector(m, sx, sy, tri[Delaunay.next(Delaunay.next(e))]); // next neighbour
+                    e = he[Delaunay.next(e)];
+                } while (e != -1 && e != inedges[i]);
+            }
+            emit(m);
+        }
+
+        // Keep the side of the bisector of (sx, sy) and site j that is closer to (sx, sy)
+        private int clipBisector(int m, double sx, double sy, int j) {
+            double dx = mesh.xs[j] - sx, dy = mesh.ys[j] - sy;
+            double mx = (mesh.xs[j] + sx) / 2, my = (mesh.ys[j] + sy) / 2;
+            // -(p - mid) . d >= 0
+            return clip(m, -dx, -dy, -(dx * mx + dy * my));
+        }
+
+        // Sutherland-Hodgman step: keep the part of polygon (ax, ay)[0..m) where
+        // nx * x + ny * y >= c. The result is left in (ax, ay). An edge crosses
+        // the line only if its ends lie strictly on opposite sides; an end on
+        // the line is kept as it is, not again as a crossing. A crossing that
+        // rounds onto the vertex before it is dropped too.
+        private int clip(int m, double nx, double ny, double c) {
+            if (m == 0) return 0;
+            if (bx.length < 2 * m) growBuffers();
+            int k = 0;
+            double px = ax[m - 1], py = ay[m - 1];
+            double pd = nx * px + ny * py - c;
+            for (int i = 0; i < m; i++) {
+                double qx = ax[i], qy = ay[i];
+                double qd = nx * qx + ny * qy - c;
+                if ((pd > 0 && qd < 0) || (pd < 0 && qd > 0)) {
+                    double t = pd / (pd - qd);
+                    k = append(k, px + t * (qx - px), py + t * (qy - py));
+                }
+                if (qd >= 0) k = append(k, qx, qy);
+                px = qx;
+                py = qy;
+                pd = qd;
+            }
+            if (k > 1 && bx[k - 1] == bx[0] && by[k - 1] == by[0]) k--;
+            double[] tx = ax, ty = ay;
+            ax = bx;
+            ay = by;
+            bx = tx;
+            by = ty;
+            return k;
+        }
+
+        private int append(int k, double x, double y) {
+            if (k > 0 && bx[k - 1] == x && by[k - 1] == y) return k;
+            bx[k] = x;
+            by[k] = y;
+            return k + 1;
+        }
+
+        private void emit(int m) {
+            if (size + m > cellXs.length) {
+                int cap = Math.max(cellXs.length * 2, size + m);
+                cellXs = Arrays.copyOf(cellXs, cap);
+                cellYs = Arrays.copyOf(cellYs, cap);
+            }
+            System.arraycopy(ax, 0, cellXs, size, m);
+            System.arraycopy(ay, 0, cellYs, size, m);
+            size += m;
+        }
+
+        private void growBuffers() {
+            int cap = ax.length * 2;
+            ax = Arrays.copyOf(ax, cap);
+            ay = Arrays.copyOf(ay, cap);
+            bx = Arrays.copyOf(bx, cap);
+            by = Arrays.copyOf(by, cap);
+        }
+
+        private static void reverse(double[] xs, double[] ys, int m) {
+            for (int i = 0, j = m - 1; i < j; i++, j--) {
+                double t = xs[i];
+                xs[i] = xs[j];
+                xs[j] = t;
+                t = ys[i];
+                ys[i] = ys[j];
+                ys[j] = t;
+            }
+        }
+    }
+
+    // Read-only queries over a finished triangulation: the nearest site to a
+    // point (its Voronoi cell) and the triangle that contains it.
+    //
+    // Sites live in a flat k-d tree: one array in tree order, each range split at
+    // its median, alternating x and y, with small ranges left as leaf buckets.
+    // Point location jumps to the nearest site and walks from one of its
+    // triangles toward the query, crossing any edge the query lies strictly
+    // beyond. Such a walk always terminates on a Delaunay triangulation.
+    //
+    // Nothing is written after construction, so any number of threads may query
+    // one index at once without locks. The fields are final, so an index handed
+    // to another thread is seen fully built. With metrics on, queries and walk
+    // steps go to striped counters, once per query.
+    static final class SiteIndex {
+        private static final Metrics.Counter NEAREST = Metrics.counter("index.nearest.queries");
+        private static final Metrics.Counter WALKS = Metrics.counter("index.walks");
+        private static final Metrics.Counter STEPS = Metrics.counter("index.walk.steps");
+        private static final int LEAF = 16;
+
+        final Delaunay mesh;
+        private final double[] xs, ys;
+        private final int[] triangles, halfedges;
+        private final int[] ids;      // indexed sites in tree order
+        private final double[] coords; // x, y of ids[k] at 2k, 2k + 1
+        private final int[] edges;    // a half-edge leaving ids[k], the jump target
+
+        SiteIndex(Delaunay mesh) {
+            this.mesh = mesh;
+            xs = mesh.xs;
+            ys = mesh.ys;
+            triangles = mesh.triangles;
+            halfedges = mesh.halfedges;
+            int n = mesh.n;
+            int[] siteEdge = new int[n]; // -1 for a site in no triangle
+            Arrays.fill(siteEdge, -1);
+            for (int e = 0; e < triangles.length; e++) {
+                if (siteEdge[triangles[e]] == -1) siteEdge[triangles[e]] = e;
+            }
+
+            // Duplicates were left out of the triangulation; index their twin only
+            int m = 0;
+            int[] ids = new int[n];
+            for (int i = 0; i < n; i++) {
+                if (triangles.length == 0 || siteEdge[i] != -1) ids[m++] = i;
+            }
+            this.ids = Arrays.copyOf(ids, m);
+            coords = new double[2 * m];
+            for (int k = 0; k < m; k++) {
+                coords[2 * k] = xs[this.ids[k]];
+                coords[2 * k + 1] = ys[this.ids[k]];
+            }
+            build(0, m - 1, 0);
+            edges = new int[m];
+            for (int k = 0; k < m; k++) edges[k] = siteEdge[this.ids[k]];
+        }
+
+        // Index of a site nearest to (x, y), or -1 if there are none
+        int nearest(double x, double y) {
+            if (ids.length == 0) return -1;
+            if (Metrics.ENABLED) NEAREST.add(1);
+            return ids[search(x, y, 0, ids.length - 1, 0, -1)];
+        }
+
+        // Triangle containing (x, y), edges and corners included, or -1 if the
+        // point is outside the hull or there are no triangles
+        int locate(double x, double y) {
+            if (triangles.length == 0) return -1;
+            return walk(x, y, edges[search(x, y, 0, ids.length - 1, 0, -1)] / 3);
+        }
+
+        // Visibility walk from triangle t
+        int walk(double x, double y, int t) {
+            int from = 0; // edges are tried starting after the one walked in through
+            for (long steps = 0; ; steps++) {
+                int exit = -1;
+                for (int k = 0; k < 3 && exit == -1; k++) {
+                    int e = 3 * t + (from + k) % 3;
+                    int a = triangles[e], b = triangles[Delaunay.next(e)];
+                    if (Predicates.orient2d(xs[a], ys[a], xs[b], ys[b], x, y) < 0) exit = e;
+                }
+                int twin = exit == -1 ? -1 : halfedges[exit];
+                if (twin == -1) {
+                    if (Metrics.ENABLED) {
+                        WALKS.add(1);
+                        STEPS.add(steps);
+                    }
+                    return exit == -1 ? t : -1; // inside t, or beyond a hull edge
+                }
+                t = twin / 3;
+                from = twin % 3 + 1;
+            }
+        }
+
+        // Order coords[left .. right] into a k-d tree splitting on axis first
+        private void build(int left, int right, int axis) {
+            while (right - left > LEAF) {
+                int m = (left + right) >>> 1;
+                select(m, left, right, axis);
+                build(left, m - 1, 1 - axis);
+                left = m + 1;
+                axis = 1 - axis;
+            }
+        }
+
+        // Put the k-th smallest along axis at k, smaller ones before it and larger
+        // ones after. Hoare partitions, so runs of equal coordinates split evenly.
+        private void select(int k, int left, int right, int axis) {
+            while (right > left) {
+                int mid = (left + right) >>> 1;
+                if (coord(mid, axis) < coord(left, axis)) swap(mid, left);
+                if (coord(right, axis) < coord(left, axis)) swap(right, left);
+                if (coord(right, axis) < coord(mid, axis)) swap(right, mid);
+                double pivot = coord(mid, axis);
+                int i = left, j = right;
+                while (i <= j) {
+                    while (coord(i, axis) < pivot) i++;
+                    while (coord(j, axis) > pivot) j--;
+                    if (i <= j) swap(i++, j--);
+                }
+                if (k <= j) right = j;
+                else if (k >= i) left = i;
+                else return;
+            }
+        }
+
+        // Best tree position in [left, right] for (x, y), given the best so far.
+        // The nearer half goes first; the other only if the split line is closer
+        // than the best distance.
+        private int search(double x, double y, int left, int right, int axis, int best) {
+            if (right - left <= LEAF) {
+                double bestD = best < 0 ? Double.POSITIVE_INFINITY : distSq(best, x, y);
+                for (int k = left; k <= right; k++) {
+                    double d = distSq(k, x, y);
+                    if (d < bestD) {
+                        bestD = d;
+                        best = k;
+                    }
+                }
+                return best;
+            }
+            int m = (left + right) >>> 1;
+            if (best < 0 || distSq(m, x, y) < distSq(best, x, y)) best = m;
+            double delta = (axis == 0 ? x : y) - coord(m, axis);
+            if (delta < 0) {
+                best = search(x, y, left, m - 1, 1 - axis, best);
+                if (delta * delta < distSq(best, x, y)) best = search(x, y, m + 1, right, 1 - axis, best);
+            } else {
+                best = search(x, y, m + 1, right, 1 - axis, best);
+                if (delta * delta < distSq(best, x, y)) best = search(x, y, left, m - 1, 1 - axis, best);
+            }
+            return best;
+        }
+
+        private double coord(int k, int axis) {
+            return coords[2 * k + axis];
+        }
+
+        private double distSq(int k, double x, double y) {
+            double dx = coords[2 * k] - x, dy = coords[2 * k + 1] - y;
+            return dx * dx + dy * dy;
+        }
+
+        private void swap(int i, int j) {
+            int t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+            double c = coords[2 * i];
+            coords[2 * i] = coords[2 * j];
+            coords[2 * j] = c;
+            c = coords[2 * i + 1];
+            coords[2 * i + 1] = coords[2 * j + 1];
+            coords[2 * j + 1] = c;
         }
-        return true;
     }
 
-    // Find circumcircle center and radius
-    private double[] circumcircle(Point a, Point b, Point c) {
-        double A = b.x - a.x, B = b.y - a.y;
-        double C = c.x - a.x, D = c.y - a.y;
-        double E = A * (a.x + b.x) + B * (a.y + b.y);
-        double F = C * (a.x + c.x) + D * (a.y + c.y);
-        double G = 2 * (A * (c.y - b.y) - B * (c.x - b.x));
-        if (Math.abs(G) < 1e-6) return new double[]{0, 0, Double.MAX_VALUE};
-        double cx = (D * E - B * F) / G;
-        double cy = (A * F - C * E) / G;
-        double r = Math.hypot(a.x - cx, a.y - cy);
-        return new double[]{cx, cy, r};
+    // Triangulate the panel's points with the engine
+    private void computeDelaunay() {
+        double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = pts[i].x;
+            ys[i] = pts[i].y;
+        }
+        mesh = new Delaunay(xs, ys, n);
+        cells = new Voronoi(mesh, 0, 0, 800, 500);
     }
 
     // Paint both diagrams
@@ -95,23 +1714,467 @@ public class VoronoiDelaunay extends JPanel {
         for (Point p : pts) gg.fillOval(p.x - 3, p.y - 3, 6, 6);
 
         gg.setColor(Color.BLUE);
-        for (Triangle t : triangles)
-            gg.draw(new Line2D.Double(t.a.x, t.a.y, t.b.x, t.b.y)),
-            gg.draw(new Line2D.Double(t.b.x, t.b.y, t.c.x, t.c.y)),
-            gg.draw(new Line2D.Double(t.c.x, t.c.y, t.a.x, t.a.y));
+        int[] tri = mesh.triangles;
+        for (int e = 0; e < tri.length; e++) {
+            // Each interior edge has two half-edges; draw it once
+            if (e > mesh.halfedges[e]) {
+                Point a = pts[tri[e]], b = pts[tri[Delaunay.next(e)]];
+                gg.draw(new Line2D.Double(a.x, a.y, b.x, b.y));
+            }
+        }
 
-        gg.setColor(new Color(255, 0, 0, 70));
-        for (Point p : pts) {
+        // Voronoi cells come precomputed from the Voronoi builder
+        for (int i = 0; i < n; i++) {
             Polygon region = new Polygon();
-            for (Triangle t : triangles) {
-                double[] circle = circumcircle(t.a, t.b, t.c);
-                region.addPoint((int) circle[0], (int) circle[1]);
-            }
+            for (int k = cells.cellOffsets[i]; k < cells.cellOffsets[i + 1]; k++)
+                region.addPoint((int) Math.round(cells.cellXs[k]), (int) Math.round(cells.cellYs[k]));
+            gg.setColor(new Color(255, 0, 0, 40));
             gg.fillPolygon(region);
+            gg.setColor(new Color(200, 0, 0));
+            gg.drawPolygon(region);
+        }
+    }
+
+    // Headless run: batch [--spatial] [--voronoi | --locate <queries>] <points> [out]
+    // Reads x y sites (binary or text, "-" for stdin) and writes the Delaunay
+    // triangles as site index triples. With --voronoi it writes one line per site
+    // instead: the cell vertices, clipped to the bounding box of the sites. With
+    // --locate it writes, per query point, the nearest site and the containing
+    // triangle (-1 outside the hull). --spatial triangulates the sites in Hilbert
+    // order; site indices in the output are still input indices.
+    static void batch(String[] args) throws IOException {
+        boolean voronoi = false, spatial = false;
+        String in = null, out = "-", queries = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--voronoi")) voronoi = true;
+            else if (args[i].equals("--spatial")) spatial = true;
+            else if (args[i].equals("--locate") && i + 1 < args.length) queries = args[++i];
+            else if (in == null) in = args[i];
+            else out = args[i];
+        }
+        if (in == null || (voronoi && queries != null))
+            throw new IllegalArgumentException("usage: batch [--spatial] [--voronoi | --locate <queries>] <points> [out]");
+
+        PointIO.Table t = PointIO.read(in);
+        t.requireColumns(2);
+        double[] xs = t.doubleColumn(0), ys = t.doubleColumn(1);
+        int[] site = new int[t.n], cell = new int[t.n]; // mesh index -> input index and back
+        for (int i = 0; i < t.n; i++) site[i] = cell[i] = i;
+        if (spatial) {
+            site = SpatialOrder.hilbert(xs, ys, t.n);
+            cell = SpatialOrder.inverse(site, t.n);
+            xs = SpatialOrder.permute(xs, site, t.n);
+            ys = SpatialOrder.permute(ys, site, t.n);
+        }
+        Delaunay mesh = new Delaunay(xs, ys, t.n);
+        try (PointIO.Writer w = PointIO.Writer.open(out)) {
+            if (queries != null) {
+                PointIO.Table qt = PointIO.read(queries);
+                qt.requireColumns(2);
+                double[] qx = qt.doubleColumn(0), qy = qt.doubleColumn(1);
+                SiteIndex index = new SiteIndex(mesh);
+                for (int k = 0; k < qt.n; k++)
+                    w.num(site[index.nearest(qx[k], qy[k])]).sep().num(index.locate(qx[k], qy[k])).newline();
+                return;
+            }
+            if (!voronoi) {
+                int[] tri = mesh.triangles;
+                for (int k = 0; k < tri.length; k += 3)
+                    w.num(site[tri[k]]).sep().num(site[tri[k + 1]]).sep().num(site[tri[k + 2]]).newline();
+                return;
+            }
+            double minX = Double.POSITIVE_INFINITY, minY = minX, maxX = -minX, maxY = -minX;
+            for (int i = 0; i < t.n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            Voronoi cells = new Voronoi(mesh, minX, minY, maxX, maxY);
+            for (int i = 0; i < t.n; i++) {
+                w.num(i);
+                for (int k = cells.cellOffsets[cell[i]]; k < cells.cellOffsets[cell[i] + 1]; k++)
+                    w.sep().num(cells.cellXs[k]).sep().num(cells.cellYs[k]);
+                w.newline();
+            }
+        }
+    }
+
+    // Random site sets (scattered, on a grid with duplicates, collinear, tiny)
+    // and queries on sites, edges and outside the hull, against brute force.
+    // Every few cases the queries also run from several threads sharing the
+    // index. The mesh must leave every circumcircle empty, and the Voronoi
+    // cells of a box around the sites must cover it, each counterclockwise,
+    // without a repeated vertex, and with every vertex as close to its own
+    // site as to any other. Then the same sites in Hilbert and BRIO order.
+    // Returns the number of failures.
+    static int selfCheck(PrintWriter pw, int cases) {
+        int failures = 0;
+        for (int c = 0; c < cases; c++) {
+            Random rnd = new Random(c);
+            int n = c % 10 == 0 ? rnd.nextInt(4) : 1 + rnd.nextInt(c % 3 == 0 ? 2000 : 200);
+            double[] xs = new double[n], ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                switch (c % 4) {
+                    case 0: // scattered
+                        xs[i] = rnd.nextDouble() * 1000;
+                        ys[i] = rnd.nextDouble() * 1000;
+                        break;
+                    case 1: // grid: cocircular quadruples and repeated sites
+                        xs[i] = rnd.nextInt(12);
+                        ys[i] = rnd.nextInt(12);
+                        break;
+                    case 2: // one line, now and then a site off it
+                        xs[i] = rnd.nextInt(50);
+                        ys[i] = i == 0 && rnd.nextBoolean() ? 7 : 2 * xs[i] + 1;
+                        break;
+                    default: // clustered at very different scales
+                        double s = Math.pow(10, rnd.nextInt(6) - 2);
+                        xs[i] = 500 + rnd.nextGaussian() * s;
+                        ys[i] = 500 + rnd.nextGaussian() * s;
+                        break;
+                }
+            }
+            if (c == 1) { // the cell of (10, 10) once had a vertex on a clip line twice
+                n = 6;
+                xs = new double[]{0, 10, 0, 10, 5, 3};
+                ys = new double[]{0, 0, 10, 10, 5, 8};
+            }
+            Delaunay mesh = new Delaunay(xs, ys, n);
+            SiteIndex index = new SiteIndex(mesh);
+            int[] tri = mesh.triangles;
+
+            int q = 300;
+            double[] qx = new double[q], qy = new double[q];
+            double minX = Double.POSITIVE_INFINITY, minY = minX, maxX = -minX, maxY = -minX;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            if (n == 0) minX = minY = maxX = maxY = 0;
+            double w = maxX - minX + 1, h = maxY - minY + 1;
+            for (int k = 0; k < q; k++) {
+                int i = n == 0 ? 0 : rnd.nextInt(n), j = n == 0 ? 0 : rnd.nextInt(n);
+                switch (k % 3) {
+                    case 0: // anywhere around the sites
+                        qx[k] = minX - w / 4 + rnd.nextDouble() * w * 1.5;
+                        qy[k] = minY - h / 4 + rnd.nextDouble() * h * 1.5;
+                        break;
+                    case 1: // on a site
+                        qx[k] = n == 0 ? 0 : xs[i];
+                        qy[k] = n == 0 ? 0 : ys[i];
+                        break;
+                    default: // on the segment between two sites, often an edge
+                        qx[k] = n == 0 ? 0 : (xs[i] + xs[j]) / 2;
+                        qy[k] = n == 0 ? 0 : (ys[i] + ys[j]) / 2;
+                        break;
+                }
+            }
+
+            java.util.List<String> errors = new ArrayList<>();
+            int[] sites = new int[q], found = new int[q];
+            for (int k = 0; k < q; k++) {
+                double x = qx[k], y = qy[k];
+                sites[k] = index.nearest(x, y);
+                found[k] = index.locate(x, y);
+                double best = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < n; i++) best = Math.min(best, (xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y));
+                int s = sites[k];
+                if (n == 0 ? s != -1 : s < 0 || (xs[s] - x) * (xs[s] - x) + (ys[s] - y) * (ys[s] - y) != best)
+                    errors.add("nearest to " + x + " " + y);
+                int t = found[k];
+                boolean inside = false;
+                for (int u = 0; u < tri.length / 3 && !inside; u++) inside = contains(mesh, u, x, y);
+                if (t == -1 ? inside : !contains(mesh, t, x, y)) errors.add("locate " + x + " " + y);
+            }
+
+            // The same queries from four threads at once
+            if (c % 25 == 0) {
+                int[] sites2 = new int[q], found2 = new int[q];
+                Thread[] threads = new Thread[4];
+                for (int r = 0; r < threads.length; r++) {
+                    int first = r;
+                    threads[r] = new Thread(() -> {
+                        for (int k = first; k < q; k += threads.length) {
+                            sites2[k] = index.nearest(qx[k], qy[k]);
+                            found2[k] = index.locate(qx[k], qy[k]);
+                        }
+                    });
+                    threads[r].start();
+                }
+                for (Thread th : threads) {
+                    try {
+                        th.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (!Arrays.equals(sites, sites2) || !Arrays.equals(found, found2)) errors.add("threads disagree");
+            }
+
+            // Empty circles: no site strictly inside any triangle's circumcircle
+            for (int u = 0; u < tri.length / 3; u++) {
+                int a = tri[3 * u], b = tri[3 * u + 1], d = tri[3 * u + 2];
+                for (int i = 0; i < n; i++) {
+                    if (Predicates.incircle(xs[a], ys[a], xs[b], ys[b], xs[d], ys[d], xs[i], ys[i]) > 0) {
+                        errors.add("site " + i + " inside the circumcircle of triangle " + u);
+                        break;
+                    }
+                }
+            }
+
+            // Voronoi cells in a box half the sites' extent wider on each side
+            if (n > 0) {
+                double mx = Math.max(1, (maxX - minX) / 2), my = Math.max(1, (maxY - minY) / 2);
+                double x0 = minX - mx, y0 = minY - my, x1 = maxX + mx, y1 = maxY + my;
+                double span = (x1 - x0) + (y1 - y0), tol = 1e-9 * span, covered = 0;
+                Voronoi cells = new Voronoi(mesh, x0, y0, x1, y1);
+                for (int i = 0; i < n; i++) {
+                    int lo = cells.cellOffsets[i], hi = cells.cellOffsets[i + 1];
+                    double area = 0;
+                    for (int k = lo, j = hi - 1; k < hi; j = k++) {
+                        double x = cells.cellXs[k], y = cells.cellYs[k];
+                        area += cells.cellXs[j] * y - x * cells.cellYs[j];
+                        for (int l = lo; l < k; l++) {
+                            if (cells.cellXs[l] == x && cells.cellYs[l] == y) errors.add("cell " + i + " repeats " + x + " " + y);
+                        }
+                        if (x < x0 - tol || x > x1 + tol || y < y0 - tol || y > y1 + tol)
+                            errors.add("cell " + i + " leaves the box at " + x + " " + y);
+                        double own = Math.hypot(xs[i] - x, ys[i] - y), best = own;
+                        for (int j2 = 0; j2 < n; j2++) best = Math.min(best, Math.hypot(xs[j2] - x, ys[j2] - y));
+                        if (own > best + tol) errors.add("cell " + i + " vertex " + x + " " + y + " is closer to another site");
+                    }
+                    if (area < -tol * span) errors.add("cell " + i + " runs clockwise");
+                    covered += area / 2;
+                }
+                double box = (x1 - x0) * (y1 - y0);
+                if (Math.abs(covered - box) > 1e-9 * box) errors.add("cells cover " + covered + " of a box of " + box);
+            }
+
+            // Curve orders are permutations, and the sites in either one give
+            // a mesh of the same size
+            int[] curve = SpatialOrder.hilbert(xs, ys, n), brio = SpatialOrder.brio(xs, ys, n, c);
+            int[] a = curve.clone(), b = brio.clone();
+            Arrays.sort(a);
+            Arrays.sort(b);
+            for (int i = 0; i < n; i++) {
+                if (a[i] != i || b[i] != i) errors.add("order is not a permutation");
+            }
+            for (int[] order : new int[][]{curve, brio}) {
+                Delaunay other = new Delaunay(SpatialOrder.permute(xs, order, n), SpatialOrder.permute(ys, order, n), n);
+                if (other.triangles.length != tri.length || other.hull.length != mesh.hull.length)
+                    errors.add("mesh differs in curve order");
+            }
+
+            if (!errors.isEmpty()) {
+                failures++;
+                pw.printf("case %d (n=%d): %d errors, first %s%n", c, n, errors.size(), errors.get(0));
+            }
+        }
+        pw.printf("%d of %d cases passed%n", cases - failures, cases);
+        pw.flush();
+        return failures;
+    }
+
+    private static boolean contains(Delaunay mesh, int t, double x, double y) {
+        for (int e = 3 * t; e < 3 * t + 3; e++) {
+            int a = mesh.triangles[e], b = mesh.triangles[Delaunay.next(e)];
+            if (Predicates.orient2d(mesh.xs[a], mesh.ys[a], mesh.xs[b], mesh.ys[b], x, y) < 0) return false;
         }
+        return true;
     }
 
-    public static void main(String[] args) {
+    // 1M uniform sites, first in random order, then along the Hilbert curve:
+    // triangulation time and query latency, p50 / p99 of single calls each
+    // timed on its own. Then locate throughput (queries/s) from several threads
+    // sharing one index.
+    static void benchmark(PrintWriter pw) {
+        int n = 1 << 20, q = 1 << 20;
+        Random rnd = new Random(42);
+        double[] xs = new double[n], ys = new double[n], qx = new double[q], qy = new double[q];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextDouble() * 1e6;
+            ys[i] = rnd.nextDouble() * 1e6;
+        }
+        for (int k = 0; k < q; k++) {
+            qx[k] = rnd.nextDouble() * 1e6;
+            qy[k] = rnd.nextDouble() * 1e6;
+        }
+        SiteIndex index = null;
+        long[] nanos = new long[q];
+        for (int pass = 0; pass < 2; pass++) {
+            String order = pass == 0 ? " (random order)" : " (hilbert order)";
+            long t0 = System.nanoTime();
+            if (pass == 1) {
+                SpatialOrder.hilbert(xs, ys, n); // warm up
+                t0 = System.nanoTime();
+                int[] curve = SpatialOrder.hilbert(xs, ys, n);
+                xs = SpatialOrder.permute(xs, curve, n);
+                ys = SpatialOrder.permute(ys, curve, n);
+                report(pw, "hilbert sort", n, 1, System.nanoTime() - t0);
+            }
+            t0 = System.nanoTime();
+            Delaunay mesh = new Delaunay(xs, ys, n);
+            report(pw, "triangulate" + order, n, 1, System.nanoTime() - t0);
+            t0 = System.nanoTime();
+            index = new SiteIndex(mesh);
+            report(pw, "build index" + order, n, 1, System.nanoTime() - t0);
+            for (int mode = 0; mode < (pass == 0 ? 3 : 2); mode++) {
+                latency(pw, index, mode, qx, qy, mode == 2 ? q / 64 : q, nanos);
+            }
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        SiteIndex shared = index;
+        for (int threads = 1; threads <= 4 * cores; threads *= 2) {
+            Thread[] pool = new Thread[threads];
+            long t0 = System.nanoTime();
+            for (int r = 0; r < threads; r++) {
+                int first = r, step = threads;
+                pool[r] = new Thread(() -> {
+                    long sink = 0;
+                    for (int k = first; k < q; k += step) sink += shared.locate(qx[k], qy[k]);
+                    if (sink == 42) System.out.print("");
+                });
+                pool[r].start();
+            }
+            for (Thread th : pool) {
+                try {
+                    th.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            report(pw, "locate x" + threads + " threads", q, 1, System.nanoTime() - t0);
+        }
+    }
+
+    // Latency of m single queries of one kind: 0 nearest, 1 locate, 2 a walk
+    // from triangle 0
+    private static void latency(PrintWriter pw, SiteIndex index, int mode, double[] qx, double[] qy, int m, long[] nanos) {
+        String name = mode == 0 ? "nearest site" : mode == 1 ? "locate (jump and walk)" : "walk from triangle 0";
+        long sink = 0, t0 = 0;
+        for (int r = 0; r < 2; r++) { // the first round warms up
+            t0 = System.nanoTime();
+            for (int k = 0; k < m; k++) {
+                long s = System.nanoTime();
+                sink += mode == 0 ? index.nearest(qx[k], qy[k])
+                    : mode == 1 ? index.locate(qx[k], qy[k]) : index.walk(qx[k], qy[k], 0);
+                nanos[k] = System.nanoTime() - s;
+            }
+        }
+        long total = System.nanoTime() - t0;
+        Arrays.sort(nanos, 0, m);
+        report(pw, name, m, 1, total);
+        pw.printf("%-28s %10d ns p50 %10d ns p99 %10d ns max%n", "", nanos[m / 2], nanos[m - m / 100], nanos[m - 1]);
+        if (sink == 42) pw.print("");
+    }
+
+    // Standard suite: triangulation, Voronoi cells and the site index on every
+    // point workload from 10^3 sites to max, then n uniform nearest-site and
+    // locate queries. At the largest size the locate queries are split over
+    // one thread to all cores, each taking every threads-th query.
+    static void suite(PrintWriter pw, int max) {
+        Bench.header(pw);
+        int[] sizes = Bench.sizes(max);
+        for (String workload : Bench.POINTS) {
+            for (int n : sizes) {
+                int[] ix = new int[n], iy = new int[n];
+                Bench.points(workload, n, Bench.SEED, ix, iy);
+                double[] xs = Bench.doubles(ix, n), ys = Bench.doubles(iy, n);
+                Bench.points("uniform", n, Bench.SEED + 1, ix, iy);
+                double[] qx = Bench.doubles(ix, n), qy = Bench.doubles(iy, n);
+                Bench.measure(pw, "triangulate", workload, n, () -> new Delaunay(xs, ys, n).triangleCount());
+                Delaunay mesh = new Delaunay(xs, ys, n);
+                Bench.measure(pw, "voronoi cells", workload, n,
+                    () -> new Voronoi(mesh, 0, 0, Bench.BOX, Bench.BOX).cellSize(0));
+                Bench.measure(pw, "build index", workload, n, () -> new SiteIndex(mesh).nearest(0, 0));
+                SiteIndex index = new SiteIndex(mesh);
+                Bench.measure(pw, "nearest site", workload, n, () -> {
+                    long sum = 0;
+                    for (int k = 0; k < n; k++) sum += index.nearest(qx[k], qy[k]);
+                    return sum;
+                });
+                Bench.measure(pw, "locate", workload, n, () -> {
+                    long sum = 0;
+                    for (int k = 0; k < n; k++) sum += index.locate(qx[k], qy[k]);
+                    return sum;
+                });
+                if (n < sizes[sizes.length - 1]) continue;
+                for (int threads : Bench.threads()) {
+                    Bench.measure(pw, "locate x" + threads, workload, n, () -> {
+                        long[] sums = new long[threads];
+                        Thread[] pool = new Thread[threads];
+                        for (int r = 0; r < threads; r++) {
+                            int first = r;
+                            pool[r] = new Thread(() -> {
+                                for (int k = first; k < n; k += threads) sums[first] += index.locate(qx[k], qy[k]);
+                            });
+                            pool[r].start();
+                        }
+                        for (Thread th : pool) {
+                            try {
+                                th.join();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return Arrays.stream(sums).sum();
+                    });
+                }
+            }
+        }
+    }
+
+    static void report(PrintWriter pw, String name, int n, int reps, long nanos) {
+        double ms = nanos / 1e6 / reps;
+        pw.printf("%-28s %10.2f ms/run %10.2f M/s%n", name, ms, n / ms / 1e3);
+        pw.flush();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Metrics.ENABLED) Metrics.export("delaunay");
+        if (args.length > 0 && args[0].equals("check")) {
+            PrintWriter pw = new PrintWriter(System.out);
+            if (selfCheck(pw, args.length > 1 ? Integer.parseInt(args[1]) : 2000) > 0) System.exit(1);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(new PrintWriter(System.out));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("suite")) {
+            suite(new PrintWriter(System.out), args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("convert")) {
+            PointIO.convert(args[1], args[2]);
+            return;
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            // No display: print the triangulation instead
+            VoronoiDelaunay v = new VoronoiDelaunay();
+            System.out.println("Delaunay triangles: " + v.mesh.triangleCount());
+            int[] tri = v.mesh.triangles;
+            for (int t = 0; t < tri.length; t += 3) {
+                Point a = v.pts[tri[t]], b = v.pts[tri[t + 1]], c = v.pts[tri[t + 2]];
+                System.out.println("(" + a.x + ", " + a.y + ") (" + b.x + ", " + b.y + ") (" + c.x + ", " + c.y + ")");
+            }
+            System.out.println("Voronoi cells:");
+            for (int i = 0; i < v.n; i++) {
+                StringBuilder sb = new StringBuilder("(" + v.pts[i].x + ", " + v.pts[i].y + "):");
+                for (int k = v.cells.cellOffsets[i]; k < v.cells.cellOffsets[i + 1]; k++)
+                    sb.append(String.format(" (%.1f, %.1f)", v.cells.cellXs[k], v.cells.cellYs[k]));
+                System.out.println(sb);
+            }
+            return;
+        }
         JFrame frame = new JFrame("Voronoi Diagram & Delaunay Triangulation");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.add(new VoronoiDelaunay());
@@ -124,16 +2187,17 @@ public class VoronoiDelaunay extends JPanel {
 Line-by-Line Explanation:
 1. We define a JPanel to draw both diagrams.
 2. Random points are generated inside the panel.
-3. We find all unique triplets of points (i, j, k) and check if they form a Delaunay triangle.
-4. For each triangle, we compute its circumcircle and verify that no other point lies inside it.
-5. Valid triangles are stored and drawn in blue.
-6. Approximate Voronoi regions are filled using circumcenters of triangles in red transparency.
+3. The Delaunay engine sorts the points by distance from a seed triangle and inserts them one by one.
+4. Each new point is joined to the hull edges it can see, and edges are flipped until no point lies inside a neighbouring circumcircle.
+5. Triangles are stored as flat index arrays and drawn in blue.
+6. Voronoi cells are built once from the triangulation (circumcenters around each point, clipped to the panel) and filled in red transparency.
 7. The final result shows Delaunay connections and Voronoi partitions.
+8. A SiteIndex over the finished mesh answers which site is nearest to a query point (a k-d tree) and which triangle contains it (a walk from that site).
 
 Output:
 - Black dots: seed points.
 - Blue lines: Delaunay triangles.
-- Red shaded regions: approximate Voronoi cells.
+- Red shaded regions: Voronoi cells.
 
 Summary:
 ✅ Delaunay forms triangles connecting nearby points.